@@ -34,6 +34,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.concurrent.Callable;
 
@@ -1133,12 +1134,39 @@ public class OozieClient {
             conn.setRequestProperty("content-type", RestConstants.XML_CONTENT_TYPE);
             if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
                 Reader reader = new InputStreamReader(conn.getInputStream());
-                JSONObject json = (JSONObject) JSONValue.parse(reader);
-                JSONArray workflows = (JSONArray) json.get(JsonTags.WORKFLOWS_JOBS);
-                if (workflows == null) {
-                    workflows = new JSONArray();
+                return JsonToBean.readWorkflowJobList(reader, JsonTags.WORKFLOWS_JOBS, null);
+            }
+            else {
+                handleError(conn);
+            }
+            return null;
+        }
+    }
+
+    private class JobsPage extends ClientCallable<List<WorkflowJob>> {
+        private final JobsPageIterator pages;
+
+        JobsPage(JobsPageIterator pages) {
+            super("GET", RestConstants.JOBS, "", prepareParams(RestConstants.JOBS_FILTER_PARAM, pages.filter,
+                    RestConstants.JOBTYPE_PARAM, "wf", RestConstants.JOBS_CURSOR_PARAM, pages.cursor,
+                    RestConstants.LEN_PARAM, Integer.toString(pages.len), RestConstants.JOBS_COUNT_PARAM,
+                    (pages.count && pages.total == null) ? "true" : null));
+            this.pages = pages;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected List<WorkflowJob> call(HttpURLConnection conn) throws IOException, OozieClientException {
+            conn.setRequestProperty("content-type", RestConstants.XML_CONTENT_TYPE);
+            if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
+                Reader reader = new InputStreamReader(conn.getInputStream());
+                JSONObject json = new JSONObject();
+                List<WorkflowJob> workflows = JsonToBean.readWorkflowJobList(reader, JsonTags.WORKFLOWS_JOBS, json);
+                pages.cursor = (String) json.get(JsonTags.WORKFLOWS_NEXT_CURSOR);
+                if (json.get(JsonTags.WORKFLOWS_TOTAL) != null) {
+                    pages.total = (Long) json.get(JsonTags.WORKFLOWS_TOTAL);
                 }
-                return JsonToBean.createWorkflowJobList(workflows);
+                return workflows;
             }
             else {
                 handleError(conn);
@@ -1147,6 +1175,68 @@ public class OozieClient {
         }
     }
 
+    /**
+     * Pages of the workflow jobs that match a filter, newest first.
+     * <p/>
+     * Pages are selected with a cursor instead of an offset, so walking deep pages doesn't cost more than the first
+     * one, and jobs created while walking the pages don't shift them.
+     */
+    public class JobsPageIterator {
+        private final String filter;
+        private final int len;
+        private final boolean count;
+        private String cursor;
+        private Long total;
+
+        private JobsPageIterator(String filter, String cursor, int len, boolean count) {
+            this.filter = filter;
+            this.cursor = (cursor != null) ? cursor : "";
+            this.len = len;
+            this.count = count;
+        }
+
+        /**
+         * Return if there is a next page.
+         *
+         * @return <code>true</code> if there is a next page.
+         */
+        public boolean hasNext() {
+            return cursor != null;
+        }
+
+        /**
+         * Return the next page.
+         *
+         * @return the workflow jobs of the next page, without node details.
+         * @throws OozieClientException thrown if the page could not be retrieved.
+         */
+        public List<WorkflowJob> next() throws OozieClientException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return new JobsPage(this).call();
+        }
+
+        /**
+         * Return the cursor of the next page, a new iterator can resume from it.
+         *
+         * @return the cursor of the next page, <code>null</code> if there is no next page.
+         */
+        public String getCursor() {
+            return (cursor != null && cursor.length() > 0) ? cursor : null;
+        }
+
+        /**
+         * Return the approximate number of workflow jobs that match the filter, if requested.
+         *
+         * @return the approximate number of workflow jobs, <code>null</code> if it was not requested or no page has
+         * been retrieved yet.
+         */
+        public Long getTotal() {
+            return total;
+        }
+    }
+
     private class CoordJobsStatus extends ClientCallable<List<CoordinatorJob>> {
 
         CoordJobsStatus(String filter, int start, int len) {
@@ -1160,12 +1250,7 @@ public class OozieClient {
             conn.setRequestProperty("content-type", RestConstants.XML_CONTENT_TYPE);
             if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
                 Reader reader = new InputStreamReader(conn.getInputStream());
-                JSONObject json = (JSONObject) JSONValue.parse(reader);
-                JSONArray jobs = (JSONArray) json.get(JsonTags.COORDINATOR_JOBS);
-                if (jobs == null) {
-                    jobs = new JSONArray();
-                }
-                return JsonToBean.createCoordinatorJobList(jobs);
+                return JsonToBean.readCoordinatorJobList(reader, JsonTags.COORDINATOR_JOBS, null);
             }
             else {
                 handleError(conn);
@@ -1187,12 +1272,7 @@ public class OozieClient {
             conn.setRequestProperty("content-type", RestConstants.XML_CONTENT_TYPE);
             if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
                 Reader reader = new InputStreamReader(conn.getInputStream());
-                JSONObject json = (JSONObject) JSONValue.parse(reader);
-                JSONArray jobs = (JSONArray) json.get(JsonTags.BUNDLE_JOBS);
-                if (jobs == null) {
-                    jobs = new JSONArray();
-                }
-                return JsonToBean.createBundleJobList(jobs);
+                return JsonToBean.readBundleJobList(reader, JsonTags.BUNDLE_JOBS, null);
             }
             else {
                 handleError(conn);
@@ -1213,12 +1293,7 @@ public class OozieClient {
             conn.setRequestProperty("content-type", RestConstants.XML_CONTENT_TYPE);
             if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
                 Reader reader = new InputStreamReader(conn.getInputStream());
-                JSONObject json = (JSONObject) JSONValue.parse(reader);
-                JSONArray results = (JSONArray) json.get(JsonTags.BULK_RESPONSES);
-                if (results == null) {
-                    results = new JSONArray();
-                }
-                return JsonToBean.createBulkResponseList(results);
+                return JsonToBean.readBulkResponseList(reader, JsonTags.BULK_RESPONSES, null);
             }
             else {
                 handleError(conn);
@@ -1240,9 +1315,7 @@ public class OozieClient {
             conn.setRequestProperty("content-type", RestConstants.XML_CONTENT_TYPE);
             if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
                 Reader reader = new InputStreamReader(conn.getInputStream());
-                JSONObject json = (JSONObject) JSONValue.parse(reader);
-                JSONArray coordActions = (JSONArray) json.get(JsonTags.COORDINATOR_ACTIONS);
-                return JsonToBean.createCoordinatorActionList(coordActions);
+                return JsonToBean.readCoordinatorActionList(reader, JsonTags.COORDINATOR_ACTIONS, null);
             }
             else {
                 handleError(conn);
@@ -1266,9 +1339,7 @@ public class OozieClient {
             conn.setRequestProperty("content-type", RestConstants.XML_CONTENT_TYPE);
             if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
                 Reader reader = new InputStreamReader(conn.getInputStream());
-                JSONObject json = (JSONObject) JSONValue.parse(reader);
-                JSONArray coordActions = (JSONArray) json.get(JsonTags.COORDINATOR_ACTIONS);
-                return JsonToBean.createCoordinatorActionList(coordActions);
+                return JsonToBean.readCoordinatorActionList(reader, JsonTags.COORDINATOR_ACTIONS, null);
             }
             else {
                 handleError(conn);
@@ -1356,6 +1427,33 @@ public class OozieClient {
         return getJobsInfo(filter, 1, 50);
     }
 
+    /**
+     * Return an iterator over the pages of the workflow jobs that match the filter, newest first.
+     * <p/>
+     * Pages are retrieved as they are iterated, each with a cursor on the last job of the previous page.
+     *
+     * @param filter job filter. Refer to the {@link OozieClient} for the filter syntax.
+     * @param cursor cursor to resume from, as returned by {@link JobsPageIterator#getCursor()}, <code>null</code> to start
+     * from the newest job.
+     * @param len number of jobs per page.
+     * @param count if the approximate number of matching jobs should be retrieved with the first page.
+     * @return an iterator over the pages of the workflow jobs.
+     */
+    public JobsPageIterator getJobsInfoPages(String filter, String cursor, int len, boolean count) {
+        return new JobsPageIterator(filter, cursor, len, count);
+    }
+
+    /**
+     * Return an iterator over the pages of the workflow jobs that match the filter, newest first.
+     *
+     * @param filter job filter. Refer to the {@link OozieClient} for the filter syntax.
+     * @param len number of jobs per page.
+     * @return an iterator over the pages of the workflow jobs.
+     */
+    public JobsPageIterator getJobsInfoPages(String filter, int len) {
+        return getJobsInfoPages(filter, null, len, false);
+    }
+
     /**
      * Print sla info about coordinator and workflow jobs and actions.
      *
@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.client.rest;
+
+import org.apache.oozie.client.BulkResponse;
+import org.apache.oozie.client.BundleJob;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.json.simple.JSONObject;
+
+/**
+ * Immutable {@link BulkResponse} decoded from a JSON object.
+ * <p/>
+ * The bundle, coordinator and action are decoded once, when the bean is created, the missing ones are
+ * <code>null</code>.
+ */
+class JsonBulkResponse implements BulkResponse {
+    private final BundleJob bundle;
+    private final CoordinatorJob coordinator;
+    private final CoordinatorAction action;
+
+    JsonBulkResponse(JSONObject json) {
+        JSONObject obj = (JSONObject) json.get(JsonTags.BULK_RESPONSE_BUNDLE);
+        bundle = (obj != null) ? new JsonBundleJob(obj) : null;
+        obj = (JSONObject) json.get(JsonTags.BULK_RESPONSE_COORDINATOR);
+        coordinator = (obj != null) ? new JsonCoordinatorJob(obj) : null;
+        obj = (JSONObject) json.get(JsonTags.BULK_RESPONSE_ACTION);
+        action = (obj != null) ? new JsonCoordinatorAction(obj) : null;
+    }
+
+    @Override
+    public BundleJob getBundle() {
+        return bundle;
+    }
+
+    @Override
+    public CoordinatorJob getCoordinator() {
+        return coordinator;
+    }
+
+    @Override
+    public CoordinatorAction getAction() {
+        return action;
+    }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.client.rest;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.client.BundleJob;
+import org.apache.oozie.client.CoordinatorJob;
+import org.json.simple.JSONObject;
+
+/**
+ * Immutable {@link BundleJob} decoded from a JSON object.
+ * <p/>
+ * All the values, including the coordinator jobs of the bundle, are decoded once, when the bean is created.
+ */
+class JsonBundleJob implements BundleJob {
+    private final String appPath;
+    private final String appName;
+    private final String id;
+    private final String externalId;
+    private final String conf;
+    private final Status status;
+    private final Timeunit timeUnit;
+    private final int timeout;
+    private final Date kickoffTime;
+    private final Date startTime;
+    private final Date endTime;
+    private final Date pauseTime;
+    private final Date createdTime;
+    private final String user;
+    private final String group;
+    private final String acl;
+    private final String consoleUrl;
+    private final List<CoordinatorJob> coordinators;
+    private final String toString;
+
+    JsonBundleJob(JSONObject json) {
+        appPath = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_PATH);
+        appName = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_NAME);
+        id = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_ID);
+        externalId = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_EXTERNAL_ID);
+        conf = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_CONF);
+        status = JsonToBean.getEnum(json, JsonTags.BUNDLE_JOB_STATUS, Status.class);
+        timeUnit = JsonToBean.getEnum(json, JsonTags.BUNDLE_JOB_TIMEUNIT, Timeunit.class);
+        timeout = JsonToBean.getInt(json, JsonTags.BUNDLE_JOB_TIMEOUT);
+        kickoffTime = JsonToBean.getDate(json, JsonTags.BUNDLE_JOB_KICKOFF_TIME);
+        startTime = JsonToBean.getDate(json, JsonTags.BUNDLE_JOB_START_TIME);
+        endTime = JsonToBean.getDate(json, JsonTags.BUNDLE_JOB_END_TIME);
+        pauseTime = JsonToBean.getDate(json, JsonTags.BUNDLE_JOB_PAUSE_TIME);
+        createdTime = JsonToBean.getDate(json, JsonTags.BUNDLE_JOB_CREATED_TIME);
+        user = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_USER);
+        group = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_GROUP);
+        acl = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_ACL);
+        consoleUrl = JsonToBean.getString(json, JsonTags.BUNDLE_JOB_CONSOLE_URL);
+        coordinators = JsonToBean.unmodifiable(JsonToBean.createCoordinatorJobList(
+                JsonToBean.getArray(json, JsonTags.BUNDLE_COORDINATOR_JOBS)));
+        toString = JsonToBean.getString(json, JsonTags.TO_STRING);
+    }
+
+    @Override
+    public String getAppPath() {
+        return appPath;
+    }
+
+    @Override
+    public String getAppName() {
+        return appName;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getExternalId() {
+        return externalId;
+    }
+
+    @Override
+    public String getConf() {
+        return conf;
+    }
+
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public Timeunit getTimeUnit() {
+        return timeUnit;
+    }
+
+    @Override
+    public int getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public Date getKickoffTime() {
+        return kickoffTime;
+    }
+
+    @Override
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public Date getPauseTime() {
+        return pauseTime;
+    }
+
+    @Override
+    public Date getCreatedTime() {
+        return createdTime;
+    }
+
+    @Override
+    public String getUser() {
+        return user;
+    }
+
+    @Override
+    public String getGroup() {
+        return group;
+    }
+
+    @Override
+    public String getAcl() {
+        return acl;
+    }
+
+    @Override
+    public String getConsoleUrl() {
+        return consoleUrl;
+    }
+
+    @Override
+    public List<CoordinatorJob> getCoordinators() {
+        return coordinators;
+    }
+
+    @Override
+    public void setStatus(Status status) {
+        throw new UnsupportedOperationException("Undefined method mapping: setStatus");
+    }
+
+    @Override
+    public void setPending() {
+        throw new UnsupportedOperationException("Undefined method mapping: setPending");
+    }
+
+    @Override
+    public void resetPending() {
+        throw new UnsupportedOperationException("Undefined method mapping: resetPending");
+    }
+
+    @Override
+    public String toString() {
+        return (toString != null) ? toString : MessageFormat.format("Bundle id[{0}] status[{1}]", id, status);
+    }
+
+}
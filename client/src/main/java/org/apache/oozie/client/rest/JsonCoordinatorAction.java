@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.client.rest;
+
+import java.text.MessageFormat;
+import java.util.Date;
+
+import org.apache.oozie.client.CoordinatorAction;
+import org.json.simple.JSONObject;
+
+/**
+ * Immutable {@link CoordinatorAction} decoded from a JSON object.
+ * <p/>
+ * All the values are decoded once, when the bean is created.
+ */
+class JsonCoordinatorAction implements CoordinatorAction {
+    private final String jobId;
+    private final String id;
+    private final Date nominalTime;
+    private final Date createdTime;
+    private final String createdConf;
+    private final Date lastModifiedTime;
+    private final int actionNumber;
+    private final String runConf;
+    private final Status status;
+    private final String missingDependencies;
+    private final String pushMissingDependencies;
+    private final String externalStatus;
+    private final String trackerUri;
+    private final String consoleUrl;
+    private final String errorCode;
+    private final String errorMessage;
+    private final String externalId;
+    private final String toString;
+
+    JsonCoordinatorAction(JSONObject json) {
+        jobId = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_ID);
+        id = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_ID);
+        nominalTime = JsonToBean.getDate(json, JsonTags.COORDINATOR_ACTION_NOMINAL_TIME);
+        createdTime = JsonToBean.getDate(json, JsonTags.COORDINATOR_ACTION_CREATED_TIME);
+        createdConf = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_CREATED_CONF);
+        lastModifiedTime = JsonToBean.getDate(json, JsonTags.COORDINATOR_ACTION_LAST_MODIFIED_TIME);
+        actionNumber = JsonToBean.getInt(json, JsonTags.COORDINATOR_ACTION_NUMBER);
+        runConf = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_RUNTIME_CONF);
+        status = JsonToBean.getEnum(json, JsonTags.COORDINATOR_ACTION_STATUS, Status.class);
+        missingDependencies = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_MISSING_DEPS);
+        pushMissingDependencies = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_PUSH_MISSING_DEPS);
+        externalStatus = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_EXTERNAL_STATUS);
+        trackerUri = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_TRACKER_URI);
+        consoleUrl = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_CONSOLE_URL);
+        errorCode = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_ERROR_CODE);
+        errorMessage = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_ERROR_MESSAGE);
+        externalId = JsonToBean.getString(json, JsonTags.COORDINATOR_ACTION_EXTERNALID);
+        toString = JsonToBean.getString(json, JsonTags.TO_STRING);
+    }
+
+    @Override
+    public String getJobId() {
+        return jobId;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Date getNominalTime() {
+        return nominalTime;
+    }
+
+    @Override
+    public Date getCreatedTime() {
+        return createdTime;
+    }
+
+    @Override
+    public String getCreatedConf() {
+        return createdConf;
+    }
+
+    @Override
+    public Date getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public int getActionNumber() {
+        return actionNumber;
+    }
+
+    @Override
+    public String getRunConf() {
+        return runConf;
+    }
+
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getMissingDependencies() {
+        return missingDependencies;
+    }
+
+    @Override
+    public String getPushMissingDependencies() {
+        return pushMissingDependencies;
+    }
+
+    @Override
+    public String getExternalStatus() {
+        return externalStatus;
+    }
+
+    @Override
+    public String getTrackerUri() {
+        return trackerUri;
+    }
+
+    @Override
+    public String getConsoleUrl() {
+        return consoleUrl;
+    }
+
+    @Override
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    @Override
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public void setErrorCode(String errorCode) {
+        throw new UnsupportedOperationException("Undefined method mapping: setErrorCode");
+    }
+
+    @Override
+    public void setErrorMessage(String errorMessage) {
+        throw new UnsupportedOperationException("Undefined method mapping: setErrorMessage");
+    }
+
+    @Override
+    public String getExternalId() {
+        return externalId;
+    }
+
+    @Override
+    public String toString() {
+        return (toString != null) ? toString
+                : MessageFormat.format("CoordinatorAction name[{0}] status[{1}]", id, status);
+    }
+
+}
@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.client.rest;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.json.simple.JSONObject;
+
+/**
+ * Immutable {@link CoordinatorJob} decoded from a JSON object.
+ * <p/>
+ * All the values, including the actions of the job, are decoded once, when the bean is created.
+ */
+class JsonCoordinatorJob implements CoordinatorJob {
+    private final String appPath;
+    private final String appName;
+    private final String id;
+    private final String conf;
+    private final Status status;
+    private final String frequency;
+    private final Timeunit timeUnit;
+    private final String timeZone;
+    private final int concurrency;
+    private final Execution executionOrder;
+    private final int timeout;
+    private final Date lastActionTime;
+    private final Date nextMaterializedTime;
+    private final Date startTime;
+    private final Date endTime;
+    private final Date pauseTime;
+    private final String user;
+    private final String group;
+    private final String acl;
+    private final String bundleId;
+    private final String consoleUrl;
+    private final String externalId;
+    private final List<CoordinatorAction> actions;
+    private final String toString;
+
+    JsonCoordinatorJob(JSONObject json) {
+        appPath = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_PATH);
+        appName = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_NAME);
+        id = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_ID);
+        conf = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_CONF);
+        status = JsonToBean.getEnum(json, JsonTags.COORDINATOR_JOB_STATUS, Status.class);
+        frequency = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_FREQUENCY);
+        timeUnit = JsonToBean.getEnum(json, JsonTags.COORDINATOR_JOB_TIMEUNIT, Timeunit.class);
+        timeZone = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_TIMEZONE);
+        concurrency = JsonToBean.getInt(json, JsonTags.COORDINATOR_JOB_CONCURRENCY);
+        executionOrder = JsonToBean.getEnum(json, JsonTags.COORDINATOR_JOB_EXECUTIONPOLICY, Execution.class);
+        timeout = JsonToBean.getInt(json, JsonTags.COORDINATOR_JOB_TIMEOUT);
+        lastActionTime = JsonToBean.getDate(json, JsonTags.COORDINATOR_JOB_LAST_ACTION_TIME);
+        nextMaterializedTime = JsonToBean.getDate(json, JsonTags.COORDINATOR_JOB_NEXT_MATERIALIZED_TIME);
+        startTime = JsonToBean.getDate(json, JsonTags.COORDINATOR_JOB_START_TIME);
+        endTime = JsonToBean.getDate(json, JsonTags.COORDINATOR_JOB_END_TIME);
+        pauseTime = JsonToBean.getDate(json, JsonTags.COORDINATOR_JOB_PAUSE_TIME);
+        user = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_USER);
+        group = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_GROUP);
+        acl = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_ACL);
+        bundleId = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_BUNDLE_ID);
+        consoleUrl = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_CONSOLE_URL);
+        externalId = JsonToBean.getString(json, JsonTags.COORDINATOR_JOB_EXTERNAL_ID);
+        actions = JsonToBean.unmodifiable(JsonToBean.createCoordinatorActionList(
+                JsonToBean.getArray(json, JsonTags.COORDINATOR_ACTIONS)));
+        toString = JsonToBean.getString(json, JsonTags.TO_STRING);
+    }
+
+    @Override
+    public String getAppPath() {
+        return appPath;
+    }
+
+    @Override
+    public String getAppName() {
+        return appName;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getConf() {
+        return conf;
+    }
+
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getFrequency() {
+        return frequency;
+    }
+
+    @Override
+    public Timeunit getTimeUnit() {
+        return timeUnit;
+    }
+
+    @Override
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public Execution getExecutionOrder() {
+        return executionOrder;
+    }
+
+    @Override
+    public int getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public Date getLastActionTime() {
+        return lastActionTime;
+    }
+
+    @Override
+    public Date getNextMaterializedTime() {
+        return nextMaterializedTime;
+    }
+
+    @Override
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public Date getPauseTime() {
+        return pauseTime;
+    }
+
+    @Override
+    public String getUser() {
+        return user;
+    }
+
+    @Override
+    public String getGroup() {
+        return group;
+    }
+
+    @Override
+    public String getAcl() {
+        return acl;
+    }
+
+    @Override
+    public String getBundleId() {
+        return bundleId;
+    }
+
+    @Override
+    public String getConsoleUrl() {
+        return consoleUrl;
+    }
+
+    @Override
+    public String getExternalId() {
+        return externalId;
+    }
+
+    @Override
+    public List<CoordinatorAction> getActions() {
+        return actions;
+    }
+
+    @Override
+    public void setStatus(Status status) {
+        throw new UnsupportedOperationException("Undefined method mapping: setStatus");
+    }
+
+    @Override
+    public void setPending() {
+        throw new UnsupportedOperationException("Undefined method mapping: setPending");
+    }
+
+    @Override
+    public void resetPending() {
+        throw new UnsupportedOperationException("Undefined method mapping: resetPending");
+    }
+
+    @Override
+    public String toString() {
+        return (toString != null) ? toString
+                : MessageFormat.format("Coordinator application id[{0}] status[{1}]", id, status);
+    }
+
+}
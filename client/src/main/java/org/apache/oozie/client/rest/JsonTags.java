@@ -55,6 +55,7 @@ public interface JsonTags {
     public static final String WORKFLOWS_TOTAL = "total";
     public static final String WORKFLOWS_OFFSET = "offset";
     public static final String WORKFLOWS_LEN = "len";
+    public static final String WORKFLOWS_NEXT_CURSOR = "nextCursor";
 
     public static final String WORKFLOW_ACTION_ID = "id";
     public static final String WORKFLOW_ACTION_NAME = "name";
@@ -22,262 +22,256 @@ import org.apache.oozie.client.BundleJob;
 import org.apache.oozie.client.CoordinatorAction;
 import org.apache.oozie.client.CoordinatorJob;
 import org.apache.oozie.client.JMSConnectionInfo;
-import org.apache.oozie.client.JMSConnectionInfoWrapper;
 import org.apache.oozie.client.WorkflowAction;
 import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.AppType;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 
 /**
  * JSON to bean converter for {@link WorkflowAction}, {@link WorkflowJob}, {@link CoordinatorAction}
  * and {@link CoordinatorJob}.
  * <p/>
- * It uses JDK dynamic proxy to create bean instances.
+ * The beans are immutable, their values are decoded once, when they are created, so the getters do not convert
+ * values on every call. Enum values unknown to this client are decoded as <code>null</code>.
+ * <p/>
+ * The <code>read...List()</code> methods decode the beans of a list while the JSON is read from a stream, only the
+ * JSON object of the bean being decoded is held in memory instead of the JSON object tree of the whole list.
  */
-@SuppressWarnings("rawtypes")
 public class JsonToBean {
 
-    private static class Property {
-        String label;
-        Class type;
-        boolean isList;
+    /**
+     * Creates a bean from the JSON object of an element of a list.
+     */
+    private static abstract class BeanFactory<T> {
+        abstract T create(JSONObject json);
+    }
 
-        public Property(String label, Class type) {
-            this(label, type, false);
+    private static final BeanFactory<WorkflowJob> WF_JOB = new BeanFactory<WorkflowJob>() {
+        @Override
+        WorkflowJob create(JSONObject json) {
+            return new JsonWorkflowJob(json);
         }
+    };
 
-        public Property(String label, Class type, boolean isList) {
-            this.label = label;
-            this.type = type;
-            this.isList = isList;
+    private static final BeanFactory<CoordinatorJob> COORD_JOB = new BeanFactory<CoordinatorJob>() {
+        @Override
+        CoordinatorJob create(JSONObject json) {
+            return new JsonCoordinatorJob(json);
         }
-    }
+    };
 
-    private static final Map<String, Property> WF_JOB = new HashMap<String, Property>();
-    private static final Map<String, Property> WF_ACTION = new HashMap<String, Property>();
-    private static final Map<String, Property> COORD_JOB = new HashMap<String, Property>();
-    private static final Map<String, Property> COORD_ACTION = new HashMap<String, Property>();
-    private static final Map<String, Property> BUNDLE_JOB = new HashMap<String, Property>();
-    private static final Map<String, Property> BULK_RESPONSE = new HashMap<String, Property>();
-    private static final Map<String, Property> JMS_CONNECTION_INFO = new HashMap<String, Property>();
-
-    static {
-        WF_ACTION.put("getId", new Property(JsonTags.WORKFLOW_ACTION_ID, String.class));
-        WF_ACTION.put("getName", new Property(JsonTags.WORKFLOW_ACTION_NAME, String.class));
-        WF_ACTION.put("getType", new Property(JsonTags.WORKFLOW_ACTION_TYPE, String.class));
-        WF_ACTION.put("getConf", new Property(JsonTags.WORKFLOW_ACTION_CONF, String.class));
-        WF_ACTION.put("getStatus", new Property(JsonTags.WORKFLOW_ACTION_STATUS, WorkflowAction.Status.class));
-        WF_ACTION.put("getRetries", new Property(JsonTags.WORKFLOW_ACTION_RETRIES, Integer.TYPE));
-        WF_ACTION.put("getStartTime", new Property(JsonTags.WORKFLOW_ACTION_START_TIME, Date.class));
-        WF_ACTION.put("getEndTime", new Property(JsonTags.WORKFLOW_ACTION_END_TIME, Date.class));
-        WF_ACTION.put("getTransition", new Property(JsonTags.WORKFLOW_ACTION_TRANSITION, String.class));
-        WF_ACTION.put("getData", new Property(JsonTags.WORKFLOW_ACTION_DATA, String.class));
-        WF_ACTION.put("getStats", new Property(JsonTags.WORKFLOW_ACTION_STATS, String.class));
-        WF_ACTION.put("getExternalChildIDs", new Property(JsonTags.WORKFLOW_ACTION_EXTERNAL_CHILD_IDS, String.class));
-        WF_ACTION.put("getExternalId", new Property(JsonTags.WORKFLOW_ACTION_EXTERNAL_ID, String.class));
-        WF_ACTION.put("getExternalStatus", new Property(JsonTags.WORKFLOW_ACTION_EXTERNAL_STATUS, String.class));
-        WF_ACTION.put("getTrackerUri", new Property(JsonTags.WORKFLOW_ACTION_TRACKER_URI, String.class));
-        WF_ACTION.put("getConsoleUrl", new Property(JsonTags.WORKFLOW_ACTION_CONSOLE_URL, String.class));
-        WF_ACTION.put("getErrorCode", new Property(JsonTags.WORKFLOW_ACTION_ERROR_CODE, String.class));
-        WF_ACTION.put("getErrorMessage", new Property(JsonTags.WORKFLOW_ACTION_ERROR_MESSAGE, String.class));
-        WF_ACTION.put("toString", new Property(JsonTags.TO_STRING, String.class));
-
-        WF_JOB.put("getExternalId", new Property(JsonTags.WORKFLOW_EXTERNAL_ID, String.class));
-        WF_JOB.put("getAppPath", new Property(JsonTags.WORKFLOW_APP_PATH, String.class));
-        WF_JOB.put("getAppName", new Property(JsonTags.WORKFLOW_APP_NAME, String.class));
-        WF_JOB.put("getId", new Property(JsonTags.WORKFLOW_ID, String.class));
-        WF_JOB.put("getConf", new Property(JsonTags.WORKFLOW_CONF, String.class));
-        WF_JOB.put("getStatus", new Property(JsonTags.WORKFLOW_STATUS, WorkflowJob.Status.class));
-        WF_JOB.put("getLastModifiedTime", new Property(JsonTags.WORKFLOW_LAST_MOD_TIME, Date.class));
-        WF_JOB.put("getCreatedTime", new Property(JsonTags.WORKFLOW_CREATED_TIME, Date.class));
-        WF_JOB.put("getStartTime", new Property(JsonTags.WORKFLOW_START_TIME, Date.class));
-        WF_JOB.put("getEndTime", new Property(JsonTags.WORKFLOW_END_TIME, Date.class));
-        WF_JOB.put("getUser", new Property(JsonTags.WORKFLOW_USER, String.class));
-        WF_JOB.put("getGroup", new Property(JsonTags.WORKFLOW_GROUP, String.class));
-        WF_JOB.put("getAcl", new Property(JsonTags.WORKFLOW_ACL, String.class));
-        WF_JOB.put("getRun", new Property(JsonTags.WORKFLOW_RUN, Integer.TYPE));
-        WF_JOB.put("getConsoleUrl", new Property(JsonTags.WORKFLOW_CONSOLE_URL, String.class));
-        WF_JOB.put("getActions", new Property(JsonTags.WORKFLOW_ACTIONS, WorkflowAction.class, true));
-        WF_JOB.put("getParentId", new Property(JsonTags.WORKFLOW_PARENT_ID, String.class));
-        WF_JOB.put("toString", new Property(JsonTags.TO_STRING, String.class));
-
-        COORD_ACTION.put("getId", new Property(JsonTags.COORDINATOR_ACTION_ID, String.class));
-        COORD_ACTION.put("getJobId", new Property(JsonTags.COORDINATOR_JOB_ID, String.class));
-        COORD_ACTION.put("getActionNumber", new Property(JsonTags.COORDINATOR_ACTION_NUMBER, Integer.TYPE));
-        COORD_ACTION.put("getCreatedConf", new Property(JsonTags.COORDINATOR_ACTION_CREATED_CONF, String.class));
-        COORD_ACTION.put("getCreatedTime", new Property(JsonTags.COORDINATOR_ACTION_CREATED_TIME, Date.class));
-        COORD_ACTION.put("getNominalTime", new Property(JsonTags.COORDINATOR_ACTION_NOMINAL_TIME, Date.class));
-        COORD_ACTION.put("getExternalId", new Property(JsonTags.COORDINATOR_ACTION_EXTERNALID, String.class));
-        COORD_ACTION.put("getStatus", new Property(JsonTags.COORDINATOR_ACTION_STATUS, CoordinatorAction.Status.class));
-        COORD_ACTION.put("getRunConf", new Property(JsonTags.COORDINATOR_ACTION_RUNTIME_CONF, String.class));
-        COORD_ACTION
-                .put("getLastModifiedTime", new Property(JsonTags.COORDINATOR_ACTION_LAST_MODIFIED_TIME, Date.class));
-        COORD_ACTION
-                .put("getMissingDependencies", new Property(JsonTags.COORDINATOR_ACTION_MISSING_DEPS, String.class));
-        COORD_ACTION.put("getPushMissingDependencies", new Property(JsonTags.COORDINATOR_ACTION_PUSH_MISSING_DEPS,
-                String.class));
-        COORD_ACTION.put("getExternalStatus", new Property(JsonTags.COORDINATOR_ACTION_EXTERNAL_STATUS, String.class));
-        COORD_ACTION.put("getTrackerUri", new Property(JsonTags.COORDINATOR_ACTION_TRACKER_URI, String.class));
-        COORD_ACTION.put("getConsoleUrl", new Property(JsonTags.COORDINATOR_ACTION_CONSOLE_URL, String.class));
-        COORD_ACTION.put("getErrorCode", new Property(JsonTags.COORDINATOR_ACTION_ERROR_CODE, String.class));
-        COORD_ACTION.put("getErrorMessage", new Property(JsonTags.COORDINATOR_ACTION_ERROR_MESSAGE, String.class));
-        COORD_ACTION.put("toString", new Property(JsonTags.TO_STRING, String.class));
-
-        COORD_JOB.put("getAppPath", new Property(JsonTags.COORDINATOR_JOB_PATH, String.class));
-        COORD_JOB.put("getAppName", new Property(JsonTags.COORDINATOR_JOB_NAME, String.class));
-        COORD_JOB.put("getId", new Property(JsonTags.COORDINATOR_JOB_ID, String.class));
-        COORD_JOB.put("getConf", new Property(JsonTags.COORDINATOR_JOB_CONF, String.class));
-        COORD_JOB.put("getStatus", new Property(JsonTags.COORDINATOR_JOB_STATUS, CoordinatorJob.Status.class));
-        COORD_JOB.put("getExecutionOrder",
-                      new Property(JsonTags.COORDINATOR_JOB_EXECUTIONPOLICY, CoordinatorJob.Execution.class));
-        COORD_JOB.put("getFrequency", new Property(JsonTags.COORDINATOR_JOB_FREQUENCY, String.class));
-        COORD_JOB.put("getTimeUnit", new Property(JsonTags.COORDINATOR_JOB_TIMEUNIT, CoordinatorJob.Timeunit.class));
-        COORD_JOB.put("getTimeZone", new Property(JsonTags.COORDINATOR_JOB_TIMEZONE, String.class));
-        COORD_JOB.put("getConcurrency", new Property(JsonTags.COORDINATOR_JOB_CONCURRENCY, Integer.TYPE));
-        COORD_JOB.put("getTimeout", new Property(JsonTags.COORDINATOR_JOB_TIMEOUT, Integer.TYPE));
-        COORD_JOB.put("getLastActionTime", new Property(JsonTags.COORDINATOR_JOB_LAST_ACTION_TIME, Date.class));
-        COORD_JOB.put("getNextMaterializedTime",
-                      new Property(JsonTags.COORDINATOR_JOB_NEXT_MATERIALIZED_TIME, Date.class));
-        COORD_JOB.put("getStartTime", new Property(JsonTags.COORDINATOR_JOB_START_TIME, Date.class));
-        COORD_JOB.put("getEndTime", new Property(JsonTags.COORDINATOR_JOB_END_TIME, Date.class));
-        COORD_JOB.put("getPauseTime", new Property(JsonTags.COORDINATOR_JOB_PAUSE_TIME, Date.class));
-        COORD_JOB.put("getUser", new Property(JsonTags.COORDINATOR_JOB_USER, String.class));
-        COORD_JOB.put("getGroup", new Property(JsonTags.COORDINATOR_JOB_GROUP, String.class));
-        COORD_JOB.put("getAcl", new Property(JsonTags.COORDINATOR_JOB_ACL, String.class));
-        COORD_JOB.put("getConsoleUrl", new Property(JsonTags.COORDINATOR_JOB_CONSOLE_URL, String.class));
-        COORD_JOB.put("getActions", new Property(JsonTags.COORDINATOR_ACTIONS, CoordinatorAction.class, true));
-        COORD_JOB.put("toString", new Property(JsonTags.TO_STRING, String.class));
-
-        BUNDLE_JOB.put("getActions", new Property(JsonTags.COORDINATOR_ACTIONS, CoordinatorAction.class, true));
-
-        BUNDLE_JOB.put("getAppPath",new Property(JsonTags.BUNDLE_JOB_PATH, String.class));
-        BUNDLE_JOB.put("getAppName",new Property(JsonTags.BUNDLE_JOB_NAME, String.class));
-        BUNDLE_JOB.put("getId",new Property(JsonTags.BUNDLE_JOB_ID, String.class));
-        BUNDLE_JOB.put("getExternalId",new Property(JsonTags.BUNDLE_JOB_EXTERNAL_ID, String.class));
-        BUNDLE_JOB.put("getConf",new Property(JsonTags.BUNDLE_JOB_CONF, String.class));
-        BUNDLE_JOB.put("getStatus",new Property(JsonTags.BUNDLE_JOB_STATUS, BundleJob.Status.class));
-        BUNDLE_JOB.put("getTimeUnit",new Property(JsonTags.BUNDLE_JOB_TIMEUNIT, BundleJob.Timeunit.class));
-        BUNDLE_JOB.put("getTimeout",new Property(JsonTags.BUNDLE_JOB_TIMEOUT, Integer.TYPE));
-        BUNDLE_JOB.put("getKickoffTime",new Property(JsonTags.BUNDLE_JOB_KICKOFF_TIME, Date.class));
-        BUNDLE_JOB.put("getStartTime",new Property(JsonTags.BUNDLE_JOB_START_TIME, Date.class));
-        BUNDLE_JOB.put("getEndTime",new Property(JsonTags.BUNDLE_JOB_END_TIME, Date.class));
-        BUNDLE_JOB.put("getPauseTime",new Property(JsonTags.BUNDLE_JOB_PAUSE_TIME, Date.class));
-        BUNDLE_JOB.put("getCreatedTime",new Property(JsonTags.BUNDLE_JOB_CREATED_TIME, Date.class));
-        BUNDLE_JOB.put("getUser",new Property(JsonTags.BUNDLE_JOB_USER, String.class));
-        BUNDLE_JOB.put("getGroup",new Property(JsonTags.BUNDLE_JOB_GROUP, String.class));
-        BUNDLE_JOB.put("getConsoleUrl",new Property(JsonTags.BUNDLE_JOB_CONSOLE_URL, String.class));
-        BUNDLE_JOB.put("getCoordinators",new Property(JsonTags.BUNDLE_COORDINATOR_JOBS, CoordinatorJob.class, true));
-        BUNDLE_JOB.put("toString", new Property(JsonTags.TO_STRING, String.class));
-
-        BULK_RESPONSE.put("getBundle", new Property(JsonTags.BULK_RESPONSE_BUNDLE, BundleJob.class, false));
-        BULK_RESPONSE.put("getCoordinator", new Property(JsonTags.BULK_RESPONSE_COORDINATOR, CoordinatorJob.class, false));
-        BULK_RESPONSE.put("getAction", new Property(JsonTags.BULK_RESPONSE_ACTION, CoordinatorAction.class, false));
-
-        JMS_CONNECTION_INFO.put("getTopicPatternProperties", new Property(JsonTags.JMS_TOPIC_PATTERN, Properties.class));
-        JMS_CONNECTION_INFO.put("getJNDIProperties", new Property(JsonTags.JMS_JNDI_PROPERTIES, Properties.class));
-        JMS_CONNECTION_INFO.put("getTopicPrefix", new Property(JsonTags.JMS_TOPIC_PREFIX, String.class));
-    }
+    private static final BeanFactory<CoordinatorAction> COORD_ACTION = new BeanFactory<CoordinatorAction>() {
+        @Override
+        CoordinatorAction create(JSONObject json) {
+            return new JsonCoordinatorAction(json);
+        }
+    };
+
+    private static final BeanFactory<BundleJob> BUNDLE_JOB = new BeanFactory<BundleJob>() {
+        @Override
+        BundleJob create(JSONObject json) {
+            return new JsonBundleJob(json);
+        }
+    };
+
+    private static final BeanFactory<BulkResponse> BULK_RESPONSE = new BeanFactory<BulkResponse>() {
+        @Override
+        BulkResponse create(JSONObject json) {
+            return new JsonBulkResponse(json);
+        }
+    };
 
     /**
-     * The dynamic proxy invocation handler used to convert JSON values to bean properties using a mapping.
+     * Streaming JSON handler that builds the JSON object read, except for the elements of a list of the top level
+     * object, which are converted to beans as soon as each one is read and then discarded.
      */
-    private static class JsonInvocationHandler implements InvocationHandler {
-        private final Map<String, Property> mapping;
-        private final JSONObject json;
-
-        /**
-         * Invocation handler constructor.
-         *
-         * @param mapping property to JSON/type-info mapping.
-         * @param json the json object to back the property values.
-         */
-        public JsonInvocationHandler(Map<String, Property> mapping, JSONObject json) {
-            this.mapping = mapping;
-            this.json = json;
+    private static class ListHandler<T> implements ContentHandler {
+        private final Object label;
+        private final BeanFactory<T> factory;
+        private final List<T> beans = new ArrayList<T>();
+        private final LinkedList<Object> stack = new LinkedList<Object>();
+        private final LinkedList<String> keys = new LinkedList<String>();
+        private JSONArray list;
+        private Object root;
+
+        public ListHandler(Object label, BeanFactory<T> factory) {
+            this.label = label;
+            this.factory = factory;
         }
 
         @Override
-        public Object invoke(Object o, Method method, Object[] objects) throws Throwable {
-            Property prop = mapping.get(method.getName());
-            if (prop == null) {
-                throw new RuntimeException("Undefined method mapping: " + method.getName());
-            }
-            if (prop.isList) {
-                if (prop.type == WorkflowAction.class) {
-                    return createWorkflowActionList((JSONArray) json.get(prop.label));
-                }
-                else if (prop.type == CoordinatorAction.class) {
-                    return createCoordinatorActionList((JSONArray) json.get(prop.label));
-                }
-                else if (prop.type == CoordinatorJob.class) {
-                    return createCoordinatorJobList((JSONArray) json.get(prop.label));
-                }
-                else {
-                    throw new RuntimeException("Unsupported list type : " + prop.type.getSimpleName());
-                }
-            }
-            else {
-                return parseType(prop.type, json.get(prop.label));
+        public void startJSON() {
+        }
+
+        @Override
+        public void endJSON() {
+        }
+
+        @Override
+        public boolean startObject() {
+            stack.addFirst(new JSONObject());
+            return true;
+        }
+
+        @Override
+        public boolean endObject() {
+            add(stack.removeFirst());
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            keys.addFirst(key);
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            keys.removeFirst();
+            return true;
+        }
+
+        @Override
+        public boolean startArray() {
+            JSONArray array = new JSONArray();
+            if (stack.size() == 1 && stack.getFirst() instanceof JSONObject && label.equals(keys.getFirst())) {
+                list = array;
             }
+            stack.addFirst(array);
+            return true;
+        }
+
+        @Override
+        public boolean endArray() {
+            add(stack.removeFirst());
+            return true;
+        }
+
+        @Override
+        public boolean primitive(Object value) {
+            add(value);
+            return true;
         }
 
         @SuppressWarnings("unchecked")
-        private Object parseType(Class type, Object obj) {
-            if (type == String.class) {
-                return obj == null ? obj : obj.toString();
-            }
-            else if (type == Integer.TYPE) {
-                return (obj != null) ? new Integer(((Long) obj).intValue()) : new Integer(0);
-            }
-            else if (type == Long.TYPE) {
-                return (obj != null) ? obj : new Long(0);
-            }
-            else if (type == Date.class) {
-                return JsonUtils.parseDateRfc822((String) obj);
+        private void add(Object value) {
+            if (stack.isEmpty()) {
+                root = value;
             }
-            else if (type.isEnum()) {
-                return Enum.valueOf(type, (String) obj);
+            else if (stack.getFirst() == list && value instanceof JSONObject) {
+                beans.add(factory.create((JSONObject) value));
             }
-            else if (type == WorkflowAction.class) {
-                return createWorkflowAction((JSONObject) obj);
-            }
-            else if (type == Properties.class){
-                JSONObject jsonMap = (JSONObject)JSONValue.parse((String)obj);
-                Properties props = new Properties();
-                Set<Map.Entry> entrySet = jsonMap.entrySet();
-                for (Map.Entry jsonEntry: entrySet){
-                    props.put(jsonEntry.getKey(), jsonEntry.getValue());
-                }
-                return props;
-            }
-            else if (type == CoordinatorJob.class) {
-                return createCoordinatorJob((JSONObject) obj);
-            }
-            else if (type == CoordinatorAction.class) {
-                return createCoordinatorAction((JSONObject) obj);
-            }
-            else if (type == BundleJob.class) {
-                return createBundleJob((JSONObject) obj);
+            else if (stack.getFirst() instanceof JSONObject) {
+                ((JSONObject) stack.getFirst()).put(keys.getFirst(), value);
             }
             else {
-                throw new RuntimeException("Unsupported type : " + type.getSimpleName());
+                ((JSONArray) stack.getFirst()).add(value);
             }
         }
     }
 
+    /**
+     * Reads a JSON object from a stream converting the elements of one of its lists to beans.
+     *
+     * @param reader reader of the JSON object.
+     * @param label label of the list in the JSON object.
+     * @param factory factory of the beans.
+     * @param json if not <code>null</code>, it gets the other entries of the JSON object, without the list.
+     * @return the list of beans, empty if the JSON object does not have the list.
+     * @throws IOException thrown if the stream could not be read or it was not a JSON object.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readList(Reader reader, Object label, BeanFactory<T> factory, JSONObject json)
+            throws IOException {
+        ListHandler<T> handler = new ListHandler<T>(label, factory);
+        try {
+            new JSONParser().parse(reader, handler);
+        }
+        catch (ParseException ex) {
+            throw new IOException("Invalid JSON response, " + ex, ex);
+        }
+        if (!(handler.root instanceof JSONObject)) {
+            throw new IOException("Invalid JSON response, expected a JSON object");
+        }
+        if (json != null) {
+            json.putAll((JSONObject) handler.root);
+            json.remove(label);
+        }
+        return handler.beans;
+    }
+
+    static String getString(JSONObject json, String label) {
+        Object obj = json.get(label);
+        return (obj != null) ? obj.toString() : null;
+    }
+
+    static int getInt(JSONObject json, String label) {
+        Object obj = json.get(label);
+        return (obj != null) ? ((Number) obj).intValue() : 0;
+    }
+
+    static Date getDate(JSONObject json, String label) {
+        return JsonUtils.parseDateRfc822((String) json.get(label));
+    }
+
+    /**
+     * Return the enum value of a JSON entry.
+     * <p/>
+     * A value unknown to this client, such as a status added by a newer server, is returned as <code>null</code>
+     * instead of failing the decoding of the bean, and of the whole list it is part of.
+     *
+     * @param json JSON object.
+     * @param label label of the entry.
+     * @param type enum type.
+     * @return the enum value, <code>null</code> if the entry is missing or its value is unknown.
+     */
+    static <E extends Enum<E>> E getEnum(JSONObject json, String label, Class<E> type) {
+        String value = (String) json.get(label);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value);
+        }
+        catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    static JSONArray getArray(JSONObject json, String label) {
+        JSONArray array = (JSONArray) json.get(label);
+        return (array != null) ? array : new JSONArray();
+    }
+
+    static <T> List<T> unmodifiable(List<T> list) {
+        return (list.isEmpty()) ? Collections.<T>emptyList() : Collections.unmodifiableList(list);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Properties getProperties(JSONObject json, String label) {
+        String value = (String) json.get(label);
+        if (value == null) {
+            return null;
+        }
+        Properties props = new Properties();
+        props.putAll((JSONObject) JSONValue.parse(value));
+        return props;
+    }
+
     /**
      * Creates a workflow action bean from a JSON object.
      *
@@ -285,9 +279,7 @@ public class JsonToBean {
      * @return a workflow action bean populated with the JSON object values.
      */
     public static WorkflowAction createWorkflowAction(JSONObject json) {
-        return (WorkflowAction) Proxy.newProxyInstance(JsonToBean.class.getClassLoader(),
-                                                       new Class[]{WorkflowAction.class},
-                                                       new JsonInvocationHandler(WF_ACTION, json));
+        return new JsonWorkflowAction(json);
     }
 
     /**
@@ -311,9 +303,7 @@ public class JsonToBean {
      * @return a workflow job bean populated with the JSON object values.
      */
     public static WorkflowJob createWorkflowJob(JSONObject json) {
-        return (WorkflowJob) Proxy.newProxyInstance(JsonToBean.class.getClassLoader(),
-                                                    new Class[]{WorkflowJob.class},
-                                                    new JsonInvocationHandler(WF_JOB, json));
+        return new JsonWorkflowJob(json);
     }
 
     /**
@@ -330,6 +320,20 @@ public class JsonToBean {
         return list;
     }
 
+    /**
+     * Reads a list of workflow job beans from a stream with a JSON object.
+     *
+     * @param reader reader of the JSON object.
+     * @param label label of the workflow jobs JSON array in the JSON object.
+     * @param json if not <code>null</code>, it gets the other entries of the JSON object.
+     * @return a list of workflow job beans, empty if the JSON object does not have the array.
+     * @throws IOException thrown if the JSON object could not be read.
+     */
+    public static List<WorkflowJob> readWorkflowJobList(Reader reader, Object label, JSONObject json)
+            throws IOException {
+        return readList(reader, label, WF_JOB, json);
+    }
+
     /**
      * Creates a coordinator action bean from a JSON object.
      *
@@ -337,9 +341,7 @@ public class JsonToBean {
      * @return a coordinator action bean populated with the JSON object values.
      */
     public static CoordinatorAction createCoordinatorAction(JSONObject json) {
-        return (CoordinatorAction) Proxy.newProxyInstance(JsonToBean.class.getClassLoader(),
-                                                          new Class[]{CoordinatorAction.class},
-                                                          new JsonInvocationHandler(COORD_ACTION, json));
+        return new JsonCoordinatorAction(json);
     }
 
     /**
@@ -356,6 +358,20 @@ public class JsonToBean {
         return list;
     }
 
+    /**
+     * Reads a list of coordinator action beans from a stream with a JSON object.
+     *
+     * @param reader reader of the JSON object.
+     * @param label label of the coordinator actions JSON array in the JSON object.
+     * @param json if not <code>null</code>, it gets the other entries of the JSON object.
+     * @return a list of coordinator action beans, empty if the JSON object does not have the array.
+     * @throws IOException thrown if the JSON object could not be read.
+     */
+    public static List<CoordinatorAction> readCoordinatorActionList(Reader reader, Object label, JSONObject json)
+            throws IOException {
+        return readList(reader, label, COORD_ACTION, json);
+    }
+
     /**
      * Creates a coordinator job bean from a JSON object.
      *
@@ -363,9 +379,7 @@ public class JsonToBean {
      * @return a coordinator job bean populated with the JSON object values.
      */
     public static CoordinatorJob createCoordinatorJob(JSONObject json) {
-        return (CoordinatorJob) Proxy.newProxyInstance(JsonToBean.class.getClassLoader(),
-                                                       new Class[]{CoordinatorJob.class},
-                                                       new JsonInvocationHandler(COORD_JOB, json));
+        return new JsonCoordinatorJob(json);
     }
 
 
@@ -376,24 +390,24 @@ public class JsonToBean {
      * @return a coordinator job bean populated with the JSON object values.
      */
     public static JMSConnectionInfo createJMSConnectionInfo(JSONObject json) {
-        final JMSConnectionInfoWrapper jmsInfo = (JMSConnectionInfoWrapper) Proxy.newProxyInstance(
-                JsonToBean.class.getClassLoader(), new Class[] { JMSConnectionInfoWrapper.class },
-                new JsonInvocationHandler(JMS_CONNECTION_INFO, json));
+        final String topicPrefix = getString(json, JsonTags.JMS_TOPIC_PREFIX);
+        final Properties topicPatterns = getProperties(json, JsonTags.JMS_TOPIC_PATTERN);
+        final Properties jndiProperties = getProperties(json, JsonTags.JMS_JNDI_PROPERTIES);
 
         return new JMSConnectionInfo() {
             @Override
             public String getTopicPrefix() {
-                return jmsInfo.getTopicPrefix();
+                return topicPrefix;
             }
 
             @Override
             public String getTopicPattern(AppType appType) {
-                return (String)jmsInfo.getTopicPatternProperties().get(appType.name());
+                return (topicPatterns != null) ? topicPatterns.getProperty(appType.name()) : null;
             }
 
             @Override
             public Properties getJNDIProperties() {
-                return jmsInfo.getJNDIProperties();
+                return jndiProperties;
             }
         };
     }
@@ -412,6 +426,20 @@ public class JsonToBean {
         return list;
     }
 
+    /**
+     * Reads a list of coordinator job beans from a stream with a JSON object.
+     *
+     * @param reader reader of the JSON object.
+     * @param label label of the coordinator jobs JSON array in the JSON object.
+     * @param json if not <code>null</code>, it gets the other entries of the JSON object.
+     * @return a list of coordinator job beans, empty if the JSON object does not have the array.
+     * @throws IOException thrown if the JSON object could not be read.
+     */
+    public static List<CoordinatorJob> readCoordinatorJobList(Reader reader, Object label, JSONObject json)
+            throws IOException {
+        return readList(reader, label, COORD_JOB, json);
+    }
+
     /**
      * Creates a bundle job bean from a JSON object.
      *
@@ -419,9 +447,7 @@ public class JsonToBean {
      * @return a bundle job bean populated with the JSON object values.
      */
     public static BundleJob createBundleJob(JSONObject json) {
-        return (BundleJob) Proxy.newProxyInstance(JsonToBean.class.getClassLoader(),
-                                                       new Class[]{BundleJob.class},
-                                                       new JsonInvocationHandler(BUNDLE_JOB, json));
+        return new JsonBundleJob(json);
     }
 
     /**
@@ -438,6 +464,20 @@ public class JsonToBean {
         return list;
     }
 
+    /**
+     * Reads a list of bundle job beans from a stream with a JSON object.
+     *
+     * @param reader reader of the JSON object.
+     * @param label label of the bundle jobs JSON array in the JSON object.
+     * @param json if not <code>null</code>, it gets the other entries of the JSON object.
+     * @return a list of bundle job beans, empty if the JSON object does not have the array.
+     * @throws IOException thrown if the JSON object could not be read.
+     */
+    public static List<BundleJob> readBundleJobList(Reader reader, Object label, JSONObject json)
+            throws IOException {
+        return readList(reader, label, BUNDLE_JOB, json);
+    }
+
     /**
      * Creates a Bulk response object from a JSON object.
      *
@@ -445,9 +485,7 @@ public class JsonToBean {
      * @return a Bulk response object populated with the JSON object values.
      */
     public static BulkResponse createBulkResponse(JSONObject json) {
-        return (BulkResponse) Proxy.newProxyInstance(JsonToBean.class.getClassLoader(),
-                                                    new Class[]{BulkResponse.class},
-                                                    new JsonInvocationHandler(BULK_RESPONSE, json));
+        return new JsonBulkResponse(json);
     }
 
     /**
@@ -464,4 +502,18 @@ public class JsonToBean {
         return list;
     }
 
+    /**
+     * Reads a list of bulk response beans from a stream with a JSON object.
+     *
+     * @param reader reader of the JSON object.
+     * @param label label of the bulk responses JSON array in the JSON object.
+     * @param json if not <code>null</code>, it gets the other entries of the JSON object.
+     * @return a list of bulk response beans, empty if the JSON object does not have the array.
+     * @throws IOException thrown if the JSON object could not be read.
+     */
+    public static List<BulkResponse> readBulkResponseList(Reader reader, Object label, JSONObject json)
+            throws IOException {
+        return readList(reader, label, BULK_RESPONSE, json);
+    }
+
 }
@@ -34,6 +34,16 @@ import org.json.simple.JSONObject;
  */
 public class JsonUtils {
 
+    // creating a date format is expensive compared to parsing a date, and the beans parse several dates each
+    private static final ThreadLocal<SimpleDateFormat> RFC822_GMT_PARSER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat dateFormater = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+            dateFormater.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return dateFormater;
+        }
+    };
+
     /**
      * Format a Date in RFC822 with the given time zone.
      *
@@ -70,9 +80,7 @@ public class JsonUtils {
     static Date parseDateRfc822(String str) {
         if (str != null) {
             try {
-                SimpleDateFormat dateFormater = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
-                dateFormater.setTimeZone(TimeZone.getTimeZone("GMT"));
-                return dateFormater.parse(str);
+                return RFC822_GMT_PARSER.get().parse(str);
             }
             catch (ParseException ex) {
                 return null;
@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.client.rest;
+
+import java.text.MessageFormat;
+import java.util.Date;
+
+import org.apache.oozie.client.WorkflowAction;
+import org.json.simple.JSONObject;
+
+/**
+ * Immutable {@link WorkflowAction} decoded from a JSON object.
+ * <p/>
+ * All the values are decoded once, when the bean is created.
+ */
+class JsonWorkflowAction implements WorkflowAction {
+    private final String id;
+    private final String name;
+    private final String type;
+    private final String conf;
+    private final Status status;
+    private final int retries;
+    private final Date startTime;
+    private final Date endTime;
+    private final String transition;
+    private final String data;
+    private final String stats;
+    private final String externalChildIDs;
+    private final String externalId;
+    private final String externalStatus;
+    private final String trackerUri;
+    private final String consoleUrl;
+    private final String errorCode;
+    private final String errorMessage;
+    private final String toString;
+
+    JsonWorkflowAction(JSONObject json) {
+        id = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_ID);
+        name = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_NAME);
+        type = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_TYPE);
+        conf = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_CONF);
+        status = JsonToBean.getEnum(json, JsonTags.WORKFLOW_ACTION_STATUS, Status.class);
+        retries = JsonToBean.getInt(json, JsonTags.WORKFLOW_ACTION_RETRIES);
+        startTime = JsonToBean.getDate(json, JsonTags.WORKFLOW_ACTION_START_TIME);
+        endTime = JsonToBean.getDate(json, JsonTags.WORKFLOW_ACTION_END_TIME);
+        transition = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_TRANSITION);
+        data = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_DATA);
+        stats = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_STATS);
+        externalChildIDs = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_EXTERNAL_CHILD_IDS);
+        externalId = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_EXTERNAL_ID);
+        externalStatus = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_EXTERNAL_STATUS);
+        trackerUri = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_TRACKER_URI);
+        consoleUrl = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_CONSOLE_URL);
+        errorCode = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_ERROR_CODE);
+        errorMessage = JsonToBean.getString(json, JsonTags.WORKFLOW_ACTION_ERROR_MESSAGE);
+        toString = JsonToBean.getString(json, JsonTags.TO_STRING);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getCred() {
+        throw new UnsupportedOperationException("Undefined method mapping: getCred");
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String getConf() {
+        return conf;
+    }
+
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public int getRetries() {
+        return retries;
+    }
+
+    @Override
+    public int getUserRetryCount() {
+        throw new UnsupportedOperationException("Undefined method mapping: getUserRetryCount");
+    }
+
+    @Override
+    public int getUserRetryMax() {
+        throw new UnsupportedOperationException("Undefined method mapping: getUserRetryMax");
+    }
+
+    @Override
+    public int getUserRetryInterval() {
+        throw new UnsupportedOperationException("Undefined method mapping: getUserRetryInterval");
+    }
+
+    @Override
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public String getTransition() {
+        return transition;
+    }
+
+    @Override
+    public String getData() {
+        return data;
+    }
+
+    @Override
+    public String getStats() {
+        return stats;
+    }
+
+    @Override
+    public String getExternalChildIDs() {
+        return externalChildIDs;
+    }
+
+    @Override
+    public String getExternalId() {
+        return externalId;
+    }
+
+    @Override
+    public String getExternalStatus() {
+        return externalStatus;
+    }
+
+    @Override
+    public String getTrackerUri() {
+        return trackerUri;
+    }
+
+    @Override
+    public String getConsoleUrl() {
+        return consoleUrl;
+    }
+
+    @Override
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    @Override
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        return (toString != null) ? toString : MessageFormat.format("Action name[{0}] status[{1}]", name, status);
+    }
+
+}
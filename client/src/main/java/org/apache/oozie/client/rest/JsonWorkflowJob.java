@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.client.rest;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * Immutable {@link WorkflowJob} decoded from a JSON object.
+ * <p/>
+ * All the values, including the actions of the job, are decoded once, when the bean is created.
+ */
+class JsonWorkflowJob implements WorkflowJob {
+    private final String appPath;
+    private final String appName;
+    private final String id;
+    private final String conf;
+    private final Status status;
+    private final Date lastModifiedTime;
+    private final Date createdTime;
+    private final Date startTime;
+    private final Date endTime;
+    private final String user;
+    private final String group;
+    private final String acl;
+    private final int run;
+    private final String consoleUrl;
+    private final String parentId;
+    private final List<WorkflowAction> actions;
+    private final String externalId;
+    private final String toString;
+
+    JsonWorkflowJob(JSONObject json) {
+        appPath = JsonToBean.getString(json, JsonTags.WORKFLOW_APP_PATH);
+        appName = JsonToBean.getString(json, JsonTags.WORKFLOW_APP_NAME);
+        id = JsonToBean.getString(json, JsonTags.WORKFLOW_ID);
+        conf = JsonToBean.getString(json, JsonTags.WORKFLOW_CONF);
+        status = JsonToBean.getEnum(json, JsonTags.WORKFLOW_STATUS, Status.class);
+        lastModifiedTime = JsonToBean.getDate(json, JsonTags.WORKFLOW_LAST_MOD_TIME);
+        createdTime = JsonToBean.getDate(json, JsonTags.WORKFLOW_CREATED_TIME);
+        startTime = JsonToBean.getDate(json, JsonTags.WORKFLOW_START_TIME);
+        endTime = JsonToBean.getDate(json, JsonTags.WORKFLOW_END_TIME);
+        user = JsonToBean.getString(json, JsonTags.WORKFLOW_USER);
+        group = JsonToBean.getString(json, JsonTags.WORKFLOW_GROUP);
+        acl = JsonToBean.getString(json, JsonTags.WORKFLOW_ACL);
+        run = JsonToBean.getInt(json, JsonTags.WORKFLOW_RUN);
+        consoleUrl = JsonToBean.getString(json, JsonTags.WORKFLOW_CONSOLE_URL);
+        parentId = JsonToBean.getString(json, JsonTags.WORKFLOW_PARENT_ID);
+        actions = JsonToBean.unmodifiable(JsonToBean.createWorkflowActionList(
+                JsonToBean.getArray(json, JsonTags.WORKFLOW_ACTIONS)));
+        externalId = JsonToBean.getString(json, JsonTags.WORKFLOW_EXTERNAL_ID);
+        toString = JsonToBean.getString(json, JsonTags.TO_STRING);
+    }
+
+    @Override
+    public String getAppPath() {
+        return appPath;
+    }
+
+    @Override
+    public String getAppName() {
+        return appName;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getConf() {
+        return conf;
+    }
+
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public Date getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public Date getCreatedTime() {
+        return createdTime;
+    }
+
+    @Override
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public String getUser() {
+        return user;
+    }
+
+    @Override
+    public String getGroup() {
+        return group;
+    }
+
+    @Override
+    public String getAcl() {
+        return acl;
+    }
+
+    @Override
+    public int getRun() {
+        return run;
+    }
+
+    @Override
+    public String getConsoleUrl() {
+        return consoleUrl;
+    }
+
+    @Override
+    public String getParentId() {
+        return parentId;
+    }
+
+    @Override
+    public List<WorkflowAction> getActions() {
+        return actions;
+    }
+
+    @Override
+    public String getExternalId() {
+        return externalId;
+    }
+
+    @Override
+    public String toString() {
+        return (toString != null) ? toString : MessageFormat.format("Workflow id[{0}] status[{1}]", id, status);
+    }
+
+}
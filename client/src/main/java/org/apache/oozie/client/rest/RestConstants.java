@@ -114,6 +114,10 @@ public interface RestConstants {
 
     public static final String JOBS_BULK_PARAM = "bulk";
 
+    public static final String JOBS_CURSOR_PARAM = "cursor";
+
+    public static final String JOBS_COUNT_PARAM = "count";
+
     public static final String JOBS_EXTERNAL_ID_PARAM = "external-id";
 
     public static final String ADMIN_STATUS_RESOURCE = "status";
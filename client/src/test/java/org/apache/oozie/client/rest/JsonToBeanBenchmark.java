@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.client.rest;
+
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.client.CoordinatorAction;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * Benchmark of decoding a coordinator actions JSON response, as the previous dynamic proxy beans which convert the
+ * JSON values on every getter call, as the immutable beans from a JSON object tree and as the immutable beans read
+ * with streaming.
+ * <p/>
+ * Every action is read several times, as monitoring tools do walking the actions of a coordinator job.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.client.rest.JsonToBeanBenchmark [actions] [reads] [iterations]</code>
+ */
+public class JsonToBeanBenchmark {
+
+    private static final String TIME = "Fri, 02 Jan 2009 01:00:00 GMT";
+
+    /**
+     * Invocation handler as the one previously used by {@link JsonToBean}, it converts the JSON value on every call.
+     */
+    private static class ProxyHandler implements InvocationHandler {
+        private final JSONObject json;
+
+        ProxyHandler(JSONObject json) {
+            this.json = json;
+        }
+
+        @Override
+        public Object invoke(Object o, Method method, Object[] objects) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getId")) {
+                return json.get(JsonTags.COORDINATOR_ACTION_ID).toString();
+            }
+            else if (name.equals("getStatus")) {
+                return Enum.valueOf(CoordinatorAction.Status.class,
+                                    (String) json.get(JsonTags.COORDINATOR_ACTION_STATUS));
+            }
+            else if (name.equals("getActionNumber")) {
+                return new Integer(((Long) json.get(JsonTags.COORDINATOR_ACTION_NUMBER)).intValue());
+            }
+            else if (name.equals("getNominalTime")) {
+                return JsonUtils.parseDateRfc822((String) json.get(JsonTags.COORDINATOR_ACTION_NOMINAL_TIME));
+            }
+            else if (name.equals("getLastModifiedTime")) {
+                return JsonUtils.parseDateRfc822(
+                        (String) json.get(JsonTags.COORDINATOR_ACTION_LAST_MODIFIED_TIME));
+            }
+            throw new RuntimeException("Undefined method mapping: " + name);
+        }
+    }
+
+    private interface Decoder {
+        List<CoordinatorAction> decode(String response) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int actions = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int reads = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+        String response = createResponse(actions);
+        System.out.println("Actions: " + actions + ", response chars: " + response.length());
+
+        Decoder[] decoders = {new Decoder() {
+            @Override
+            public List<CoordinatorAction> decode(String response) {
+                JSONObject json = (JSONObject) JSONValue.parse(response);
+                List<CoordinatorAction> list = new ArrayList<CoordinatorAction>();
+                for (Object obj : (JSONArray) json.get(JsonTags.COORDINATOR_ACTIONS)) {
+                    list.add((CoordinatorAction) Proxy.newProxyInstance(JsonToBean.class.getClassLoader(),
+                            new Class[]{CoordinatorAction.class}, new ProxyHandler((JSONObject) obj)));
+                }
+                return list;
+            }
+
+            @Override
+            public String toString() {
+                return "proxy";
+            }
+        }, new Decoder() {
+            @Override
+            public List<CoordinatorAction> decode(String response) {
+                JSONObject json = (JSONObject) JSONValue.parse(response);
+                return JsonToBean.createCoordinatorActionList((JSONArray) json.get(JsonTags.COORDINATOR_ACTIONS));
+            }
+
+            @Override
+            public String toString() {
+                return "beans";
+            }
+        }, new Decoder() {
+            @Override
+            public List<CoordinatorAction> decode(String response) throws Exception {
+                return JsonToBean.readCoordinatorActionList(new StringReader(response), JsonTags.COORDINATOR_ACTIONS,
+                                                            null);
+            }
+
+            @Override
+            public String toString() {
+                return "streaming beans";
+            }
+        }};
+        for (Decoder decoder : decoders) {
+            // warm up
+            run(decoder, response, reads, 1);
+        }
+        for (Decoder decoder : decoders) {
+            run(decoder, response, reads, iterations);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String createResponse(int actions) {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < actions; i++) {
+            JSONObject json = new JSONObject();
+            json.put(JsonTags.COORDINATOR_ACTION_ID, "0000000-140101000000000-oozie-oozi-C@" + (i + 1));
+            json.put(JsonTags.COORDINATOR_JOB_ID, "0000000-140101000000000-oozie-oozi-C");
+            json.put(JsonTags.COORDINATOR_ACTION_NUMBER, (long) (i + 1));
+            json.put(JsonTags.COORDINATOR_ACTION_STATUS, CoordinatorAction.Status.SUCCEEDED.name());
+            json.put(JsonTags.COORDINATOR_ACTION_NOMINAL_TIME, TIME);
+            json.put(JsonTags.COORDINATOR_ACTION_CREATED_TIME, TIME);
+            json.put(JsonTags.COORDINATOR_ACTION_LAST_MODIFIED_TIME, TIME);
+            json.put(JsonTags.COORDINATOR_ACTION_EXTERNALID, "0000001-140101000000000-oozie-oozi-W");
+            json.put(JsonTags.COORDINATOR_ACTION_MISSING_DEPS, "");
+            json.put(JsonTags.COORDINATOR_ACTION_CONSOLE_URL, "http://localhost:11000/oozie?job=" + i);
+            json.put(JsonTags.TO_STRING, "CoordinatorAction name[" + i + "] status[SUCCEEDED]");
+            array.add(json);
+        }
+        JSONObject json = new JSONObject();
+        json.put(JsonTags.COORDINATOR_ACTIONS, array);
+        return JSONValue.toJSONString(json);
+    }
+
+    private static void run(Decoder decoder, String response, int reads, int iterations) throws Exception {
+        long decodeTime = 0;
+        long readTime = 0;
+        long retained = 0;
+        long checksum = 0;
+        for (int i = 0; i < iterations; i++) {
+            long before = usedMemory();
+            long start = System.nanoTime();
+            List<CoordinatorAction> list = decoder.decode(response);
+            long decoded = System.nanoTime();
+            for (int r = 0; r < reads; r++) {
+                for (CoordinatorAction action : list) {
+                    Date nominalTime = action.getNominalTime();
+                    Date lastModifiedTime = action.getLastModifiedTime();
+                    checksum += action.getId().length() + action.getActionNumber() + action.getStatus().ordinal()
+                            + nominalTime.getTime() + lastModifiedTime.getTime();
+                }
+            }
+            readTime += System.nanoTime() - decoded;
+            decodeTime += decoded - start;
+            retained += usedMemory() - before;
+            if (list.isEmpty()) {
+                checksum++;
+            }
+        }
+        System.out.println(String.format("%-16s decode %7.1f ms, %d reads %7.1f ms, retained %6.1f MB (%d)",
+                decoder, decodeTime / 1e6 / iterations, reads, readTime / 1e6 / iterations,
+                retained / (1024.0 * 1024) / iterations, checksum));
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
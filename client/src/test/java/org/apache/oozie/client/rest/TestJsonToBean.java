@@ -17,6 +17,8 @@
  */
 package org.apache.oozie.client.rest;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.List;
 import java.util.Properties;
 
@@ -437,4 +439,105 @@ public class TestJsonToBean extends TestCase {
         assertEquals("cj2", list.get(1).getCoordinator().getId());
     }
 
+    @SuppressWarnings("unchecked")
+    public void testReadWorkflowJobList() throws Exception {
+        JSONObject json = new JSONObject();
+        json.put(JsonTags.WORKFLOWS_TOTAL, (long) 2);
+        json.put(JsonTags.WORKFLOWS_JOBS, createJsonWorkflowJobList());
+        json.put(JsonTags.WORKFLOWS_NEXT_CURSOR, "cursor");
+
+        JSONObject entries = new JSONObject();
+        List<WorkflowJob> list = JsonToBean.readWorkflowJobList(new StringReader(JSONValue.toJSONString(json)),
+                JsonTags.WORKFLOWS_JOBS, entries);
+        assertEquals(2, list.size());
+        assertEquals("j1", list.get(0).getId());
+        assertEquals("j2", list.get(1).getId());
+        assertEquals(WorkflowJob.Status.PREP, list.get(0).getStatus());
+        assertEquals(JsonUtils.parseDateRfc822(START_TIME), list.get(0).getStartTime());
+        assertEquals(2, list.get(1).getActions().size());
+        assertEquals("a2", list.get(1).getActions().get(1).getId());
+        assertEquals(2L, entries.get(JsonTags.WORKFLOWS_TOTAL));
+        assertEquals("cursor", entries.get(JsonTags.WORKFLOWS_NEXT_CURSOR));
+        assertFalse(entries.containsKey(JsonTags.WORKFLOWS_JOBS));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testReadListWithUnknownEnumValue() throws Exception {
+        JSONArray jobs = createJsonWorkflowJobList();
+        ((JSONObject) jobs.get(0)).put(JsonTags.WORKFLOW_STATUS, "UNKNOWN_STATUS");
+        JSONObject json = new JSONObject();
+        json.put(JsonTags.WORKFLOWS_JOBS, jobs);
+
+        // an unknown value does not fail the whole list
+        List<WorkflowJob> list = JsonToBean.readWorkflowJobList(new StringReader(JSONValue.toJSONString(json)),
+                JsonTags.WORKFLOWS_JOBS, null);
+        assertEquals(2, list.size());
+        assertNull(list.get(0).getStatus());
+        assertEquals("j1", list.get(0).getId());
+        assertEquals(WorkflowJob.Status.PREP, list.get(1).getStatus());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testReadCoordinatorActionList() throws Exception {
+        JSONObject json = new JSONObject();
+        json.put(JsonTags.COORDINATOR_ACTIONS, createJsonCoordinatorActionList());
+        List<CoordinatorAction> list = JsonToBean.readCoordinatorActionList(
+                new StringReader(JSONValue.toJSONString(json)), JsonTags.COORDINATOR_ACTIONS, null);
+        assertEquals(2, list.size());
+        assertEquals("ca1", list.get(0).getId());
+        assertEquals("ca2", list.get(1).getId());
+
+        list = JsonToBean.readCoordinatorActionList(new StringReader("{}"), JsonTags.COORDINATOR_ACTIONS, null);
+        assertEquals(0, list.size());
+
+        try {
+            JsonToBean.readCoordinatorActionList(new StringReader("{\"a\":"), JsonTags.COORDINATOR_ACTIONS, null);
+            fail();
+        }
+        catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testReadBulkResponseList() throws Exception {
+        JSONObject json = new JSONObject();
+        json.put(JsonTags.BULK_RESPONSES, createJsonBulkResponseList());
+        List<BulkResponse> list = JsonToBean.readBulkResponseList(new StringReader(JSONValue.toJSONString(json)),
+                JsonTags.BULK_RESPONSES, null);
+        assertEquals(2, list.size());
+        assertEquals("cj1", list.get(0).getCoordinator().getId());
+        assertEquals("bundle-id", list.get(1).getBundle().getId());
+        assertEquals("action-id", list.get(1).getAction().getId());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testBeansAreImmutable() {
+        JSONObject json = createJsonWorkflowJob();
+        json.put(JsonTags.TO_STRING, "Workflow id[c] status[PREP]");
+        WorkflowJob wf = JsonToBean.createWorkflowJob(json);
+        assertEquals("Workflow id[c] status[PREP]", wf.toString());
+
+        // the bean does not depend on the JSON object once created
+        json.put(JsonTags.WORKFLOW_ID, "x");
+        assertEquals("c", wf.getId());
+        assertSame(wf.getActions(), wf.getActions());
+        try {
+            wf.getActions().clear();
+            fail();
+        }
+        catch (UnsupportedOperationException ex) {
+            // expected
+        }
+
+        CoordinatorAction action = JsonToBean.createCoordinatorAction(createJsonCoordinatorAction());
+        try {
+            action.setErrorCode("code");
+            fail();
+        }
+        catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
 }
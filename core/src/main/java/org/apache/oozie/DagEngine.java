@@ -41,8 +41,14 @@ import org.apache.oozie.command.wf.SubmitPigXCommand;
 import org.apache.oozie.command.wf.SubmitXCommand;
 import org.apache.oozie.command.wf.SuspendXCommand;
 import org.apache.oozie.command.wf.WorkflowActionInfoXCommand;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.WorkflowsJobCountJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowsJobStreamJPAExecutor;
+import org.apache.oozie.service.DagEngineService;
+import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.CallableQueueService;
+import org.apache.oozie.service.CallbackInboxService;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
@@ -56,6 +62,9 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.StringTokenizer;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.io.IOException;
@@ -68,6 +77,10 @@ public class DagEngine extends BaseEngine {
     private static final int HIGH_PRIORITY = 2;
     private static XLog LOG = XLog.getLog(DagEngine.class);
 
+    // cached workflow counts by filter, as the count and its expiration time
+    private static final int JOBS_COUNT_CACHE_SIZE = 1000;
+    private static final ConcurrentHashMap<String, long[]> JOBS_COUNT_CACHE = new ConcurrentHashMap<String, long[]>();
+
     /**
      * Create a system Dag engine, with no user and no group.
      */
@@ -300,6 +313,9 @@ public class DagEngine extends BaseEngine {
 
     /**
      * Process an action callback.
+     * <p/>
+     * If the {@link CallbackInboxService} is available the callback is accepted into its inbox, which queues it when
+     * the queue has room; otherwise the callback is queued directly.
      *
      * @param actionId the action Id.
      * @param externalStatus the action external status.
@@ -310,6 +326,13 @@ public class DagEngine extends BaseEngine {
             throws DagEngineException {
         XLog.Info.get().clearParameter(XLogService.GROUP);
         XLog.Info.get().clearParameter(XLogService.USER);
+        CallbackInboxService inbox = Services.get().get(CallbackInboxService.class);
+        if (inbox != null) {
+            if (!inbox.accept(actionId, externalStatus, actionData)) {
+                LOG.warn(XLog.OPS, "callback inbox is full, ignoring callback");
+            }
+            return;
+        }
         XCallable<Void> command = null;
 
 		command = new CompletedActionXCommand(actionId, externalStatus,
@@ -468,6 +491,75 @@ public class DagEngine extends BaseEngine {
         }
     }
 
+    /**
+     * Get a page of the jobs that match a filter.
+     * <p/>
+     * Jobs are ordered by created time, newest first, and pages are walked with a cursor instead of an offset.
+     *
+     * @param filter job filter. Refer to the {@link org.apache.oozie.client.OozieClient} for the filter syntax.
+     * @param cursor cursor of the page, as returned for the previous page, <code>null</code> for the first page.
+     * @param len maximum number of jobs of the page.
+     * @return the page of jobs, they don't contain node action information, and the cursor of the next page.
+     * @throws DagEngineException thrown if the jobs could not be obtained.
+     */
+    public WorkflowsJobStreamJPAExecutor.Page getJobsPage(String filter, String cursor, int len)
+            throws DagEngineException {
+        Map<String, List<String>> filterList = parseFilter(filter);
+        try {
+            WorkflowsJobStreamJPAExecutor.Page page = Services.get().get(JPAService.class).execute(
+                    new WorkflowsJobStreamJPAExecutor(filterList, cursor, len));
+            for (WorkflowJobBean job : page.getJobs()) {
+                job.setConsoleUrl(JobXCommand.getJobConsoleUrl(job.getId()));
+            }
+            return page;
+        }
+        catch (JPAExecutorException ex) {
+            throw new DagEngineException(ex);
+        }
+    }
+
+    /**
+     * Return the approximate number of jobs that match a filter.
+     * <p/>
+     * Counts are cached for {@link DagEngineService#CONF_JOBS_COUNT_TTL} seconds, so dashboards polling the jobs do not
+     * count them on every request.
+     *
+     * @param filter job filter. Refer to the {@link org.apache.oozie.client.OozieClient} for the filter syntax.
+     * @return the number of jobs that match the filter, as of at most the cache TTL ago.
+     * @throws DagEngineException thrown if the jobs could not be counted.
+     */
+    public long getJobsCount(String filter) throws DagEngineException {
+        Map<String, List<String>> filterList = parseFilter(filter);
+        // the same filters in a different order share the entry
+        TreeMap<String, List<String>> sortedFilter = new TreeMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> entry : filterList.entrySet()) {
+            List<String> values = new ArrayList<String>(entry.getValue());
+            Collections.sort(values);
+            sortedFilter.put(entry.getKey(), values);
+        }
+        String key = sortedFilter.toString();
+        long now = System.currentTimeMillis();
+        long[] cached = JOBS_COUNT_CACHE.get(key);
+        if (cached != null && cached[1] > now) {
+            return cached[0];
+        }
+        long count;
+        try {
+            count = Services.get().get(JPAService.class).execute(new WorkflowsJobCountJPAExecutor(filterList));
+        }
+        catch (JPAExecutorException ex) {
+            throw new DagEngineException(ex);
+        }
+        long ttl = Services.get().getConf().getLong(DagEngineService.CONF_JOBS_COUNT_TTL, 60) * 1000;
+        if (ttl > 0) {
+            if (JOBS_COUNT_CACHE.size() >= JOBS_COUNT_CACHE_SIZE) {
+                JOBS_COUNT_CACHE.clear();
+            }
+            JOBS_COUNT_CACHE.put(key, new long[]{count, now + ttl});
+        }
+        return count;
+    }
+
     /**
      * Return the workflow Job ID for an external ID. <p/> This is reverse lookup for recovery purposes.
      *
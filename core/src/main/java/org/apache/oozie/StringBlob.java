@@ -115,7 +115,12 @@ public class StringBlob {
             }
         }
         else {
-            rawBlob = string.getBytes();
+            try {
+                rawBlob = string.getBytes(CodecFactory.UTF_8_ENCODING);
+            }
+            catch (UnsupportedEncodingException ex) {
+                throw new RuntimeException(ex);
+            }
         }
         return rawBlob;
     }
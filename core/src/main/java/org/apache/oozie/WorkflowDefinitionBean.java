@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+import org.apache.oozie.client.rest.JsonBean;
+import org.apache.oozie.util.DateUtils;
+import org.apache.openjpa.persistence.jdbc.Index;
+import org.apache.openjpa.persistence.jdbc.Strategy;
+import org.json.simple.JSONObject;
+
+/**
+ * Immutable part of a workflow instance, its configuration and its application definition.
+ * <p/>
+ * A definition is inserted in the transaction of the first workflow job that references it, workflow jobs with the
+ * same definition, found by its hash, share it. Workflow jobs reference their definition through a
+ * {@link WorkflowDefinitionRefBean}, unreferenced definitions are deleted by the purge.
+ */
+@Entity
+@NamedQueries({
+
+    @NamedQuery(name = "GET_WF_DEFINITION", query = "select d from WorkflowDefinitionBean d where d.id = :id"),
+
+    @NamedQuery(name = "GET_WF_DEFINITION_ID_LAST_USED_FOR_HASH", query = "select d.id, d.lastUsedTimestamp from WorkflowDefinitionBean d where d.hash = :hash"),
+
+    @NamedQuery(name = "UPDATE_WF_DEFINITION_LAST_USED", query = "update WorkflowDefinitionBean d set d.lastUsedTimestamp = :lastUsedTime where d.id = :id"),
+
+    @NamedQuery(name = "DELETE_UNREFERENCED_WF_DEFINITIONS", query = "delete from WorkflowDefinitionBean d where d.lastUsedTimestamp < :lastUsedTime and not exists (select r.jobId from WorkflowDefinitionRefBean r where r.definitionId = d.id)")
+        })
+@Table(name = "WF_DEFINITIONS")
+public class WorkflowDefinitionBean implements JsonBean {
+
+    @Id
+    private String id;
+
+    @Basic
+    @Index
+    @Column(name = "hash")
+    private String hash;
+
+    @Basic
+    @Column(name = "definition")
+    @Lob
+    @Strategy("org.apache.oozie.executor.jpa.BinaryBlobValueHandler")
+    private BinaryBlob definition;
+
+    @Basic
+    @Index
+    @Column(name = "last_used_time")
+    private Timestamp lastUsedTimestamp = null;
+
+    public WorkflowDefinitionBean() {
+    }
+
+    /**
+     * Create a new definition, with a new ID.
+     *
+     * @param hash hash of the definition.
+     * @param definition serialized definition.
+     */
+    public WorkflowDefinitionBean(String hash, byte[] definition) {
+        this.id = UUID.randomUUID().toString();
+        this.hash = hash;
+        this.definition = new BinaryBlob(definition, true);
+        this.lastUsedTimestamp = DateUtils.convertDateToTimestamp(new Date());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public byte[] getDefinition() {
+        return definition == null ? null : definition.getBytes();
+    }
+
+    public BinaryBlob getDefinitionBlob() {
+        return definition;
+    }
+
+    public void setDefinitionBlob(BinaryBlob definition) {
+        this.definition = definition;
+    }
+
+    public Date getLastUsedTime() {
+        return DateUtils.toDate(lastUsedTimestamp);
+    }
+
+    public Timestamp getLastUsedTimestamp() {
+        return lastUsedTimestamp;
+    }
+
+    public void setLastUsedTime(Date lastUsedTime) {
+        this.lastUsedTimestamp = DateUtils.convertDateToTimestamp(lastUsedTime);
+    }
+
+    @Override
+    public JSONObject toJSONObject() {
+        return toJSONObject("GMT");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSONObject(String timeZoneId) {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("hash", hash);
+        return json;
+    }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+import org.apache.oozie.client.rest.JsonBean;
+import org.apache.openjpa.persistence.jdbc.Index;
+import org.json.simple.JSONObject;
+
+/**
+ * Reference of a workflow job to the {@link WorkflowDefinitionBean} its workflow instance is persisted with.
+ * <p/>
+ * References are kept out of the <code>WF_JOBS</code> table, so the table is the same whether the
+ * {@link org.apache.oozie.service.WorkflowDefinitionService} is enabled or not.
+ */
+@Entity
+@NamedQueries({
+
+    @NamedQuery(name = "DELETE_WORKFLOW_DEFINITION_REF", query = "delete from WorkflowDefinitionRefBean r where r.jobId = :id"),
+
+    @NamedQuery(name = "DELETE_WF_DEFINITION_REFS_OF_PURGED_JOBS", query = "delete from WorkflowDefinitionRefBean r where not exists (select w.id from WorkflowJobBean w where w.id = r.jobId)")
+        })
+@Table(name = "WF_DEFINITION_REFS")
+public class WorkflowDefinitionRefBean implements JsonBean {
+
+    @Id
+    @Column(name = "job_id")
+    private String jobId;
+
+    @Basic
+    @Index
+    @Column(name = "definition_id")
+    private String definitionId;
+
+    public WorkflowDefinitionRefBean() {
+    }
+
+    public WorkflowDefinitionRefBean(String jobId, String definitionId) {
+        this.jobId = jobId;
+        this.definitionId = definitionId;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getDefinitionId() {
+        return definitionId;
+    }
+
+    public void setDefinitionId(String definitionId) {
+        this.definitionId = definitionId;
+    }
+
+    @Override
+    public JSONObject toJSONObject() {
+        return toJSONObject("GMT");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSONObject(String timeZoneId) {
+        JSONObject json = new JSONObject();
+        json.put("jobId", jobId);
+        json.put("definitionId", definitionId);
+        return json;
+    }
+
+}
@@ -220,6 +220,9 @@ public class WorkflowJobBean implements Writable, WorkflowJob, JsonBean {
     @Transient
     private List<WorkflowActionBean> actions;
 
+    @Transient
+    private List<JsonBean> definitionBeans = new ArrayList<JsonBean>();
+
 
     /**
      * Default constructor.
@@ -354,6 +357,27 @@ public class WorkflowJobBean implements Writable, WorkflowJob, JsonBean {
         this.wfInstance = wfInstance;
     }
 
+    /**
+     * Return the beans to insert in the transaction that persists the workflow job, the definition its workflow
+     * instance references if it is not stored yet and the reference of the job to it.
+     * <p/>
+     * They are set by the commands that create the workflow instance with the
+     * {@link org.apache.oozie.service.WorkflowDefinitionService} enabled, and cleared once they are inserted.
+     *
+     * @return the beans to insert with the workflow job, an empty list if there are none.
+     */
+    public List<JsonBean> getDefinitionBeans() {
+        return definitionBeans;
+    }
+
+    public void setDefinitionBeans(List<JsonBean> definitionBeans) {
+        this.definitionBeans = definitionBeans;
+    }
+
+    public void clearDefinitionBeans() {
+        this.definitionBeans = new ArrayList<JsonBean>();
+    }
+
     public String getProtoActionConf() {
         return protoActionConf == null ? null : protoActionConf.getString();
     }
@@ -57,6 +57,7 @@ import org.apache.oozie.action.ActionExecutor;
 import org.apache.oozie.action.ActionExecutorException;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.service.CallbackService;
 import org.apache.oozie.service.HadoopAccessorException;
 import org.apache.oozie.service.HadoopAccessorService;
 import org.apache.oozie.service.Services;
@@ -68,6 +69,7 @@ import org.apache.oozie.util.ELEvaluator;
 import org.apache.oozie.util.IOUtils;
 import org.apache.oozie.util.PropertiesUtils;
 import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.util.XConfigurationCache;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.util.XmlUtils;
 import org.apache.oozie.util.ELEvaluationException;
@@ -625,7 +627,7 @@ public class JavaActionExecutor extends ActionExecutor {
             throws ActionExecutorException {
         XConfiguration wfJobConf = null;
         try {
-            wfJobConf = new XConfiguration(new StringReader(context.getWorkflow().getConf()));
+            wfJobConf = XConfigurationCache.get(context.getWorkflow().getConf());
         }
         catch (IOException ioe) {
             throw new ActionExecutorException(ActionExecutorException.ErrorType.FAILED, "It should never happen",
@@ -709,6 +711,11 @@ public class JavaActionExecutor extends ActionExecutor {
             if (getOozieConf().get(LauncherMapper.CONF_OOZIE_ACTION_FS_GLOB_MAX) != null) {
                 LauncherMapperHelper.setupMaxFSGlob(launcherJobConf, maxFSGlobMax);
             }
+            CallbackService callbackService = Services.get().get(CallbackService.class);
+            if (callbackService.getActionDataMaxSize() > 0) {
+                LauncherMapperHelper.setupCallbackActionData(launcherJobConf,
+                        callbackService.getActionDataKey(actionId), callbackService.getActionDataMaxSize());
+            }
 
             List<Element> list = actionXml.getChildren("arg", ns);
             String[] args = new String[list.size()];
@@ -996,7 +1003,7 @@ public class JavaActionExecutor extends ActionExecutor {
             throws Exception {
         CredentialsProperties credProp = null;
         String workflowXml = ((WorkflowJobBean) context.getWorkflow()).getWorkflowInstance().getApp().getDefinition();
-        XConfiguration wfjobConf = new XConfiguration(new StringReader(context.getWorkflow().getConf()));
+        XConfiguration wfjobConf = XConfigurationCache.get(context.getWorkflow().getConf());
         Element elementJob = XmlUtils.parseXml(workflowXml);
         Element credentials = elementJob.getChild("credentials", elementJob.getNamespace());
         if (credentials != null) {
@@ -1093,7 +1100,7 @@ public class JavaActionExecutor extends ActionExecutor {
         JobClient jobClient = null;
         boolean exception = false;
         try {
-            Element actionXml = XmlUtils.parseXml(action.getConf());
+            Element actionXml = XmlUtils.parseCachedXml(action.getConf());
             FileSystem actionFs = context.getAppFileSystem();
             JobConf jobConf = createBaseHadoopConf(context, actionXml);
             jobClient = createJobClient(context, jobConf);
@@ -1107,8 +1114,12 @@ public class JavaActionExecutor extends ActionExecutor {
             if (runningJob.isComplete()) {
                 Path actionDir = context.getActionDir();
                 String newId = null;
-                // load sequence file into object
-                Map<String, String> actionData = LauncherMapperHelper.getActionData(actionFs, actionDir, jobConf);
+                // use the action data the launcher sent on the callback, otherwise load sequence file into object
+                CallbackService callbackService = Services.get().get(CallbackService.class);
+                Map<String, String> callbackActionData = callbackService.getActionData(action.getId(),
+                        action.getExternalId());
+                Map<String, String> actionData = (callbackActionData != null) ? callbackActionData
+                        : LauncherMapperHelper.getActionData(actionFs, actionDir, jobConf);
                 if (actionData.containsKey(LauncherMapper.ACTION_DATA_NEW_ID)) {
                     newId = actionData.get(LauncherMapper.ACTION_DATA_NEW_ID);
                     String launcherId = action.getExternalId();
@@ -1132,9 +1143,10 @@ public class JavaActionExecutor extends ActionExecutor {
                 }
                 if (runningJob.isComplete()) {
                     // fetching action output and stats for the Map-Reduce action.
-                    if (newId != null) {
+                    if (newId != null && callbackActionData == null) {
                         actionData = LauncherMapperHelper.getActionData(actionFs, context.getActionDir(), jobConf);
                     }
+                    callbackService.removeActionData(action.getId());
                     XLog.getLog(getClass()).info(XLog.STD, "action completed, external ID [{0}]",
                             action.getExternalId());
                     if (LauncherMapperHelper.isMainSuccessful(runningJob)) {
@@ -1243,7 +1255,7 @@ public class JavaActionExecutor extends ActionExecutor {
         JobClient jobClient = null;
         boolean exception = false;
         try {
-            Element actionXml = XmlUtils.parseXml(action.getConf());
+            Element actionXml = XmlUtils.parseCachedXml(action.getConf());
             JobConf jobConf = createBaseHadoopConf(context, actionXml);
             jobClient = createJobClient(context, jobConf);
             RunningJob runningJob = jobClient.getJob(JobID.forName(action.getExternalId()));
@@ -1320,7 +1332,7 @@ public class JavaActionExecutor extends ActionExecutor {
         String[] names = conf.getStrings(ACTION_SHARELIB_FOR + getType());
         if (names == null || names.length == 0) {
             try {
-                XConfiguration jobConf = new XConfiguration(new StringReader(context.getWorkflow().getConf()));
+                XConfiguration jobConf = XConfigurationCache.get(context.getWorkflow().getConf());
                 names = jobConf.getStrings(ACTION_SHARELIB_FOR + getType());
                 if (names == null || names.length == 0) {
                     names = Services.get().getConf().getStrings(ACTION_SHARELIB_FOR + getType());
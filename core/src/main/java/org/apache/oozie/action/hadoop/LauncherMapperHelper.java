@@ -114,6 +114,21 @@ public class LauncherMapperHelper {
         launcherConf.setInt(LauncherMapper.CONF_OOZIE_ACTION_FS_GLOB_MAX, fsGlobMax);
     }
 
+    /**
+     * Set the key and the maximum size of the action data the launcher sends on the callback. The key is a secret key
+     * of the launcher job credentials, as the launcher job configuration may be readable by other users.
+     *
+     * @param launcherConf the oozie launcher configuration
+     * @param key the key the launcher signs the action data with
+     * @param maxSize the maximum size of the uncompressed action data sent on the callback
+     * @throws IOException thrown if the key could not be encoded
+     */
+    public static void setupCallbackActionData(JobConf launcherConf, String key, int maxSize) throws IOException {
+        launcherConf.getCredentials().addSecretKey(LauncherMapper.ACTION_DATA_CALLBACK_KEY_ALIAS,
+                key.getBytes("UTF-8"));
+        launcherConf.setInt(LauncherMapper.CONF_OOZIE_ACTION_DATA_CALLBACK_MAX_SIZE, maxSize);
+    }
+
     public static void setupLauncherInfo(JobConf launcherConf, String jobId, String actionId, Path actionDir,
             String recoveryId, Configuration actionConf, String prepareXML) throws IOException, HadoopAccessorException {
 
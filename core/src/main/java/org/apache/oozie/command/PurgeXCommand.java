@@ -31,6 +31,7 @@ import org.apache.oozie.executor.jpa.CoordJobsDeleteJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobsGetForPurgeJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobsGetFromParentIdJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionsDeleteJPAExecutor;
 import org.apache.oozie.executor.jpa.WorkflowJobsCountNotForPurgeFromCoordParentIdJPAExecutor;
 import org.apache.oozie.executor.jpa.WorkflowJobsCountNotForPurgeFromWorkflowParentIdJPAExecutor;
 import org.apache.oozie.executor.jpa.WorkflowJobsDeleteJPAExecutor;
@@ -39,6 +40,7 @@ import org.apache.oozie.executor.jpa.WorkflowJobsGetForPurgeJPAExecutor;
 import org.apache.oozie.executor.jpa.WorkflowJobsGetFromCoordParentIdJPAExecutor;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowDefinitionService;
 
 /**
  * This class is used to purge workflows, coordinators, and bundles.  It takes into account the relationships between workflows and
@@ -145,7 +147,19 @@ public class PurgeXCommand extends XCommand<Void> {
             }
         }
 
-        LOG.debug("ENDED Purge deleted [{0}] workflows, [{1}] coordinators, [{2}] bundles", wfDel, coordDel, bundleDel);
+        // Delete the workflow definitions no longer referenced by any workflow
+        int definitionDel = 0;
+        if (Services.get().get(WorkflowDefinitionService.class) != null) {
+            try {
+                definitionDel = jpaService.execute(new WorkflowDefinitionsDeleteJPAExecutor(wfOlderThan));
+            }
+            catch (JPAExecutorException je) {
+                throw new CommandException(je);
+            }
+        }
+
+        LOG.debug("ENDED Purge deleted [{0}] workflows, [{1}] coordinators, [{2}] bundles, [{3}] workflow definitions",
+                wfDel, coordDel, bundleDel, definitionDel);
         return null;
     }
 
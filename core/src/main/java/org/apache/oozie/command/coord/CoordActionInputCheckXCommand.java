@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -37,6 +38,7 @@ import org.apache.oozie.coord.CoordELEvaluator;
 import org.apache.oozie.coord.CoordELFunctions;
 import org.apache.oozie.dependency.URIHandler;
 import org.apache.oozie.dependency.URIHandlerException;
+import org.apache.oozie.dependency.URIListingCache;
 import org.apache.oozie.executor.jpa.CoordActionGetForInputCheckJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordActionQueryExecutor;
 import org.apache.oozie.executor.jpa.CoordActionQueryExecutor.CoordActionQuery;
@@ -48,6 +50,7 @@ import org.apache.oozie.service.EventHandlerService;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Service;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.service.URIExistenceCacheService;
 import org.apache.oozie.service.URIHandlerService;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.ELEvaluator;
@@ -189,7 +192,7 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
 
 
     static String resolveCoordConfiguration(StringBuilder actionXml, Configuration actionConf, String actionId) throws Exception {
-        Element eAction = XmlUtils.parseXml(actionXml.toString());
+        Element eAction = (Element) XmlUtils.parseCachedXml(actionXml.toString()).clone();
         ELEvaluator eval = CoordELEvaluator.createDataEvaluator(eAction, actionConf, actionId);
         materializeDataProperties(eAction, actionConf, eval);
         return XmlUtils.prettyPrint(eAction).toString();
@@ -254,12 +257,12 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
      */
     protected boolean checkInput(StringBuilder actionXml, StringBuilder existList, StringBuilder nonExistList,
             Configuration conf) throws Exception {
-        Element eAction = XmlUtils.parseXml(actionXml.toString());
+        Element eAction = XmlUtils.parseCachedXml(actionXml.toString());
         return checkResolvedUris(eAction, existList, nonExistList, conf);
     }
 
     protected boolean checkUnResolvedInput(StringBuilder actionXml, Configuration conf) throws Exception {
-        Element eAction = XmlUtils.parseXml(actionXml.toString());
+        Element eAction = (Element) XmlUtils.parseCachedXml(actionXml.toString()).clone();
         LOG.debug("[" + actionId + "]::ActionInputCheck:: Checking Latest/future");
         boolean allExist = checkUnresolvedInstances(eAction, conf);
         if (allExist) {
@@ -373,11 +376,14 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
     @SuppressWarnings("unchecked")
     private boolean materializeUnresolvedEvent(List<Element> eDataEvents, Date nominalTime, Date actualTime,
             Configuration conf) throws Exception {
+        // the listings of the dataset instances are shared by the data inputs
+        URIListingCache listingCache = new URIListingCache();
         for (Element dEvent : eDataEvents) {
             if (dEvent.getChild(CoordCommandUtils.UNRESOLVED_INST_TAG, dEvent.getNamespace()) == null) {
                 continue;
             }
             ELEvaluator eval = CoordELEvaluator.createLazyEvaluator(actualTime, nominalTime, dEvent, conf);
+            eval.setVariable(CoordELFunctions.URI_LISTING_CACHE, listingCache);
             String uresolvedInstance = dEvent.getChild(CoordCommandUtils.UNRESOLVED_INST_TAG, dEvent.getNamespace()).getTextTrim();
             String unresolvedList[] = uresolvedInstance.split(CoordELFunctions.INSTANCE_SEPARATOR);
             StringBuffer resolvedTmp = new StringBuffer();
@@ -453,9 +459,10 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
         boolean allExists = true;
         String existSeparator = "", nonExistSeparator = "";
         String user = ParamChecker.notEmpty(conf.get(OozieClient.USER_NAME), OozieClient.USER_NAME);
+        int firstMissing = getFirstMissing(uriList, conf, user);
         for (int i = 0; i < uriList.length; i++) {
             if (allExists) {
-                allExists = pathExists(uriList[i], conf, user);
+                allExists = (firstMissing >= 0) ? i < firstMissing : pathExists(uriList[i], conf, user);
                 LOG.info("[" + actionId + "]::ActionInputCheck:: File:" + uriList[i] + ", Exists? :" + allExists);
             }
             if (allExists) {
@@ -470,6 +477,40 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
         return allExists;
     }
 
+    /**
+     * Find the first of the given paths that does not exist with the {@link URIExistenceCacheService}, in a single
+     * batch. The paths after it are not checked.
+     *
+     * @param sPaths uri paths
+     * @param actionConf action configuration
+     * @param user user to check the paths as
+     * @return the index of the first path that does not exist, the number of paths if all of them exist, or -1 if the
+     *         service is not available
+     * @throws IOException thrown if unable to access the paths
+     */
+    private int getFirstMissing(String[] sPaths, Configuration actionConf, String user) throws IOException {
+        URIExistenceCacheService cacheService = Services.get().get(URIExistenceCacheService.class);
+        if (cacheService == null) {
+            return -1;
+        }
+        try {
+            List<URI> uris = new ArrayList<URI>(sPaths.length);
+            for (String sPath : sPaths) {
+                uris.add(new URI(sPath));
+            }
+            return cacheService.getFirstMissing(uris, actionConf, user);
+        }
+        catch (URIHandlerException e) {
+            coordAction.setErrorCode(e.getErrorCode().toString());
+            coordAction.setErrorMessage(e.getMessage());
+            throw new IOException(e);
+        } catch (URISyntaxException e) {
+            coordAction.setErrorCode(ErrorCode.E0906.toString());
+            coordAction.setErrorMessage(e.getMessage());
+            throw new IOException(e);
+        }
+    }
+
     /**
      * Check if given path exists
      *
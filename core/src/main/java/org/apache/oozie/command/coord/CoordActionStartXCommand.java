@@ -105,7 +105,7 @@ public class CoordActionStartXCommand extends CoordinatorXCommand<Void> {
         String actionXml = action.getActionXml();
         Element workflowProperties = null;
         try {
-            workflowProperties = XmlUtils.parseXml(actionXml);
+            workflowProperties = XmlUtils.parseCachedXml(actionXml);
         }
         catch (JDOMException e1) {
             log.warn("Configuration parse error in:" + actionXml);
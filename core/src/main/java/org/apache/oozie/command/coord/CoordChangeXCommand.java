@@ -378,6 +378,7 @@ public class CoordChangeXCommand extends CoordinatorXCommand<Void> {
 
             updateList.add(new UpdateEntry<CoordJobQuery>(CoordJobQuery.UPDATE_COORD_JOB_CHANGE, coordJob));
             BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(null, updateList, deleteList);
+            CoordMaterializationTemplate.invalidate(jobId);
 
             return null;
         }
@@ -0,0 +1,518 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.command.coord;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.coord.SyncCoordAction;
+import org.apache.oozie.coord.TimeUnit;
+import org.apache.oozie.dependency.URIHandler.DependencyType;
+import org.apache.oozie.service.Service;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.UUIDService;
+import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.util.XLog;
+import org.apache.oozie.util.XmlUtils;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.Text;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+
+/**
+ * Coordinator job XML compiled for the materialization of its actions.
+ * <p/>
+ * {@link CoordCommandUtils#materializeOneInstance} clones the whole job XML, evaluates its EL expressions and pretty
+ * prints the whole action XML for every action. A template parses the job XML and configuration and pretty prints
+ * the action XML once, with slots in place of the values that change from action to action: the instance number,
+ * the nominal and actual times, the URIs and unresolved instances of the data events and the SLA elements. An action
+ * is materialized by evaluating only the data events and the SLA element, and by writing their values in the slots.
+ * <p/>
+ * A template is verified against {@link CoordCommandUtils#materializeOneInstance} when it is compiled. If the action
+ * XML would differ, or an action has values that can not be written in the slots (such as an empty SLA element), the
+ * action is materialized with {@link CoordCommandUtils#materializeOneInstance}.
+ * <p/>
+ * A template is only verified with the first action of the job, so templates are disabled by default; they can be
+ * enabled with {@link #CONF_ENABLED} for jobs whose actions all have the structure of the first one.
+ * <p/>
+ * Templates are cached by job, an entry is compiled again if the job XML or configuration of the job changes, and it
+ * is invalidated by {@link CoordChangeXCommand}.
+ */
+public class CoordMaterializationTemplate {
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "coord.materialization.template.";
+
+    /**
+     * Whether actions are materialized with templates.
+     */
+    public static final String CONF_ENABLED = CONF_PREFIX + "enabled";
+
+    /**
+     * Number of jobs whose templates are cached.
+     */
+    public static final String CONF_CACHE_SIZE = CONF_PREFIX + "cache.size";
+
+    private static final String SLOT_PREFIX = "OOZIE-TEMPLATE-SLOT-";
+    private static final int INSTANCE_NUMBER_SLOT = 0;
+    private static final int NOMINAL_TIME_SLOT = 1;
+    private static final int ACTUAL_TIME_SLOT = 2;
+    private static final int FIRST_EVENT_SLOT = 3;
+
+    private static final XLog LOG = XLog.getLog(CoordMaterializationTemplate.class);
+
+    /**
+     * Cached template of a job, the template is <code>null</code> if the job could not be compiled.
+     */
+    private static class CacheEntry {
+        private final String jobXml;
+        private final String conf;
+        private final CoordMaterializationTemplate template;
+
+        private CacheEntry(String jobXml, String conf, CoordMaterializationTemplate template) {
+            this.jobXml = jobXml;
+            this.conf = conf;
+            this.template = template;
+        }
+    }
+
+    private static final Map<String, CacheEntry> CACHE = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > Services.get().getConf().getInt(CONF_CACHE_SIZE, 1000);
+        }
+    };
+
+    /**
+     * Pretty printed XML split at its slots.
+     * <p/>
+     * Attribute slots are replaced by their value. Element slots are replaced by the line of their element, which is
+     * removed if the value is empty.
+     */
+    private static class Template {
+        private final String[] texts;
+        private final int[] slots;
+        private final String[] prefixes;
+        private final String[] suffixes;
+
+        private Template(String xml, boolean[] elementSlots, int expectedSlots) {
+            List<String> textList = new ArrayList<String>();
+            List<Integer> slotList = new ArrayList<Integer>();
+            List<String> prefixList = new ArrayList<String>();
+            List<String> suffixList = new ArrayList<String>();
+            boolean[] seen = new boolean[elementSlots.length];
+            int from = 0;
+            int start;
+            while ((start = xml.indexOf(SLOT_PREFIX, from)) >= 0) {
+                int end = xml.indexOf('-', start + SLOT_PREFIX.length());
+                int slot = Integer.parseInt(xml.substring(start + SLOT_PREFIX.length(), end));
+                if (seen[slot]) {
+                    throw new IllegalArgumentException("Slot [" + slot + "] found more than once");
+                }
+                seen[slot] = true;
+                end++;
+                if (elementSlots[slot]) {
+                    int lineStart = xml.lastIndexOf('\n', start) + 1;
+                    int lineEnd = xml.indexOf('\n', end) + 1;
+                    if (lineStart < from || lineEnd == 0) {
+                        throw new IllegalArgumentException("Slot [" + slot + "] is not on a line of its own");
+                    }
+                    textList.add(xml.substring(from, lineStart));
+                    prefixList.add(xml.substring(lineStart, start));
+                    suffixList.add(xml.substring(end, lineEnd));
+                    from = lineEnd;
+                }
+                else {
+                    textList.add(xml.substring(from, start));
+                    prefixList.add(null);
+                    suffixList.add(null);
+                    from = end;
+                }
+                slotList.add(slot);
+            }
+            textList.add(xml.substring(from));
+            if (slotList.size() != expectedSlots) {
+                throw new IllegalArgumentException("Found [" + slotList.size() + "] slots, expected [" + expectedSlots
+                        + "]");
+            }
+            texts = textList.toArray(new String[textList.size()]);
+            prefixes = prefixList.toArray(new String[prefixList.size()]);
+            suffixes = suffixList.toArray(new String[suffixList.size()]);
+            slots = new int[slotList.size()];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = slotList.get(i);
+            }
+        }
+
+        private String render(String[] values) {
+            StringBuilder sb = new StringBuilder(texts[0].length() * 2);
+            for (int i = 0; i < slots.length; i++) {
+                sb.append(texts[i]);
+                String value = values[slots[i]];
+                if (prefixes[i] == null) {
+                    sb.append(value);
+                }
+                else if (value.length() > 0) {
+                    sb.append(prefixes[i]).append(value).append(suffixes[i]);
+                }
+            }
+            sb.append(texts[slots.length]);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Materialized action XML and its SLA element.
+     */
+    public static class MaterializedAction {
+        private final String actionXml;
+        private final Element sla;
+
+        private MaterializedAction(String actionXml, Element sla) {
+            this.actionXml = actionXml;
+            this.sla = sla;
+        }
+
+        /**
+         * Return the action XML.
+         *
+         * @return the action XML.
+         */
+        public String getActionXml() {
+            return actionXml;
+        }
+
+        /**
+         * Return the materialized SLA element of the action.
+         *
+         * @return the SLA element, <code>null</code> if the action does not have SLA.
+         */
+        public Element getSla() {
+            return sla;
+        }
+    }
+
+    private final String jobId;
+    private final Element eJob;
+    private final Configuration conf;
+    private final String confXml;
+    private final String appName;
+    private final String frequency;
+    private final TimeUnit timeUnit;
+    private final String timeZone;
+    private final TimeUnit endOfDuration;
+    private final List<Element> dataIns = new ArrayList<Element>();
+    private final List<Element> dataOuts = new ArrayList<Element>();
+    private final Element sla;
+    private final int slaSlot;
+    private final int slotCount;
+    private Template actionTemplate;
+    private Template slaTemplate;
+
+    /**
+     * Return the template of a coordinator job, compiling it if it is not cached.
+     *
+     * @param coordJob coordinator job.
+     * @return the template, <code>null</code> if templates are disabled or the job can not be compiled.
+     */
+    public static CoordMaterializationTemplate get(CoordinatorJobBean coordJob) {
+        if (!Services.get().getConf().getBoolean(CONF_ENABLED, false)) {
+            return null;
+        }
+        String jobXml = coordJob.getJobXml();
+        String conf = coordJob.getConf();
+        synchronized (CACHE) {
+            CacheEntry entry = CACHE.get(coordJob.getId());
+            if (entry != null && entry.jobXml.equals(jobXml) && entry.conf.equals(conf)) {
+                return entry.template;
+            }
+        }
+        CoordMaterializationTemplate template = compile(coordJob.getId(), jobXml, conf);
+        synchronized (CACHE) {
+            CACHE.put(coordJob.getId(), new CacheEntry(jobXml, conf, template));
+        }
+        return template;
+    }
+
+    /**
+     * Remove the cached template of a coordinator job.
+     *
+     * @param jobId coordinator job id.
+     */
+    public static void invalidate(String jobId) {
+        synchronized (CACHE) {
+            CACHE.remove(jobId);
+        }
+    }
+
+    /**
+     * Compile a coordinator job and verify the template against {@link CoordCommandUtils#materializeOneInstance}.
+     *
+     * @param jobId coordinator job id.
+     * @param jobXml coordinator job XML.
+     * @param conf coordinator job configuration.
+     * @return the template, <code>null</code> if the job can not be compiled.
+     */
+    static CoordMaterializationTemplate compile(String jobId, String jobXml, String conf) {
+        if (jobXml.contains(SLOT_PREFIX) || conf.contains(SLOT_PREFIX)) {
+            return null;
+        }
+        try {
+            CoordMaterializationTemplate template = new CoordMaterializationTemplate(jobId, jobXml, conf);
+            if (template.verify()) {
+                return template;
+            }
+            LOG.warn("Materialization template of job [{0}] differs from the materialized action, not using it",
+                    jobId);
+        }
+        catch (Exception ex) {
+            LOG.warn("Could not compile materialization template of job [{0}], {1}", jobId, ex.getMessage(), ex);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CoordMaterializationTemplate(String jobId, String jobXml, String confXml) throws Exception {
+        this.jobId = jobId;
+        eJob = XmlUtils.parseXml(jobXml);
+        conf = new XConfiguration(new StringReader(confXml));
+        this.confXml = XmlUtils.prettyPrint(conf).toString();
+        appName = eJob.getAttributeValue("name");
+        frequency = eJob.getAttributeValue("frequency");
+        timeUnit = TimeUnit.valueOf(eJob.getAttributeValue("freq_timeunit"));
+        timeZone = eJob.getAttributeValue("timezone");
+        endOfDuration = TimeUnit.valueOf(eJob.getAttributeValue("end_of_duration"));
+
+        // the skeleton is the action XML with the changes of CoordCommandUtils.materializeOneInstance, with slots
+        Element skeleton = (Element) eJob.clone();
+        Namespace ns = skeleton.getNamespace();
+        int slot = FIRST_EVENT_SLOT;
+        List<Element> skeletonEvents = new ArrayList<Element>();
+        Element inputList = skeleton.getChild("input-events", ns);
+        if (inputList != null) {
+            for (Element event : (List<Element>) inputList.getChildren("data-in", ns)) {
+                dataIns.add((Element) event.clone());
+                skeletonEvents.add(event);
+            }
+        }
+        Element outputList = skeleton.getChild("output-events", ns);
+        if (outputList != null) {
+            for (Element event : (List<Element>) outputList.getChildren("data-out", ns)) {
+                dataOuts.add((Element) event.clone());
+                skeletonEvents.add(event);
+            }
+        }
+        for (Element event : skeletonEvents) {
+            event.removeChildren("instance", ns);
+            if (event.getChild("start-instance", ns) != null && event.getChild("end-instance", ns) != null) {
+                event.removeChild("start-instance", ns);
+                event.removeChild("end-instance", ns);
+            }
+            Element uris = new Element("uris", ns);
+            uris.addContent(getSlot(slot++));
+            event.getContent().add(1, uris);
+            Element unresolved = new Element(CoordCommandUtils.UNRESOLVED_INST_TAG, ns);
+            unresolved.addContent(getSlot(slot++));
+            event.getContent().add(1, unresolved);
+        }
+        skeleton.removeAttribute("start");
+        skeleton.removeAttribute("end");
+        skeleton.setAttribute("instance-number", getSlot(INSTANCE_NUMBER_SLOT));
+        skeleton.setAttribute("action-nominal-time", getSlot(NOMINAL_TIME_SLOT));
+        skeleton.setAttribute("action-actual-time", getSlot(ACTUAL_TIME_SLOT));
+
+        slaSlot = slot;
+        Element skeletonSla = getSlaElement(skeleton);
+        if (skeletonSla != null) {
+            sla = (Element) getSlaElement(eJob).clone();
+            for (Element elem : (List<Element>) skeletonSla.getChildren()) {
+                elem.removeContent();
+                elem.addContent(getSlot(slot++));
+            }
+        }
+        else {
+            sla = null;
+        }
+        slotCount = slot;
+
+        boolean[] elementSlots = new boolean[slotCount];
+        for (int i = FIRST_EVENT_SLOT; i < slotCount; i++) {
+            elementSlots[i] = true;
+        }
+        actionTemplate = new Template(XmlUtils.prettyPrint(skeleton).toString(), elementSlots, slotCount);
+        if (skeletonSla != null) {
+            slaTemplate = new Template(XmlUtils.prettyPrint(skeletonSla).toString(), elementSlots, slotCount - slaSlot);
+        }
+    }
+
+    private static String getSlot(int slot) {
+        return SLOT_PREFIX + slot + "-";
+    }
+
+    private static Element getSlaElement(Element eAction) {
+        return eAction.getChild("action", eAction.getNamespace()).getChild("info", eAction.getNamespace("sla"));
+    }
+
+    /**
+     * Materialize an action with the template, it is equivalent to {@link CoordCommandUtils#materializeOneInstance}
+     * of a job that is not a dry run.
+     *
+     * @param nominalTime materialization time
+     * @param actualTime action actual time
+     * @param instanceCount instance number
+     * @param actionBean CoordinatorActionBean to materialize
+     * @return the materialized action
+     * @throws Exception thrown if the action could not be materialized
+     */
+    @SuppressWarnings("unchecked")
+    public MaterializedAction materialize(Date nominalTime, Date actualTime, int instanceCount,
+            CoordinatorActionBean actionBean) throws Exception {
+        String actionId = Services.get().get(UUIDService.class).generateChildId(jobId, instanceCount + "");
+        SyncCoordAction appInst = new SyncCoordAction();
+        appInst.setActionId(actionId);
+        appInst.setName(appName);
+        appInst.setNominalTime(nominalTime);
+        appInst.setActualTime(actualTime);
+        appInst.setFrequency(frequency);
+        appInst.setTimeUnit(timeUnit);
+        appInst.setTimeZone(DateUtils.getTimeZone(timeZone));
+        appInst.setEndOfDuration(endOfDuration);
+
+        String[] values = new String[slotCount];
+        values[INSTANCE_NUMBER_SLOT] = escapeAttribute(Integer.toString(instanceCount));
+        values[NOMINAL_TIME_SLOT] = escapeAttribute(DateUtils.formatDateOozieTZ(nominalTime));
+        values[ACTUAL_TIME_SLOT] = escapeAttribute(DateUtils.formatDateOozieTZ(actualTime));
+
+        Map<String, StringBuilder> dependencyMap = null;
+        List<Element> events = new ArrayList<Element>(dataIns.size() + dataOuts.size());
+        if (eJob.getChild("input-events", eJob.getNamespace()) != null) {
+            List<Element> ins = cloneAll(dataIns);
+            dependencyMap = CoordCommandUtils.materializeDataEvents(ins, appInst, conf);
+            events.addAll(ins);
+        }
+        if (eJob.getChild("output-events", eJob.getNamespace()) != null) {
+            List<Element> outs = cloneAll(dataOuts);
+            CoordCommandUtils.materializeDataEvents(outs, appInst, conf);
+            events.addAll(outs);
+        }
+        int slot = FIRST_EVENT_SLOT;
+        for (Element event : events) {
+            values[slot++] = escapeText(event.getChildText("uris", event.getNamespace()));
+            values[slot++] = escapeText(event.getChildText(CoordCommandUtils.UNRESOLVED_INST_TAG,
+                    event.getNamespace()));
+        }
+
+        Element actionSla = null;
+        if (sla != null) {
+            actionSla = (Element) sla.clone();
+            CoordCommandUtils.materializeSLA(actionSla, nominalTime, conf);
+            for (Element elem : (List<Element>) actionSla.getChildren()) {
+                if (elem.getText().trim().length() == 0) {
+                    // it is printed as an empty element, which does not fit the slot
+                    return materializeWithoutTemplate(nominalTime, actualTime, instanceCount, actionBean);
+                }
+                values[slot++] = escapeText(elem.getText());
+            }
+        }
+
+        actionBean.setCreatedConf(confXml);
+        actionBean.setRunConf(confXml);
+        actionBean.setCreatedTime(actualTime);
+        actionBean.setJobId(jobId);
+        actionBean.setId(actionId);
+        actionBean.setLastModifiedTime(new Date());
+        actionBean.setStatus(CoordinatorAction.Status.WAITING);
+        actionBean.setActionNumber(instanceCount);
+        if (dependencyMap != null) {
+            StringBuilder sbPull = dependencyMap.get(DependencyType.PULL.name());
+            if (sbPull != null) {
+                actionBean.setMissingDependencies(sbPull.toString());
+            }
+            StringBuilder sbPush = dependencyMap.get(DependencyType.PUSH.name());
+            if (sbPush != null) {
+                actionBean.setPushMissingDependencies(sbPush.toString());
+            }
+        }
+        actionBean.setNominalTime(nominalTime);
+        if (actionSla != null) {
+            actionBean.setSlaXml(slaTemplate.render(values));
+        }
+        return new MaterializedAction(actionTemplate.render(values), actionSla);
+    }
+
+    private MaterializedAction materializeWithoutTemplate(Date nominalTime, Date actualTime, int instanceCount,
+            CoordinatorActionBean actionBean) throws Exception {
+        Element eAction = (Element) eJob.clone();
+        String actionXml = CoordCommandUtils.materializeOneInstance(jobId, false, eAction, nominalTime, actualTime,
+                instanceCount, conf, actionBean);
+        return new MaterializedAction(actionXml, getSlaElement(eAction));
+    }
+
+    /**
+     * Verify that the template materializes the first action as {@link CoordCommandUtils#materializeOneInstance}.
+     */
+    private boolean verify() throws Exception {
+        Date nominalTime = DateUtils.parseDateOozieTZ(eJob.getAttributeValue("start"));
+        Date actualTime = new Date();
+        CoordinatorActionBean expected = new CoordinatorActionBean();
+        String expectedXml = CoordCommandUtils.materializeOneInstance(jobId, false, (Element) eJob.clone(),
+                nominalTime, actualTime, 1, conf, expected);
+        CoordinatorActionBean actual = new CoordinatorActionBean();
+        String actualXml = materialize(nominalTime, actualTime, 1, actual).getActionXml();
+        return expectedXml.equals(actualXml) && equals(expected.getSlaXml(), actual.getSlaXml())
+                && equals(expected.getMissingDependencies(), actual.getMissingDependencies())
+                && equals(expected.getPushMissingDependencies(), actual.getPushMissingDependencies())
+                && expected.getCreatedConf().equals(actual.getCreatedConf());
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return (s1 == null) ? s2 == null : s1.equals(s2);
+    }
+
+    private static List<Element> cloneAll(List<Element> elements) {
+        List<Element> clones = new ArrayList<Element>(elements.size());
+        for (Element element : elements) {
+            clones.add((Element) element.clone());
+        }
+        return clones;
+    }
+
+    private static String escapeAttribute(String value) {
+        return new XMLOutputter(Format.getPrettyFormat()).escapeAttributeEntities(value);
+    }
+
+    /**
+     * Return the text of an element as it is pretty printed, an empty string if it is <code>null</code>.
+     */
+    private static String escapeText(String value) {
+        if (value == null || value.trim().length() == 0) {
+            return "";
+        }
+        return new XMLOutputter(Format.getPrettyFormat()).outputString(new Text(value));
+    }
+
+}
@@ -18,7 +18,6 @@
 package org.apache.oozie.command.coord;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Date;
@@ -55,7 +54,7 @@ import org.apache.oozie.util.LogUtils;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.sla.SLAOperations;
 import org.apache.oozie.util.StatusUtils;
-import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.util.XConfigurationCache;
 import org.apache.oozie.util.XmlUtils;
 import org.apache.oozie.util.db.SLADbOperations;
 import org.jdom.Element;
@@ -299,7 +298,7 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
 
         Configuration jobConf = null;
         try {
-            jobConf = new XConfiguration(new StringReader(coordJob.getConf()));
+            jobConf = XConfigurationCache.get(coordJob.getConf());
         }
         catch (IOException ioe) {
             LOG.warn("Configuration parse error. read from DB :" + coordJob.getConf(), ioe);
@@ -307,7 +306,7 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
         }
 
         String jobXml = coordJob.getJobXml();
-        Element eJob = XmlUtils.parseXml(jobXml);
+        Element eJob = XmlUtils.parseCachedXml(jobXml);
         TimeZone appTz = DateUtils.getTimeZone(coordJob.getTimeZone());
 
         String frequency = coordJob.getFrequency();
@@ -338,6 +337,7 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
         }
 
         String action = null;
+        CoordMaterializationTemplate template = dryrun ? null : CoordMaterializationTemplate.get(coordJob);
         JPAService jpaService = Services.get().get(JPAService.class);
         int numWaitingActions = jpaService.execute(new CoordActionsActiveCountJPAExecutor(coordJob.getId()));
         int maxActionToBeCreated = coordJob.getMatThrottling() - numWaitingActions;
@@ -382,17 +382,26 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
                 LOG.debug("Materializing action for time=" + start.getTime() + ", lastactionnumber=" + lastActionNumber
                         + " timeout=" + timeout + " minutes");
                 Date actualTime = new Date();
-                action = CoordCommandUtils.materializeOneInstance(jobId, dryrun, (Element) eJob.clone(),
-                        nextTime, actualTime, lastActionNumber, jobConf, actionBean);
-                actionBean.setTimeOut(timeout);
-
-                if (!dryrun) {
-                    storeToDB(actionBean, action); // Storing to table
-
+                if (template != null) {
+                    CoordMaterializationTemplate.MaterializedAction materialized = template.materialize(nextTime,
+                            actualTime, lastActionNumber, actionBean);
+                    action = materialized.getActionXml();
+                    actionBean.setTimeOut(timeout);
+                    storeToDB(actionBean, action, materialized.getSla()); // Storing to table
                 }
                 else {
-                    actionStrings.append("action for new instance");
-                    actionStrings.append(action);
+                    action = CoordCommandUtils.materializeOneInstance(jobId, dryrun, (Element) eJob.clone(),
+                            nextTime, actualTime, lastActionNumber, jobConf, actionBean);
+                    actionBean.setTimeOut(timeout);
+
+                    if (!dryrun) {
+                        storeToDB(actionBean, action); // Storing to table
+
+                    }
+                    else {
+                        actionStrings.append("action for new instance");
+                        actionStrings.append(action);
+                    }
                 }
             }
             else {
@@ -416,21 +425,25 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
     }
 
     private void storeToDB(CoordinatorActionBean actionBean, String actionXml) throws Exception {
+        Element eAction = XmlUtils.parseXml(actionXml);
+        storeToDB(actionBean, actionXml,
+                eAction.getChild("action", eAction.getNamespace()).getChild("info", eAction.getNamespace("sla")));
+    }
+
+    private void storeToDB(CoordinatorActionBean actionBean, String actionXml, Element eSla) throws Exception {
         LOG.debug("In storeToDB() coord action id = " + actionBean.getId() + ", size of actionXml = "
                 + actionXml.length());
         actionBean.setActionXml(actionXml);
 
         insertList.add(actionBean);
-        writeActionSlaRegistration(actionXml, actionBean);
+        writeActionSlaRegistration(eSla, actionBean);
 
         // TODO: time 100s should be configurable
         queue(new CoordActionNotificationXCommand(actionBean), 100);
         queue(new CoordActionInputCheckXCommand(actionBean.getId(), actionBean.getJobId()), 100);
     }
 
-    private void writeActionSlaRegistration(String actionXml, CoordinatorActionBean actionBean) throws Exception {
-        Element eAction = XmlUtils.parseXml(actionXml);
-        Element eSla = eAction.getChild("action", eAction.getNamespace()).getChild("info", eAction.getNamespace("sla"));
+    private void writeActionSlaRegistration(Element eSla, CoordinatorActionBean actionBean) throws Exception {
         SLAEventBean slaEvent = SLADbOperations.createSlaRegistrationEvent(eSla, actionBean.getId(), SlaAppType.COORDINATOR_ACTION, coordJob
                 .getUser(), coordJob.getGroup(), LOG);
         if(slaEvent != null) {
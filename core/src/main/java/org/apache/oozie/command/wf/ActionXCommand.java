@@ -18,7 +18,6 @@
 package org.apache.oozie.command.wf;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Date;
@@ -46,7 +45,7 @@ import org.apache.oozie.service.Services;
 import org.apache.oozie.util.ELEvaluator;
 import org.apache.oozie.util.InstrumentUtils;
 import org.apache.oozie.util.Instrumentation;
-import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.util.XConfigurationCache;
 import org.apache.oozie.workflow.WorkflowException;
 import org.apache.oozie.workflow.WorkflowInstance;
 import org.apache.oozie.workflow.lite.LiteWorkflowInstance;
@@ -277,7 +276,7 @@ public abstract class ActionXCommand<T> extends WorkflowXCommand<Void> {
             this.isRetry = isRetry;
             this.isUserRetry = isUserRetry;
             try {
-                protoConf = new XConfiguration(new StringReader(workflow.getProtoActionConf()));
+                protoConf = XConfigurationCache.get(workflow.getProtoActionConf());
             }
             catch (IOException ex) {
                 throw new RuntimeException("It should not happen", ex);
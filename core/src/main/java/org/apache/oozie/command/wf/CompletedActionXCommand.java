@@ -27,6 +27,7 @@ import org.apache.oozie.command.PreconditionException;
 import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor;
 import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor.WorkflowActionQuery;
 import org.apache.oozie.service.ActionService;
+import org.apache.oozie.service.CallbackService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.util.LogUtils;
 import org.apache.oozie.util.ParamChecker;
@@ -37,12 +38,14 @@ import org.apache.oozie.util.ParamChecker;
 public class CompletedActionXCommand extends WorkflowXCommand<Void> {
     private final String actionId;
     private final String externalStatus;
+    private final Properties actionData;
     private WorkflowActionBean wfactionBean;
 
     public CompletedActionXCommand(String actionId, String externalStatus, Properties actionData, int priority) {
         super("callback", "callback", priority);
         this.actionId = ParamChecker.notEmpty(actionId, "actionId");
         this.externalStatus = ParamChecker.notEmpty(externalStatus, "externalStatus");
+        this.actionData = actionData;
     }
 
     public CompletedActionXCommand(String actionId, String externalStatus, Properties actionData) {
@@ -86,6 +89,10 @@ public class CompletedActionXCommand extends WorkflowXCommand<Void> {
     @Override
     protected Void execute() throws CommandException {
         ActionExecutor executor = Services.get().get(ActionService.class).getExecutor(this.wfactionBean.getType());
+        // launchers send the action data on a callback before the launcher job completes
+        if (actionData != null) {
+            Services.get().get(CallbackService.class).putActionData(actionId, actionData);
+        }
         // this is done because oozie notifications (of sub-wfs) is send
         // every status change, not only on completion.
         if (executor.isCompleted(externalStatus)) {
@@ -56,6 +56,7 @@ import org.apache.oozie.service.HadoopAccessorService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.UUIDService;
 import org.apache.oozie.service.WorkflowAppService;
+import org.apache.oozie.service.WorkflowDefinitionService;
 import org.apache.oozie.service.WorkflowStoreService;
 import org.apache.oozie.sla.SLAOperations;
 import org.apache.oozie.sla.service.SLAService;
@@ -217,6 +218,13 @@ public class ReRunXCommand extends WorkflowXCommand<Void> {
         wfBean.setEndTime(null);
         wfBean.setRun(wfBean.getRun() + 1);
         wfBean.setStatus(WorkflowJob.Status.PREP);
+        try {
+            // the new instance references its stored definition, the reference of the job is replaced
+            wfBean.setDefinitionBeans(WorkflowDefinitionService.referenceDefinition(newWfInstance, jobId));
+        }
+        catch (IOException ex) {
+            throw new CommandException(ErrorCode.E0803, ex.getMessage(), ex);
+        }
         wfBean.setWorkflowInstance(newWfInstance);
 
         try {
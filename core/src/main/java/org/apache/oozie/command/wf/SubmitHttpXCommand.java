@@ -21,6 +21,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.WorkflowDefinitionService;
 import org.apache.oozie.service.WorkflowStoreService;
 import org.apache.oozie.service.WorkflowAppService;
 import org.apache.oozie.service.Services;
@@ -143,6 +144,8 @@ public abstract class SubmitHttpXCommand extends WorkflowXCommand<String> {
             workflow.setRun(0);
             workflow.setUser(conf.get(OozieClient.USER_NAME));
             workflow.setGroup(conf.get(OozieClient.GROUP_NAME));
+            // the instance references its stored definition, a new definition is inserted with the job
+            workflow.setDefinitionBeans(WorkflowDefinitionService.referenceDefinition(wfInstance, workflow.getId()));
             workflow.setWorkflowInstance(wfInstance);
             workflow.setExternalId(conf.get(OozieClient.EXTERNAL_ID));
 
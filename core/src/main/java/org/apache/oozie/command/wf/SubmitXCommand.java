@@ -28,6 +28,7 @@ import org.apache.oozie.action.oozie.SubWorkflowActionExecutor;
 import org.apache.oozie.service.HadoopAccessorException;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.UUIDService;
+import org.apache.oozie.service.WorkflowDefinitionService;
 import org.apache.oozie.service.WorkflowStoreService;
 import org.apache.oozie.service.WorkflowAppService;
 import org.apache.oozie.service.HadoopAccessorService;
@@ -197,6 +198,11 @@ public class SubmitXCommand extends WorkflowXCommand<String> {
             workflow.setRun(0);
             workflow.setUser(conf.get(OozieClient.USER_NAME));
             workflow.setGroup(conf.get(OozieClient.GROUP_NAME));
+            if (!dryrun) {
+                // the instance references its stored definition, a new definition is inserted with the job
+                workflow.setDefinitionBeans(WorkflowDefinitionService.referenceDefinition(wfInstance,
+                        workflow.getId()));
+            }
             workflow.setWorkflowInstance(wfInstance);
             workflow.setExternalId(conf.get(OozieClient.EXTERNAL_ID));
             // Set parent id if it doesn't already have one (for subworkflows)
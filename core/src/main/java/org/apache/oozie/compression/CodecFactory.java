@@ -31,7 +31,10 @@ import org.apache.oozie.util.XLog;
 /**
  *  Utility class for maintaining list of codecs and providing facility
  *  for compressing and decompressing.
- *
+ *  <p/>
+ *  The built-in codecs ({@link GzipCompressionCodec}, {@link Lz4CompressionCodec} and
+ *  {@link DictionaryCompressionCodec}) are always registered, so data compressed with them can be read whatever the
+ *  output compression codec is.
  */
 public class CodecFactory {
     private static final Map<String, CompressionCodec> REGISTERED = new HashMap<String, CompressionCodec>();
@@ -45,6 +48,8 @@ public class CodecFactory {
     private static XLog LOG = XLog.getLog(CodecFactory.class);;
     private static byte[] headerBytes;
 
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>();
+
     /**
      * Initialize the codec factory to maintain list of codecs
      * @param conf
@@ -60,14 +65,16 @@ public class CodecFactory {
             outputCompressionStr = outputCompressionStr.trim();
             isEnabled = true;
         }
+        REGISTERED.put(GzipCompressionCodec.CODEC_NAME, new GzipCompressionCodec());
+        REGISTERED.put(Lz4CompressionCodec.CODEC_NAME, new Lz4CompressionCodec());
+        REGISTERED.put(DictionaryCompressionCodec.CODEC_NAME, new DictionaryCompressionCodec());
         String[] outputCompressionCodecs = conf.getStrings(COMPRESSION_CODECS);
-        for (String comp : outputCompressionCodecs) {
-            parseCompressionConfig(comp);
+        if (outputCompressionCodecs != null) {
+            for (String comp : outputCompressionCodecs) {
+                parseCompressionConfig(comp.trim());
+            }
         }
         if (isEnabled) {
-            if (REGISTERED.get(GzipCompressionCodec.CODEC_NAME) == null) {
-                REGISTERED.put(GzipCompressionCodec.CODEC_NAME, new GzipCompressionCodec());
-            }
             outputCompressionCodec = REGISTERED.get(outputCompressionStr);
             if (outputCompressionCodec == null) {
                 throw new RuntimeException("No codec class found for codec " + outputCompressionStr);
@@ -153,6 +160,22 @@ public class CodecFactory {
         return getCodec(compressionProps.get(COMPRESSION_KEY_HEADER));
     }
 
+    /**
+     * Get a scratch buffer of the calling thread, codecs use it for their intermediate data so it is not allocated by
+     * every compression and decompression.
+     *
+     * @param size minimum size of the buffer
+     * @return the buffer, its content is undefined
+     */
+    static byte[] getBuffer(int size) {
+        byte[] buffer = BUFFER.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[Math.max(size, 4096)];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
     /**
      * Get output compression codec
      * @return the compression codec
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Class to compress and decompress data using deflate with a preset dictionary of the strings common in Oozie job
+ * definitions and configurations.
+ * <p/>
+ * The blobs of Oozie are small XML documents, the preset dictionary lets deflate reference their markup, element names
+ * and property names from the first byte instead of learning them from the document, which improves the compression
+ * ratio of small blobs significantly. The dictionary is a fixed list of strings picked by hand from the Oozie schemas
+ * and configuration properties, it is not trained on a corpus of blobs. Deflaters and inflaters are reused by each
+ * thread.
+ * <p/>
+ * The data is written as the uncompressed length, the compressed length and a zlib stream. The zlib stream carries
+ * the checksum of its dictionary, the dictionary must never change as data compressed with it would not be readable
+ * anymore; a different dictionary must be added as a new codec.
+ */
+public class DictionaryCompressionCodec implements CompressionCodec {
+
+    public static final String CODEC_NAME = "dict";
+
+    private static final String DICTIONARY_STRING =
+            "oozie.wf.rerun.failnodes oozie.wf.rerun.skip.nodes oozie.coord.application.path "
+            + "oozie.bundle.application.path oozie.wf.validate.ForkJoin oozie.launcher.mapreduce.map.memory.mb "
+            + "oozie.launcher. oozie.action.sharelib.for. mapreduce.job.queuename mapred.job.queue.name "
+            + "mapreduce.job.user.name mapreduce.job.acl-view-job mapreduce.jobtracker.kerberos.principal "
+            + "dfs.namenode.kerberos.principal mapred.mapper.class mapred.reducer.class mapred.input.dir "
+            + "mapred.output.dir mapreduce.input.fileinputformat.inputdir "
+            + "mapreduce.output.fileoutputformat.outputdir fs.default.name fs.defaultFS hadoop.security. "
+            + "${coord:current(0)}${coord:formatTime(coord:nominalTime(), 'yyyyMMdd')}${coord:dataIn('input')}"
+            + "${coord:dataOut('output')}${wf:errorMessage(wf:lastErrorNode())}${wf:id()}${wf:user()}"
+            + "${wf:conf('${nameNode}${jobTracker}${queueName}${wf:actionData('"
+            + "<sla:info><sla:nominal-time></sla:nominal-time><sla:should-start></sla:should-start>"
+            + "<sla:should-end></sla:should-end><sla:max-duration></sla:max-duration><sla:alert-events>"
+            + "</sla:alert-events><sla:alert-contact></sla:alert-contact></sla:info> xmlns:sla=\"uri:oozie:sla:0.2\""
+            + "<bundle-app name=\" xmlns=\"uri:oozie:bundle:0.2\"<kick-off-time></kick-off-time>"
+            + "<coordinator name=\"</coordinator></bundle-app>"
+            + "<coordinator-app name=\" frequency=\"${coord:days(1)}\" start=\" end=\" timezone=\"UTC\" "
+            + "xmlns=\"uri:oozie:coordinator:0.4\"><controls><timeout></timeout><concurrency></concurrency>"
+            + "<execution>FIFO</execution><throttle></throttle></controls><datasets><dataset name=\" "
+            + "initial-instance=\"<uri-template></uri-template><done-flag></done-flag></dataset></datasets>"
+            + "<input-events><data-in name=\" dataset=\"<instance></instance><start-instance></start-instance>"
+            + "<end-instance></end-instance></data-in></input-events><output-events><data-out name=\"</data-out>"
+            + "</output-events><action><workflow><app-path></app-path></workflow></action></coordinator-app>"
+            + "<workflow-app name=\" xmlns=\"uri:oozie:workflow:0.5\"><global></global><credentials>"
+            + "<credential name=\" type=\"</credential></credentials><start to=\"<decision name=\"<switch>"
+            + "<case to=\"</case><default to=\"/></switch></decision><fork name=\"<path start=\"</fork>"
+            + "<join name=\"<action name=\" cred=\" retry-max=\" retry-interval=\"<map-reduce><pig><hive "
+            + "xmlns=\"uri:oozie:hive-action:0.5\"><sqoop xmlns=\"uri:oozie:sqoop-action:0.4\"><shell "
+            + "xmlns=\"uri:oozie:shell-action:0.3\"><exec></exec><fs><delete path=\"<mkdir path=\"<move source=\" "
+            + "target=\"<chmod path=\" permissions=\"<sub-workflow><propagate-configuration/><email "
+            + "xmlns=\"uri:oozie:email-action:0.2\"><to></to><cc></cc><subject></subject><body></body></email>"
+            + "<java><main-class></main-class><java-opts></java-opts><capture-output/></java><prepare></prepare>"
+            + "<job-xml></job-xml><script></script><param></param><arg></arg><file></file><archive></archive>"
+            + "<job-tracker>${jobTracker}</job-tracker><name-node>${nameNode}</name-node></action>"
+            + "<ok to=\"end\"/><error to=\"fail\"/><kill name=\"fail\"><message>Action failed, error message["
+            + "${wf:errorMessage(wf:lastErrorNode())}]</message></kill><end name=\"end\"/></workflow-app>"
+            + "hdfs://localhost:8020/user/oozie.wf.application.path oozie.use.system.libpath oozie.libpath "
+            + "user.name group.name nameNode jobTracker queueName true false "
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><configuration>"
+            + "</configuration><property><name></name><value></value></property>";
+
+    private static final byte[] DICTIONARY;
+    private static final int DICTIONARY_ID;
+
+    static {
+        try {
+            DICTIONARY = DICTIONARY_STRING.getBytes(CodecFactory.UTF_8_ENCODING);
+        }
+        catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+        Deflater deflater = new Deflater();
+        deflater.setDictionary(DICTIONARY);
+        DICTIONARY_ID = deflater.getAdler();
+        deflater.end();
+    }
+
+    private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater();
+        }
+    };
+
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    public byte[] compressBytes(byte[] header, byte[] data) throws IOException {
+        return compress(header, data);
+    }
+
+    public byte[] compressString(byte[] header, String data) throws IOException {
+        return compress(header, data.getBytes(CodecFactory.UTF_8_ENCODING));
+    }
+
+    public String decompressToString(DataInputStream dais) throws IOException {
+        return new String(decompressToBytes(dais), CodecFactory.UTF_8_ENCODING);
+    }
+
+    public byte[] decompressToBytes(DataInputStream dais) throws IOException {
+        int length = dais.readInt();
+        int compressedLength = dais.readInt();
+        if (length < 0 || compressedLength < 0) {
+            throw new IOException("Corrupted data, invalid lengths");
+        }
+        byte[] compressed = CodecFactory.getBuffer(compressedLength);
+        dais.readFully(compressed, 0, compressedLength);
+        byte[] data = new byte[length];
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        try {
+            inflater.setInput(compressed, 0, compressedLength);
+            int offset = 0;
+            while (!inflater.finished()) {
+                int count = inflater.inflate(data, offset, data.length - offset);
+                offset += count;
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (inflater.getAdler() != DICTIONARY_ID) {
+                            throw new IOException("Data compressed with an unknown dictionary");
+                        }
+                        inflater.setDictionary(DICTIONARY);
+                    }
+                    else if (offset == data.length) {
+                        break;
+                    }
+                    else if (inflater.needsInput()) {
+                        throw new IOException("Corrupted data, truncated");
+                    }
+                }
+            }
+            if (offset != data.length) {
+                throw new IOException("Corrupted data, decompressed [" + offset + "] bytes, expected ["
+                        + data.length + "]");
+            }
+        }
+        catch (DataFormatException ex) {
+            throw new IOException(ex);
+        }
+        return data;
+    }
+
+    private byte[] compress(byte[] header, byte[] data) throws IOException {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] compressed = CodecFactory.getBuffer(data.length + data.length / 1000 + 64);
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                byte[] larger = CodecFactory.getBuffer(compressed.length * 2);
+                System.arraycopy(compressed, 0, larger, 0, compressedLength);
+                compressed = larger;
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream(header.length + 8 + compressedLength);
+        byteOutput.write(header);
+        DataOutputStream daos = new DataOutputStream(byteOutput);
+        daos.writeInt(data.length);
+        daos.writeInt(compressedLength);
+        daos.write(compressed, 0, compressedLength);
+        daos.close();
+        return byteOutput.toByteArray();
+    }
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class to compress and decompress data using the LZ4 block format, implemented in pure Java.
+ * <p/>
+ * It trades compression ratio for speed, it compresses and decompresses several times faster than gzip. The data is
+ * written as the uncompressed length, the compressed length and a single LZ4 block; as the uncompressed length is
+ * known, data is decompressed directly into an array of its exact size.
+ */
+public class Lz4CompressionCodec implements CompressionCodec {
+
+    public static final String CODEC_NAME = "lz4";
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 14;
+    private static final int MIN_HASH_LOG = 8;
+    private static final int RUN_MASK = 15;
+
+    private static final ThreadLocal<int[]> HASH_TABLE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1 << HASH_LOG];
+        }
+    };
+
+    public byte[] compressBytes(byte[] header, byte[] data) throws IOException {
+        return compress(header, data);
+    }
+
+    public byte[] compressString(byte[] header, String data) throws IOException {
+        return compress(header, data.getBytes(CodecFactory.UTF_8_ENCODING));
+    }
+
+    public String decompressToString(DataInputStream dais) throws IOException {
+        return new String(decompressToBytes(dais), CodecFactory.UTF_8_ENCODING);
+    }
+
+    public byte[] decompressToBytes(DataInputStream dais) throws IOException {
+        int length = dais.readInt();
+        int compressedLength = dais.readInt();
+        if (length < 0 || compressedLength < 0) {
+            throw new IOException("Corrupted LZ4 data, invalid lengths");
+        }
+        byte[] compressed = CodecFactory.getBuffer(compressedLength);
+        dais.readFully(compressed, 0, compressedLength);
+        byte[] data = new byte[length];
+        decompressBlock(compressed, compressedLength, data);
+        return data;
+    }
+
+    private byte[] compress(byte[] header, byte[] data) throws IOException {
+        byte[] compressed = CodecFactory.getBuffer(data.length + data.length / 255 + 16);
+        int compressedLength = compressBlock(data, compressed);
+        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream(header.length + 8 + compressedLength);
+        byteOutput.write(header);
+        DataOutputStream daos = new DataOutputStream(byteOutput);
+        daos.writeInt(data.length);
+        daos.writeInt(compressedLength);
+        daos.write(compressed, 0, compressedLength);
+        daos.close();
+        return byteOutput.toByteArray();
+    }
+
+    /**
+     * Compress data into a single LZ4 block.
+     *
+     * @param src data to compress.
+     * @param dst array to write the block to, it must be at least <code>src.length + src.length / 255 + 16</code>
+     * long.
+     * @return the length of the block.
+     */
+    static int compressBlock(byte[] src, byte[] dst) {
+        int srcLength = src.length;
+        int op = 0;
+        int anchor = 0;
+        if (srcLength >= MF_LIMIT + 1) {
+            // small inputs use part of the hash table, it is cleared for every input
+            int hashLog = HASH_LOG;
+            while (hashLog > MIN_HASH_LOG && (1 << (hashLog - 1)) >= srcLength) {
+                hashLog--;
+            }
+            int[] table = HASH_TABLE.get();
+            Arrays.fill(table, 0, 1 << hashLog, -1);
+            int matchLimit = srcLength - MF_LIMIT;
+            int extendLimit = srcLength - LAST_LITERALS;
+            int ip = 0;
+            while (ip < matchLimit) {
+                int sequence = readInt(src, ip);
+                int hash = (sequence * -1640531535) >>> (32 - hashLog);
+                int ref = table[hash];
+                table[hash] = ip;
+                if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    ip++;
+                    continue;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < extendLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                    matchLength++;
+                }
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op);
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+        // the last literals
+        int literalLength = srcLength - anchor;
+        int token = (literalLength >= RUN_MASK) ? RUN_MASK << 4 : literalLength << 4;
+        dst[op++] = (byte) token;
+        op = writeLength(literalLength, dst, op);
+        System.arraycopy(src, anchor, dst, op, literalLength);
+        return op + literalLength;
+    }
+
+    private static int writeSequence(byte[] src, int literalOffset, int literalLength, int distance,
+            int matchLength, byte[] dst, int op) {
+        int extraMatch = matchLength - MIN_MATCH;
+        int token = ((literalLength >= RUN_MASK) ? RUN_MASK : literalLength) << 4
+                | ((extraMatch >= RUN_MASK) ? RUN_MASK : extraMatch);
+        dst[op++] = (byte) token;
+        op = writeLength(literalLength, dst, op);
+        System.arraycopy(src, literalOffset, dst, op, literalLength);
+        op += literalLength;
+        dst[op++] = (byte) distance;
+        dst[op++] = (byte) (distance >>> 8);
+        return writeLength(extraMatch, dst, op);
+    }
+
+    private static int writeLength(int length, byte[] dst, int op) {
+        if (length >= RUN_MASK) {
+            length -= RUN_MASK;
+            while (length >= 255) {
+                dst[op++] = (byte) 255;
+                length -= 255;
+            }
+            dst[op++] = (byte) length;
+        }
+        return op;
+    }
+
+    /**
+     * Decompress a single LZ4 block.
+     *
+     * @param src array with the block.
+     * @param srcLength length of the block.
+     * @param dst array to decompress to, its length must be the uncompressed length.
+     * @throws IOException thrown if the block is corrupted.
+     */
+    static void decompressBlock(byte[] src, int srcLength, byte[] dst) throws IOException {
+        int ip = 0;
+        int op = 0;
+        try {
+            while (true) {
+                int token = src[ip++] & 0xFF;
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                if (ip + literalLength > srcLength) {
+                    throw new IOException("Corrupted LZ4 data, literals out of bounds");
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip == srcLength) {
+                    break;
+                }
+                int distance = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+                ip += 2;
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                int ref = op - distance;
+                if (distance == 0 || ref < 0 || op + matchLength > dst.length) {
+                    throw new IOException("Corrupted LZ4 data, match out of bounds");
+                }
+                if (distance >= matchLength) {
+                    System.arraycopy(dst, ref, dst, op, matchLength);
+                    op += matchLength;
+                }
+                else {
+                    // overlapping match, it repeats the last distance bytes
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[op++] = dst[ref++];
+                    }
+                }
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException ex) {
+            throw new IOException("Corrupted LZ4 data", ex);
+        }
+        if (op != dst.length) {
+            throw new IOException("Corrupted LZ4 data, decompressed [" + op + "] bytes, expected [" + dst.length
+                    + "]");
+        }
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8 | (buffer[offset + 2] & 0xFF) << 16
+                | (buffer[offset + 3] & 0xFF) << 24;
+    }
+
+}
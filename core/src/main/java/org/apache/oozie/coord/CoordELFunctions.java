@@ -28,6 +28,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.dependency.URIHandler.Context;
 import org.apache.oozie.dependency.URIHandler;
+import org.apache.oozie.dependency.URIListingCache;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.ELEvaluator;
 import org.apache.oozie.util.ParamChecker;
@@ -44,6 +45,8 @@ public class CoordELFunctions {
     final public static String COORD_ACTION = "oozie.coord.el.app.bean";
     final public static String CONFIGURATION = "oozie.coord.el.conf";
     final public static String LATEST_EL_USE_CURRENT_TIME = "oozie.service.ELService.latest-el.use-current-time";
+    final public static String LATEST_EL_USE_LISTING = "oozie.service.ELService.latest-el.use-listing";
+    final public static String URI_LISTING_CACHE = "oozie.coord.el.uri.listing.cache";
     // INSTANCE_SEPARATOR is used to separate multiple directories into one tag.
     final public static String INSTANCE_SEPARATOR = "#";
     final public static String DIR_SEPARATOR = ",";
@@ -298,6 +301,7 @@ public class CoordELFunctions {
             URIHandlerService uriService = Services.get().get(URIHandlerService.class);
             URIHandler uriHandler = null;
             Context uriContext = null;
+            URIListingCache listingCache = getURIListingCache(eval);
             try {
                 while (instance >= checkedInstance && !currentThread.isInterrupted()) {
                     ELEvaluator uriEval = getUriEvaluator(nominalInstanceCal);
@@ -308,7 +312,7 @@ public class CoordELFunctions {
                         uriContext = uriHandler.getContext(uri, conf, user);
                     }
                     String uriWithDoneFlag = uriHandler.getURIWithDoneFlag(uriPath, doneFlag);
-                    if (uriHandler.exists(new URI(uriWithDoneFlag), uriContext)) {
+                    if (exists(uriHandler, uriContext, listingCache, uriPath, uriWithDoneFlag)) {
                         if (available == endOffset) {
                             LOG.debug("Matched future(" + available + "): " + uriWithDoneFlag);
                             resolved = true;
@@ -1029,6 +1033,7 @@ public class CoordELFunctions {
             URIHandlerService uriService = Services.get().get(URIHandlerService.class);
             URIHandler uriHandler = null;
             Context uriContext = null;
+            URIListingCache listingCache = getURIListingCache(eval);
             try {
                 while (nominalInstanceCal.compareTo(initInstance) >= 0 && !currentThread.isInterrupted()) {
                     ELEvaluator uriEval = getUriEvaluator(nominalInstanceCal);
@@ -1039,7 +1044,7 @@ public class CoordELFunctions {
                         uriContext = uriHandler.getContext(uri, conf, user);
                     }
                     String uriWithDoneFlag = uriHandler.getURIWithDoneFlag(uriPath, doneFlag);
-                    if (uriHandler.exists(new URI(uriWithDoneFlag), uriContext)) {
+                    if (exists(uriHandler, uriContext, listingCache, uriPath, uriWithDoneFlag)) {
                         XLog.getLog(CoordELFunctions.class)
                                 .debug("Found latest(" + available + "): " + uriWithDoneFlag);
                         if (available == startOffset) {
@@ -1093,6 +1098,32 @@ public class CoordELFunctions {
         return retVal;
     }
 
+    /**
+     * Return the cache of URI listings to check the dataset instances with.
+     *
+     * @param eval the evaluator, it may have a cache shared by the evaluations of a coordinator action check.
+     * @return the cache, <code>null</code> if instances are checked one by one.
+     */
+    private static URIListingCache getURIListingCache(ELEvaluator eval) {
+        if (!Services.get().getConf().getBoolean(LATEST_EL_USE_LISTING, false)) {
+            return null;
+        }
+        URIListingCache listingCache = (URIListingCache) eval.getVariable(URI_LISTING_CACHE);
+        if (listingCache == null) {
+            listingCache = new URIListingCache();
+            eval.setVariable(URI_LISTING_CACHE, listingCache);
+        }
+        return listingCache;
+    }
+
+    private static boolean exists(URIHandler uriHandler, Context uriContext, URIListingCache listingCache,
+            String uriPath, String uriWithDoneFlag) throws Exception {
+        if (listingCache != null) {
+            return listingCache.exists(uriHandler, uriContext, new URI(uriPath), new URI(uriWithDoneFlag));
+        }
+        return uriHandler.exists(new URI(uriWithDoneFlag), uriContext);
+    }
+
     /**
      * @param tm
      * @return a new Evaluator to be used for URI-template evaluation
@@ -1260,31 +1291,11 @@ public class CoordELFunctions {
         TimeZone dsTZ = getDatasetTZ(eval);
         int dsFreq = getDSFrequency(eval);
         // Convert Date to Calendar for corresponding TZ
-        Calendar current = Calendar.getInstance();
-        current.setTime(datasetInitialInstance);
-        current.setTimeZone(dsTZ);
-
-        Calendar calEffectiveTime = Calendar.getInstance();
-        calEffectiveTime.setTime(effectiveTime);
-        calEffectiveTime.setTimeZone(dsTZ);
-        if (instanceCount == null) {    // caller doesn't care about this value
-            instanceCount = new int[1];
-        }
-        instanceCount[0] = 0;
-        if (current.compareTo(calEffectiveTime) > 0) {
-            return null;
-        }
-        Calendar origCurrent = (Calendar) current.clone();
-        while (current.compareTo(calEffectiveTime) <= 0) {
-            current = (Calendar) origCurrent.clone();
-            instanceCount[0]++;
-            current.add(dsTimeUnit.getCalendarUnit(), instanceCount[0] * dsFreq);
-        }
-        instanceCount[0]--;
-
-        current = (Calendar) origCurrent.clone();
-        current.add(dsTimeUnit.getCalendarUnit(), instanceCount[0] * dsFreq);
-        return current;
+        Calendar initialInstance = Calendar.getInstance();
+        initialInstance.setTime(datasetInitialInstance);
+        initialInstance.setTimeZone(dsTZ);
+        return DatasetInstanceCalculator.getCurrentInstance(initialInstance, dsTimeUnit, dsFreq, effectiveTime,
+                instanceCount);
     }
 
     public static Calendar getEffectiveNominalTime() {
@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.coord;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Computes the instances of synchronous datasets.
+ * <p/>
+ * The n-th instance of a dataset is its initial instance plus n times its frequency, added in the time zone of the
+ * dataset. Instances of minute and hour frequencies are a fixed number of milliseconds apart, the index of an instance
+ * is computed directly. Instances of day, month and year frequencies are not, because of daylight saving time changes
+ * and months of different lengths, the index of an instance is found by a binary search around its estimate.
+ */
+public class DatasetInstanceCalculator {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    private static final long YEAR_MILLIS = 365 * DAY_MILLIS + DAY_MILLIS / 4;
+    private static final long MONTH_MILLIS = YEAR_MILLIS / 12;
+
+    /**
+     * Return the latest instance of a dataset that is not after a given time, the dataset <code>current(0)</code>
+     * instance.
+     *
+     * @param initialInstance initial instance of the dataset, in the time zone of the dataset.
+     * @param unit time unit of the dataset frequency.
+     * @param frequency dataset frequency.
+     * @param effectiveTime time to find the instance for.
+     * @param instanceCount if not <code>null</code>, its first element is set to the index of the instance.
+     * @return the instance, or <code>null</code> if the time is before the initial instance.
+     */
+    public static Calendar getCurrentInstance(Calendar initialInstance, TimeUnit unit, int frequency,
+            Date effectiveTime, int[] instanceCount) {
+        if (instanceCount != null) {
+            instanceCount[0] = 0;
+        }
+        long effective = effectiveTime.getTime();
+        if (initialInstance.getTimeInMillis() > effective) {
+            return null;
+        }
+        if (frequency <= 0) {
+            throw new IllegalArgumentException("Dataset frequency must be greater than zero, frequency [" + frequency
+                    + "]");
+        }
+        int calendarUnit = unit.getCalendarUnit();
+        int index;
+        if (calendarUnit == Calendar.MINUTE) {
+            index = (int) ((effective - initialInstance.getTimeInMillis()) / (frequency * MINUTE_MILLIS));
+        }
+        else if (calendarUnit == Calendar.HOUR) {
+            index = (int) ((effective - initialInstance.getTimeInMillis()) / (frequency * HOUR_MILLIS));
+        }
+        else {
+            index = searchIndex(initialInstance, calendarUnit, frequency, effective);
+        }
+        if (instanceCount != null) {
+            instanceCount[0] = index;
+        }
+        return getInstance(initialInstance, calendarUnit, frequency, index);
+    }
+
+    /**
+     * Return the index of the latest instance that is not after the given time.
+     * <p/>
+     * The index is estimated with the average length of the time unit, the estimate is off by a few instances at
+     * most, the search gallops from the estimate until it brackets the index and then bisects.
+     */
+    private static int searchIndex(Calendar initialInstance, int calendarUnit, int frequency, long effective) {
+        long averageMillis;
+        switch (calendarUnit) {
+            case Calendar.MONTH:
+                averageMillis = MONTH_MILLIS;
+                break;
+            case Calendar.YEAR:
+                averageMillis = YEAR_MILLIS;
+                break;
+            default:
+                averageMillis = DAY_MILLIS;
+        }
+        int estimate = (int) ((effective - initialInstance.getTimeInMillis()) / (frequency * averageMillis));
+
+        // instance(low) is not after the effective time, instance(high) is
+        int low;
+        int high;
+        int step = 1;
+        if (getInstanceMillis(initialInstance, calendarUnit, frequency, estimate) <= effective) {
+            low = estimate;
+            high = estimate + step;
+            while (getInstanceMillis(initialInstance, calendarUnit, frequency, high) <= effective) {
+                low = high;
+                step *= 2;
+                high = low + step;
+            }
+        }
+        else {
+            high = estimate;
+            low = Math.max(0, high - step);
+            // the initial instance, index 0, is never after the effective time
+            while (low > 0 && getInstanceMillis(initialInstance, calendarUnit, frequency, low) > effective) {
+                high = low;
+                step *= 2;
+                low = Math.max(0, high - step);
+            }
+        }
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (getInstanceMillis(initialInstance, calendarUnit, frequency, middle) <= effective) {
+                low = middle;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long getInstanceMillis(Calendar initialInstance, int calendarUnit, int frequency, int index) {
+        return getInstance(initialInstance, calendarUnit, frequency, index).getTimeInMillis();
+    }
+
+    private static Calendar getInstance(Calendar initialInstance, int calendarUnit, int frequency, int index) {
+        Calendar instance = (Calendar) initialInstance.clone();
+        instance.add(calendarUnit, index * frequency);
+        return instance;
+    }
+
+}
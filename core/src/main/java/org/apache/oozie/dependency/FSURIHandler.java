@@ -17,12 +17,15 @@
  */
 package org.apache.oozie.dependency;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.oozie.ErrorCode;
@@ -32,7 +35,7 @@ import org.apache.oozie.service.HadoopAccessorException;
 import org.apache.oozie.service.HadoopAccessorService;
 import org.apache.oozie.service.Services;
 
-public class FSURIHandler implements URIHandler {
+public class FSURIHandler implements ListableURIHandler {
 
     private HadoopAccessorService service;
     private Set<String> supportedSchemes;
@@ -104,6 +107,44 @@ public class FSURIHandler implements URIHandler {
         }
     }
 
+    @Override
+    public String getParentURI(URI uri) throws URIHandlerException {
+        Path parent = getNormalizedPath(uri).getParent();
+        return (parent == null) ? null : parent.toString();
+    }
+
+    @Override
+    public String getName(URI uri) throws URIHandlerException {
+        return getNormalizedPath(uri).getName();
+    }
+
+    @Override
+    public Set<String> list(String parentURI, Context context) throws URIHandlerException {
+        try {
+            FileSystem fs = ((FSContext) context).getFileSystem();
+            Path parent = new Path(parentURI);
+            FileStatus[] statuses;
+            try {
+                statuses = fs.listStatus(parent);
+            }
+            catch (FileNotFoundException e) {
+                statuses = null;
+            }
+            Set<String> names = new HashSet<String>();
+            // the listing of a file is the file itself, it has no children
+            if (statuses != null && !(statuses.length == 1
+                    && statuses[0].getPath().toUri().getPath().equals(parent.toUri().getPath()))) {
+                for (FileStatus status : statuses) {
+                    names.add(status.getPath().getName());
+                }
+            }
+            return names;
+        }
+        catch (IOException e) {
+            throw new HadoopAccessorException(ErrorCode.E0902, e);
+        }
+    }
+
     @Override
     public String getURIWithDoneFlag(String uri, String doneFlag) throws URIHandlerException {
         if (doneFlag.length() > 0) {
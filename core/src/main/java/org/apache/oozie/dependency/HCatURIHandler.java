@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.conf.HiveConf;
@@ -34,6 +35,7 @@ import org.apache.hcatalog.api.ConnectionFailureException;
 import org.apache.hcatalog.api.HCatClient;
 import org.apache.hcatalog.api.HCatPartition;
 import org.apache.hcatalog.common.HCatException;
+import org.apache.hcatalog.data.schema.HCatFieldSchema;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.action.hadoop.HCatLauncherURIHandler;
 import org.apache.oozie.action.hadoop.LauncherURIHandler;
@@ -46,7 +48,7 @@ import org.apache.oozie.service.URIHandlerService;
 import org.apache.oozie.util.HCatURI;
 import org.apache.oozie.util.XLog;
 
-public class HCatURIHandler implements URIHandler {
+public class HCatURIHandler implements ListableURIHandler {
 
     private Set<String> supportedSchemes;
     private Map<String, DependencyType> dependencyTypes;
@@ -155,6 +157,85 @@ public class HCatURIHandler implements URIHandler {
         return exists(uri, client, true);
     }
 
+    @Override
+    public String getParentURI(URI uri) throws URIHandlerException {
+        try {
+            HCatURI hcatURI = new HCatURI(uri);
+            Map<String, String> partitions = hcatURI.getPartitionMap();
+            // the parent of a URI with a single partition key is the whole table
+            if (partitions.size() < 2) {
+                return null;
+            }
+            // sorted, the parent URIs of URIs with the same parent are equal
+            Map<String, String> parentPartitions = new TreeMap<String, String>(partitions);
+            parentPartitions.remove(getLastPartitionKey(uri));
+            return HCatURI.getHCatURI(uri.getScheme(), uri.getAuthority(), hcatURI.getDb(), hcatURI.getTable(),
+                    parentPartitions);
+        }
+        catch (URISyntaxException e) {
+            throw new URIHandlerException(ErrorCode.E0906, uri, e);
+        }
+    }
+
+    @Override
+    public String getName(URI uri) throws URIHandlerException {
+        try {
+            String key = getLastPartitionKey(uri);
+            return key.toLowerCase() + HCatURI.PARTITION_KEYVAL_SEPARATOR
+                    + new HCatURI(uri).getPartitionValue(key);
+        }
+        catch (URISyntaxException e) {
+            throw new URIHandlerException(ErrorCode.E0906, uri, e);
+        }
+    }
+
+    @Override
+    public Set<String> list(String parentURI, Context context) throws URIHandlerException {
+        HCatClient client = ((HCatContext) context).getHCatClient();
+        try {
+            HCatURI hcatURI = new HCatURI(parentURI);
+            List<HCatPartition> partitions = client.getPartitions(hcatURI.getDb(), hcatURI.getTable(),
+                    hcatURI.getPartitionMap());
+            Set<String> names = new HashSet<String>();
+            if (partitions != null && !partitions.isEmpty()) {
+                List<HCatFieldSchema> columns = client.getTable(hcatURI.getDb(), hcatURI.getTable()).getPartCols();
+                // a partition matching the parent is listed by each of its key values
+                for (HCatPartition partition : partitions) {
+                    List<String> values = partition.getValues();
+                    for (int i = 0; i < values.size() && i < columns.size(); i++) {
+                        names.add(columns.get(i).getName().toLowerCase() + HCatURI.PARTITION_KEYVAL_SEPARATOR
+                                + values.get(i));
+                    }
+                }
+            }
+            return names;
+        }
+        catch (ConnectionFailureException e) {
+            throw new HCatAccessorException(ErrorCode.E1501, e);
+        }
+        catch (HCatException e) {
+            throw new HCatAccessorException(ErrorCode.E0902, e);
+        }
+        catch (URISyntaxException e) {
+            throw new HCatAccessorException(ErrorCode.E0902, e);
+        }
+    }
+
+    /**
+     * Return the key of the last partition of a URI, the URIs of a dataset usually differ in their last partitions.
+     */
+    private String getLastPartitionKey(URI uri) {
+        String path = uri.getPath();
+        String[] parts = path.substring(path.lastIndexOf(HCatURI.PATH_SEPARATOR) + 1).split(
+                HCatURI.PARTITION_SEPARATOR);
+        for (int i = parts.length - 1; i >= 0; i--) {
+            if (parts[i].length() > 0) {
+                return parts[i].split(HCatURI.PARTITION_KEYVAL_SEPARATOR)[0];
+            }
+        }
+        return null;
+    }
+
     @Override
     public String getURIWithDoneFlag(String uri, String doneFlag) throws URIHandlerException {
         return uri;
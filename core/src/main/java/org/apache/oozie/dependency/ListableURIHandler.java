@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.dependency;
+
+import java.net.URI;
+import java.util.Set;
+
+/**
+ * Optional interface of the {@link URIHandler}s whose URIs can be checked with listings of their parent URI.
+ * <p/>
+ * It is a separate interface so URI handlers written for earlier versions keep working, their URIs are checked one
+ * by one.
+ */
+public interface ListableURIHandler extends URIHandler {
+
+    /**
+     * Get the parent URI whose listing includes the URI
+     *
+     * @param uri URI of the dependency
+     *
+     * @return the parent URI; <code>null</code> if the existence of the URI
+     *         cannot be checked with a listing of its parent
+     *
+     * @throws URIHandlerException
+     */
+    public String getParentURI(URI uri) throws URIHandlerException;
+
+    /**
+     * Get the name of the URI in the listing of its parent
+     *
+     * @param uri URI of the dependency
+     *
+     * @return the name of the URI, as returned by {@link #list(String, Context)}
+     *         for its parent URI
+     *
+     * @throws URIHandlerException
+     */
+    public String getName(URI uri) throws URIHandlerException;
+
+    /**
+     * List the names of the URIs under a parent URI
+     *
+     * @param parentURI parent URI, as returned by {@link #getParentURI(URI)}
+     * @param context Context to access the URI
+     *
+     * @return the names of the URIs under the parent URI; an empty set if the
+     *         parent URI does not exist
+     *
+     * @throws URIHandlerException
+     */
+    public Set<String> list(String parentURI, Context context) throws URIHandlerException;
+
+}
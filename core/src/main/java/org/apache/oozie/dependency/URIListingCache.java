@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.dependency;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.oozie.dependency.URIHandler.Context;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.util.Instrumentation;
+
+/**
+ * Checks the existence of dataset instances with listings of their parent URIs.
+ * <p/>
+ * Instances of a dataset usually share a few parent URIs, for example the directory of a day for hourly instances.
+ * Checking the instances one by one costs a call per instance, a single listing of their parent tells which of them
+ * exist, which saves most of the calls when instances are missing. The listings are cached, an instance of this class
+ * is meant to be used for a single check of the dependencies of a coordinator action and by a single thread.
+ * <p/>
+ * Only the URIs of {@link ListableURIHandler}s are checked with listings, the URIs of other handlers are checked one
+ * by one.
+ */
+public class URIListingCache {
+
+    public static final String INSTRUMENTATION_GROUP = "dependency";
+    public static final String INSTR_CHECKS_COUNTER = "listing.checks";
+    public static final String INSTR_LISTINGS_COUNTER = "listing.listings";
+    public static final String INSTR_EXISTS_COUNTER = "listing.exists";
+    public static final String INSTR_CALLS_SAVED_COUNTER = "listing.calls_saved";
+
+    private final Map<String, Set<String>> listings = new HashMap<String, Set<String>>();
+    private long checks;
+    private long calls;
+    private long callsSaved;
+
+    /**
+     * Check if a dataset instance is available.
+     * <p/>
+     * The instance URI is looked up in the listing of its parent. If the instance has a done flag, the done flag is
+     * then checked on its own, only if the instance URI is in the listing. Instances without a listing are checked
+     * with their done flag, on their own.
+     *
+     * @param handler URI handler of the instance URI.
+     * @param context context to access the URIs.
+     * @param uri URI of the instance.
+     * @param uriWithDoneFlag URI of the done flag of the instance, the URI of the instance if it has no done flag.
+     * @return <code>true</code> if the instance is available.
+     * @throws URIHandlerException thrown if the URIs could not be checked.
+     */
+    public boolean exists(URIHandler handler, Context context, URI uri, URI uriWithDoneFlag)
+            throws URIHandlerException {
+        int listingCalls = 0;
+        int existsCalls = 0;
+        boolean exists;
+        ListableURIHandler listableHandler = (handler instanceof ListableURIHandler) ? (ListableURIHandler) handler
+                : null;
+        String parentURI = (listableHandler != null) ? listableHandler.getParentURI(uri) : null;
+        if (parentURI == null) {
+            existsCalls++;
+            exists = handler.exists(uriWithDoneFlag, context);
+        }
+        else {
+            // listings are cached by user, they depend on the permissions of the user
+            String key = context.getUser() + "@" + parentURI;
+            Set<String> names = listings.get(key);
+            if (names == null) {
+                listingCalls++;
+                names = listableHandler.list(parentURI, context);
+                listings.put(key, names);
+            }
+            exists = names.contains(listableHandler.getName(uri));
+            if (exists && !uri.equals(uriWithDoneFlag)) {
+                existsCalls++;
+                exists = handler.exists(uriWithDoneFlag, context);
+            }
+        }
+        // checking an instance on its own costs a single call, a listing only pays off over several checks so the
+        // calls saved so far are reported when they exceed the calls saved already reported
+        checks++;
+        calls += listingCalls + existsCalls;
+        long saved = Math.max(0, checks - calls - callsSaved);
+        callsSaved += saved;
+        Instrumentation instr = getInstrumentation();
+        if (instr != null) {
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_CHECKS_COUNTER, 1);
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_LISTINGS_COUNTER, listingCalls);
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_EXISTS_COUNTER, existsCalls);
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_CALLS_SAVED_COUNTER, saved);
+        }
+        return exists;
+    }
+
+    /**
+     * Check which URIs exist, with a single listing of each parent URI shared by several of them.
+     *
+     * @param handler URI handler of the URIs.
+     * @param uris URIs to check.
+     * @param context context to access the URIs.
+     * @return the URIs that exist.
+     * @throws URIHandlerException thrown if the URIs could not be checked.
+     */
+    public static Set<URI> exists(URIHandler handler, Collection<URI> uris, Context context)
+            throws URIHandlerException {
+        ListableURIHandler listableHandler = (handler instanceof ListableURIHandler) ? (ListableURIHandler) handler
+                : null;
+        Map<String, List<URI>> urisByParent = new LinkedHashMap<String, List<URI>>();
+        List<URI> singleURIs = new ArrayList<URI>();
+        for (URI uri : uris) {
+            String parentURI = (listableHandler != null) ? listableHandler.getParentURI(uri) : null;
+            if (parentURI == null) {
+                singleURIs.add(uri);
+            }
+            else {
+                List<URI> children = urisByParent.get(parentURI);
+                if (children == null) {
+                    children = new ArrayList<URI>();
+                    urisByParent.put(parentURI, children);
+                }
+                children.add(uri);
+            }
+        }
+        Set<URI> existing = new HashSet<URI>();
+        int listingCalls = 0;
+        for (Map.Entry<String, List<URI>> entry : urisByParent.entrySet()) {
+            if (entry.getValue().size() == 1) {
+                singleURIs.add(entry.getValue().get(0));
+            }
+            else {
+                listingCalls++;
+                Set<String> names = listableHandler.list(entry.getKey(), context);
+                for (URI uri : entry.getValue()) {
+                    if (names.contains(listableHandler.getName(uri))) {
+                        existing.add(uri);
+                    }
+                }
+            }
+        }
+        for (URI uri : singleURIs) {
+            if (handler.exists(uri, context)) {
+                existing.add(uri);
+            }
+        }
+        Instrumentation instr = getInstrumentation();
+        if (instr != null) {
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_CHECKS_COUNTER, uris.size());
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_LISTINGS_COUNTER, listingCalls);
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_EXISTS_COUNTER, singleURIs.size());
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_CALLS_SAVED_COUNTER, uris.size() - listingCalls
+                    - singleURIs.size());
+        }
+        return existing;
+    }
+
+    private static Instrumentation getInstrumentation() {
+        InstrumentationService instrService = Services.get().get(InstrumentationService.class);
+        return (instrService != null) ? instrService.get() : null;
+    }
+
+}
@@ -19,7 +19,11 @@ package org.apache.oozie.executor.jpa;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
@@ -39,6 +43,7 @@ import org.apache.oozie.executor.jpa.SLARegistrationQueryExecutor.SLARegQuery;
 import org.apache.oozie.executor.jpa.SLASummaryQueryExecutor.SLASummaryQuery;
 import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor.WorkflowActionQuery;
 import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor.WorkflowJobQuery;
+import org.apache.oozie.service.InstrumentationService;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.JPAService.QueryEntry;
 import org.apache.oozie.service.Services;
@@ -51,8 +56,14 @@ import com.google.common.annotations.VisibleForTesting;
  * Query Executor that provides API to run multiple update/insert queries in one
  * transaction. This guarantees entire change to be rolled back when one of
  * queries fails.
+ * <p/>
+ * Repeated updates of a bean with the same query are coalesced, only the last
+ * one is executed. All update queries match rows by their key only, so the last
+ * update overwrites the same columns of the same row than the previous ones.
  */
 public class BatchQueryExecutor {
+    private static final String INSTRUMENTATION_GROUP = "jpa";
+    private static final String INSTR_COALESCED_COUNTER = "batchqueryexecutor.coalesced";
 
     private static BatchQueryExecutor instance = new BatchQueryExecutor();
     private static JPAService jpaService;
@@ -94,14 +105,35 @@ public class BatchQueryExecutor {
             Collection<JsonBean> deleteList) throws JPAExecutorException {
         List<QueryEntry> queryList = new ArrayList<QueryEntry>();
         EntityManager em = jpaService.getEntityManager();
+        Set<WorkflowJobBean> referencingJobs = Collections.newSetFromMap(
+                new IdentityHashMap<WorkflowJobBean, Boolean>());
+        if (insertList != null) {
+            for (JsonBean bean : insertList) {
+                if (bean instanceof WorkflowJobBean && !((WorkflowJobBean) bean).getDefinitionBeans().isEmpty()) {
+                    referencingJobs.add((WorkflowJobBean) bean);
+                }
+            }
+        }
 
         if (updateList != null) {
-            for (UpdateEntry entry : updateList) {
+            List<UpdateEntry> coalescedList = coalesce(updateList);
+            if (coalescedList.size() < updateList.size()) {
+                InstrumentationService instrService = Services.get().get(InstrumentationService.class);
+                if (instrService != null) {
+                    instrService.get().incr(INSTRUMENTATION_GROUP, INSTR_COALESCED_COUNTER,
+                            updateList.size() - coalescedList.size());
+                }
+            }
+            for (UpdateEntry entry : coalescedList) {
                 Query query = null;
                 JsonBean bean = entry.getBean();
                 if (bean instanceof WorkflowJobBean) {
                     query = WorkflowJobQueryExecutor.getInstance().getUpdateQuery(
                             (WorkflowJobQuery) entry.getQueryName(), (WorkflowJobBean) entry.getBean(), em);
+                    if (!((WorkflowJobBean) bean).getDefinitionBeans().isEmpty()
+                            && WorkflowJobQueryExecutor.writesInstance((WorkflowJobQuery) entry.getQueryName())) {
+                        referencingJobs.add((WorkflowJobBean) bean);
+                    }
                 }
                 else if (bean instanceof WorkflowActionBean) {
                     query = WorkflowActionQueryExecutor.getInstance().getUpdateQuery(
@@ -137,7 +169,78 @@ public class BatchQueryExecutor {
                 queryList.add(new QueryEntry(entry.getQueryName(), query));
             }
         }
+        if (!referencingJobs.isEmpty()) {
+            // the definitions workflow jobs reference for the first time are inserted in the same transaction, the
+            // previous reference of a rerun job is deleted by the updates, which run before the inserts
+            List<JsonBean> beans = new ArrayList<JsonBean>();
+            if (insertList != null) {
+                beans.addAll(insertList);
+            }
+            for (WorkflowJobBean job : referencingJobs) {
+                queryList.add(new QueryEntry(WorkflowJobQuery.DELETE_WORKFLOW_DEFINITION_REF, WorkflowJobQueryExecutor
+                        .getInstance().getUpdateQuery(WorkflowJobQuery.DELETE_WORKFLOW_DEFINITION_REF, job, em)));
+                beans.addAll(job.getDefinitionBeans());
+            }
+            insertList = beans;
+        }
         jpaService.executeBatchInsertUpdateDelete(insertList, queryList, deleteList, em);
+        for (WorkflowJobBean job : referencingJobs) {
+            job.clearDefinitionBeans();
+        }
+    }
+
+    /**
+     * Remove the updates that are followed by an update of the same bean with the same query.
+     *
+     * @param updateList list of updates.
+     * @return the list of updates to execute, in the original order.
+     */
+    @SuppressWarnings("rawtypes")
+    static List<UpdateEntry> coalesce(Collection<UpdateEntry> updateList) {
+        List<UpdateEntry> list = new ArrayList<UpdateEntry>(updateList);
+        if (list.size() < 2) {
+            return list;
+        }
+        List<UpdateEntry> coalescedList = new ArrayList<UpdateEntry>(list.size());
+        Set<String> keys = new HashSet<String>();
+        for (int i = list.size() - 1; i >= 0; i--) {
+            UpdateEntry entry = list.get(i);
+            String id = getId(entry.getBean());
+            if (id == null || keys.add(entry.getQueryName().getClass().getName() + "." + entry.getQueryName().name()
+                    + "#" + id)) {
+                coalescedList.add(entry);
+            }
+        }
+        Collections.reverse(coalescedList);
+        return coalescedList;
+    }
+
+    private static String getId(JsonBean bean) {
+        if (bean instanceof WorkflowJobBean) {
+            return ((WorkflowJobBean) bean).getId();
+        }
+        else if (bean instanceof WorkflowActionBean) {
+            return ((WorkflowActionBean) bean).getId();
+        }
+        else if (bean instanceof CoordinatorJobBean) {
+            return ((CoordinatorJobBean) bean).getId();
+        }
+        else if (bean instanceof CoordinatorActionBean) {
+            return ((CoordinatorActionBean) bean).getId();
+        }
+        else if (bean instanceof BundleJobBean) {
+            return ((BundleJobBean) bean).getId();
+        }
+        else if (bean instanceof BundleActionBean) {
+            return ((BundleActionBean) bean).getBundleActionId();
+        }
+        else if (bean instanceof SLARegistrationBean) {
+            return ((SLARegistrationBean) bean).getId();
+        }
+        else if (bean instanceof SLASummaryBean) {
+            return ((SLASummaryBean) bean).getId();
+        }
+        return null;
     }
 
     @VisibleForTesting
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Load the number of running actions for a set of coordinator jobs with grouped count queries.
+ * <p/>
+ * The jobs are counted in chunks, to keep the number of parameters of a query within the limits of the databases.
+ */
+public class CoordJobsActiveActionsCountJPAExecutor implements JPAExecutor<Map<String, Integer>> {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final List<String> coordJobIds;
+
+    public CoordJobsActiveActionsCountJPAExecutor(Collection<String> coordJobIds) {
+        ParamChecker.notNull(coordJobIds, "coordJobIds");
+        this.coordJobIds = new ArrayList<String>(coordJobIds);
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordJobsActiveActionsCountJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Integer> execute(EntityManager em) throws JPAExecutorException {
+        try {
+            Map<String, Integer> counts = new HashMap<String, Integer>();
+            for (String coordJobId : coordJobIds) {
+                counts.put(coordJobId, 0);
+            }
+            for (int from = 0; from < coordJobIds.size(); from += CHUNK_SIZE) {
+                Query q = em.createNamedQuery("GET_COORD_ACTIVE_ACTIONS_COUNT_BY_JOBIDS");
+                q.setParameter("jobIds", coordJobIds.subList(from, Math.min(from + CHUNK_SIZE, coordJobIds.size())));
+                List<Object[]> rows = q.getResultList();
+                for (Object[] row : rows) {
+                    counts.put((String) row[0], ((Long) row[1]).intValue());
+                }
+            }
+            return counts;
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowActionBean;
+
+/**
+ * Load the running workflow actions not checked for the given age, grouped by the user of their workflow job.
+ * <p/>
+ * The beans only have the id, type, external id and tracker URI set, the data needed to poll the status of their
+ * Hadoop jobs.
+ */
+public class WorkflowActionsRunningGetJPAExecutor implements JPAExecutor<Map<String, List<WorkflowActionBean>>> {
+
+    private final long checkAgeSecs;
+
+    public WorkflowActionsRunningGetJPAExecutor(long checkAgeSecs) {
+        this.checkAgeSecs = checkAgeSecs;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "WorkflowActionsRunningGetJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, List<WorkflowActionBean>> execute(EntityManager em) throws JPAExecutorException {
+        try {
+            Timestamp ts = new Timestamp(System.currentTimeMillis() - checkAgeSecs * 1000);
+            Query q = em.createNamedQuery("GET_RUNNING_ACTIONS_FOR_STATUS_CHECK");
+            q.setParameter("lastCheckTime", ts);
+            List<Object[]> rows = q.getResultList();
+            Map<String, List<WorkflowActionBean>> actions = new HashMap<String, List<WorkflowActionBean>>();
+            for (Object[] row : rows) {
+                WorkflowActionBean action = new WorkflowActionBean();
+                action.setId((String) row[0]);
+                action.setType((String) row[1]);
+                action.setExternalId((String) row[2]);
+                action.setTrackerUri((String) row[3]);
+                String user = (String) row[4];
+                List<WorkflowActionBean> userActions = actions.get(user);
+                if (userActions == null) {
+                    userActions = new ArrayList<WorkflowActionBean>();
+                    actions.put(user, userActions);
+                }
+                userActions.add(action);
+            }
+            return actions;
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Find a stored workflow definition by its hash and return its ID, <code>null</code> if there is none. If the
+ * definition has not been used for a while its last used time is updated, so the purge does not delete it while a new
+ * workflow job is about to reference it.
+ */
+public class WorkflowDefinitionFindJPAExecutor implements JPAExecutor<String> {
+
+    /**
+     * Interval in milliseconds the last used time of a definition is updated at most once within.
+     */
+    public static final long TOUCH_INTERVAL = 60 * 60 * 1000L;
+
+    private String hash;
+
+    public WorkflowDefinitionFindJPAExecutor(String hash) {
+        this.hash = ParamChecker.notNull(hash, "hash");
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "WorkflowDefinitionFindJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public String execute(EntityManager em) throws JPAExecutorException {
+        try {
+            Query q = em.createNamedQuery("GET_WF_DEFINITION_ID_LAST_USED_FOR_HASH");
+            q.setParameter("hash", hash);
+            q.setMaxResults(1);
+            List<Object[]> rows = q.getResultList();
+            if (rows == null || rows.isEmpty()) {
+                return null;
+            }
+            String id = (String) rows.get(0)[0];
+            Timestamp lastUsed = (Timestamp) rows.get(0)[1];
+            Date now = new Date();
+            if (lastUsed == null || lastUsed.getTime() < now.getTime() - TOUCH_INTERVAL) {
+                q = em.createNamedQuery("UPDATE_WF_DEFINITION_LAST_USED");
+                q.setParameter("lastUsedTime", new Timestamp(now.getTime()));
+                q.setParameter("id", id);
+                q.executeUpdate();
+            }
+            return id;
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+}
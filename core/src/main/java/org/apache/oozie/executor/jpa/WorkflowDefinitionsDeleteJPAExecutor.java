@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+
+/**
+ * Delete the references of the workflow jobs that no longer exist, then the workflow definitions not referenced by any
+ * workflow job and not used for a given number of days, and return the number of definitions that were deleted.
+ */
+public class WorkflowDefinitionsDeleteJPAExecutor implements JPAExecutor<Integer> {
+
+    private static final long DAY_IN_MS = 24 * 60 * 60 * 1000;
+    private long olderThanDays;
+
+    public WorkflowDefinitionsDeleteJPAExecutor(long olderThanDays) {
+        this.olderThanDays = olderThanDays;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "WorkflowDefinitionsDeleteJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    public Integer execute(EntityManager em) throws JPAExecutorException {
+        try {
+            em.createNamedQuery("DELETE_WF_DEFINITION_REFS_OF_PURGED_JOBS").executeUpdate();
+            Query q = em.createNamedQuery("DELETE_UNREFERENCED_WF_DEFINITIONS");
+            q.setParameter("lastUsedTime", new Timestamp(System.currentTimeMillis() - (olderThanDays * DAY_IN_MS)));
+            return q.executeUpdate();
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+}
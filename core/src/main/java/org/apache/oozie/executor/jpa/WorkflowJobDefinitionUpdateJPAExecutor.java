@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import javax.persistence.EntityManager;
+
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.rest.JsonBean;
+import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor.WorkflowJobQuery;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Update a workflow job with a query that writes its workflow instance, and replace the reference of the job to the
+ * definition of the instance in the same transaction.
+ * <p/>
+ * The previous reference is deleted and the definition beans of the job are inserted only if the update matched the
+ * job, see {@link WorkflowJobBean#getDefinitionBeans()}.
+ */
+public class WorkflowJobDefinitionUpdateJPAExecutor implements JPAExecutor<Integer> {
+
+    private final WorkflowJobQuery namedQuery;
+    private final WorkflowJobBean wfJob;
+
+    public WorkflowJobDefinitionUpdateJPAExecutor(WorkflowJobQuery namedQuery, WorkflowJobBean wfJob) {
+        ParamChecker.notNull(namedQuery, "namedQuery");
+        ParamChecker.notNull(wfJob, "wfJob");
+        this.namedQuery = namedQuery;
+        this.wfJob = wfJob;
+    }
+
+    @Override
+    public String getName() {
+        return "WorkflowJobDefinitionUpdateJPAExecutor";
+    }
+
+    /**
+     * Execute the update and replace the definition reference of the job.
+     *
+     * @param em entity manager.
+     * @return the number of jobs updated.
+     * @throws JPAExecutorException thrown if the job could not be updated.
+     */
+    @Override
+    public Integer execute(EntityManager em) throws JPAExecutorException {
+        WorkflowJobQueryExecutor executor = WorkflowJobQueryExecutor.getInstance();
+        int updated = executor.getUpdateQuery(namedQuery, wfJob, em).executeUpdate();
+        if (updated > 0) {
+            executor.getUpdateQuery(WorkflowJobQuery.DELETE_WORKFLOW_DEFINITION_REF, wfJob, em).executeUpdate();
+            for (JsonBean bean : wfJob.getDefinitionBeans()) {
+                em.persist(bean);
+            }
+        }
+        return updated;
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.oozie.executor.jpa;
 import javax.persistence.EntityManager;
 
 import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.util.ParamChecker;
 
 /**
@@ -48,6 +49,13 @@ public class WorkflowJobInsertJPAExecutor implements JPAExecutor<String> {
     @Override
     public String execute(EntityManager em) throws JPAExecutorException {
         em.persist(wfJob);
+        if (!wfJob.getDefinitionBeans().isEmpty()) {
+            // the definition the workflow instance references is inserted in the same transaction
+            for (JsonBean bean : wfJob.getDefinitionBeans()) {
+                em.persist(bean);
+            }
+            wfJob.clearDefinitionBeans();
+        }
         return null;
     }
 }
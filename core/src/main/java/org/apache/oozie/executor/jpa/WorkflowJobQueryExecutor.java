@@ -19,6 +19,7 @@ package org.apache.oozie.executor.jpa;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -27,6 +28,7 @@ import org.apache.oozie.BinaryBlob;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.StringBlob;
 import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.util.DateUtils;
@@ -47,6 +49,7 @@ public class WorkflowJobQueryExecutor extends QueryExecutor<WorkflowJobBean, Wor
         UPDATE_WORKFLOW_STATUS_INSTANCE_MOD_END,
         UPDATE_WORKFLOW_STATUS_INSTANCE_MOD_START_END,
         UPDATE_WORKFLOW_RERUN,
+        DELETE_WORKFLOW_DEFINITION_REF,
         GET_WORKFLOW,
         GET_WORKFLOW_STARTTIME,
         GET_WORKFLOW_USER_GROUP,
@@ -154,6 +157,9 @@ public class WorkflowJobQueryExecutor extends QueryExecutor<WorkflowJobBean, Wor
                 query.setParameter("lastModTime", wfBean.getLastModifiedTimestamp());
                 query.setParameter("id", wfBean.getId());
                 break;
+            case DELETE_WORKFLOW_DEFINITION_REF:
+                query.setParameter("id", wfBean.getId());
+                break;
             default:
                 throw new JPAExecutorException(ErrorCode.E0603, "QueryExecutor cannot set parameters for "
                         + namedQuery.name());
@@ -189,10 +195,60 @@ public class WorkflowJobQueryExecutor extends QueryExecutor<WorkflowJobBean, Wor
     public int executeUpdate(WorkflowJobQuery namedQuery, WorkflowJobBean jobBean) throws JPAExecutorException {
         EntityManager em = jpaService.getEntityManager();
         Query query = getUpdateQuery(namedQuery, jobBean, em);
+        if (!jobBean.getDefinitionBeans().isEmpty() && writesInstance(namedQuery)) {
+            // the definition of the workflow instance is inserted in the same transaction as the update
+            WriteBehindQueryExecutor writeBehind = jpaService.getWriteBehindQueryExecutor();
+            if (writeBehind != null) {
+                writeBehind.flushFor(query);
+            }
+            em.close();
+            int ret = jpaService.execute(new WorkflowJobDefinitionUpdateJPAExecutor(namedQuery, jobBean));
+            if (ret > 0) {
+                jobBean.clearDefinitionBeans();
+            }
+            return ret;
+        }
         int ret = jpaService.executeUpdate(namedQuery.name(), query, em);
         return ret;
     }
 
+    /**
+     * Return whether an update query writes the workflow instance of the job, the definition beans of a job are only
+     * inserted with such updates.
+     *
+     * @param namedQuery update query.
+     * @return <code>true</code> if the query writes the workflow instance.
+     */
+    public static boolean writesInstance(WorkflowJobQuery namedQuery) {
+        switch (namedQuery) {
+            case UPDATE_WORKFLOW:
+            case UPDATE_WORKFLOW_STATUS_INSTANCE_MODIFIED:
+            case UPDATE_WORKFLOW_STATUS_INSTANCE_MOD_END:
+            case UPDATE_WORKFLOW_STATUS_INSTANCE_MOD_START_END:
+            case UPDATE_WORKFLOW_RERUN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Insert a workflow job, with the definition its workflow instance references if there is one to insert.
+     *
+     * @param bean workflow job to insert.
+     * @throws JPAExecutorException thrown if the workflow job could not be inserted.
+     */
+    @Override
+    public void insert(JsonBean bean) throws JPAExecutorException {
+        if (bean instanceof WorkflowJobBean && !((WorkflowJobBean) bean).getDefinitionBeans().isEmpty()) {
+            BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(Collections.singletonList(bean), null,
+                    null);
+        }
+        else {
+            super.insert(bean);
+        }
+    }
+
     private WorkflowJobBean constructBean(WorkflowJobQuery namedQuery, Object ret, Object... parameters)
             throws JPAExecutorException {
         WorkflowJobBean bean;
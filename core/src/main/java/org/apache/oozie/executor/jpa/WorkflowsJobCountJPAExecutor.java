@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+/**
+ * Count the workflows matching a filter.
+ */
+public class WorkflowsJobCountJPAExecutor implements JPAExecutor<Long> {
+
+    private final Map<String, List<String>> filter;
+
+    /**
+     * Create an executor to count the workflows matching a filter.
+     *
+     * @param filter workflows filter, the <code>group</code> filter is ignored.
+     */
+    public WorkflowsJobCountJPAExecutor(Map<String, List<String>> filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public String getName() {
+        return "WorkflowsJobCountJPAExecutor";
+    }
+
+    @Override
+    public Long execute(EntityManager em) throws JPAExecutorException {
+        List<Object> values = new ArrayList<Object>();
+        String where = WorkflowsJobStreamJPAExecutor.getWhereClause(filter, values);
+        Query q = em.createQuery("Select count(w) from WorkflowJobBean w" + where);
+        for (int i = 0; i < values.size(); i++) {
+            q.setParameter("p" + i, values.get(i));
+        }
+        return (Long) q.getSingleResult();
+    }
+}
@@ -39,7 +39,7 @@ import org.apache.openjpa.persistence.jdbc.ResultSetType;
 
 public class WorkflowsJobGetJPAExecutor implements JPAExecutor<WorkflowsInfo> {
 
-    private static final String seletStr = "Select w.id, w.appName, w.statusStr, w.run, w.user, w.group, w.createdTimestamp, "
+    static final String seletStr = "Select w.id, w.appName, w.statusStr, w.run, w.user, w.group, w.createdTimestamp, "
         + "w.startTimestamp, w.lastModifiedTimestamp, w.endTimestamp, w.externalId from WorkflowJobBean w";
     private static final String countStr = "Select count(w) from WorkflowJobBean w";
 
@@ -266,7 +266,7 @@ public class WorkflowsJobGetJPAExecutor implements JPAExecutor<WorkflowsInfo> {
         return "WorkflowsJobGetJPAExecutor";
     }
 
-    private WorkflowJobBean getBeanForWorkflowFromArray(Object[] arr) {
+    static WorkflowJobBean getBeanForWorkflowFromArray(Object[] arr) {
 
         WorkflowJobBean wfBean = new WorkflowJobBean();
         wfBean.setId((String) arr[0]);
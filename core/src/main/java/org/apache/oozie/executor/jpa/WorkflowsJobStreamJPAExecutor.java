@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.OozieClient;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.OpenJPAQuery;
+import org.apache.openjpa.persistence.jdbc.FetchDirection;
+import org.apache.openjpa.persistence.jdbc.JDBCFetchPlan;
+import org.apache.openjpa.persistence.jdbc.ResultSetType;
+
+/**
+ * Get a page of the workflows matching a filter, for the workflows listing streamed a page at a time.
+ * <p/>
+ * Workflows are ordered by created time and id, newest first, and pages are selected with a cursor on those columns
+ * (keyset pagination) instead of an offset, so a deep page costs the same as the first one.  The
+ * <code>I_WF_JOBS_CREATED_TIME_ID</code> index of the WF_JOBS table serves both the order and the cursor.
+ * <p/>
+ * The page is read in full, so the caller writes it out after the transaction and does not hold the connection while
+ * writing to a slow client.
+ */
+public class WorkflowsJobStreamJPAExecutor implements JPAExecutor<WorkflowsJobStreamJPAExecutor.Page> {
+
+    /**
+     * Page of workflows.
+     */
+    public static class Page {
+        private final List<WorkflowJobBean> jobs;
+        private final String nextCursor;
+
+        public Page(List<WorkflowJobBean> jobs, String nextCursor) {
+            this.jobs = jobs;
+            this.nextCursor = nextCursor;
+        }
+
+        /**
+         * Return the workflows of the page.
+         *
+         * @return the workflows, with the columns of the jobs listing only.
+         */
+        public List<WorkflowJobBean> getJobs() {
+            return jobs;
+        }
+
+        /**
+         * Return the cursor of the next page.
+         *
+         * @return the cursor of the next page, <code>null</code> if it is the last page.
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    private static final String[][] FILTER_COLUMNS = {{OozieClient.FILTER_STATUS, "statusStr"},
+            {OozieClient.FILTER_NAME, "appName"}, {OozieClient.FILTER_USER, "user"}, {OozieClient.FILTER_ID, "id"}};
+
+    private static final char CURSOR_SEPARATOR = ':';
+
+    private final Map<String, List<String>> filter;
+    private final String cursor;
+    private final int len;
+
+    /**
+     * Create an executor to get a page of workflows.
+     *
+     * @param filter workflows filter, the <code>group</code> filter is ignored.
+     * @param cursor cursor of the page, as returned for the previous page, <code>null</code> for the first page.
+     * @param len maximum number of workflows of the page.
+     */
+    public WorkflowsJobStreamJPAExecutor(Map<String, List<String>> filter, String cursor, int len) {
+        this.filter = filter;
+        this.cursor = cursor;
+        this.len = len;
+    }
+
+    @Override
+    public String getName() {
+        return "WorkflowsJobStreamJPAExecutor";
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Page execute(EntityManager em) throws JPAExecutorException {
+        List<Object> values = new ArrayList<Object>();
+        StringBuilder sb = new StringBuilder(WorkflowsJobGetJPAExecutor.seletStr);
+        String where = getWhereClause(filter, values);
+        if (cursor != null) {
+            int index = cursor.indexOf(CURSOR_SEPARATOR);
+            Timestamp createdTime;
+            try {
+                createdTime = new Timestamp(Long.parseLong(cursor.substring(0, Math.max(index, 0))));
+            }
+            catch (NumberFormatException ex) {
+                throw new JPAExecutorException(ErrorCode.E0302, "cursor [" + cursor + "]");
+            }
+            // rows after the cursor in (createdTimestamp desc, id desc) order
+            where = ((where.length() > 0) ? where + " and " : " where ") + "(w.createdTimestamp < :p" + values.size()
+                    + " or (w.createdTimestamp = :p" + values.size() + " and w.id < :p" + (values.size() + 1) + "))";
+            values.add(createdTime);
+            values.add(cursor.substring(index + 1));
+        }
+        sb.append(where).append(" order by w.createdTimestamp desc, w.id desc");
+        Query q = em.createQuery(sb.toString());
+        for (int i = 0; i < values.size(); i++) {
+            q.setParameter("p" + i, values.get(i));
+        }
+        // one more row tells if there is a next page
+        q.setMaxResults(len + 1);
+        OpenJPAQuery kq = OpenJPAPersistence.cast(q);
+        JDBCFetchPlan fetch = (JDBCFetchPlan) kq.getFetchPlan();
+        fetch.setFetchBatchSize(Math.min(len + 1, 100));
+        fetch.setResultSetType(ResultSetType.FORWARD_ONLY);
+        fetch.setFetchDirection(FetchDirection.FORWARD);
+        try {
+            List<WorkflowJobBean> jobs = new ArrayList<WorkflowJobBean>(len);
+            for (Object[] arr : (List<Object[]>) q.getResultList()) {
+                if (jobs.size() == len) {
+                    return new Page(jobs, getCursor(jobs.get(len - 1)));
+                }
+                jobs.add(WorkflowsJobGetJPAExecutor.getBeanForWorkflowFromArray(arr));
+            }
+            return new Page(jobs, null);
+        }
+        finally {
+            kq.closeAll();
+        }
+    }
+
+    /**
+     * Return the cursor of the page following a workflow.
+     *
+     * @param job workflow.
+     * @return the cursor of the page following the workflow.
+     */
+    public static String getCursor(WorkflowJobBean job) {
+        return Long.toString(job.getCreatedTime().getTime()) + CURSOR_SEPARATOR + job.getId();
+    }
+
+    /**
+     * Return the where clause of a workflows filter, the filter values are set as positional named parameters,
+     * <code>p0</code>, <code>p1</code>, ...
+     *
+     * @param filter workflows filter.
+     * @param values list to add the parameter values to.
+     * @return the where clause, an empty string if the filter is empty.
+     */
+    static String getWhereClause(Map<String, List<String>> filter, List<Object> values) {
+        StringBuilder sb = new StringBuilder();
+        for (String[] column : FILTER_COLUMNS) {
+            List<String> columnValues = filter.get(column[0]);
+            if (columnValues != null && !columnValues.isEmpty()) {
+                sb.append((sb.length() == 0) ? " where " : " and ").append("w.").append(column[1]).append(" IN (");
+                for (int i = 0; i < columnValues.size(); i++) {
+                    sb.append((i == 0) ? ":p" : ", :p").append(values.size());
+                    values.add(columnValues.get(i));
+                }
+                sb.append(")");
+            }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,344 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Write-behind stage of update queries.
+ * <p/>
+ * Updates of the configured write-behind queries are not executed by the calling thread, they are collected for a
+ * time window and flushed in a single transaction. A repeated update of the same row with the same query replaces the
+ * pending one, all update queries match rows by their key only, so it overwrites the same columns of the same row.
+ * <p/>
+ * Updates of a row are never reordered: an update that is not write-behind first flushes the pending updates when one
+ * of them, or one being flushed, is for the same key. Reads are not ordered, they may not see an update that has not
+ * been flushed yet, only updates that can be delayed for the time window (such as last modified times) should be
+ * write-behind.
+ */
+public class WriteBehindQueryExecutor {
+    private static final String INSTRUMENTATION_GROUP = "jpa";
+    private static final String INSTR_NAME = "writebehind";
+
+    /**
+     * Names of the parameters of the update queries that identify the updated row.
+     */
+    private static final String[] KEY_PARAMETERS = {"id", "jobId", "bundleActionId"};
+
+    private static XLog LOG = XLog.getLog(WriteBehindQueryExecutor.class);
+
+    /**
+     * Update query and the values of its parameters when it was queued.
+     */
+    private static class PendingUpdate {
+        private final String namedQuery;
+        private final String key;
+        private final Map<String, Object> parameters;
+
+        private PendingUpdate(String namedQuery, String key, Map<String, Object> parameters) {
+            this.namedQuery = namedQuery;
+            this.key = key;
+            this.parameters = parameters;
+        }
+    }
+
+    private final JPAService jpaService;
+    private final Set<String> queries;
+    private final int maxSize;
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    // pending updates by query and key, guarded by this
+    private LinkedHashMap<String, PendingUpdate> pending = new LinkedHashMap<String, PendingUpdate>();
+
+    // number of pending or being flushed updates by key, it is modified holding the monitor of this
+    private final ConcurrentHashMap<String, Integer> unflushedKeys = new ConcurrentHashMap<String, Integer>();
+
+    private volatile Instrumentation instr;
+
+    /**
+     * Create a write-behind stage.
+     *
+     * @param jpaService JPA service to flush the updates with.
+     * @param queries names of the write-behind update queries.
+     * @param window time window in milliseconds updates are collected for.
+     * @param maxSize number of pending updates that triggers a flush before the end of the window.
+     */
+    public WriteBehindQueryExecutor(JPAService jpaService, Collection<String> queries, long window, int maxSize) {
+        this.jpaService = jpaService;
+        this.queries = new HashSet<String>(queries);
+        this.maxSize = maxSize;
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(flushRunnable, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set the instrumentation to export the write-behind metrics to.
+     *
+     * @param instr instrumentation.
+     */
+    public void setInstrumentation(Instrumentation instr) {
+        this.instr = instr;
+    }
+
+    /**
+     * Queue an update if its query is write-behind.
+     *
+     * @param namedQuery name of the update query.
+     * @param query update query, with all its parameters set.
+     * @return <code>true</code> if the update has been queued, <code>false</code> if it must be executed by the caller.
+     */
+    public boolean offer(String namedQuery, Query query) {
+        if (!queries.contains(namedQuery)) {
+            return false;
+        }
+        String key = getKey(query);
+        if (key == null) {
+            return false;
+        }
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        for (Parameter<?> parameter : query.getParameters()) {
+            parameters.put(parameter.getName(), query.getParameterValue(parameter));
+        }
+        boolean coalesced;
+        int size;
+        synchronized (this) {
+            // removing the replaced update moves its replacement after the other pending updates of the key
+            String pendingKey = namedQuery + "#" + key;
+            coalesced = pending.remove(pendingKey) != null;
+            pending.put(pendingKey, new PendingUpdate(namedQuery, key, parameters));
+            if (!coalesced) {
+                Integer count = unflushedKeys.get(key);
+                unflushedKeys.put(key, (count == null) ? 1 : count + 1);
+            }
+            size = pending.size();
+        }
+        incr("queued", 1);
+        if (coalesced) {
+            incr("coalesced", 1);
+        }
+        if (size == maxSize) {
+            try {
+                scheduler.execute(flushRunnable);
+            }
+            catch (RuntimeException ex) {
+                // the stage is being destroyed, which flushes the pending updates
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flush the pending updates if any of them, or any being flushed, is for the row of an update about to be executed.
+     *
+     * @param query update query about to be executed.
+     */
+    public void flushFor(Query query) {
+        if (!unflushedKeys.isEmpty()) {
+            String key = getKey(query);
+            if (key == null || unflushedKeys.containsKey(key)) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Flush the pending updates if any of them, or any being flushed, is for the row of any of the given update
+     * queries.
+     *
+     * @param queries update queries about to be executed.
+     */
+    public void flushFor(List<Query> queries) {
+        if (!unflushedKeys.isEmpty()) {
+            for (Query query : queries) {
+                String key = getKey(query);
+                if (key == null || unflushedKeys.containsKey(key)) {
+                    flush();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush the pending updates in a single transaction.
+     * <p/>
+     * It returns once the updates pending when it was invoked have been flushed.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<PendingUpdate> updates;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                updates = new ArrayList<PendingUpdate>(pending.values());
+                pending = new LinkedHashMap<String, PendingUpdate>();
+            }
+            try {
+                execute(updates);
+            }
+            catch (RuntimeException ex) {
+                LOG.warn("Could not flush [{0}] write-behind updates in a single transaction, flushing them one by "
+                        + "one, {1}", updates.size(), ex.getMessage(), ex);
+                for (PendingUpdate update : updates) {
+                    try {
+                        execute(Collections.singletonList(update));
+                    }
+                    catch (RuntimeException ex1) {
+                        LOG.error("Could not flush write-behind update [{0}] of [{1}], {2}", update.namedQuery,
+                                update.key, ex1.getMessage(), ex1);
+                    }
+                }
+            }
+            finally {
+                synchronized (this) {
+                    for (PendingUpdate update : updates) {
+                        int count = unflushedKeys.get(update.key);
+                        if (count == 1) {
+                            unflushedKeys.remove(update.key);
+                        }
+                        else {
+                            unflushedKeys.put(update.key, count - 1);
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void execute(List<PendingUpdate> updates) {
+        Instrumentation.Cron cron = new Instrumentation.Cron();
+        cron.start();
+        EntityManager em = jpaService.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (PendingUpdate update : updates) {
+                Query query = em.createNamedQuery(update.namedQuery);
+                for (Map.Entry<String, Object> parameter : update.parameters.entrySet()) {
+                    query.setParameter(parameter.getKey(), parameter.getValue());
+                }
+                query.executeUpdate();
+            }
+            em.getTransaction().commit();
+        }
+        catch (PersistenceException ex) {
+            throw new RuntimeException(ex);
+        }
+        finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            if (em.isOpen()) {
+                em.close();
+            }
+            cron.stop();
+        }
+        Instrumentation instrumentation = instr;
+        if (instrumentation != null) {
+            instrumentation.addCron(INSTRUMENTATION_GROUP, INSTR_NAME + ".flush", cron);
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_NAME + ".flushed", updates.size());
+        }
+    }
+
+    /**
+     * Return the number of pending updates.
+     *
+     * @return the number of pending updates.
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Stop the time window flushes and flush the pending updates.
+     */
+    public void destroy() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void incr(String counter, long count) {
+        Instrumentation instrumentation = instr;
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_NAME + "." + counter, count);
+        }
+    }
+
+    /**
+     * Return the key of the row updated by a query.
+     *
+     * @param query update query.
+     * @return the key, or <code>null</code> if the query does not have a key parameter.
+     */
+    static String getKey(Query query) {
+        String key = null;
+        int rank = KEY_PARAMETERS.length;
+        for (Parameter<?> parameter : query.getParameters()) {
+            for (int i = 0; i < rank; i++) {
+                if (KEY_PARAMETERS[i].equals(parameter.getName())) {
+                    Object value = query.getParameterValue(parameter);
+                    if (value != null) {
+                        key = value.toString();
+                        rank = i;
+                    }
+                    break;
+                }
+            }
+        }
+        return key;
+    }
+
+}
@@ -17,30 +17,78 @@
  */
 package org.apache.oozie.lock;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.Lock;
 
 /**
  * In memory resource locking that provides READ/WRITE lock capabilities.
+ * <p/>
+ * Locks are kept in a concurrent map while they are referenced, a lock is referenced by the threads holding it or
+ * waiting for it. The last thread releasing its reference removes the lock from the map. There is no global monitor,
+ * threads locking different resources do not contend with each other.
  */
 public class MemoryLocks {
-    final private HashMap<String, ReentrantReadWriteLock> locks = new HashMap<String, ReentrantReadWriteLock>();
+    final private ConcurrentHashMap<String, LockEntry> locks = new ConcurrentHashMap<String, LockEntry>();
 
     private static enum Type {
         READ, WRITE
     }
 
+    /**
+     * Reference counted read/write lock of a resource.
+     * <p/>
+     * Once the reference count drops to zero the entry is retired, it cannot be referenced again and it is removed
+     * from the map, threads that got it from the map before that retry with a new entry.
+     */
+    @SuppressWarnings("serial")
+    private static class LockEntry extends ReentrantReadWriteLock {
+        private static final AtomicIntegerFieldUpdater<LockEntry> REFERENCES =
+                AtomicIntegerFieldUpdater.newUpdater(LockEntry.class, "references");
+
+        private volatile int references = 1;
+
+        private LockEntry() {
+            super(true);
+        }
+
+        /**
+         * Add a reference to the entry.
+         *
+         * @return <code>false</code> if the entry has been retired.
+         */
+        private boolean retain() {
+            int refs;
+            do {
+                refs = references;
+                if (refs == 0) {
+                    return false;
+                }
+            } while (!REFERENCES.compareAndSet(this, refs, refs + 1));
+            return true;
+        }
+
+        /**
+         * Remove a reference from the entry.
+         *
+         * @return <code>true</code> if it was the last reference and the entry has been retired.
+         */
+        private boolean unretain() {
+            return REFERENCES.decrementAndGet(this) == 0;
+        }
+    }
+
     /**
      * Implementation of {@link LockToken} for in memory locks.
      */
     class MemoryLockToken implements LockToken {
-        private final ReentrantReadWriteLock rwLock;
+        private final LockEntry rwLock;
         private final java.util.concurrent.locks.Lock lock;
         private final String resource;
 
-        private MemoryLockToken(ReentrantReadWriteLock rwLock, java.util.concurrent.locks.Lock lock, String resource) {
+        private MemoryLockToken(LockEntry rwLock, java.util.concurrent.locks.Lock lock, String resource) {
             this.rwLock = rwLock;
             this.lock = lock;
             this.resource = resource;
@@ -51,13 +99,8 @@ public class MemoryLocks {
          */
         @Override
         public void release() {
-            int val = rwLock.getQueueLength();
-            if (val == 0) {
-                synchronized (locks) {
-                    locks.remove(resource);
-                }
-            }
             lock.unlock();
+            unretain(resource, rwLock);
         }
     }
 
@@ -94,40 +137,51 @@ public class MemoryLocks {
         return getLock(resource, Type.WRITE, wait);
     }
 
-    private MemoryLockToken getLock(String resource, Type type, long wait) throws InterruptedException {
-        ReentrantReadWriteLock lockEntry;
-        synchronized (locks) {
-            if (locks.containsKey(resource)) {
-                lockEntry = locks.get(resource);
+    private LockEntry retain(String resource) {
+        while (true) {
+            LockEntry lockEntry = locks.get(resource);
+            if (lockEntry == null) {
+                LockEntry newLockEntry = new LockEntry();
+                lockEntry = locks.putIfAbsent(resource, newLockEntry);
+                if (lockEntry == null) {
+                    return newLockEntry;
+                }
             }
-            else {
-                lockEntry = new ReentrantReadWriteLock(true);
-                locks.put(resource, lockEntry);
+            if (lockEntry.retain()) {
+                return lockEntry;
             }
+            // the entry was retired by its last holder, which is removing it from the map
+            locks.remove(resource, lockEntry);
         }
+    }
 
-        Lock lock = (type.equals(Type.READ)) ? lockEntry.readLock() : lockEntry.writeLock();
-
-        if (wait == -1) {
-            lock.lock();
+    private void unretain(String resource, LockEntry lockEntry) {
+        if (lockEntry.unretain()) {
+            locks.remove(resource, lockEntry);
         }
-        else {
-            if (wait > 0) {
-                if (!lock.tryLock(wait, TimeUnit.MILLISECONDS)) {
-                    return null;
-                }
+    }
+
+    private MemoryLockToken getLock(String resource, Type type, long wait) throws InterruptedException {
+        LockEntry lockEntry = retain(resource);
+        Lock lock = (type.equals(Type.READ)) ? lockEntry.readLock() : lockEntry.writeLock();
+        boolean locked = false;
+        try {
+            if (wait == -1) {
+                lock.lock();
+                locked = true;
+            }
+            else if (wait > 0) {
+                locked = lock.tryLock(wait, TimeUnit.MILLISECONDS);
             }
             else {
-                if (!lock.tryLock()) {
-                    return null;
-                }
+                locked = lock.tryLock();
             }
         }
-        synchronized (locks) {
-            if (!locks.containsKey(resource)) {
-                locks.put(resource, lockEntry);
+        finally {
+            if (!locked) {
+                unretain(resource, lockEntry);
             }
         }
-        return new MemoryLockToken(lockEntry, lock, resource);
+        return (locked) ? new MemoryLockToken(lockEntry, lock, resource) : null;
     }
 }
@@ -18,18 +18,31 @@
 package org.apache.oozie.service;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.JobStatus;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.action.hadoop.JavaActionExecutor;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.command.coord.CoordActionCheckXCommand;
 import org.apache.oozie.command.wf.ActionCheckXCommand;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor.UpdateEntry;
 import org.apache.oozie.executor.jpa.CoordActionsRunningGetJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor;
 import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor.WorkflowActionQuery;
+import org.apache.oozie.executor.jpa.WorkflowActionsRunningGetJPAExecutor;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
 
@@ -56,9 +69,18 @@ public class ActionCheckerService implements Service {
      */
     public static final String CONF_CALLABLE_BATCH_SIZE = CONF_PREFIX + "callable.batch.size";
 
+    /**
+     * Whether the status of the Hadoop jobs of running actions is polled in bulk, by JobTracker/ResourceManager, so
+     * that only the actions whose job is not running anymore are checked.
+     */
+    public static final String CONF_BATCH_STATUS_CHECK = CONF_PREFIX + "batch.status.check";
+
     protected static final String INSTRUMENTATION_GROUP = "actionchecker";
     protected static final String INSTR_CHECK_ACTIONS_COUNTER = "checks_wf_actions";
     protected static final String INSTR_CHECK_COORD_ACTIONS_COUNTER = "checks_coord_actions";
+    protected static final String INSTR_RUNNING_ACTIONS_COUNTER = "running_wf_actions";
+    protected static final String INSTR_STATUS_POLL_ERRORS_COUNTER = "status_poll_errors";
+    protected static final String INSTR_STATUS_POLL_TIMER = "status_poll";
 
 
     /**
@@ -109,6 +131,11 @@ public class ActionCheckerService implements Service {
                 throw new CommandException(ErrorCode.E0610);
             }
 
+            if (Services.get().getConf().getBoolean(CONF_BATCH_STATUS_CHECK, false)) {
+                runBatchWFActionCheck(jpaService);
+                return;
+            }
+
             List<WorkflowActionBean> actions;
             try {
                 actions = WorkflowActionQueryExecutor.getInstance().getList(WorkflowActionQuery.GET_RUNNING_ACTIONS,
@@ -140,6 +167,155 @@ public class ActionCheckerService implements Service {
 
         }
 
+        /**
+         * check workflow actions, polling the status of their Hadoop jobs in bulk first.
+         * <p/>
+         * The running Hadoop jobs are listed once per JobTracker/ResourceManager, with a single client, as the user of
+         * the first action on it. The actions whose job is still running only get their last check time updated, the
+         * others, including those whose job is not visible to that user, and all the actions that do not run a Hadoop
+         * job, are checked as usual. If the jobs of a JobTracker/ResourceManager cannot be listed its actions are
+         * checked as usual.
+         *
+         * @param jpaService the JPA service.
+         * @throws CommandException
+         */
+        private void runBatchWFActionCheck(JPAService jpaService) throws CommandException {
+            Map<String, List<WorkflowActionBean>> actionsByUser;
+            try {
+                actionsByUser = jpaService.execute(new WorkflowActionsRunningGetJPAExecutor(actionCheckDelay));
+            }
+            catch (JPAExecutorException je) {
+                throw new CommandException(je);
+            }
+
+            if (actionsByUser == null || actionsByUser.isEmpty()) {
+                return;
+            }
+
+            List<String> actionIds = new ArrayList<String>();
+            for (List<WorkflowActionBean> actions : actionsByUser.values()) {
+                actionIds.addAll(toIds(actions));
+            }
+            Set<String> serverActionIds;
+            try {
+                serverActionIds = new HashSet<String>(Services.get().get(JobsConcurrencyService.class)
+                        .getJobIdsForThisServer(actionIds));
+            }
+            catch (Exception ex) {
+                throw new CommandException(ErrorCode.E1700, ex.getMessage(), ex);
+            }
+
+            msg.append(" WF_ACTIONS : ").append(serverActionIds.size());
+
+            ActionService actionService = Services.get().get(ActionService.class);
+            Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+            List<UpdateEntry> runningActions = new ArrayList<UpdateEntry>();
+            Date now = new Date();
+            Map<String, List<WorkflowActionBean>> actionsByTracker = new HashMap<String, List<WorkflowActionBean>>();
+            Map<String, String> trackerUsers = new HashMap<String, String>();
+            for (Map.Entry<String, List<WorkflowActionBean>> entry : actionsByUser.entrySet()) {
+                String user = entry.getKey();
+                for (WorkflowActionBean action : entry.getValue()) {
+                    if (!serverActionIds.contains(action.getId())) {
+                        continue;
+                    }
+                    if (user != null && action.getExternalId() != null && action.getTrackerUri() != null
+                            && actionService.getExecutor(action.getType()) instanceof JavaActionExecutor) {
+                        List<WorkflowActionBean> trackerActions = actionsByTracker.get(action.getTrackerUri());
+                        if (trackerActions == null) {
+                            trackerActions = new ArrayList<WorkflowActionBean>();
+                            actionsByTracker.put(action.getTrackerUri(), trackerActions);
+                            trackerUsers.put(action.getTrackerUri(), user);
+                        }
+                        trackerActions.add(action);
+                    }
+                    else {
+                        queueActionCheck(instr, action.getId());
+                    }
+                }
+            }
+
+            for (Map.Entry<String, List<WorkflowActionBean>> trackerEntry : actionsByTracker.entrySet()) {
+                String user = trackerUsers.get(trackerEntry.getKey());
+                Set<String> runningJobIds = null;
+                Instrumentation.Cron cron = new Instrumentation.Cron();
+                cron.start();
+                try {
+                    runningJobIds = getRunningJobIds(trackerEntry.getKey(), user);
+                }
+                catch (Exception ex) {
+                    XLog.getLog(getClass()).warn(
+                            "Could not poll the status of the jobs on [{0}] as user [{1}], checking its [{2}] "
+                                    + "actions one by one, {3}", trackerEntry.getKey(), user,
+                            trackerEntry.getValue().size(), ex.getMessage(), ex);
+                    instr.incr(INSTRUMENTATION_GROUP, INSTR_STATUS_POLL_ERRORS_COUNTER, 1);
+                }
+                finally {
+                    cron.stop();
+                    instr.addCron(INSTRUMENTATION_GROUP, INSTR_STATUS_POLL_TIMER, cron);
+                }
+                for (WorkflowActionBean action : trackerEntry.getValue()) {
+                    if (runningJobIds != null && runningJobIds.contains(action.getExternalId())) {
+                        action.setLastCheckTime(now);
+                        runningActions.add(new UpdateEntry<WorkflowActionQuery>(
+                                WorkflowActionQuery.UPDATE_ACTION_FOR_LAST_CHECKED_TIME, action));
+                    }
+                    else {
+                        queueActionCheck(instr, action.getId());
+                    }
+                }
+            }
+
+            msg.append(" WF_ACTIONS_RUNNING : ").append(runningActions.size());
+
+            if (!runningActions.isEmpty()) {
+                instr.incr(INSTRUMENTATION_GROUP, INSTR_RUNNING_ACTIONS_COUNTER, runningActions.size());
+                try {
+                    BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(null, runningActions, null);
+                }
+                catch (JPAExecutorException je) {
+                    throw new CommandException(je);
+                }
+            }
+        }
+
+        private void queueActionCheck(Instrumentation instr, String actionId) {
+            instr.incr(INSTRUMENTATION_GROUP, INSTR_CHECK_ACTIONS_COUNTER, 1);
+            queueCallable(new ActionCheckXCommand(actionId));
+        }
+
+        /**
+         * Return the ids of the Hadoop jobs that are not complete on a JobTracker/ResourceManager, as seen by a user.
+         * <p/>
+         * The listing covers all the jobs of the JobTracker/ResourceManager visible to the user, not only its own.
+         *
+         * @param trackerUri JobTracker/ResourceManager address.
+         * @param user user to connect as.
+         * @return the ids of the jobs that are not complete.
+         * @throws Exception thrown if the jobs could not be listed.
+         */
+        Set<String> getRunningJobIds(String trackerUri, String user) throws Exception {
+            HadoopAccessorService has = Services.get().get(HadoopAccessorService.class);
+            JobConf jobConf = has.createJobConf(trackerUri);
+            jobConf.set(JavaActionExecutor.HADOOP_JOB_TRACKER, trackerUri);
+            jobConf.set(JavaActionExecutor.HADOOP_JOB_TRACKER_2, trackerUri);
+            jobConf.set(JavaActionExecutor.HADOOP_YARN_RM, trackerUri);
+            JobClient jobClient = has.createJobClient(user, jobConf);
+            try {
+                Set<String> jobIds = new HashSet<String>();
+                JobStatus[] statuses = jobClient.jobsToComplete();
+                if (statuses != null) {
+                    for (JobStatus status : statuses) {
+                        jobIds.add(status.getJobID().toString());
+                    }
+                }
+                return jobIds;
+            }
+            finally {
+                jobClient.close();
+            }
+        }
+
         /**
          * check coordinator actions
          *
@@ -188,7 +364,7 @@ public class ActionCheckerService implements Service {
          *
          * @param callable the callable to queue.
          */
-        private void queueCallable(XCallable<Void> callable) {
+        void queueCallable(XCallable<Void> callable) {
             if (callables == null) {
                 callables = new ArrayList<XCallable<Void>>();
             }
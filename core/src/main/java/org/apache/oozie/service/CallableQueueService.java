@@ -20,11 +20,9 @@ package org.apache.oozie.service;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
@@ -35,11 +33,13 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.oozie.client.OozieClient.SYSTEM_MODE;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.PollablePriorityDelayQueue;
 import org.apache.oozie.util.PriorityDelayQueue;
+import org.apache.oozie.util.SignalingPriorityDelayQueue;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
@@ -64,6 +64,13 @@ import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
  * of threads is reached, commands remain the queue until threads become available. Sets up a priority queue for the
  * execution of Commands via a ThreadPool. Sets up a Delayed Queue to handle actions which will be ready for execution
  * sometime in the future.
+ * <p/>
+ * {@link #CONF_QUEUE_SIGNALING} if the queue should park idle threads on a condition signaled when callables are
+ * queued or become eligible ({@link SignalingPriorityDelayQueue}) instead of polling the queue every 10ms. Default
+ * value is false.
+ * <p/>
+ * {@link #CONF_SCHEDULING_POLICY} the {@link CallableSchedulingPolicy} isolating tenants of the queue. Default value is
+ * {@link PriorityCallableSchedulingPolicy}, callables are consumed by global priority only.
  */
 public class CallableQueueService implements Service, Instrumentable {
     private static final String INSTRUMENTATION_GROUP = "callablequeue";
@@ -77,6 +84,8 @@ public class CallableQueueService implements Service, Instrumentable {
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "CallableQueueService.";
 
     public static final String CONF_QUEUE_SIZE = CONF_PREFIX + "queue.size";
+    public static final String CONF_QUEUE_SIGNALING = CONF_PREFIX + "queue.signaling";
+    public static final String CONF_SCHEDULING_POLICY = CONF_PREFIX + "scheduling.policy.impl";
     public static final String CONF_THREADS = CONF_PREFIX + "threads";
     public static final String CONF_CALLABLE_CONCURRENCY = CONF_PREFIX + "callable.concurrency";
     public static final String CONF_CALLABLE_NEXT_ELIGIBLE = CONF_PREFIX + "callable.next.eligible";
@@ -87,9 +96,10 @@ public class CallableQueueService implements Service, Instrumentable {
 
     public static final int SAFE_MODE_DELAY = 60000;
 
-    private final Map<String, AtomicInteger> activeCallables = new HashMap<String, AtomicInteger>();
+    private final ConcurrentHashMap<String, AtomicInteger> activeCallables =
+            new ConcurrentHashMap<String, AtomicInteger>();
 
-    private final Map<String, Date> uniqueCallables = new ConcurrentHashMap<String, Date>();
+    private final ConcurrentHashMap<String, Date> uniqueCallables = new ConcurrentHashMap<String, Date>();
 
     private final ConcurrentHashMap<String, Set<XCallable<?>>> interruptCommandsMap = new ConcurrentHashMap<String, Set<XCallable<?>>>();
 
@@ -99,44 +109,58 @@ public class CallableQueueService implements Service, Instrumentable {
 
     private int maxCallableConcurrency;
 
-    private boolean callableBegin(XCallable<?> callable) {
-        synchronized (activeCallables) {
-            AtomicInteger counter = activeCallables.get(callable.getType());
+    private CallableSchedulingPolicy schedulingPolicy;
+
+    private AtomicInteger getActiveCounter(String type) {
+        AtomicInteger counter = activeCallables.get(type);
+        if (counter == null) {
+            AtomicInteger newCounter = new AtomicInteger();
+            counter = activeCallables.putIfAbsent(type, newCounter);
             if (counter == null) {
-                counter = new AtomicInteger(1);
-                activeCallables.put(callable.getType(), counter);
-                return true;
-            }
-            else {
-                int i = counter.incrementAndGet();
-                return i <= maxCallableConcurrency;
+                counter = newCounter;
             }
         }
+        return counter;
+    }
+
+    private boolean callableBegin(XCallable<?> callable) {
+        int i = getActiveCounter(callable.getType()).incrementAndGet();
+        return i <= maxCallableConcurrency;
     }
 
     private void callableEnd(XCallable<?> callable) {
-        synchronized (activeCallables) {
-            AtomicInteger counter = activeCallables.get(callable.getType());
-            if (counter == null) {
-                throw new IllegalStateException("It should not happen");
-            }
-            else {
-                counter.decrementAndGet();
-            }
+        AtomicInteger counter = activeCallables.get(callable.getType());
+        if (counter == null) {
+            throw new IllegalStateException("It should not happen");
+        }
+        else {
+            counter.decrementAndGet();
+        }
+        if (queue instanceof SignalingPriorityDelayQueue) {
+            ((SignalingPriorityDelayQueue<CallableWrapper>) queue).eligibilityChanged();
         }
     }
 
     private boolean callableReachMaxConcurrency(XCallable<?> callable) {
-        synchronized (activeCallables) {
-            AtomicInteger counter = activeCallables.get(callable.getType());
-            if (counter == null) {
-                return true;
-            }
-            else {
-                int i = counter.get();
-                return i < maxCallableConcurrency;
+        AtomicInteger counter = activeCallables.get(callable.getType());
+        if (counter == null) {
+            return true;
+        }
+        else {
+            int i = counter.get();
+            return i < maxCallableConcurrency;
+        }
+    }
+
+    private boolean isEligibleToPoll(QueueElement<?> element, boolean callableNextEligible) {
+        if (element != null) {
+            CallableWrapper wrapper = (CallableWrapper) element;
+            if (element.getElement() != null) {
+                return (!callableNextEligible || callableReachMaxConcurrency(wrapper.getElement()))
+                        && schedulingPolicy.isEligible(wrapper.tenant);
             }
         }
+        return false;
     }
 
     // Callables are wrapped with the this wrapper for execution, for logging
@@ -145,14 +169,18 @@ public class CallableQueueService implements Service, Instrumentable {
     // executor and a priority queue.
     class CallableWrapper extends PriorityDelayQueue.QueueElement<XCallable<?>> implements Runnable {
         private Instrumentation.Cron cron;
+        private String tenant;
+        private long dueTime;
 
         public CallableWrapper(XCallable<?> callable, long delay) {
             super(callable, callable.getPriority(), delay, TimeUnit.MILLISECONDS);
             cron = new Instrumentation.Cron();
             cron.start();
+            tenant = schedulingPolicy.getTenant(callable);
         }
 
         public void run() {
+            schedulingPolicy.dequeued(tenant, dueTime);
             if (Services.get().getSystemMode() == SYSTEM_MODE.SAFEMODE) {
                 log.info("Oozie is in SAFEMODE, requeuing callable [{0}] with [{1}]ms delay", getElement().getType(),
                         SAFE_MODE_DELAY);
@@ -163,9 +191,14 @@ public class CallableQueueService implements Service, Instrumentable {
             }
             XCallable<?> callable = getElement();
             try {
-                if (callableBegin(callable)) {
+                boolean typeBegun = callableBegin(callable);
+                boolean tenantBegun = schedulingPolicy.begin(tenant);
+                if (typeBegun && tenantBegun) {
                     cron.stop();
                     addInQueueCron(cron);
+                    if (tenant != null) {
+                        addInQueueCron(tenant + "#" + INSTR_IN_QUEUE_TIME_TIMER, cron);
+                    }
                     XLog.Info.get().clear();
                     XLog log = XLog.getLog(getClass());
                     log.trace("executing callable [{0}]", callable.getName());
@@ -184,7 +217,7 @@ public class CallableQueueService implements Service, Instrumentable {
                         XLog.Info.get().clear();
                     }
                 }
-                else {
+                else if (!typeBegun) {
                     log.warn("max concurrency for callable [{0}] exceeded, requeueing with [{1}]ms delay", callable
                             .getType(), CONCURRENCY_DELAY);
                     setDelay(CONCURRENCY_DELAY, TimeUnit.MILLISECONDS);
@@ -192,8 +225,17 @@ public class CallableQueueService implements Service, Instrumentable {
                     queue(this, true);
                     incrCounter(callable.getType() + "#exceeded.concurrency", 1);
                 }
+                else {
+                    log.warn("max concurrency for tenant [{0}] exceeded, requeueing callable [{1}] with [{2}]ms delay",
+                            tenant, callable.getType(), CONCURRENCY_DELAY);
+                    setDelay(CONCURRENCY_DELAY, TimeUnit.MILLISECONDS);
+                    removeFromUniqueCallables();
+                    queue(this, true);
+                    incrCounter(tenant + "#exceeded.concurrency", 1);
+                }
             }
             finally {
+                schedulingPolicy.end(tenant);
                 callableEnd(callable);
             }
         }
@@ -207,11 +249,15 @@ public class CallableQueueService implements Service, Instrumentable {
         }
 
         /**
-         * Filter the duplicate callables from the list before queue this.
+         * Filter the duplicate callables from the list before queue this, adding the keys of the remaining callables
+         * to the unique map.
          * <p/>
-         * If it is single callable, checking if key is in unique map or not.
+         * If it is single callable, the key is added to the unique map if it is not there yet.
          * <p/>
          * If it is composite callable, remove duplicates callables from the composite.
+         * <p/>
+         * Checking and adding the keys is atomic (using the unique map <code>putIfAbsent</code>) so callables can be
+         * queued concurrently without queuing duplicates.
          *
          * @return true if this callable should be queued
          */
@@ -221,20 +267,7 @@ public class CallableQueueService implements Service, Instrumentable {
                 return ((CompositeCallable) callable).removeDuplicates();
             }
             else {
-                return uniqueCallables.containsKey(callable.getKey()) == false;
-            }
-        }
-
-        /**
-         * Add the keys to the set
-         */
-        public void addToUniqueCallables() {
-            XCallable<?> callable = getElement();
-            if (callable instanceof CompositeCallable) {
-                ((CompositeCallable) callable).addToUniqueCallables();
-            }
-            else {
-                ((ConcurrentHashMap<String, Date>) uniqueCallables).putIfAbsent(callable.getKey(), new Date());
+                return uniqueCallables.putIfAbsent(callable.getKey(), new Date()) == null;
             }
         }
 
@@ -365,7 +398,8 @@ public class CallableQueueService implements Service, Instrumentable {
         }
 
         /**
-         * Remove the duplicate callables from the list before queue them
+         * Remove the duplicate callables from the list before queue them, adding the keys of the remaining callables
+         * to the unique map.
          *
          * @return true if callables should be queued
          */
@@ -376,7 +410,8 @@ public class CallableQueueService implements Service, Instrumentable {
                 return false;
             }
             for (XCallable<?> callable : callables) {
-                if (!uniqueCallables.containsKey(callable.getKey()) && !set.contains(callable.getKey())) {
+                if (!set.contains(callable.getKey())
+                        && uniqueCallables.putIfAbsent(callable.getKey(), new Date()) == null) {
                     filteredCallables.add(callable);
                     set.add(callable.getKey());
                 }
@@ -388,15 +423,6 @@ public class CallableQueueService implements Service, Instrumentable {
             return true;
         }
 
-        /**
-         * Add the keys to the set
-         */
-        public void addToUniqueCallables() {
-            for (XCallable<?> callable : callables) {
-                ((ConcurrentHashMap<String, Date>) uniqueCallables).putIfAbsent(callable.getKey(), new Date());
-            }
-        }
-
         /**
          * Remove the keys from the set
          */
@@ -427,8 +453,12 @@ public class CallableQueueService implements Service, Instrumentable {
     }
 
     private void addInQueueCron(Instrumentation.Cron cron) {
+        addInQueueCron(INSTR_IN_QUEUE_TIME_TIMER, cron);
+    }
+
+    private void addInQueueCron(String name, Instrumentation.Cron cron) {
         if (instrumentation != null) {
-            instrumentation.addCron(INSTRUMENTATION_GROUP, INSTR_IN_QUEUE_TIME_TIMER, cron);
+            instrumentation.addCron(INSTRUMENTATION_GROUP, name, cron);
         }
     }
 
@@ -444,14 +474,36 @@ public class CallableQueueService implements Service, Instrumentable {
 
         queueSize = conf.getInt(CONF_QUEUE_SIZE, 10000);
         int threads = conf.getInt(CONF_THREADS, 10);
-        boolean callableNextEligible = conf.getBoolean(CONF_CALLABLE_NEXT_ELIGIBLE, true);
+        final boolean callableNextEligible = conf.getBoolean(CONF_CALLABLE_NEXT_ELIGIBLE, true);
 
         for (String type : conf.getStringCollection(CONF_CALLABLE_INTERRUPT_TYPES)) {
             log.debug("Adding interrupt type [{0}]", type);
             INTERRUPT_TYPES.add(type);
         }
 
-        if (!callableNextEligible) {
+        Class<?> policyClass = conf.getClass(CONF_SCHEDULING_POLICY, null);
+        schedulingPolicy = (policyClass == null) ? new PriorityCallableSchedulingPolicy()
+                : (CallableSchedulingPolicy) ReflectionUtils.newInstance(policyClass, null);
+        schedulingPolicy.init(conf, threads);
+        log.info("Callable scheduling policy is [{0}]", schedulingPolicy.getClass().getName());
+
+        if (conf.getBoolean(CONF_QUEUE_SIGNALING, false)) {
+            // Idle threads wait on a condition of the queue, they are signaled when callables are queued, when a
+            // delayed callable expires and when a callable ends (it may make others eligible to poll).
+            queue = new SignalingPriorityDelayQueue<CallableWrapper>(3, 1000 * 30, TimeUnit.MILLISECONDS, queueSize) {
+                @Override
+                protected void debug(String msgTemplate, Object... msgArgs) {
+                    log.trace(msgTemplate, msgArgs);
+                }
+
+                @Override
+                protected boolean eligibleToPoll(QueueElement<?> element) {
+                    return isEligibleToPoll(element, callableNextEligible);
+                }
+
+            };
+        }
+        else if (!callableNextEligible && schedulingPolicy instanceof PriorityCallableSchedulingPolicy) {
             queue = new PriorityDelayQueue<CallableWrapper>(3, 1000 * 30, TimeUnit.MILLISECONDS, queueSize) {
                 @Override
                 protected void debug(String msgTemplate, Object... msgArgs) {
@@ -465,6 +517,8 @@ public class CallableQueueService implements Service, Instrumentable {
             // which has not yet reach max concurrency.Overrided method
             // 'eligibleToPoll' to check if the
             // element of this queue has reached the maximum concurrency.
+            // The scheduling policy also uses 'eligibleToPoll' to check if
+            // the tenant of the element can be polled.
             queue = new PollablePriorityDelayQueue<CallableWrapper>(3, 1000 * 30, TimeUnit.MILLISECONDS, queueSize) {
                 @Override
                 protected void debug(String msgTemplate, Object... msgArgs) {
@@ -473,13 +527,7 @@ public class CallableQueueService implements Service, Instrumentable {
 
                 @Override
                 protected boolean eligibleToPoll(QueueElement<?> element) {
-                    if (element != null) {
-                        CallableWrapper wrapper = (CallableWrapper) element;
-                        if (element.getElement() != null) {
-                            return callableReachMaxConcurrency(wrapper.getElement());
-                        }
-                    }
-                    return false;
+                    return isEligibleToPoll(element, callableNextEligible);
                 }
 
             };
@@ -551,24 +599,41 @@ public class CallableQueueService implements Service, Instrumentable {
     /**
      * @return int size of queue
      */
-    public synchronized int queueSize() {
+    public int queueSize() {
         return queue.size();
     }
 
-    private synchronized boolean queue(CallableWrapper wrapper, boolean ignoreQueueSize) {
+    /**
+     * Queue a callable wrapper.
+     * <p/>
+     * This method is not synchronized, the queue admits elements with a compare-and-set on its size so concurrent
+     * callers cannot overflow it. If the queue fills up between the size check and the queuing, the executor rejects
+     * the callable and it is reported as not queued.
+     *
+     * @param wrapper callable wrapper to queue.
+     * @param ignoreQueueSize if the queue size check should be skipped.
+     * @return <code>true</code> if the callable was queued, <code>false</code> if the queue is full.
+     */
+    private boolean queue(CallableWrapper wrapper, boolean ignoreQueueSize) {
         if (!ignoreQueueSize && queue.size() >= queueSize) {
             log.warn("queue if full, ignoring queuing for [{0}]", wrapper.getElement());
             return false;
         }
         if (!executor.isShutdown()) {
             if (wrapper.filterDuplicates()) {
-                wrapper.addToUniqueCallables();
+                wrapper.dueTime = System.currentTimeMillis() + wrapper.getDelay(TimeUnit.MILLISECONDS);
+                schedulingPolicy.queued(wrapper.tenant, wrapper.dueTime);
                 try {
                     executor.execute(wrapper);
                 }
                 catch (RejectedExecutionException ree) {
+                    schedulingPolicy.dequeued(wrapper.tenant, wrapper.dueTime);
                     wrapper.removeFromUniqueCallables();
-                    throw ree;
+                    if (ignoreQueueSize || executor.isShutdown()) {
+                        throw ree;
+                    }
+                    log.warn("queue if full, ignoring queuing for [{0}]", wrapper.getElement());
+                    return false;
                 }
             }
         }
@@ -612,7 +677,7 @@ public class CallableQueueService implements Service, Instrumentable {
      * @return <code>true</code> if the callable was queued, <code>false</code>
      *         if the queue is full and the callable was not queued.
      */
-    public synchronized boolean queue(XCallable<?> callable, long delay) {
+    public boolean queue(XCallable<?> callable, long delay) {
         if (callable == null) {
             return true;
         }
@@ -645,7 +710,7 @@ public class CallableQueueService implements Service, Instrumentable {
      * @return <code>true</code> if the callables were queued, <code>false</code> if the queue is full and the callables
      *         were not queued.
      */
-    public synchronized boolean queueSerial(List<? extends XCallable<?>> callables, long delay) {
+    public boolean queueSerial(List<? extends XCallable<?>> callables, long delay) {
         boolean queued;
         if (callables == null || callables.size() == 0) {
             queued = true;
@@ -670,6 +735,7 @@ public class CallableQueueService implements Service, Instrumentable {
      */
     public void instrument(Instrumentation instr) {
         instrumentation = instr;
+        schedulingPolicy.instrument(instr);
         instr.addSampler(INSTRUMENTATION_GROUP, INSTR_QUEUE_SIZE_SAMPLER, 60, 1, new Instrumentation.Variable<Long>() {
             public Long getValue() {
                 return (long) queue.size();
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XCallable;
+
+/**
+ * Scheduling policy of the {@link CallableQueueService}.
+ * <p/>
+ * The callable queue consumes callables by priority and age; a scheduling policy adds tenant isolation on top of that.
+ * Every queued callable is assigned to a tenant when it is queued, the queue only polls callables whose tenant is
+ * eligible and a callable that begins execution when its tenant is not allowed to is requeued, the same way the
+ * callable type concurrency is enforced.
+ * <p/>
+ * Implementations must be thread safe, the policy is invoked concurrently by the threads queuing callables and by the
+ * executor threads.
+ */
+public interface CallableSchedulingPolicy {
+
+    /**
+     * Initialize the policy.
+     *
+     * @param conf Oozie configuration.
+     * @param threads number of threads executing callables.
+     */
+    public void init(Configuration conf, int threads);
+
+    /**
+     * Instrument the policy.
+     *
+     * @param instr instrumentation to export the policy metrics to.
+     */
+    public void instrument(Instrumentation instr);
+
+    /**
+     * Return the tenant of a callable.
+     * <p/>
+     * It is invoked by the thread queuing the callable, so the thread log context of the command queuing it is
+     * available.
+     *
+     * @param callable callable being queued.
+     * @return the tenant of the callable, <code>null</code> if the policy does not isolate it.
+     */
+    public String getTenant(XCallable<?> callable);
+
+    /**
+     * Notify that a callable of the tenant has been queued.
+     *
+     * @param tenant tenant of the callable.
+     * @param dueTime time in milliseconds the callable is due for execution, delayed callables are not ready to be
+     * polled until then.
+     */
+    public void queued(String tenant, long dueTime);
+
+    /**
+     * Notify that a callable of the tenant has been taken out of the queue, or that it could not be queued after
+     * {@link #queued(String, long)} was invoked for it.
+     *
+     * @param tenant tenant of the callable.
+     * @param dueTime due time of the callable given to {@link #queued(String, long)}.
+     */
+    public void dequeued(String tenant, long dueTime);
+
+    /**
+     * Return if a callable of the tenant can be polled out of the queue.
+     *
+     * @param tenant tenant of the callable.
+     * @return <code>true</code> if the callable can be polled.
+     */
+    public boolean isEligible(String tenant);
+
+    /**
+     * Notify that a callable of the tenant begins execution.
+     * <p/>
+     * {@link #end(String)} is always invoked after this method, regardless of the returned value.
+     *
+     * @param tenant tenant of the callable.
+     * @return <code>true</code> if the callable can execute, <code>false</code> if it must be requeued.
+     */
+    public boolean begin(String tenant);
+
+    /**
+     * Notify that a callable of the tenant ended execution.
+     *
+     * @param tenant tenant of the callable.
+     */
+    public void end(String tenant);
+
+}
@@ -0,0 +1,534 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.command.wf.CompletedActionXCommand;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.XLog;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Service that accepts action callbacks into a bounded inbox and feeds them to the {@link CallableQueueService} as
+ * its capacity frees up.
+ * <p/>
+ * Callbacks are not dropped when the queue is full or the system is in safe mode, they wait in the inbox. Callbacks
+ * for an action that is already in the inbox are coalesced, the latest external status is kept unless it would replace
+ * a terminal external status with a non-terminal one.
+ * <p/>
+ * The inbox is backed by an append-only journal, a memory mapped file in the {@link #CONF_JOURNAL_DIR} directory, so
+ * the callbacks not fed to the queue are recovered when Oozie restarts. The journal is not synced on every
+ * callback; it survives an Oozie process crash, callbacks lost by a system crash are recovered by the
+ * {@link ActionCheckerService}. When the journal is full it is rewritten with the callbacks in the inbox.
+ * <p/>
+ * The service is enabled by adding it to <code>oozie.services.ext</code>, without it callbacks are queued directly.
+ */
+public class CallbackInboxService implements Service {
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "CallbackInboxService.";
+
+    public static final String CONF_CAPACITY = CONF_PREFIX + "capacity";
+
+    public static final String CONF_JOURNAL_DIR = CONF_PREFIX + "journal.dir";
+
+    public static final String CONF_JOURNAL_SIZE = CONF_PREFIX + "journal.size";
+
+    public static final String CONF_DRAIN_INTERVAL = CONF_PREFIX + "drain.interval";
+
+    public static final String INSTRUMENTATION_GROUP = "callbackinbox";
+
+    private static final String JOURNAL_FILE = "callbacks.journal";
+
+    private static final int CALLBACK_PRIORITY = 2;
+
+    // a zero type marks the end of the journal, the journal file is zero filled when created
+    private static final byte END = 0;
+    private static final byte ACCEPTED = 1;
+    private static final byte DRAINED = 2;
+
+    // the terminal external statuses of the action executors that use callbacks
+    private static final Set<String> TERMINAL_STATUS = new HashSet<String>(Arrays.asList("SUCCEEDED", "KILLED",
+            "FAILED", "FAILED/KILLED"));
+
+    private static final XLog LOG = XLog.getLog(CallbackInboxService.class);
+
+    /**
+     * A callback in the inbox.
+     */
+    private static class Callback {
+        private final String actionId;
+        private final String externalStatus;
+        private final Properties actionData;
+
+        public Callback(String actionId, String externalStatus, Properties actionData) {
+            this.actionId = actionId;
+            this.externalStatus = externalStatus;
+            this.actionData = actionData;
+        }
+    }
+
+    // callbacks by action id, in acceptance order, guarded by the service
+    private final Map<String, Callback> inbox = new LinkedHashMap<String, Callback>();
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    private int capacity;
+    private int journalSize;
+    private long drainInterval;
+    private File journalFile;
+    private FileChannel journalChannel;
+    private MappedByteBuffer journal;
+    // records of callbacks coalesced or drained, rewriting the journal frees their space
+    private int staleRecords;
+    private Instrumentation instrumentation;
+    private CallableQueueService queueService;
+    private Thread drainer;
+    private volatile boolean stopped;
+
+    /**
+     * Initialize the callback inbox service.
+     * <p/>
+     * The callbacks in the journal are loaded into the inbox and the drainer thread is started.
+     *
+     * @param services services instance.
+     * @throws ServiceException thrown if the journal could not be read or created.
+     */
+    @Override
+    public void init(Services services) throws ServiceException {
+        Configuration conf = services.getConf();
+        capacity = conf.getInt(CONF_CAPACITY, 100000);
+        journalSize = conf.getInt(CONF_JOURNAL_SIZE, 64 * 1024 * 1024);
+        drainInterval = conf.getLong(CONF_DRAIN_INTERVAL, 100);
+        String journalDir = ParamChecker.notEmpty(conf.get(CONF_JOURNAL_DIR), CONF_JOURNAL_DIR);
+        try {
+            File dir = new File(journalDir);
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Could not create directory [" + dir.getAbsolutePath() + "]");
+            }
+            journalFile = new File(dir, JOURNAL_FILE);
+            if (journalFile.exists()) {
+                replayJournal();
+            }
+            rewriteJournal();
+        }
+        catch (IOException ex) {
+            throw new ServiceException(ErrorCode.E0100, getClass().getName(), ex.getMessage(), ex);
+        }
+        if (!inbox.isEmpty()) {
+            LOG.info("Recovered [{0}] callbacks from the journal [{1}]", inbox.size(), journalFile);
+        }
+
+        queueService = services.get(CallableQueueService.class);
+        instrumentation = services.get(InstrumentationService.class).get();
+        instrumentation.addVariable(INSTRUMENTATION_GROUP, "pending", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) size();
+            }
+        });
+
+        stopped = false;
+        drainer = new Thread(new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, "CallbackInboxService-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Destroy the callback inbox service.
+     * <p/>
+     * The drainer thread is stopped, the callbacks still in the inbox remain in the journal.
+     */
+    @Override
+    public void destroy() {
+        stopped = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        if (drainer != null) {
+            drainer.interrupt();
+            try {
+                drainer.join(10 * 1000);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            drainer = null;
+        }
+        synchronized (this) {
+            if (journal != null) {
+                journal.force();
+            }
+            closeJournal();
+        }
+    }
+
+    /**
+     * Return the public interface of the callback inbox service.
+     *
+     * @return {@link CallbackInboxService}.
+     */
+    @Override
+    public Class<? extends Service> getInterface() {
+        return CallbackInboxService.class;
+    }
+
+    /**
+     * Accept a callback into the inbox.
+     * <p/>
+     * If a callback for the action is already in the inbox the callbacks are coalesced, the latest external status is
+     * kept and the action data of the latest callback with action data. A callback with a non-terminal external status,
+     * delivered out of order, does not replace a callback with a terminal external status.
+     *
+     * @param actionId action ID of the callback.
+     * @param externalStatus external status of the callback.
+     * @param actionData action output data, <code>null</code> if none.
+     * @return <code>true</code> if the callback was accepted, <code>false</code> if the inbox is full.
+     */
+    public synchronized boolean accept(String actionId, String externalStatus, Properties actionData) {
+        ParamChecker.notEmpty(actionId, "actionId");
+        ParamChecker.notEmpty(externalStatus, "externalStatus");
+        boolean coalesced = inbox.containsKey(actionId);
+        if (!coalesced && inbox.size() >= capacity) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, "rejected", 1);
+            return false;
+        }
+        Callback callback = new Callback(actionId, externalStatus, actionData);
+        try {
+            byte[] record = serialize(callback);
+            if (!append(ACCEPTED, record)) {
+                if (staleRecords > 0) {
+                    rewriteJournal();
+                }
+                if (!append(ACCEPTED, record)) {
+                    LOG.warn(XLog.OPS, "Callback journal [{0}] is full", journalFile);
+                    instrumentation.incr(INSTRUMENTATION_GROUP, "rejected", 1);
+                    return false;
+                }
+            }
+        }
+        catch (IOException ex) {
+            LOG.error("Could not write callback for action [{0}] to the journal, {1}", actionId, ex.getMessage(), ex);
+            instrumentation.incr(INSTRUMENTATION_GROUP, "rejected", 1);
+            return false;
+        }
+        add(callback);
+        if (coalesced) {
+            staleRecords++;
+            instrumentation.incr(INSTRUMENTATION_GROUP, "coalesced", 1);
+        }
+        else {
+            notifyAll();
+        }
+        instrumentation.incr(INSTRUMENTATION_GROUP, "accepted", 1);
+        return true;
+    }
+
+    /**
+     * Return the number of callbacks in the inbox.
+     *
+     * @return the number of callbacks in the inbox.
+     */
+    public synchronized int size() {
+        return inbox.size();
+    }
+
+    /**
+     * Return the external status of the callback in the inbox for an action.
+     *
+     * @param actionId action ID.
+     * @return the external status, <code>null</code> if there is no callback for the action in the inbox.
+     */
+    @VisibleForTesting
+    synchronized String getExternalStatus(String actionId) {
+        Callback callback = inbox.get(actionId);
+        return (callback != null) ? callback.externalStatus : null;
+    }
+
+    // coalesces with the callback in the inbox for the same action, keeping its position
+    private void add(Callback callback) {
+        Callback previous = inbox.get(callback.actionId);
+        if (previous != null && TERMINAL_STATUS.contains(previous.externalStatus)
+                && !TERMINAL_STATUS.contains(callback.externalStatus)) {
+            return;
+        }
+        if (previous != null && callback.actionData == null && previous.actionData != null) {
+            callback = new Callback(callback.actionId, callback.externalStatus, previous.actionData);
+        }
+        inbox.put(callback.actionId, callback);
+    }
+
+    private void drain() {
+        while (!stopped) {
+            try {
+                Callback callback = next();
+                if (callback == null) {
+                    break;
+                }
+                if (queueService.queue(new CompletedActionXCommand(callback.actionId, callback.externalStatus,
+                        callback.actionData, CALLBACK_PRIORITY))) {
+                    drained(callback);
+                }
+                else {
+                    // the queue is full or the system is in safe mode, wait for the queue to free up
+                    Thread.sleep(drainInterval);
+                }
+            }
+            catch (InterruptedException ex) {
+                break;
+            }
+            catch (Throwable ex) {
+                LOG.error("Error draining callback inbox, {0}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private synchronized Callback next() throws InterruptedException {
+        while (inbox.isEmpty() && !stopped) {
+            wait();
+        }
+        return (stopped) ? null : inbox.values().iterator().next();
+    }
+
+    private synchronized void drained(Callback callback) throws IOException {
+        // a callback coalesced while it was queued stays in the inbox to be queued again
+        if (inbox.get(callback.actionId) == callback) {
+            inbox.remove(callback.actionId);
+            staleRecords++;
+            byte[] record = callback.actionId.getBytes("UTF-8");
+            if (append(DRAINED, record)) {
+                staleRecords++;
+            }
+            else {
+                rewriteJournal();
+            }
+            instrumentation.incr(INSTRUMENTATION_GROUP, "drained", 1);
+        }
+    }
+
+    private byte[] serialize(Callback callback) throws IOException {
+        recordBuffer.reset();
+        DataOutputStream out = new DataOutputStream(recordBuffer);
+        writeString(out, callback.actionId);
+        writeString(out, callback.externalStatus);
+        if (callback.actionData == null) {
+            out.writeInt(-1);
+        }
+        else {
+            out.writeInt(callback.actionData.size());
+            for (String name : callback.actionData.stringPropertyNames()) {
+                writeString(out, name);
+                writeString(out, callback.actionData.getProperty(name));
+            }
+        }
+        out.flush();
+        return recordBuffer.toByteArray();
+    }
+
+    private static Callback deserialize(ByteBuffer buffer) throws IOException {
+        String actionId = readString(buffer);
+        String externalStatus = readString(buffer);
+        Properties actionData = null;
+        int size = buffer.getInt();
+        if (size >= 0) {
+            actionData = new Properties();
+            for (int i = 0; i < size; i++) {
+                actionData.setProperty(readString(buffer), readString(buffer));
+            }
+        }
+        return new Callback(actionId, externalStatus, actionData);
+    }
+
+    // strings are written with their UTF-8 length, action data values may be longer than writeUTF allows
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Append a record to the journal.
+     * <p/>
+     * The type is written last, a record is in the journal only when it is complete.
+     *
+     * @return <code>false</code> if there is no room for the record in the journal.
+     */
+    private boolean append(byte type, byte[] record) {
+        int position = journal.position();
+        // the type, the length, the record and the end of the journal
+        if (journal.remaining() < 1 + 4 + record.length + 1) {
+            return false;
+        }
+        journal.position(position + 1);
+        journal.putInt(record.length);
+        journal.put(record);
+        journal.put(position, type);
+        return true;
+    }
+
+    private void replayJournal() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(journalFile, "r");
+        MappedByteBuffer buffer = null;
+        try {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            int records = 0;
+            try {
+                byte type = (buffer.hasRemaining()) ? buffer.get() : END;
+                while (type != END) {
+                    byte[] record = new byte[buffer.getInt()];
+                    buffer.get(record);
+                    if (type == ACCEPTED) {
+                        add(deserialize(ByteBuffer.wrap(record)));
+                    }
+                    else if (type == DRAINED) {
+                        inbox.remove(new String(record, "UTF-8"));
+                    }
+                    else {
+                        throw new IOException("Invalid record type [" + type + "]");
+                    }
+                    records++;
+                    type = (buffer.hasRemaining()) ? buffer.get() : END;
+                }
+            }
+            catch (BufferUnderflowException ex) {
+                LOG.warn("Callback journal [{0}] is truncated after [{1}] records", journalFile, records);
+            }
+            catch (IOException ex) {
+                LOG.warn("Callback journal [{0}] is corrupted after [{1}] records, {2}", journalFile, records,
+                        ex.getMessage());
+            }
+        }
+        finally {
+            if (buffer != null) {
+                unmap(buffer);
+            }
+            file.close();
+        }
+    }
+
+    /**
+     * Replace the journal with a new journal with the callbacks in the inbox.
+     * <p/>
+     * The new journal is written to a temporary file that is renamed to the journal, the journal is never partially
+     * rewritten. The previous journal is unmapped.
+     */
+    private void rewriteJournal() throws IOException {
+        File tmpFile = new File(journalFile.getParentFile(), JOURNAL_FILE + ".tmp");
+        tmpFile.delete();
+        RandomAccessFile file = new RandomAccessFile(tmpFile, "rw");
+        FileChannel channel = file.getChannel();
+        MappedByteBuffer buffer;
+        try {
+            file.setLength(journalSize);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, journalSize);
+        }
+        catch (IOException ex) {
+            file.close();
+            throw ex;
+        }
+        closeJournal();
+        journalChannel = channel;
+        journal = buffer;
+        staleRecords = 0;
+        int unjournaled = 0;
+        for (Callback callback : inbox.values()) {
+            if (!append(ACCEPTED, serialize(callback))) {
+                unjournaled++;
+            }
+        }
+        if (unjournaled > 0) {
+            // the callbacks are still queued, they are recovered by the action checker if Oozie stops before
+            LOG.warn(XLog.OPS, "Callback journal [{0}] is full, [{1}] callbacks in the inbox are not journaled",
+                    journalFile, unjournaled);
+        }
+        journal.force();
+        if (!tmpFile.renameTo(journalFile)) {
+            journalFile.delete();
+            if (!tmpFile.renameTo(journalFile)) {
+                throw new IOException("Could not rename [" + tmpFile + "] to [" + journalFile + "]");
+            }
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            unmap(journal);
+            journal = null;
+        }
+        if (journalChannel != null) {
+            try {
+                journalChannel.close();
+            }
+            catch (IOException ex) {
+                LOG.warn("Could not close callback journal [{0}], {1}", journalFile, ex.getMessage(), ex);
+            }
+            journalChannel = null;
+        }
+    }
+
+    /**
+     * Unmap a journal buffer now instead of when it is garbage collected, each journal maps
+     * {@link #CONF_JOURNAL_SIZE} bytes.
+     * <p/>
+     * The JDK has no public API to unmap a buffer, the buffer cleaner is invoked by reflection. The buffer must not
+     * be used once unmapped.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        }
+        catch (Exception ex) {
+            LOG.debug("Could not unmap callback journal buffer, it is unmapped when garbage collected, {0}",
+                    ex.getMessage());
+        }
+    }
+
+}
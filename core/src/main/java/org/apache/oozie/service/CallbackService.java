@@ -17,17 +17,38 @@
  */
 package org.apache.oozie.service;
 
+import org.apache.oozie.action.hadoop.LauncherMapper;
 import org.apache.oozie.service.Service;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.XLog;
 import org.apache.hadoop.conf.Configuration;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.bind.DatatypeConverter;
 
 /**
  * Service that generates and parses callback URLs.
+ * <p/>
+ * It also keeps the action data that launchers send on the callback, so the action can be completed without reading
+ * the action data sequence file. The action data is signed with a key derived from the action ID, it is kept until
+ * the action completes or until it is evicted by the action data of other actions.
  */
 public class CallbackService implements Service {
 
@@ -35,7 +56,31 @@ public class CallbackService implements Service {
 
     public static final String CONF_BASE_URL = CONF_PREFIX + "base.url";
 
+    public static final String CONF_ACTION_DATA_MAX_SIZE = CONF_PREFIX + "action.data.max.size";
+
+    public static final String CONF_ACTION_DATA_CACHE_SIZE = CONF_PREFIX + "action.data.cache.size";
+
+    public static final String CONF_ACTION_DATA_SECRET = CONF_PREFIX + "action.data.secret";
+
+    public static final String INSTRUMENTATION_GROUP = "callback";
+
+    private static final XLog LOG = XLog.getLog(CallbackService.class);
+
     private Configuration oozieConf;
+    private byte[] actionDataSecret;
+    private int actionDataMaxSize;
+    private Map<String, ActionData> actionDataCache;
+    private Instrumentation instrumentation;
+
+    private static class ActionData {
+        private final String launcherId;
+        private final Map<String, String> data;
+
+        private ActionData(String launcherId, Map<String, String> data) {
+            this.launcherId = launcherId;
+            this.data = data;
+        }
+    }
 
     /**
      * Initialize the service.
@@ -44,6 +89,32 @@ public class CallbackService implements Service {
      */
     public void init(Services services) {
         oozieConf = services.getConf();
+        actionDataMaxSize = oozieConf.getInt(CONF_ACTION_DATA_MAX_SIZE, 16 * 1024);
+        final int cacheSize = oozieConf.getInt(CONF_ACTION_DATA_CACHE_SIZE, 10000);
+        actionDataCache = new LinkedHashMap<String, ActionData>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ActionData> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        String secret = oozieConf.get(CONF_ACTION_DATA_SECRET, "").trim();
+        if (secret.length() > 0) {
+            try {
+                actionDataSecret = secret.getBytes("UTF-8");
+            }
+            catch (UnsupportedEncodingException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        else {
+            // action data signed before a restart is rejected, actions fall back to the action data sequence file
+            actionDataSecret = new byte[32];
+            new SecureRandom().nextBytes(actionDataSecret);
+        }
+        InstrumentationService instrumentationService = services.get(InstrumentationService.class);
+        if (instrumentationService != null) {
+            instrumentation = instrumentationService.get();
+        }
     }
 
     /**
@@ -131,4 +202,146 @@ public class CallbackService implements Service {
         }
     }
 
+    /**
+     * Return the maximum size of the action data that launchers send on the callback.
+     *
+     * @return the maximum size in bytes of the uncompressed action data, <code>0</code> if launchers must not send
+     * the action data on the callback.
+     */
+    public int getActionDataMaxSize() {
+        return actionDataMaxSize;
+    }
+
+    /**
+     * Return the maximum length of a callback request body.
+     * <p/>
+     * The compressed action data is encoded in Base64, it is never longer than twice its uncompressed size.
+     *
+     * @param maxDataLen maximum length of the callback data that is not action data.
+     * @return the maximum length of a callback request body.
+     */
+    public int getMaxCallbackDataLength(int maxDataLen) {
+        return (actionDataMaxSize > 0) ? Math.max(maxDataLen, 2 * actionDataMaxSize + 1024) : maxDataLen;
+    }
+
+    /**
+     * Return the key the launcher of an action uses to sign the action data it sends on the callback.
+     *
+     * @param actionId action ID.
+     * @return the signing key of the action.
+     */
+    public String getActionDataKey(String actionId) {
+        ParamChecker.notEmpty(actionId, "actionId");
+        try {
+            return LauncherMapper.signActionData(DatatypeConverter.printHexBinary(actionDataSecret),
+                    actionId.getBytes("UTF-8"));
+        }
+        catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Keep the action data sent on a callback.
+     * <p/>
+     * The action data is kept only if its signature is valid for the action and it is not larger than the maximum
+     * action data size.
+     *
+     * @param actionId action ID.
+     * @param callbackData data of the callback.
+     * @return <code>true</code> if the callback data carried valid action data, <code>false</code> otherwise.
+     */
+    public boolean putActionData(String actionId, Properties callbackData) {
+        String payload = callbackData.getProperty(LauncherMapper.ACTION_DATA_CALLBACK_PAYLOAD);
+        String signature = callbackData.getProperty(LauncherMapper.ACTION_DATA_CALLBACK_SIGNATURE);
+        if (payload == null || signature == null || actionDataMaxSize <= 0) {
+            return false;
+        }
+        try {
+            byte[] compressed = DatatypeConverter.parseBase64Binary(payload);
+            String expected = LauncherMapper.signActionData(getActionDataKey(actionId), compressed);
+            if (!MessageDigest.isEqual(expected.getBytes("UTF-8"), signature.getBytes("UTF-8"))) {
+                LOG.warn("Invalid signature of the action data sent on the callback of action [{0}]", actionId);
+                incrCounter("action.data.rejected");
+                return false;
+            }
+            Properties props = new Properties();
+            props.load(new ByteArrayInputStream(decompress(compressed, actionDataMaxSize)));
+            String launcherId = (String) props.remove(LauncherMapper.ACTION_DATA_CALLBACK_JOB_ID);
+            if (launcherId == null) {
+                throw new IOException("launcher job ID is missing");
+            }
+            Map<String, String> data = new HashMap<String, String>();
+            for (String name : props.stringPropertyNames()) {
+                data.put(name, props.getProperty(name));
+            }
+            synchronized (actionDataCache) {
+                actionDataCache.put(actionId, new ActionData(launcherId, Collections.unmodifiableMap(data)));
+            }
+            incrCounter("action.data.accepted");
+            return true;
+        }
+        catch (IOException ex) {
+            LOG.warn("Invalid action data sent on the callback of action [{0}], {1}", actionId, ex.getMessage());
+            incrCounter("action.data.rejected");
+            return false;
+        }
+    }
+
+    /**
+     * Return the action data the launcher of an action sent on the callback.
+     *
+     * @param actionId action ID.
+     * @param launcherId ID of the launcher job of the action.
+     * @return the action data, <code>null</code> if the launcher job did not send it.
+     */
+    public Map<String, String> getActionData(String actionId, String launcherId) {
+        ActionData actionData;
+        synchronized (actionDataCache) {
+            actionData = actionDataCache.get(actionId);
+        }
+        if (actionData != null && actionData.launcherId.equals(launcherId)) {
+            incrCounter("action.data.hits");
+            return actionData.data;
+        }
+        incrCounter("action.data.misses");
+        return null;
+    }
+
+    /**
+     * Discard the action data the launcher of an action sent on the callback.
+     *
+     * @param actionId action ID.
+     */
+    public void removeActionData(String actionId) {
+        synchronized (actionDataCache) {
+            actionDataCache.remove(actionId);
+        }
+    }
+
+    private static byte[] decompress(byte[] compressed, int maxSize) throws IOException {
+        InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = is.read(buffer)) > -1) {
+                os.write(buffer, 0, read);
+                if (os.size() > maxSize) {
+                    throw new IOException("action data exceeds its limit [" + maxSize + "]");
+                }
+            }
+            return os.toByteArray();
+        }
+        finally {
+            is.close();
+        }
+    }
+
+    private void incrCounter(String name) {
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+
 }
@@ -18,14 +18,26 @@
 package org.apache.oozie.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.command.CommandException;
 import org.apache.oozie.command.coord.CoordMaterializeTransitionXCommand;
-import org.apache.oozie.executor.jpa.CoordActionsActiveCountJPAExecutor;
-import org.apache.oozie.executor.jpa.CoordJobQueryExecutor;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor.UpdateEntry;
+import org.apache.oozie.executor.jpa.CoordJobQueryExecutor.CoordJobQuery;
+import org.apache.oozie.executor.jpa.CoordJobsActiveActionsCountJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobsToBeMaterializedJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.util.XCallable;
@@ -35,6 +47,13 @@ import org.apache.oozie.util.XLog;
  * The coordinator Materialization Lookup trigger service schedule lookup trigger command for every interval (default is
  * 5 minutes ). This interval could be configured through oozie configuration defined is either oozie-default.xml or
  * oozie-site.xml using the property name oozie.service.CoordMaterializeTriggerService.lookup.interval
+ * <p/>
+ * The active actions of the jobs of a lookup are counted with a single grouped query. If
+ * oozie.service.CoordMaterializeTriggerService.materialization.threads is set, the jobs are materialized by a pool of
+ * its own, partitioned by job id, instead of being queued in the {@link CallableQueueService}. No more jobs are
+ * materialized in a lookup once the {@link CallableQueueService} queue reaches
+ * oozie.service.CoordMaterializeTriggerService.max.callable.queue.size, they are picked up first by the next lookup;
+ * it is 0 by default, which disables it.
  */
 public class CoordMaterializeTriggerService implements Service {
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "CoordMaterializeTriggerService.";
@@ -54,13 +73,111 @@ public class CoordMaterializeTriggerService implements Service {
      * The number of coordinator jobs to be picked for materialization at a given time.
      */
     public static final String CONF_MATERIALIZATION_SYSTEM_LIMIT = CONF_PREFIX + "materialization.system.limit";
+    /**
+     * The number of threads materializing coordinator jobs, if 0 jobs are materialized by the callable queue.
+     */
+    public static final String CONF_MATERIALIZATION_THREADS = CONF_PREFIX + "materialization.threads";
+    /**
+     * The number of coordinator jobs waiting for a materialization thread.
+     */
+    public static final String CONF_MATERIALIZATION_QUEUE_SIZE = CONF_PREFIX + "materialization.queue.size";
+    /**
+     * The size of the callable queue from which no more coordinator jobs are materialized.
+     */
+    public static final String CONF_MAX_CALLABLE_QUEUE_SIZE = CONF_PREFIX + "max.callable.queue.size";
 
     private static final String INSTRUMENTATION_GROUP = "coord_job_mat";
     private static final String INSTR_MAT_JOBS_COUNTER = "jobs";
+    private static final String INSTR_DEFERRED_JOBS_COUNTER = "jobs_deferred";
     private static final int CONF_LOOKUP_INTERVAL_DEFAULT = 300;
     private static final int CONF_MATERIALIZATION_WINDOW_DEFAULT = 3600;
     private static final int CONF_MATERIALIZATION_SYSTEM_LIMIT_DEFAULT = 50;
 
+    private MaterializationPool materializationPool;
+
+    /**
+     * Pool of threads materializing coordinator jobs.
+     * <p/>
+     * Jobs are partitioned by id, each partition is materialized by a thread with a bounded queue, so materializations
+     * of a job never run concurrently. A job waiting to be materialized is not queued again.
+     */
+    static class MaterializationPool {
+        private final ThreadPoolExecutor[] partitions;
+        private final Set<String> queuedJobs = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        MaterializationPool(int threads, int queueSize) {
+            partitions = new ThreadPoolExecutor[threads];
+            for (int i = 0; i < threads; i++) {
+                final String name = "CoordMaterializer-" + i;
+                partitions[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, name);
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+            }
+        }
+
+        /**
+         * Queue the materialization of a job.
+         *
+         * @param jobId coordinator job id.
+         * @param materializationWindow materialization window of the job.
+         * @return <code>false</code> if the partition of the job is full.
+         */
+        boolean materialize(final String jobId, final int materializationWindow) {
+            if (!queuedJobs.add(jobId)) {
+                return true;
+            }
+            try {
+                partitions[(jobId.hashCode() & Integer.MAX_VALUE) % partitions.length].execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        queuedJobs.remove(jobId);
+                        try {
+                            new CoordMaterializeTransitionXCommand(jobId, materializationWindow).call();
+                        }
+                        catch (CommandException ex) {
+                            XLog.getLog(CoordMaterializeTriggerService.class).warn(
+                                    "Could not materialize coordinator job [{0}], {1}", jobId, ex.getMessage(), ex);
+                        }
+                    }
+                });
+                return true;
+            }
+            catch (RejectedExecutionException ex) {
+                queuedJobs.remove(jobId);
+                return false;
+            }
+        }
+
+        /**
+         * Return the number of jobs waiting to be materialized.
+         *
+         * @return the number of jobs waiting to be materialized.
+         */
+        int size() {
+            return queuedJobs.size();
+        }
+
+        void destroy() {
+            for (ThreadPoolExecutor partition : partitions) {
+                partition.shutdown();
+            }
+            try {
+                for (ThreadPoolExecutor partition : partitions) {
+                    partition.awaitTermination(30, TimeUnit.SECONDS);
+                }
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * This runnable class will run in every "interval" to queue CoordMaterializeTransitionXCommand.
      */
@@ -133,28 +250,61 @@ public class CoordMaterializeTriggerService implements Service {
                 CoordJobsToBeMaterializedJPAExecutor cmatcmd = new CoordJobsToBeMaterializedJPAExecutor(currDate, limit);
                 List<CoordinatorJobBean> materializeJobs = jpaService.execute(cmatcmd);
                 int rejected = 0;
+                int deferred = 0;
                 LOG.info("CoordMaterializeTriggerService - Curr Date= " + currDate + ", Num jobs to materialize = "
                         + materializeJobs.size());
+                List<CoordinatorJobBean> serverJobs = new ArrayList<CoordinatorJobBean>();
+                List<String> serverJobIds = new ArrayList<String>();
                 for (CoordinatorJobBean coordJob : materializeJobs) {
                     if (Services.get().get(JobsConcurrencyService.class).isJobIdForThisServer(coordJob.getId())) {
-                        Services.get().get(InstrumentationService.class).get()
-                                .incr(INSTRUMENTATION_GROUP, INSTR_MAT_JOBS_COUNTER, 1);
-                        int numWaitingActions = jpaService.execute(new CoordActionsActiveCountJPAExecutor(coordJob
-                                .getId()));
-                        LOG.info("Job :" + coordJob.getId() + "  numWaitingActions : " + numWaitingActions
-                                + " MatThrottle : " + coordJob.getMatThrottling());
-                        // update lastModifiedTime so next time others get picked up in LRU fashion
-                        coordJob.setLastModifiedTime(new Date());
-                        CoordJobQueryExecutor.getInstance().executeUpdate(
-                                CoordJobQueryExecutor.CoordJobQuery.UPDATE_COORD_JOB_LAST_MODIFIED_TIME, coordJob);
-                        if (numWaitingActions >= coordJob.getMatThrottling()) {
-                            LOG.info("info for JobID [" + coordJob.getId() + "] " + numWaitingActions
-                                    + " actions already waiting. MatThrottle is : " + coordJob.getMatThrottling());
-                            rejected++;
+                        serverJobs.add(coordJob);
+                        serverJobIds.add(coordJob.getId());
+                    }
+                }
+                Map<String, Integer> activeCounts = (serverJobIds.isEmpty()) ? Collections.<String, Integer>emptyMap()
+                        : jpaService.execute(new CoordJobsActiveActionsCountJPAExecutor(serverJobIds));
+                CallableQueueService callableQueue = Services.get().get(CallableQueueService.class);
+                int maxCallableQueueSize = Services.get().getConf().getInt(CONF_MAX_CALLABLE_QUEUE_SIZE, 0);
+                MaterializationPool pool = getMaterializationPool();
+                List<UpdateEntry> updateList = new ArrayList<UpdateEntry>();
+                for (CoordinatorJobBean coordJob : serverJobs) {
+                    Services.get().get(InstrumentationService.class).get()
+                            .incr(INSTRUMENTATION_GROUP, INSTR_MAT_JOBS_COUNTER, 1);
+                    if (maxCallableQueueSize > 0 && callableQueue.queueSize() >= maxCallableQueueSize) {
+                        // the job is not updated, so it is picked up first by the next lookup
+                        deferred++;
+                        continue;
+                    }
+                    int numWaitingActions = activeCounts.get(coordJob.getId());
+                    LOG.info("Job :" + coordJob.getId() + "  numWaitingActions : " + numWaitingActions
+                            + " MatThrottle : " + coordJob.getMatThrottling());
+                    if (numWaitingActions >= coordJob.getMatThrottling()) {
+                        LOG.info("info for JobID [" + coordJob.getId() + "] " + numWaitingActions
+                                + " actions already waiting. MatThrottle is : " + coordJob.getMatThrottling());
+                        rejected++;
+                    }
+                    else if (pool != null) {
+                        if (!pool.materialize(coordJob.getId(), materializationWindow)) {
+                            deferred++;
                             continue;
                         }
+                    }
+                    else {
                         queueCallable(new CoordMaterializeTransitionXCommand(coordJob.getId(), materializationWindow));
                     }
+                    // update lastModifiedTime so next time others get picked up in LRU fashion
+                    coordJob.setLastModifiedTime(new Date());
+                    updateList.add(new UpdateEntry<CoordJobQuery>(CoordJobQuery.UPDATE_COORD_JOB_LAST_MODIFIED_TIME,
+                            coordJob));
+                }
+                BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(null, updateList, null);
+                if (deferred > 0) {
+                    LOG.info("Deferred materialization of [{0}] coordinator jobs, callable queue size [{1}],"
+                            + " materialization queue size [{2}]", deferred, callableQueue.queueSize(),
+                            (pool != null) ? pool.size() : 0);
+                    Services.get().get(InstrumentationService.class).get()
+                            .incr(INSTRUMENTATION_GROUP, INSTR_DEFERRED_JOBS_COUNTER, deferred);
+                    return false;
                 }
                 if (materializeJobs.size() == limit && rejected > 0) {
                     return true;
@@ -166,6 +316,11 @@ public class CoordMaterializeTriggerService implements Service {
             return false;
         }
 
+        private MaterializationPool getMaterializationPool() {
+            CoordMaterializeTriggerService service = Services.get().get(CoordMaterializeTriggerService.class);
+            return (service != null) ? service.materializationPool : null;
+        }
+
         /**
          * Adds callables to a list. If the number of callables in the list reaches {@link
          * CoordMaterializeTriggerService#CONF_CALLABLE_BATCH_SIZE}, the entire batch is queued and the callables list
@@ -200,6 +355,11 @@ public class CoordMaterializeTriggerService implements Service {
         // default is 300sec (5min)
         int lookupInterval = Services.get().getConf().getInt(CONF_LOOKUP_INTERVAL, CONF_LOOKUP_INTERVAL_DEFAULT);
 
+        int threads = conf.getInt(CONF_MATERIALIZATION_THREADS, 0);
+        if (threads > 0) {
+            materializationPool = new MaterializationPool(threads, conf.getInt(CONF_MATERIALIZATION_QUEUE_SIZE, 100));
+        }
+
         Runnable lookupTriggerJobsRunnable = new CoordMaterializeTriggerRunnable(materializationWindow, lookupInterval);
 
         services.get(SchedulerService.class).schedule(lookupTriggerJobsRunnable, 10, lookupInterval,
@@ -208,6 +368,9 @@ public class CoordMaterializeTriggerService implements Service {
 
     @Override
     public void destroy() {
+        if (materializationPool != null) {
+            materializationPool.destroy();
+        }
     }
 
     @Override
@@ -26,6 +26,13 @@ import org.apache.oozie.service.Services;
  */
 public class DagEngineService implements Service {
 
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "DagEngineService.";
+
+    /**
+     * Time in seconds the number of workflows matching a jobs filter is cached for.
+     */
+    public static final String CONF_JOBS_COUNT_TTL = CONF_PREFIX + "jobs.count.ttl";
+
     /**
      * Initialize the service.
      *
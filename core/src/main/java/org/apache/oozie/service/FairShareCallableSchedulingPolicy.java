@@ -0,0 +1,372 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.JobUtils;
+import org.apache.oozie.util.XCallable;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Weighted fair share scheduling policy of the {@link CallableQueueService}.
+ * <p/>
+ * A tenant is the user and the job type (workflow, coordinator, bundle) of a callable. The user is taken from the log
+ * context of the thread queuing the callable, commands queued by other commands run on behalf of the user of the
+ * queuing command, callables queued by Oozie services without a user context belong to the <code>system</code> user.
+ * <p/>
+ * Each tenant has a weight, the product of its user weight and its job type weight. The fair share of a tenant is its
+ * weighted part of the callable queue threads among the active tenants (tenants with ready or executing callables,
+ * delayed callables are not ready until they are due). A tenant below its fair share is always eligible. A tenant at
+ * or above its fair share can use idle threads only while no other tenant with ready callables is below its own fair
+ * share.
+ * <p/>
+ * Independently of the fair share, the number of callables executing on behalf of a user can be capped.
+ * <p/>
+ * The following configuration parameters control the policy:
+ * <p/>
+ * {@link #CONF_USER_WEIGHT}&lt;user&gt; weight of a user. Default value is 1.
+ * <p/>
+ * {@link #CONF_JOB_TYPE_WEIGHT}&lt;job-type&gt; weight of a job type (<code>wf</code>, <code>coord</code>,
+ * <code>bundle</code>, <code>other</code>). Default value is 1.
+ * <p/>
+ * {@link #CONF_MAX_INFLIGHT} maximum number of callables executing concurrently on behalf of a user, -1 means no cap.
+ * Default value is -1.
+ * <p/>
+ * {@link #CONF_USER_MAX_INFLIGHT}&lt;user&gt; maximum number of callables executing concurrently on behalf of a given
+ * user, it overrides {@link #CONF_MAX_INFLIGHT}.
+ */
+public class FairShareCallableSchedulingPolicy implements CallableSchedulingPolicy {
+    private static final String INSTRUMENTATION_GROUP = "callablequeue.fairshare";
+    private static final String INSTR_QUEUE_DEPTH_VARIABLE = "queue.depth";
+    private static final String INSTR_INFLIGHT_VARIABLE = "inflight";
+    private static final String INSTR_EXCEEDED_COUNTER = "exceeded.inflight";
+
+    public static final String CONF_PREFIX = CallableQueueService.CONF_PREFIX + "fairshare.";
+
+    public static final String CONF_USER_WEIGHT = CONF_PREFIX + "weight.user.";
+    public static final String CONF_JOB_TYPE_WEIGHT = CONF_PREFIX + "weight.jobtype.";
+    public static final String CONF_MAX_INFLIGHT = CONF_PREFIX + "max.inflight";
+    public static final String CONF_USER_MAX_INFLIGHT = CONF_PREFIX + "max.inflight.user.";
+
+    public static final String SYSTEM_USER = "system";
+
+    private static final String DO_AS = " doAs ";
+
+    private static class User {
+        private final int maxInFlight;
+        private int inFlight;
+        private int tenants;
+
+        private User(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        private boolean hasCapacity() {
+            return maxInFlight == -1 || inFlight < maxInFlight;
+        }
+    }
+
+    private static class Tenant {
+        private final String name;
+        private final User user;
+        private final double weight;
+        private int ready;
+        private int delayed;
+        private int inFlight;
+        private boolean active;
+
+        private Tenant(String name, User user, double weight) {
+            this.name = name;
+            this.user = user;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Time a delayed callable of a tenant is due, it is then ready to be polled.
+     */
+    private static class Due implements Comparable<Due> {
+        private final long time;
+        private final Tenant tenant;
+
+        private Due(long time, Tenant tenant) {
+            this.time = time;
+            this.tenant = tenant;
+        }
+
+        @Override
+        public int compareTo(Due other) {
+            return (time < other.time) ? -1 : ((time == other.time) ? 0 : 1);
+        }
+    }
+
+    // all the state is guarded by the policy monitor, the tenants and users without queued or executing callables are
+    // forgotten
+    private final Map<String, User> users = new HashMap<String, User>();
+    private final Map<String, Tenant> tenants = new HashMap<String, Tenant>();
+    private final PriorityQueue<Due> delayed = new PriorityQueue<Due>();
+    private final Set<Tenant> waiting = new HashSet<Tenant>();
+    private int activeTenants;
+    private double activeWeight;
+    private final Set<String> instrumented = new HashSet<String>();
+    private Configuration conf;
+    private int threads;
+    private int defaultMaxInFlight;
+    private volatile Instrumentation instrumentation;
+
+    @Override
+    public void init(Configuration conf, int threads) {
+        this.conf = conf;
+        this.threads = threads;
+        defaultMaxInFlight = conf.getInt(CONF_MAX_INFLIGHT, -1);
+    }
+
+    @Override
+    public void instrument(Instrumentation instr) {
+        synchronized (instrumented) {
+            instrumentation = instr;
+            for (String name : instrumented) {
+                instrument(instr, name);
+            }
+        }
+    }
+
+    private void instrument(Instrumentation instr, final String name) {
+        instr.addVariable(INSTRUMENTATION_GROUP, name + "#" + INSTR_QUEUE_DEPTH_VARIABLE,
+                new Instrumentation.Variable<Long>() {
+                    public Long getValue() {
+                        synchronized (FairShareCallableSchedulingPolicy.this) {
+                            Tenant tenant = tenants.get(name);
+                            return (tenant != null) ? (long) (tenant.ready + tenant.delayed) : 0L;
+                        }
+                    }
+                });
+        instr.addVariable(INSTRUMENTATION_GROUP, name + "#" + INSTR_INFLIGHT_VARIABLE,
+                new Instrumentation.Variable<Long>() {
+                    public Long getValue() {
+                        synchronized (FairShareCallableSchedulingPolicy.this) {
+                            Tenant tenant = tenants.get(name);
+                            return (tenant != null) ? (long) tenant.inFlight : 0L;
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public String getTenant(XCallable<?> callable) {
+        String user = getUser(XLog.Info.get().getParameter(XLogService.USER));
+        String name = user + "#" + JobUtils.getJobType(callable.getEntityKey());
+        synchronized (instrumented) {
+            if (instrumented.add(name) && instrumentation != null) {
+                instrument(instrumentation, name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Return the state of a tenant, creating it if the tenant was idle. It must be invoked holding the policy monitor.
+     */
+    private Tenant getTenantState(String name) {
+        Tenant tenant = tenants.get(name);
+        if (tenant == null) {
+            int index = name.lastIndexOf('#');
+            String user = name.substring(0, index);
+            String jobType = name.substring(index + 1);
+            User userState = users.get(user);
+            if (userState == null) {
+                userState = new User(conf.getInt(CONF_USER_MAX_INFLIGHT + user, defaultMaxInFlight));
+                users.put(user, userState);
+            }
+            userState.tenants++;
+            tenant = new Tenant(name, userState, conf.getFloat(CONF_USER_WEIGHT + user, 1)
+                    * conf.getFloat(CONF_JOB_TYPE_WEIGHT + jobType, 1));
+            tenants.put(name, tenant);
+        }
+        return tenant;
+    }
+
+    /**
+     * Update the active tenants and the tenants with ready callables after a change of the callables of a tenant, and
+     * forget the tenant if it is idle. It must be invoked holding the policy monitor.
+     */
+    private void updated(Tenant tenant) {
+        boolean active = tenant.ready > 0 || tenant.inFlight > 0;
+        if (active != tenant.active) {
+            tenant.active = active;
+            activeTenants += (active) ? 1 : -1;
+            // resetting the sum when there are no active tenants avoids accumulating rounding errors
+            activeWeight = (activeTenants == 0) ? 0 : activeWeight + ((active) ? tenant.weight : -tenant.weight);
+        }
+        if (tenant.ready > 0) {
+            waiting.add(tenant);
+        }
+        else {
+            waiting.remove(tenant);
+        }
+        if (!active && tenant.delayed == 0) {
+            tenants.remove(tenant.name);
+            if (--tenant.user.tenants == 0) {
+                users.remove(tenant.name.substring(0, tenant.name.lastIndexOf('#')));
+            }
+        }
+    }
+
+    /**
+     * Make the delayed callables that are due ready. It must be invoked holding the policy monitor.
+     */
+    private void promoteDue(long now) {
+        while (!delayed.isEmpty() && delayed.peek().time <= now) {
+            Tenant tenant = delayed.poll().tenant;
+            tenant.delayed--;
+            tenant.ready++;
+            updated(tenant);
+        }
+    }
+
+    /**
+     * Return the user of a log context user, which is the proxy user for log contexts of requests with doAs.
+     *
+     * @param user log context user.
+     * @return the user, {@link #SYSTEM_USER} if there is no log context user.
+     */
+    static String getUser(String user) {
+        if (user == null || user.length() == 0) {
+            return SYSTEM_USER;
+        }
+        int index = user.indexOf(DO_AS);
+        return (index == -1) ? user : user.substring(index + DO_AS.length());
+    }
+
+    @Override
+    public synchronized void queued(String name, long dueTime) {
+        Tenant tenant = getTenantState(name);
+        if (dueTime > System.currentTimeMillis()) {
+            tenant.delayed++;
+            delayed.add(new Due(dueTime, tenant));
+        }
+        else {
+            tenant.ready++;
+        }
+        updated(tenant);
+    }
+
+    @Override
+    public synchronized void dequeued(String name, long dueTime) {
+        long now = System.currentTimeMillis();
+        promoteDue(now);
+        Tenant tenant = tenants.get(name);
+        if (tenant == null) {
+            return;
+        }
+        if (dueTime > now && removeDue(tenant, dueTime)) {
+            tenant.delayed--;
+        }
+        else if (tenant.ready > 0) {
+            tenant.ready--;
+        }
+        updated(tenant);
+    }
+
+    private boolean removeDue(Tenant tenant, long dueTime) {
+        for (Iterator<Due> it = delayed.iterator(); it.hasNext();) {
+            Due due = it.next();
+            if (due.tenant == tenant && due.time == dueTime) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return if a callable of the tenant can be polled.
+     * <p/>
+     * Only the tenants with ready callables are visited, not all the tenants.
+     *
+     * @param name tenant of the callable.
+     * @return <code>true</code> if the callable can be polled.
+     */
+    @Override
+    public synchronized boolean isEligible(String name) {
+        promoteDue(System.currentTimeMillis());
+        Tenant tenant = tenants.get(name);
+        if (tenant == null) {
+            return true;
+        }
+        if (!tenant.user.hasCapacity()) {
+            return false;
+        }
+        if (tenant.inFlight < getFairShare(tenant)) {
+            return true;
+        }
+        for (Tenant other : waiting) {
+            if (other != tenant && other.user.hasCapacity() && other.inFlight < getFairShare(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getFairShare(Tenant tenant) {
+        if (activeWeight <= 0) {
+            return threads;
+        }
+        return Math.max(1, (int) Math.ceil(threads * tenant.weight / activeWeight));
+    }
+
+    @Override
+    public boolean begin(String name) {
+        int userInFlight;
+        int maxInFlight;
+        synchronized (this) {
+            Tenant tenant = getTenantState(name);
+            tenant.inFlight++;
+            userInFlight = ++tenant.user.inFlight;
+            maxInFlight = tenant.user.maxInFlight;
+            updated(tenant);
+        }
+        if (maxInFlight != -1 && userInFlight > maxInFlight) {
+            Instrumentation instr = instrumentation;
+            if (instr != null) {
+                instr.incr(INSTRUMENTATION_GROUP, name + "#" + INSTR_EXCEEDED_COUNTER, 1);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void end(String name) {
+        Tenant tenant = tenants.get(name);
+        if (tenant != null) {
+            tenant.inFlight--;
+            tenant.user.inFlight--;
+            updated(tenant);
+        }
+    }
+
+}
@@ -19,8 +19,11 @@ package org.apache.oozie.service;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.persistence.EntityManager;
@@ -45,12 +48,14 @@ import org.apache.oozie.client.rest.JsonSLAEvent;
 import org.apache.oozie.compression.CodecFactory;
 import org.apache.oozie.executor.jpa.JPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.WriteBehindQueryExecutor;
 import org.apache.oozie.sla.SLARegistrationBean;
 import org.apache.oozie.sla.SLASummaryBean;
 import org.apache.oozie.util.IOUtils;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XLog;
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
 
 /**
@@ -75,10 +80,23 @@ public class JPAService implements Service, Instrumentable {
     public static final String CONF_VALIDATE_DB_CONN = CONF_PREFIX + "validate.db.connection";
     public static final String CONF_VALIDATE_DB_CONN_EVICTION_INTERVAL = CONF_PREFIX + "validate.db.connection.eviction.interval";
     public static final String CONF_VALIDATE_DB_CONN_EVICTION_NUM = CONF_PREFIX + "validate.db.connection.eviction.num";
+    public static final String CONF_BATCH_LIMIT = CONF_PREFIX + "batch.limit";
+    public static final String CONF_WRITE_BEHIND_ENABLED = CONF_PREFIX + "write.behind.enabled";
+    public static final String CONF_WRITE_BEHIND_QUERIES = CONF_PREFIX + "write.behind.queries";
+    public static final String CONF_WRITE_BEHIND_WINDOW = CONF_PREFIX + "write.behind.window";
+    public static final String CONF_WRITE_BEHIND_MAX_SIZE = CONF_PREFIX + "write.behind.max.size";
+
+    private static final String INSTR_BATCH_NAME = "batchqueryexecutor";
+
+    /**
+     * Upper bounds of the batch size histogram buckets, in number of statements.
+     */
+    private static final int[] BATCH_SIZE_BUCKETS = {1, 10, 100, 1000};
 
 
     private EntityManagerFactory factory;
     private Instrumentation instr;
+    private WriteBehindQueryExecutor writeBehind;
 
     private static XLog LOG;
 
@@ -94,6 +112,15 @@ public class JPAService implements Service, Instrumentable {
     @Override
     public void instrument(Instrumentation instr) {
         this.instr = instr;
+        if (writeBehind != null) {
+            writeBehind.setInstrumentation(instr);
+            final WriteBehindQueryExecutor finalWriteBehind = writeBehind;
+            instr.addVariable(INSTRUMENTATION_GROUP_JPA, "writebehind.pending", new Instrumentation.Variable<Long>() {
+                public Long getValue() {
+                    return (long) finalWriteBehind.size();
+                }
+            });
+        }
     }
 
     /**
@@ -116,6 +143,7 @@ public class JPAService implements Service, Instrumentable {
         boolean validateDbConn = conf.getBoolean(CONF_VALIDATE_DB_CONN, false);
         String evictionInterval = conf.get(CONF_VALIDATE_DB_CONN_EVICTION_INTERVAL, "300000").trim();
         String evictionNum = conf.get(CONF_VALIDATE_DB_CONN_EVICTION_NUM, "10").trim();
+        int batchLimit = conf.getInt(CONF_BATCH_LIMIT, 50);
 
         if (!url.startsWith("jdbc:")) {
             throw new ServiceException(ErrorCode.E0608, url, "invalid JDBC URL, must start with 'jdbc:'");
@@ -182,6 +210,11 @@ public class JPAService implements Service, Instrumentable {
         // and connection pool are initialized one time only
         entityManager.getTransaction().begin();
         OpenJPAEntityManagerFactorySPI spi = (OpenJPAEntityManagerFactorySPI) factory;
+        // the persistence units set several openjpa.jdbc.DBDictionary properties and only the last one is effective,
+        // the batch limit is set on the dictionary instance so inserts, updates and deletes of flushed entities of the
+        // same table are sent as JDBC batches
+        ((JDBCConfiguration) spi.getConfiguration()).getDBDictionaryInstance().setBatchLimit(batchLimit);
+        LOG.info("JDBC batch limit: {0}", batchLimit);
         // Mask the password with '***'
         String logMsg = spi.getConfiguration().getConnectionProperties().replaceAll("Password=.*?,", "Password=***,");
         LOG.info("JPA configuration: {0}", logMsg);
@@ -193,17 +226,47 @@ public class JPAService implements Service, Instrumentable {
         catch (Exception ex) {
             throw new ServiceException(ErrorCode.E0100, getClass().getName(), ex);
         }
+        if (conf.getBoolean(CONF_WRITE_BEHIND_ENABLED, false)) {
+            List<String> queries = new ArrayList<String>();
+            String[] names = conf.getStrings(CONF_WRITE_BEHIND_QUERIES);
+            if (names != null) {
+                for (String name : names) {
+                    if (name.trim().length() > 0) {
+                        queries.add(name.trim());
+                    }
+                }
+            }
+            long window = conf.getLong(CONF_WRITE_BEHIND_WINDOW, 10);
+            writeBehind = new WriteBehindQueryExecutor(this, queries, window,
+                    conf.getInt(CONF_WRITE_BEHIND_MAX_SIZE, 1000));
+            LOG.info("Write-behind updates every [{0}] ms for {1}", window, queries);
+        }
     }
 
     /**
      * Destroy the JPAService
+     * <p/>
+     * The pending write-behind updates are flushed before closing the entity manager factory.
      */
     public void destroy() {
+        if (writeBehind != null) {
+            writeBehind.destroy();
+            writeBehind = null;
+        }
         if (factory != null && factory.isOpen()) {
             factory.close();
         }
     }
 
+    /**
+     * Return the write-behind stage of update queries.
+     *
+     * @return the write-behind stage, <code>null</code> if write-behind is not enabled.
+     */
+    public WriteBehindQueryExecutor getWriteBehindQueryExecutor() {
+        return writeBehind;
+    }
+
     /**
      * Execute a {@link JPAExecutor}.
      *
@@ -266,13 +329,25 @@ public class JPAService implements Service, Instrumentable {
 
     /**
      * Execute an UPDATE query
+     * <p/>
+     * If write-behind is enabled and the query is write-behind, the update is queued and flushed later, otherwise the
+     * pending write-behind updates of the same row are flushed first.
+     *
      * @param namedQueryName the name of query to be executed
      * @param query query instance to be executed
      * @param em Entity Manager
-     * @return Integer that query returns, which corresponds to the number of rows updated
+     * @return Integer that query returns, which corresponds to the number of rows updated, 0 if the update has been
+     * queued for write-behind
      * @throws JPAExecutorException
      */
     public int executeUpdate(String namedQueryName, Query query, EntityManager em) throws JPAExecutorException {
+        if (writeBehind != null) {
+            if (writeBehind.offer(namedQueryName, query)) {
+                em.close();
+                return 0;
+            }
+            writeBehind.flushFor(query);
+        }
         Instrumentation.Cron cron = new Instrumentation.Cron();
         try {
 
@@ -347,6 +422,11 @@ public class JPAService implements Service, Instrumentable {
 
     /**
      * Execute multiple update/insert queries in one transaction
+     * <p/>
+     * Beans to be inserted are persisted grouped by type, so the inserts of each table are flushed as JDBC batches.
+     * The number of statements of the batch is instrumented with a histogram of counters named
+     * <code>batchqueryexecutor.size.&lt;bucket&gt;</code>.
+     *
      * @param insertBeans list of beans to be inserted
      * @param updateQueryList list of update queries
      * @param deleteBeans list of beans to be deleted
@@ -355,12 +435,20 @@ public class JPAService implements Service, Instrumentable {
      */
     public void executeBatchInsertUpdateDelete(Collection<JsonBean> insertBeans, List<QueryEntry> updateQueryList,
             Collection<JsonBean> deleteBeans, EntityManager em) throws JPAExecutorException {
+        if (writeBehind != null && updateQueryList != null && updateQueryList.size() > 0) {
+            List<Query> queries = new ArrayList<Query>(updateQueryList.size());
+            for (QueryEntry q : updateQueryList) {
+                queries.add(q.getQuery());
+            }
+            writeBehind.flushFor(queries);
+        }
         Instrumentation.Cron cron = new Instrumentation.Cron();
         try {
 
             LOG.trace("Executing Queries in Batch");
             cron.start();
             em.getTransaction().begin();
+            int updates = 0;
             if (updateQueryList != null && updateQueryList.size() > 0) {
                 for (QueryEntry q : updateQueryList) {
                     if (instr != null) {
@@ -368,11 +456,24 @@ public class JPAService implements Service, Instrumentable {
                     }
                     q.getQuery().executeUpdate();
                 }
+                updates = updateQueryList.size();
             }
+            int inserts = 0;
             if (insertBeans != null && insertBeans.size() > 0) {
-                for (JsonBean bean : insertBeans) {
-                    em.persist(bean);
+                for (List<JsonBean> beans : groupByType(insertBeans).values()) {
+                    for (JsonBean bean : beans) {
+                        em.persist(bean);
+                    }
                 }
+                inserts = insertBeans.size();
+            }
+            int deletes = (deleteBeans != null) ? deleteBeans.size() : 0;
+            if (instr != null) {
+                instr.incr(INSTRUMENTATION_GROUP_JPA, INSTR_BATCH_NAME + ".inserts", inserts);
+                instr.incr(INSTRUMENTATION_GROUP_JPA, INSTR_BATCH_NAME + ".updates", updates);
+                instr.incr(INSTRUMENTATION_GROUP_JPA, INSTR_BATCH_NAME + ".deletes", deletes);
+                instr.incr(INSTRUMENTATION_GROUP_JPA,
+                        INSTR_BATCH_NAME + ".size." + getBatchSizeBucket(inserts + updates + deletes), 1);
             }
             if (deleteBeans != null && deleteBeans.size() > 0) {
                 for (JsonBean bean : deleteBeans) {
@@ -394,6 +495,34 @@ public class JPAService implements Service, Instrumentable {
         }
     }
 
+    private static Map<Class<?>, List<JsonBean>> groupByType(Collection<JsonBean> beans) {
+        Map<Class<?>, List<JsonBean>> groups = new LinkedHashMap<Class<?>, List<JsonBean>>();
+        for (JsonBean bean : beans) {
+            List<JsonBean> group = groups.get(bean.getClass());
+            if (group == null) {
+                group = new ArrayList<JsonBean>();
+                groups.put(bean.getClass(), group);
+            }
+            group.add(bean);
+        }
+        return groups;
+    }
+
+    /**
+     * Return the histogram bucket of a batch size.
+     *
+     * @param size number of statements of the batch.
+     * @return the upper bound of the bucket, or <code>inf</code> for batches over the last bucket.
+     */
+    static String getBatchSizeBucket(int size) {
+        for (int bucket : BATCH_SIZE_BUCKETS) {
+            if (size <= bucket) {
+                return Integer.toString(bucket);
+            }
+        }
+        return "inf";
+    }
+
     /**
      * Execute a SELECT query
      * @param namedQueryName the name of query to be executed
@@ -22,12 +22,26 @@ import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.workflow.WorkflowApp;
 import org.apache.oozie.workflow.WorkflowException;
 import org.apache.oozie.workflow.WorkflowLib;
+import org.apache.oozie.workflow.lite.LiteWorkflowAppParser;
 import org.apache.oozie.util.ParamChecker;
 
 /**
  * Service that provides workflow application definition reading, parsing and creating proto configuration.
  */
 public class LiteWorkflowAppService extends WorkflowAppService {
+
+    /**
+     * Initialize the workflow application service.
+     * <p/>
+     * The cached parsed applications are discarded, they were validated with the previous action executors.
+     *
+     * @param services services instance.
+     */
+    @Override
+    public void init(Services services) {
+        super.init(services);
+        LiteWorkflowAppParser.clearCache();
+    }
     /**
      * Parse workflow definition.
      *
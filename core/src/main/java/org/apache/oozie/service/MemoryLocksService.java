@@ -19,15 +19,43 @@ package org.apache.oozie.service;
 
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.JobUtils;
 import org.apache.oozie.lock.LockToken;
 import org.apache.oozie.lock.MemoryLocks;
 
 /**
  * Service that provides in-memory locks.  Assumes no other Oozie servers are using the database.
+ * <p/>
+ * The time spent waiting for locks is instrumented by entity type (<code>wf</code>, <code>coord</code>,
+ * <code>bundle</code> or <code>other</code>) with a timer and a histogram of counters, the counters are named
+ * <code>wait.&lt;type&gt;.&lt;bucket&gt;</code> and their buckets are the upper bounds, in milliseconds, of
+ * {@link #WAIT_HISTOGRAM_BUCKETS}. Only one lock request out of {@link #WAIT_SAMPLE_RATE} of each thread is timed, so
+ * the shared timers are not updated on every lock request; the requests that time out are all counted.
  */
 public class MemoryLocksService implements Service, Instrumentable {
     private static final String INSTRUMENTATION_GROUP = "locks";
+    private static final String INSTR_WAIT_TIMER = "wait.";
+    private static final String INSTR_TIMEOUT_COUNTER = "timeout.";
+
+    /**
+     * Upper bounds, in milliseconds, of the lock wait histogram buckets.
+     */
+    public static final long[] WAIT_HISTOGRAM_BUCKETS = {1, 10, 100, 1000, 10000};
+
+    /**
+     * One lock request out of this number, of each thread, is timed.
+     */
+    public static final int WAIT_SAMPLE_RATE = 16;
+
+    private static final ThreadLocal<int[]> REQUESTS = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
     private MemoryLocks locks;
+    private Instrumentation instrumentation;
 
     /**
      * Initialize the memory locks service
@@ -63,6 +91,7 @@ public class MemoryLocksService implements Service, Instrumentable {
      * @param instr instance to instrument the memory locks service to.
      */
     public void instrument(Instrumentation instr) {
+        instrumentation = instr;
         final MemoryLocks finalLocks = this.locks;
         instr.addVariable(INSTRUMENTATION_GROUP, "locks", new Instrumentation.Variable<Long>() {
             public Long getValue() {
@@ -80,7 +109,10 @@ public class MemoryLocksService implements Service, Instrumentable {
      * @throws InterruptedException thrown if the thread was interrupted while waiting.
      */
     public LockToken getReadLock(String resource, long wait) throws InterruptedException {
-        return locks.getReadLock(resource, wait);
+        Instrumentation.Cron cron = startWait();
+        LockToken token = locks.getReadLock(resource, wait);
+        endWait(resource, cron, token);
+        return token;
     }
 
     /**
@@ -92,6 +124,46 @@ public class MemoryLocksService implements Service, Instrumentable {
      * @throws InterruptedException thrown if the thread was interrupted while waiting.
      */
     public LockToken getWriteLock(String resource, long wait) throws InterruptedException {
-        return locks.getWriteLock(resource, wait);
+        Instrumentation.Cron cron = startWait();
+        LockToken token = locks.getWriteLock(resource, wait);
+        endWait(resource, cron, token);
+        return token;
+    }
+
+    private Instrumentation.Cron startWait() {
+        Instrumentation.Cron cron = null;
+        if (instrumentation != null && REQUESTS.get()[0]++ % WAIT_SAMPLE_RATE == 0) {
+            cron = new Instrumentation.Cron();
+            cron.start();
+        }
+        return cron;
+    }
+
+    private void endWait(String resource, Instrumentation.Cron cron, LockToken token) {
+        if (instrumentation != null && token == null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_TIMEOUT_COUNTER + JobUtils.getJobType(resource), 1);
+        }
+        if (cron != null) {
+            cron.stop();
+            String type = JobUtils.getJobType(resource);
+            instrumentation.addCron(INSTRUMENTATION_GROUP, INSTR_WAIT_TIMER + type, cron);
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_WAIT_TIMER + type + "." + getWaitBucket(cron.getOwn()),
+                    1);
+        }
+    }
+
+    /**
+     * Return the histogram bucket of a lock wait time.
+     *
+     * @param wait lock wait time in milliseconds.
+     * @return the upper bound of the bucket, or <code>inf</code> for waits over the last bucket.
+     */
+    static String getWaitBucket(long wait) {
+        for (long bucket : WAIT_HISTOGRAM_BUCKETS) {
+            if (wait < bucket) {
+                return Long.toString(bucket);
+            }
+        }
+        return "inf";
     }
 }
@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XCallable;
+
+/**
+ * Default scheduling policy of the {@link CallableQueueService}.
+ * <p/>
+ * Callables are consumed by global priority and age only, there is no tenant isolation.
+ */
+public class PriorityCallableSchedulingPolicy implements CallableSchedulingPolicy {
+
+    @Override
+    public void init(Configuration conf, int threads) {
+    }
+
+    @Override
+    public void instrument(Instrumentation instr) {
+    }
+
+    @Override
+    public String getTenant(XCallable<?> callable) {
+        return null;
+    }
+
+    @Override
+    public void queued(String tenant, long dueTime) {
+    }
+
+    @Override
+    public void dequeued(String tenant, long dueTime) {
+    }
+
+    @Override
+    public boolean isEligible(String tenant) {
+        return true;
+    }
+
+    @Override
+    public boolean begin(String tenant) {
+        return true;
+    }
+
+    @Override
+    public void end(String tenant) {
+    }
+
+}
@@ -0,0 +1,381 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.dependency.ListableURIHandler;
+import org.apache.oozie.dependency.URIHandler;
+import org.apache.oozie.dependency.URIHandlerException;
+import org.apache.oozie.dependency.URIListingCache;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+
+/**
+ * Service that caches the existence of dependency URIs for the whole server.
+ * <p/>
+ * Coordinator actions of different jobs often wait for the same URIs. Without the cache each action checks them on its
+ * own on every input check. With the cache, URIs found are not checked again, they do not go away while actions wait
+ * for them. URIs not found are not checked again for a short time. Actions checking the same URI at the same time wait
+ * for a single check. URIs are cached per user, a URI found by a user is checked again for another user. The URIs
+ * not in the cache are checked in bulk, URIs sharing a parent with a single listing of the parent.
+ * <p/>
+ * The following configuration parameters control the service:
+ * <p/>
+ * {@link #CONF_NEGATIVE_TTL} seconds a URI not found is not checked again. Default value is 60 seconds.
+ * <p/>
+ * {@link #CONF_CACHE_SIZE} number of URIs cached. URIs found are evicted, in no particular order, when there are more.
+ * Default value is 100000.
+ */
+public class URIExistenceCacheService implements Service, Instrumentable {
+    public static final String INSTRUMENTATION_GROUP = "dependency";
+    public static final String INSTR_HITS_COUNTER = "existence.hits";
+    public static final String INSTR_MISSES_COUNTER = "existence.misses";
+    public static final String INSTR_COALESCED_COUNTER = "existence.coalesced";
+    public static final String INSTR_CALLS_SAVED_COUNTER = "existence.calls_saved";
+    public static final String INSTR_CACHE_SIZE_VARIABLE = "existence.cache.size";
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "URIExistenceCacheService.";
+
+    public static final String CONF_NEGATIVE_TTL = CONF_PREFIX + "negative.ttl";
+    public static final String CONF_CACHE_SIZE = CONF_PREFIX + "cache.size";
+
+    /**
+     * Existence of a URI, it is being checked until its latch is released.
+     */
+    private static class Entry {
+        private final CountDownLatch checked = new CountDownLatch(1);
+        private volatile boolean exists;
+        private volatile boolean failed;
+        private volatile long checkTime;
+
+        private boolean isChecked() {
+            return checked.getCount() == 0;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private URIHandlerService uriService;
+    private long negativeTtl;
+    private int cacheSize;
+    private volatile Instrumentation instrumentation;
+
+    /**
+     * Evicts the expired URIs not found, and URIs found if there are too many.
+     */
+    private class EvictionRunnable implements Runnable {
+        public void run() {
+            long now = System.currentTimeMillis();
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (entry.isChecked() && !entry.exists && now - entry.checkTime >= negativeTtl) {
+                    it.remove();
+                }
+            }
+            int excess = entries.size() - cacheSize;
+            for (Iterator<Entry> it = entries.values().iterator(); excess > 0 && it.hasNext();) {
+                if (it.next().isChecked()) {
+                    it.remove();
+                    excess--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Initialize the URI existence cache service.
+     *
+     * @param services services instance.
+     * @throws ServiceException thrown if the service could not be initialized.
+     */
+    @Override
+    public void init(Services services) throws ServiceException {
+        uriService = services.get(URIHandlerService.class);
+        if (uriService == null) {
+            throw new ServiceException(ErrorCode.E0100, getClass().getName(), "URIHandlerService is not available");
+        }
+        negativeTtl = services.getConf().getInt(CONF_NEGATIVE_TTL, 60) * 1000L;
+        cacheSize = services.getConf().getInt(CONF_CACHE_SIZE, 100000);
+        int interval = (int) Math.max(1, negativeTtl / 1000);
+        services.get(SchedulerService.class).schedule(new EvictionRunnable(), interval, interval,
+                SchedulerService.Unit.SEC);
+    }
+
+    /**
+     * Destroy the URI existence cache service.
+     */
+    @Override
+    public void destroy() {
+        entries.clear();
+    }
+
+    /**
+     * Return the public interface for the URI existence cache service.
+     *
+     * @return {@link URIExistenceCacheService}.
+     */
+    @Override
+    public Class<? extends Service> getInterface() {
+        return URIExistenceCacheService.class;
+    }
+
+    /**
+     * Instrument the URI existence cache service.
+     *
+     * @param instr instrumentation to use.
+     */
+    @Override
+    public void instrument(Instrumentation instr) {
+        this.instrumentation = instr;
+        instr.addVariable(INSTRUMENTATION_GROUP, INSTR_CACHE_SIZE_VARIABLE, new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) entries.size();
+            }
+        });
+    }
+
+    /**
+     * Check if a URI exists.
+     *
+     * @param uri URI to check.
+     * @param conf configuration to access the URI.
+     * @param user user to access the URI as.
+     * @return <code>true</code> if the URI exists.
+     * @throws URIHandlerException thrown if the URI could not be checked.
+     */
+    public boolean exists(URI uri, Configuration conf, String user) throws URIHandlerException {
+        List<URI> uris = new ArrayList<URI>(1);
+        uris.add(uri);
+        return getFirstMissing(uris, conf, user) == 1;
+    }
+
+    /**
+     * Check which URIs exist.
+     * <p/>
+     * The URIs that are not cached are checked with a single call to their URI handler per parent URI.
+     *
+     * @param uris URIs to check.
+     * @param conf configuration to access the URIs.
+     * @param user user to access the URIs as.
+     * @return the URIs that exist.
+     * @throws URIHandlerException thrown if the URIs could not be checked.
+     */
+    public Set<URI> exists(Collection<URI> uris, Configuration conf, String user) throws URIHandlerException {
+        Set<URI> existing = new HashSet<URI>();
+        check(new ArrayList<URI>(uris), conf, user, false, existing);
+        return existing;
+    }
+
+    /**
+     * Find the first URI of a list that does not exist.
+     * <p/>
+     * The URIs after the first one that does not exist are not checked. The URIs that are not cached are checked with
+     * a single call to their URI handler per parent URI.
+     *
+     * @param uris URIs to check, in order.
+     * @param conf configuration to access the URIs.
+     * @param user user to access the URIs as.
+     * @return the index of the first URI that does not exist, the number of URIs if all of them exist.
+     * @throws URIHandlerException thrown if the URIs could not be checked.
+     */
+    public int getFirstMissing(List<URI> uris, Configuration conf, String user) throws URIHandlerException {
+        return check(uris, conf, user, true, new HashSet<URI>());
+    }
+
+    /**
+     * Return the cache key of a URI for a user, URIs found by a user are not visible to other users.
+     */
+    private static String getKey(String user, URI uri) {
+        // a URI cannot contain a space
+        return user + " " + uri;
+    }
+
+    private int check(List<URI> uris, Configuration conf, String user, boolean stopAtMissing, Set<URI> existing)
+            throws URIHandlerException {
+        Map<Integer, Entry> owned = new LinkedHashMap<Integer, Entry>();
+        Map<Integer, Entry> waiting = new LinkedHashMap<Integer, Entry>();
+        int firstMissing = uris.size();
+        long now = System.currentTimeMillis();
+        int hits = 0;
+        for (int i = 0; i < uris.size() && (!stopAtMissing || i < firstMissing); i++) {
+            String key = getKey(user, uris.get(i));
+            while (true) {
+                Entry entry = entries.get(key);
+                if (entry == null) {
+                    entry = new Entry();
+                    if (entries.putIfAbsent(key, entry) == null) {
+                        owned.put(i, entry);
+                        break;
+                    }
+                }
+                else if (!entry.isChecked()) {
+                    waiting.put(i, entry);
+                    break;
+                }
+                else if (entry.exists || now - entry.checkTime < negativeTtl) {
+                    if (entry.exists) {
+                        existing.add(uris.get(i));
+                    }
+                    else {
+                        firstMissing = Math.min(firstMissing, i);
+                    }
+                    hits++;
+                    break;
+                }
+                else {
+                    Entry expired = entry;
+                    entry = new Entry();
+                    if (entries.replace(key, expired, entry)) {
+                        owned.put(i, entry);
+                        break;
+                    }
+                }
+            }
+        }
+        incr(INSTR_HITS_COUNTER, hits);
+        incr(INSTR_MISSES_COUNTER, owned.size());
+        incr(INSTR_COALESCED_COUNTER, waiting.size());
+        incr(INSTR_CALLS_SAVED_COUNTER, hits + waiting.size());
+
+        if (!owned.isEmpty()) {
+            firstMissing = checkOwned(uris, owned, existing, conf, user, stopAtMissing, firstMissing);
+        }
+        for (Map.Entry<Integer, Entry> entry : waiting.entrySet()) {
+            int index = entry.getKey();
+            if (stopAtMissing && index >= firstMissing) {
+                break;
+            }
+            try {
+                entry.getValue().checked.await();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new URIHandlerException(ErrorCode.E0902, ex);
+            }
+            URI uri = uris.get(index);
+            boolean exists;
+            if (entry.getValue().failed) {
+                // the check of another thread failed or stopped before the URI, checking it again
+                exists = uriService.getURIHandler(uri).exists(uri, conf, user);
+            }
+            else {
+                exists = entry.getValue().exists;
+            }
+            if (exists) {
+                existing.add(uri);
+            }
+            else {
+                firstMissing = Math.min(firstMissing, index);
+            }
+        }
+        return firstMissing;
+    }
+
+    /**
+     * Check URIs being checked by this thread, by parent URI in the order of the URIs, and release their entries.
+     * <p/>
+     * If stopping at the first URI that does not exist, the parent URIs after it are not checked.
+     */
+    private int checkOwned(List<URI> uris, Map<Integer, Entry> owned, Set<URI> existing, Configuration conf,
+            String user, boolean stopAtMissing, int firstMissing) throws URIHandlerException {
+        Map<String, URIHandler.Context> contexts = new HashMap<String, URIHandler.Context>();
+        try {
+            Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+            for (Integer index : owned.keySet()) {
+                URI uri = uris.get(index);
+                URIHandler handler = uriService.getURIHandler(uri);
+                String parentURI = (handler instanceof ListableURIHandler) ? ((ListableURIHandler) handler)
+                        .getParentURI(uri) : null;
+                String group = uri.getScheme() + "://" + uri.getAuthority() + " "
+                        + ((parentURI != null) ? parentURI : uri.toString());
+                List<Integer> indexes = groups.get(group);
+                if (indexes == null) {
+                    indexes = new ArrayList<Integer>();
+                    groups.put(group, indexes);
+                }
+                indexes.add(index);
+            }
+            for (List<Integer> indexes : groups.values()) {
+                if (stopAtMissing && indexes.get(0) >= firstMissing) {
+                    break;
+                }
+                URI first = uris.get(indexes.get(0));
+                URIHandler handler = uriService.getURIHandler(first);
+                String authority = first.getScheme() + "://" + first.getAuthority();
+                URIHandler.Context context = contexts.get(authority);
+                if (context == null) {
+                    context = handler.getContext(first, conf, user);
+                    contexts.put(authority, context);
+                }
+                List<URI> groupURIs = new ArrayList<URI>(indexes.size());
+                for (Integer index : indexes) {
+                    groupURIs.add(uris.get(index));
+                }
+                Set<URI> found = URIListingCache.exists(handler, groupURIs, context);
+                long checkTime = System.currentTimeMillis();
+                for (Integer index : indexes) {
+                    URI uri = uris.get(index);
+                    Entry entry = owned.get(index);
+                    entry.exists = found.contains(uri);
+                    entry.checkTime = checkTime;
+                    if (entry.exists) {
+                        existing.add(uri);
+                    }
+                    else {
+                        firstMissing = Math.min(firstMissing, index);
+                    }
+                }
+            }
+            return firstMissing;
+        }
+        finally {
+            for (URIHandler.Context context : contexts.values()) {
+                context.destroy();
+            }
+            for (Map.Entry<Integer, Entry> entry : owned.entrySet()) {
+                Entry value = entry.getValue();
+                if (value.checkTime == 0) {
+                    value.failed = true;
+                    entries.remove(getKey(user, uris.get(entry.getKey())), value);
+                }
+                value.checked.countDown();
+            }
+        }
+    }
+
+    private void incr(String counter, long count) {
+        Instrumentation instr = instrumentation;
+        if (instr != null && count > 0) {
+            instr.incr(INSTRUMENTATION_GROUP, counter, count);
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowDefinitionBean;
+import org.apache.oozie.WorkflowDefinitionRefBean;
+import org.apache.oozie.client.rest.JsonBean;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionFindJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionGetJPAExecutor;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
+import org.apache.oozie.workflow.WorkflowInstance;
+import org.apache.oozie.workflow.lite.LiteWorkflowInstance;
+
+/**
+ * Service that stores the immutable part of workflow instances, their configuration and application definition, once
+ * in the <code>WF_DEFINITIONS</code> table.
+ * <p/>
+ * When the service is enabled, new workflow instances are persisted with a reference to their definition and their
+ * execution state only, instead of their whole definition on every state transition. Definitions are found by their
+ * SHA-256 hash, instances with the same definition share it. The submit and rerun commands make a new instance reference
+ * its definition, see {@link #referenceDefinition(WorkflowInstance, String)}, before the instance is serialized; a new
+ * definition, and the reference of the workflow job to its definition in the <code>WF_DEFINITION_REFS</code> table, are
+ * inserted in the transaction that persists the workflow job, see
+ * {@link org.apache.oozie.WorkflowJobBean#getDefinitionBeans()}. Instances persisted before the service was enabled
+ * keep their format.
+ * <p/>
+ * The service only uses the <code>WF_DEFINITIONS</code> and <code>WF_DEFINITION_REFS</code> tables, they are created by
+ * the <code>ooziedb</code> tool and are only needed while the service is enabled.
+ * <p/>
+ * Instances referencing a definition can be read whether the service is enabled or not, recently read definitions are
+ * cached while it is enabled.
+ * <p/>
+ * The following configuration parameter controls the service:
+ * <p/>
+ * {@link #CONF_CACHE_SIZE} maximum number of definitions cached. Default value is 100.
+ */
+public class WorkflowDefinitionService implements Service, Instrumentable {
+    private static final String INSTRUMENTATION_GROUP = "wfdefinitions";
+    private static final String INSTR_FOUND_COUNTER = "found";
+    private static final String INSTR_LOADED_COUNTER = "loaded";
+    private static final String INSTR_CACHE_HITS_COUNTER = "cache.hits";
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "WorkflowDefinitionService.";
+
+    public static final String CONF_CACHE_SIZE = CONF_PREFIX + "cache.size";
+
+    private static XLog LOG = XLog.getLog(WorkflowDefinitionService.class);
+
+    private JPAService jpaService;
+    private Map<String, byte[]> cache;
+    private Instrumentation instrumentation;
+
+    /**
+     * Initialize the workflow definition service.
+     *
+     * @param services services instance.
+     * @throws ServiceException thrown if the service could not be initialized.
+     */
+    @Override
+    public void init(Services services) throws ServiceException {
+        jpaService = services.get(JPAService.class);
+        if (jpaService == null) {
+            throw new ServiceException(ErrorCode.E0100, getClass().getName(), "JPAService is not available");
+        }
+        final int cacheSize = services.getConf().getInt(CONF_CACHE_SIZE, 100);
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Destroy the workflow definition service.
+     */
+    @Override
+    public void destroy() {
+        cache.clear();
+    }
+
+    /**
+     * Return the public interface for the workflow definition service.
+     *
+     * @return {@link WorkflowDefinitionService}.
+     */
+    @Override
+    public Class<? extends Service> getInterface() {
+        return WorkflowDefinitionService.class;
+    }
+
+    /**
+     * Instrument the workflow definition service.
+     *
+     * @param instr instrumentation to use.
+     */
+    @Override
+    public void instrument(Instrumentation instr) {
+        this.instrumentation = instr;
+    }
+
+    /**
+     * Find a stored definition with the given content.
+     * <p/>
+     * The definition is looked up in the database, not in the cache, so a definition deleted by the purge is never
+     * returned.
+     *
+     * @param hash hash of the definition, see {@link #getHash(byte[])}.
+     * @return the ID of the stored definition, <code>null</code> if there is none.
+     * @throws IOException thrown if the definition could not be looked up.
+     */
+    public String find(String hash) throws IOException {
+        String id;
+        try {
+            id = jpaService.execute(new WorkflowDefinitionFindJPAExecutor(hash));
+        }
+        catch (JPAExecutorException ex) {
+            throw new IOException("Could not look up workflow definition [" + hash + "], " + ex.getMessage(), ex);
+        }
+        if (id != null) {
+            incr(INSTR_FOUND_COUNTER);
+        }
+        return id;
+    }
+
+    /**
+     * Make a new workflow instance reference the stored definition with the same content, or a new definition.
+     * <p/>
+     * The new definition and the reference of the job to its definition are not stored here, they are returned to be
+     * inserted in the transaction that persists the workflow job.
+     *
+     * @param instance new workflow instance.
+     * @param jobId ID of the workflow job of the instance.
+     * @return the beans to insert with the workflow job, the definition if it is not stored yet and the reference of
+     * the job to it.
+     * @throws IOException thrown if the definition could not be looked up.
+     */
+    public List<JsonBean> reference(LiteWorkflowInstance instance, String jobId) throws IOException {
+        List<JsonBean> beans = new ArrayList<JsonBean>();
+        byte[] definition = instance.getDefinition();
+        String hash = getHash(definition);
+        String definitionId = find(hash);
+        if (definitionId == null) {
+            WorkflowDefinitionBean definitionBean = new WorkflowDefinitionBean(hash, definition);
+            definitionId = definitionBean.getId();
+            beans.add(definitionBean);
+        }
+        beans.add(new WorkflowDefinitionRefBean(jobId, definitionId));
+        instance.setDefinitionId(definitionId);
+        return beans;
+    }
+
+    /**
+     * Return a definition.
+     *
+     * @param id ID of the definition.
+     * @return the serialized definition.
+     * @throws IOException thrown if the definition could not be loaded.
+     */
+    public byte[] get(String id) throws IOException {
+        byte[] definition = cache.get(id);
+        if (definition != null) {
+            incr(INSTR_CACHE_HITS_COUNTER);
+        }
+        else {
+            definition = load(jpaService, id);
+            cache.put(id, definition);
+            incr(INSTR_LOADED_COUNTER);
+        }
+        return definition;
+    }
+
+    private void incr(String counter) {
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, counter, 1);
+        }
+    }
+
+    /**
+     * Return a definition, through the service if it is enabled or from the database otherwise.
+     *
+     * @param id ID of the definition.
+     * @return the serialized definition.
+     * @throws IOException thrown if the definition could not be loaded.
+     */
+    public static byte[] getDefinition(String id) throws IOException {
+        Services services = Services.get();
+        if (services == null) {
+            throw new IOException("Services are not initialized, workflow definition [" + id + "] cannot be loaded");
+        }
+        WorkflowDefinitionService service = services.get(WorkflowDefinitionService.class);
+        if (service != null) {
+            return service.get(id);
+        }
+        return load(services.get(JPAService.class), id);
+    }
+
+    /**
+     * Make a new workflow instance reference its stored definition if the service is enabled, see
+     * {@link #reference(LiteWorkflowInstance, String)}.
+     *
+     * @param instance new workflow instance.
+     * @param jobId ID of the workflow job of the instance.
+     * @return the beans to insert with the workflow job, an empty list if the service is not enabled.
+     * @throws IOException thrown if the definition could not be looked up.
+     */
+    public static List<JsonBean> referenceDefinition(WorkflowInstance instance, String jobId) throws IOException {
+        Services services = Services.get();
+        WorkflowDefinitionService service = (services == null) ? null
+                : services.get(WorkflowDefinitionService.class);
+        if (service == null) {
+            return Collections.emptyList();
+        }
+        return service.reference((LiteWorkflowInstance) instance, jobId);
+    }
+
+    private static byte[] load(JPAService jpaService, String id) throws IOException {
+        try {
+            return jpaService.execute(new WorkflowDefinitionGetJPAExecutor(id)).getDefinition();
+        }
+        catch (JPAExecutorException ex) {
+            throw new IOException("Could not load workflow definition [" + id + "], " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Return the hash of a definition, the hex encoded SHA-256 hash of its content.
+     *
+     * @param definition serialized definition.
+     * @return the hash of the definition.
+     */
+    public static String getHash(byte[] definition) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(definition);
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+}
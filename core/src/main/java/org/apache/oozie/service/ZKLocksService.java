@@ -17,12 +17,28 @@
  */
 package org.apache.oozie.service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
 import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.apache.curator.framework.recipes.locks.RevocationListener;
+import org.apache.curator.framework.recipes.locks.Revoker;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.JobUtils;
 import org.apache.oozie.lock.LockToken;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.util.ZKUtils;
@@ -31,13 +47,51 @@ import org.apache.oozie.util.ZKUtils;
  * Service that provides distributed locks via ZooKeeper.  Requires that a ZooKeeper ensemble is available.  The locks will be
  * located under a ZNode named "locks" under the namespace (see {@link ZKUtils}).  For example, with default settings, if the
  * resource we're locking is called "foo", then the ZNode backing the lock will be at /oozie/locks/foo.
+ * <p>
+ * When {@link #CONF_LEASE_ENABLED} is <code>true</code>, the server that owns a job (see {@link JobsConcurrencyService}) holds
+ * the ZooKeeper WRITE lock of the job as a lease, and locks of the job are then resolved in memory, as in
+ * {@link MemoryLocksService}, without any ZooKeeper round-trip.  A lease is released once it has been idle for
+ * {@link #CONF_LEASE_IDLE_TIMEOUT} seconds, when the job is no longer owned by the server, when the ZooKeeper connection is
+ * suspended, or when a server asks for the ZooKeeper lock of the job; locks of a job without a lease fall back to the
+ * ZooKeeper lock and revoke the lease held by another server, if any.  Leases are acquired and released by a dedicated
+ * thread, as ZooKeeper locks are owned by the thread that acquired them.
  */
 public class ZKLocksService extends MemoryLocksService implements Service, Instrumentable {
 
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "ZKLocksService.";
+
+    /**
+     * Enables job lock leases.
+     */
+    public static final String CONF_LEASE_ENABLED = CONF_PREFIX + "lease.enabled";
+
+    /**
+     * Time in seconds an unused lease is kept before it is released.
+     */
+    public static final String CONF_LEASE_IDLE_TIMEOUT = CONF_PREFIX + "lease.idle.timeout";
+
+    private static final String INSTRUMENTATION_GROUP = "locks";
+    private static final String INSTR_LEASES_VARIABLE = "zk.leases";
+    private static final String INSTR_LOCKS_COUNTER = "zk.locks";
+    private static final String INSTR_AVOIDED_COUNTER = "zk.locks.avoided";
+    private static final String INSTR_LEASE_ACQUIRED_COUNTER = "zk.leases.acquired";
+    private static final String INSTR_LEASE_RELEASED_COUNTER = "zk.leases.released";
+    private static final String INSTR_LEASE_REVOKED_COUNTER = "zk.leases.revoked";
+
+    // name of the WRITE lock nodes created by InterProcessReadWriteLock
+    private static final String WRITE_LOCK_NAME = "__WRIT__";
+
     private ZKUtils zk;
     private static XLog LOG = XLog.getLog(ZKLocksService.class);
     private static final String LOCKS_NODE = "/locks/";
 
+    private boolean leaseEnabled;
+    private long leaseIdleTimeout;
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<String, Lease>();
+    private ScheduledExecutorService leaseExecutor;
+    private ConnectionStateListener connectionListener;
+    private volatile Instrumentation instrumentation;
+
     /**
      * Initialize the zookeeper locks service
      *
@@ -52,6 +106,30 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
         catch (Exception ex) {
             throw new ServiceException(ErrorCode.E1700, ex.getMessage(), ex);
         }
+        leaseEnabled = services.getConf().getBoolean(CONF_LEASE_ENABLED, false);
+        if (leaseEnabled) {
+            leaseIdleTimeout = services.getConf().getInt(CONF_LEASE_IDLE_TIMEOUT, 30) * 1000L;
+            leaseExecutor = Executors.newSingleThreadScheduledExecutor();
+            long interval = Math.max(leaseIdleTimeout / 2, 100);
+            leaseExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    releaseLeases(false);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+            connectionListener = new ConnectionStateListener() {
+                @Override
+                public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                    if (newState == ConnectionState.SUSPENDED || newState == ConnectionState.LOST) {
+                        LOG.warn("ZooKeeper connection [{0}], revoking [{1}] lock leases", newState, leases.size());
+                        for (Lease lease : leases.values()) {
+                            lease.revoke();
+                        }
+                    }
+                }
+            };
+            zk.getClient().getConnectionStateListenable().addListener(connectionListener);
+        }
     }
 
     /**
@@ -59,6 +137,23 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
      */
     @Override
     public void destroy() {
+        if (leaseExecutor != null) {
+            zk.getClient().getConnectionStateListenable().removeListener(connectionListener);
+            leaseExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    releaseLeases(true);
+                }
+            });
+            leaseExecutor.shutdown();
+            try {
+                leaseExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            leaseExecutor = null;
+        }
         if (zk != null) {
             zk.unregister(this);
         }
@@ -69,11 +164,17 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
     /**
      * Instruments the zookeeper locks service.
      *
-     * @param instr instance to instrument the memory locks service to.
+     * @param instr instance to instrument the zookeeper locks service to.
      */
     @Override
     public void instrument(Instrumentation instr) {
-        // nothing to instrument
+        super.instrument(instr);
+        instrumentation = instr;
+        instr.addVariable(INSTRUMENTATION_GROUP, INSTR_LEASES_VARIABLE, new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) leases.size();
+            }
+        });
     }
 
     /**
@@ -86,9 +187,15 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
      */
     @Override
     public LockToken getReadLock(String resource, long wait) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        Lease lease = getLease(resource, wait);
+        wait = getRemainingWait(wait, start);
+        if (lease != null) {
+            return getLeasedLock(lease, super.getReadLock(resource, wait));
+        }
         InterProcessReadWriteLock lock = new InterProcessReadWriteLock(zk.getClient(), LOCKS_NODE + resource);
         InterProcessMutex readLock = lock.readLock();
-        return acquireLock(wait, readLock);
+        return acquireLock(resource, wait, readLock);
     }
 
     /**
@@ -101,14 +208,23 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
      */
     @Override
     public LockToken getWriteLock(String resource, long wait) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        Lease lease = getLease(resource, wait);
+        wait = getRemainingWait(wait, start);
+        if (lease != null) {
+            return getLeasedLock(lease, super.getWriteLock(resource, wait));
+        }
         InterProcessReadWriteLock lock = new InterProcessReadWriteLock(zk.getClient(), LOCKS_NODE + resource);
         InterProcessMutex writeLock = lock.writeLock();
-        return acquireLock(wait, writeLock);
+        return acquireLock(resource, wait, writeLock);
     }
 
-    private LockToken acquireLock(long wait, InterProcessMutex lock) {
+    private LockToken acquireLock(String resource, long wait, InterProcessMutex lock) {
         ZKLockToken token = null;
         try {
+            if (leaseEnabled) {
+                revokeLeases(resource, lock);
+            }
             if (wait == -1) {
                 lock.acquire();
                 token = new ZKLockToken(lock);
@@ -120,9 +236,305 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
         catch (Exception ex) {
             throw new RuntimeException(ex);
         }
+        if (token != null) {
+            incr(INSTR_LOCKS_COUNTER);
+        }
         return token;
     }
 
+    private LockToken getLeasedLock(Lease lease, LockToken token) {
+        if (token == null) {
+            lease.unretain();
+            return null;
+        }
+        incr(INSTR_AVOIDED_COUNTER);
+        return new LeasedLockToken(lease, token);
+    }
+
+    private static long getRemainingWait(long wait, long start) {
+        return (wait <= 0) ? wait : Math.max(0, wait - (System.currentTimeMillis() - start));
+    }
+
+    private void incr(String counter) {
+        Instrumentation instr = instrumentation;
+        if (instr != null) {
+            instr.incr(INSTRUMENTATION_GROUP, counter, 1);
+        }
+    }
+
+    /**
+     * Return if locks of a resource can be resolved through a lease, only jobs owned by this server can.
+     *
+     * @param resource resource name.
+     * @return <code>true</code> if the resource can be leased.
+     */
+    private boolean isLeasable(String resource) {
+        if (!leaseEnabled || JobUtils.getJobType(resource).equals("other")) {
+            return false;
+        }
+        JobsConcurrencyService jobsConcurrencyService = Services.get().get(JobsConcurrencyService.class);
+        return jobsConcurrencyService != null && jobsConcurrencyService.isJobIdForThisServer(resource);
+    }
+
+    /**
+     * Return a retained lease of a resource, acquiring it if necessary.
+     * <p/>
+     * If the lease thread does not acquire the lease within the lock wait time the lock request falls back to a
+     * ZooKeeper lock.
+     *
+     * @param resource resource name.
+     * @param wait time out in milliseconds to wait for the lease, -1 means no timeout and 0 no wait.
+     * @return the lease, or <code>null</code> if the resource cannot be leased or the lease could not be acquired.
+     * @throws InterruptedException thrown if the thread was interrupted while waiting for the lease.
+     */
+    private Lease getLease(final String resource, long wait) throws InterruptedException {
+        if (!isLeasable(resource)) {
+            return null;
+        }
+        Lease lease = leases.get(resource);
+        if (lease != null && lease.retain()) {
+            return lease;
+        }
+        final Future<Lease> future;
+        try {
+            future = leaseExecutor.submit(new Callable<Lease>() {
+                @Override
+                public Lease call() throws Exception {
+                    return acquireLease(resource);
+                }
+            });
+        }
+        catch (RejectedExecutionException ex) {
+            // the service is being destroyed
+            return null;
+        }
+        try {
+            return (wait == -1) ? future.get() : future.get(wait, TimeUnit.MILLISECONDS);
+        }
+        catch (ExecutionException ex) {
+            LOG.warn("Could not acquire lease of [{0}]: {1}", resource, ex.getCause().getMessage(), ex.getCause());
+            return null;
+        }
+        catch (TimeoutException ex) {
+            if (!future.cancel(false)) {
+                // the lease is being acquired, the lease thread gives it back once acquired
+                unretainLater(future);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Unretain a lease acquired for a lock request that stopped waiting for it, the lease thread runs it after the
+     * acquisition.
+     */
+    private void unretainLater(final Future<Lease> future) {
+        try {
+            leaseExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Lease lease = future.get();
+                        if (lease != null) {
+                            lease.unretain();
+                        }
+                    }
+                    catch (Exception ex) {
+                        // the lease was not acquired
+                    }
+                }
+            });
+        }
+        catch (RuntimeException ex) {
+            // the service is being destroyed, which releases all leases
+        }
+    }
+
+    /**
+     * Acquire the lease of a resource, it must be invoked by the lease thread.
+     * <p/>
+     * It does not wait for the ZooKeeper lock, if it is held the lock request falls back to a ZooKeeper lock.
+     *
+     * @param resource resource name.
+     * @return the retained lease, or <code>null</code> if the ZooKeeper lock is held.
+     * @throws Exception thrown if the ZooKeeper lock could not be acquired.
+     */
+    private Lease acquireLease(String resource) throws Exception {
+        Lease lease = leases.get(resource);
+        if (lease != null) {
+            if (lease.retain()) {
+                return lease;
+            }
+            // the lease has been revoked but it is still in use
+            return null;
+        }
+        InterProcessMutex mutex = new InterProcessReadWriteLock(zk.getClient(), LOCKS_NODE + resource).writeLock();
+        lease = new Lease(resource, mutex);
+        mutex.makeRevocable(lease);
+        if (!mutex.acquire(0, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        leases.put(resource, lease);
+        incr(INSTR_LEASE_ACQUIRED_COUNTER);
+        return lease;
+    }
+
+    /**
+     * Release the leases that are not in use and revoked, idle or of jobs no longer owned by this server, it must be
+     * invoked by the lease thread.
+     *
+     * @param all release all leases not in use.
+     */
+    private void releaseLeases(boolean all) {
+        long idleSince = System.currentTimeMillis() - leaseIdleTimeout;
+        for (Lease lease : leases.values()) {
+            if (lease.retire(all || lease.getLastUsed() < idleSince || !isLeasable(lease.resource))) {
+                leases.remove(lease.resource, lease);
+                try {
+                    lease.mutex.release();
+                }
+                catch (Exception ex) {
+                    LOG.warn("Could not release lease of [{0}]: {1}", lease.resource, ex.getMessage(), ex);
+                }
+                incr(INSTR_LEASE_RELEASED_COUNTER);
+            }
+        }
+    }
+
+    private void scheduleReleaseLeases() {
+        try {
+            leaseExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    releaseLeases(false);
+                }
+            });
+        }
+        catch (RuntimeException ex) {
+            // the service is being destroyed, which releases all leases
+        }
+    }
+
+    /**
+     * Ask the servers holding the lease of a resource to release it.
+     *
+     * @param resource resource name.
+     * @param lock the ZooKeeper lock of the resource.
+     */
+    private void revokeLeases(String resource, InterProcessMutex lock) {
+        try {
+            List<String> writers = new ArrayList<String>();
+            for (String node : lock.getParticipantNodes()) {
+                if (node.contains(WRITE_LOCK_NAME)) {
+                    writers.add(node);
+                }
+            }
+            for (String node : writers) {
+                Revoker.attemptRevoke(zk.getClient(), node);
+            }
+        }
+        catch (Exception ex) {
+            // the lock node does not exist or the WRITE lock has just been released
+            LOG.trace("Could not revoke lease of [{0}]: {1}", resource, ex.getMessage());
+        }
+    }
+
+    /**
+     * ZooKeeper WRITE lock held by this server on behalf of all the lock requests of a resource.
+     * <p/>
+     * A lease is retained while it is used by a lock token, a revoked lease cannot be retained and it is released when it is
+     * no longer used.
+     */
+    private class Lease implements RevocationListener<InterProcessMutex> {
+        private final String resource;
+        private final InterProcessMutex mutex;
+        private int references = 1;
+        private boolean revoked;
+        private long lastUsed = System.currentTimeMillis();
+
+        private Lease(String resource, InterProcessMutex mutex) {
+            this.resource = resource;
+            this.mutex = mutex;
+        }
+
+        private synchronized boolean retain() {
+            if (revoked) {
+                return false;
+            }
+            references++;
+            return true;
+        }
+
+        private void unretain() {
+            boolean release;
+            synchronized (this) {
+                references--;
+                lastUsed = System.currentTimeMillis();
+                release = revoked && references == 0;
+            }
+            if (release) {
+                scheduleReleaseLeases();
+            }
+        }
+
+        private synchronized long getLastUsed() {
+            return lastUsed;
+        }
+
+        /**
+         * Revoke the lease if it is not in use and it must be released.
+         *
+         * @param release if the lease must be released.
+         * @return <code>true</code> if the lease is revoked and not in use.
+         */
+        private synchronized boolean retire(boolean release) {
+            if (release) {
+                revoked = true;
+            }
+            return revoked && references == 0;
+        }
+
+        private void revoke() {
+            boolean release;
+            synchronized (this) {
+                revoked = true;
+                release = references == 0;
+            }
+            if (release) {
+                scheduleReleaseLeases();
+            }
+        }
+
+        @Override
+        public void revocationRequested(InterProcessMutex forLock) {
+            LOG.debug("Lease of [{0}] revoked", resource);
+            incr(INSTR_LEASE_REVOKED_COUNTER);
+            revoke();
+        }
+    }
+
+    /**
+     * Implementation of {@link LockToken} for locks resolved in memory under a lease.
+     */
+    class LeasedLockToken implements LockToken {
+        private final Lease lease;
+        private final LockToken token;
+
+        private LeasedLockToken(Lease lease, LockToken token) {
+            this.lease = lease;
+            this.token = token;
+        }
+
+        /**
+         * Release the lock.
+         */
+        @Override
+        public void release() {
+            token.release();
+            lease.unretain();
+        }
+    }
+
     /**
      * Implementation of {@link LockToken} for zookeeper locks.
      */
@@ -24,15 +24,26 @@ import org.apache.oozie.util.XLogStreamer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.curator.x.discovery.ServiceInstance;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authentication.client.AuthenticatedURL;
@@ -51,14 +62,29 @@ import org.apache.oozie.util.ZKUtils;
 /**
  * Service that performs streaming of log files over Web Services if enabled in XLogService and collates logs from other Oozie
  * servers.  Requires that a ZooKeeper ensemble is available.
+ * <p/>
+ * The logs of the other Oozie servers are fetched concurrently, a server that does not answer within
+ * {@link #CONF_PEER_TIMEOUT} seconds is reported as unreachable and the logs of the other servers are streamed without it.
  */
 public class ZKXLogStreamingService extends XLogStreamingService implements Service, Instrumentable {
 
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "ZKXLogStreamingService.";
+
+    /**
+     * Timeout in seconds to connect to another Oozie server and to wait for its log data.
+     */
+    public static final String CONF_PEER_TIMEOUT = CONF_PREFIX + "peer.timeout";
+
     private static final String ALL_SERVERS_PARAM = "allservers";
 
+    // the output is flushed at least this often while collating, so the client sees the messages as they are merged
+    private static final long FLUSH_INTERVAL = 1000;
+
     private ZKUtils zk;
     private XLog log;
     private Class<? extends Authenticator> AuthenticatorClass;
+    private int peerTimeout;
+    private ExecutorService fetchExecutor;
 
     /**
      * Initialize the log streaming service.
@@ -81,6 +107,15 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
         } catch (Exception ex) {
             throw new ServiceException(ErrorCode.E0100, ex);
         }
+        peerTimeout = services.getConf().getInt(CONF_PEER_TIMEOUT, 60) * 1000;
+        fetchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ZKXLogStreamingService-fetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     /**
@@ -92,6 +127,10 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
             zk.unregister(this);
         }
         zk = null;
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+        }
+        fetchExecutor = null;
         super.destroy();
     }
 
@@ -141,6 +180,11 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
      * Writer.  It will make sure to not read all of the log messages into memory at the same time to not use up the heap.  If there
      * is a problem talking to one of the other servers, it will ignore that server and prepend a message to the Writer about it.
      * For getting the logs from this server, it won't use the REST API and instead get them directly to be more efficient.
+     * <p/>
+     * The other servers are contacted concurrently, waiting for them at most {@link #CONF_PEER_TIMEOUT} seconds in total.  The
+     * logs are merged with a heap holding the current message of each server, a message is written as soon as it is the earliest
+     * one.  A server that stops sending data for {@link #CONF_PEER_TIMEOUT} seconds while streaming is dropped from the merge.
+     * If the thread is interrupted while waiting for the other servers, the fetches are cancelled and the streaming fails.
      *
      * @param filter
      * @param startTime
@@ -158,8 +202,33 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
         catch (Exception ex) {
             throw new IOException("Issue communicating with ZooKeeper: " + ex.getMessage(), ex);
         }
-        List<TimestampedMessageParser> parsers = new ArrayList<TimestampedMessageParser>(oozies.size());
+        final String jobId = filter.getFilterParams().get(DagXLogInfoService.JOB);
+        // Start fetching the logs of the other servers, so a slow server doesn't delay contacting the others
+        Map<String, Future<BufferedReader>> fetches = new LinkedHashMap<String, Future<BufferedReader>>();
+        Map<String, String> otherUrls = new LinkedHashMap<String, String>();
+        for (ServiceInstance<Map> oozie : oozies) {
+            Map<String, String> oozieMeta = oozie.getPayload();
+            String otherId = oozieMeta.get(ZKUtils.ZKMetadataKeys.OOZIE_ID);
+            if (!otherId.equals(zk.getZKId())) {
+                final String otherUrl = oozieMeta.get(ZKUtils.ZKMetadataKeys.OOZIE_URL);
+                otherUrls.put(otherId, otherUrl);
+                fetches.put(otherId, fetchExecutor.submit(new Callable<BufferedReader>() {
+                    @Override
+                    public BufferedReader call() throws Exception {
+                        BufferedReader reader = fetchOtherLog(otherUrl, jobId);
+                        // the fetch timed out while connecting, nobody will read the logs
+                        if (reader != null && Thread.currentThread().isInterrupted()) {
+                            reader.close();
+                            reader = null;
+                        }
+                        return reader;
+                    }
+                }));
+            }
+        }
+        List<LogSource> sources = new ArrayList<LogSource>(oozies.size());
         try {
+            long deadline = System.currentTimeMillis() + peerTimeout;
             // Create a BufferedReader for getting the logs of each server and put them in a TimestampedMessageParser
             for (ServiceInstance<Map> oozie : oozies) {
                 Map<String, String> oozieMeta = oozie.getPayload();
@@ -168,19 +237,34 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
                 if (otherId.equals(zk.getZKId())) {
                     BufferedReader reader = new XLogStreamer(filter, xLogService.getOozieLogPath(), xLogService.getOozieLogName(),
                                                              xLogService.getOozieLogRotation()).makeReader(startTime, endTime);
-                    parsers.add(new TimestampedMessageParser(reader, filter));
+                    sources.add(new LogSource(otherId, new TimestampedMessageParser(reader, filter), sources.size()));
                 }
-                // If it's another server, we'll have to use the REST API
+                // If it's another server, we wait for its REST API call
                 else {
-                    String otherUrl = oozieMeta.get(ZKUtils.ZKMetadataKeys.OOZIE_URL);
-                    String jobId = filter.getFilterParams().get(DagXLogInfoService.JOB);
+                    Future<BufferedReader> fetch = fetches.get(otherId);
                     try {
-                        BufferedReader reader = fetchOtherLog(otherUrl, jobId);
-                        parsers.add(new SimpleTimestampedMessageParser(reader, filter));
+                        BufferedReader reader = fetch.get(Math.max(deadline - System.currentTimeMillis(), 0),
+                                TimeUnit.MILLISECONDS);
+                        if (reader == null) {
+                            throw new IOException("No logs returned");
+                        }
+                        sources.add(new LogSource(otherId, new SimpleTimestampedMessageParser(reader, filter),
+                                sources.size()));
+                    }
+                    catch (InterruptedException ex) {
+                        // the request is aborted, the fetches are cancelled below
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while retrieving logs for job [" + jobId
+                                + "] from Oozie server with ID [" + otherId + "]");
                     }
-                    catch(IOException ioe) {
+                    catch (Exception ex) {
+                        fetch.cancel(true);
+                        Throwable cause = (ex instanceof ExecutionException) ? ex.getCause() : ex;
+                        if (cause instanceof TimeoutException) {
+                            cause = new IOException("No answer within [" + peerTimeout + "] ms", cause);
+                        }
                         log.warn("Failed to retrieve logs for job [" + jobId + "] from Oozie server with ID [" + otherId
-                                + "] at [" + otherUrl + "]; log information may be incomplete", ioe);
+                                + "] at [" + otherUrls.get(otherId) + "]; log information may be incomplete", cause);
                         badOozies.add(otherId);
                     }
                 }
@@ -199,49 +283,122 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
             }
 
             // If it's just the one server (this server), then we don't need to do any more processing and can just copy it directly
-            if (parsers.size() == 1) {
-                TimestampedMessageParser parser = parsers.get(0);
+            if (sources.size() == 1) {
+                TimestampedMessageParser parser = sources.get(0).parser;
                 parser.processRemaining(writer);
             }
             else {
                 // Now that we have a Reader for each server to get the logs from that server, we have to collate them.  Within each
-                // server, the logs should already be in the correct order, so we can take advantage of that.  We'll use the
-                // BufferedReaders to read the messages from the logs of each server and put them in order without having to bring
-                // every message into memory at the same time.
-                TreeMap<String, TimestampedMessageParser> timestampMap = new TreeMap<String, TimestampedMessageParser>();
-                // populate timestampMap with initial values
-                for (TimestampedMessageParser parser : parsers) {
-                    if (parser.increment()) {
-                        timestampMap.put(parser.getLastTimestamp(), parser);
+                // server, the logs should already be in the correct order, so we can take advantage of that.  A heap holds the
+                // current message of each server, ordered by timestamp and then by server, so messages with the same timestamp
+                // from different servers are all kept.  Only one message per server is in memory at the same time.
+                PriorityQueue<LogSource> heap = new PriorityQueue<LogSource>(Math.max(sources.size(), 1),
+                        LOG_SOURCE_COMPARATOR);
+                // populate the heap with initial values
+                for (LogSource source : sources) {
+                    if (increment(source, writer)) {
+                        heap.add(source);
                     }
                 }
-                while (timestampMap.size() > 1) {
-                    // The first entry will be the earliest based on the timestamp (also removes it) from the map
-                    TimestampedMessageParser earliestParser = timestampMap.pollFirstEntry().getValue();
+                long lastFlush = System.currentTimeMillis();
+                while (heap.size() > 1) {
+                    // The head of the heap is the earliest based on the timestamp
+                    LogSource earliest = heap.poll();
                     // Write the message from that parser at that timestamp
-                    writer.write(earliestParser.getLastMessage());
+                    writer.write(earliest.parser.getLastMessage());
                     // Increment that parser to read the next message
-                    if (earliestParser.increment()) {
-                        // If it still has messages left, put it back in the map with the new last timestamp for it
-                        timestampMap.put(earliestParser.getLastTimestamp(), earliestParser);
+                    if (increment(earliest, writer)) {
+                        // If it still has messages left, put it back in the heap with the new last timestamp for it
+                        heap.add(earliest);
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastFlush >= FLUSH_INTERVAL) {
+                        writer.flush();
+                        lastFlush = now;
                     }
                 }
-                // If there's only one parser left in the map, then we can simply copy the rest of its lines directly to be faster
-                if (timestampMap.size() == 1) {
-                    TimestampedMessageParser parser = timestampMap.values().iterator().next();
-                    writer.write(parser.getLastMessage());  // don't forget the last message read by the parser
-                    parser.processRemaining(writer);
+                // If there's only one parser left in the heap, then we can simply copy the rest of its lines directly to be faster
+                if (heap.size() == 1) {
+                    LogSource source = heap.poll();
+                    writer.write(source.parser.getLastMessage());  // don't forget the last message read by the parser
+                    while (increment(source, writer)) {
+                        writer.write(source.parser.getLastMessage());
+                    }
                 }
             }
         }
         finally {
-            for (TimestampedMessageParser parser : parsers) {
-                parser.closeReader();
+            for (LogSource source : sources) {
+                try {
+                    source.parser.closeReader();
+                }
+                catch (IOException ex) {
+                    log.debug("Could not close the logs of Oozie server [{0}], {1}", source.serverId, ex.getMessage());
+                }
+            }
+            for (Future<BufferedReader> fetch : fetches.values()) {
+                fetch.cancel(true);
             }
             writer.flush();
         }
     }
 
+    /**
+     * Reads the next message of an Oozie server.  If the logs of another server cannot be read, for example because it stopped
+     * sending data, that server is dropped with a message to the Writer about it; if the logs of this server cannot be read, the
+     * streaming fails.
+     *
+     * @param source the logs of the Oozie server
+     * @param writer the Writer the collated logs are sent to
+     * @return true if there is a message, false if there are no messages left or the server was dropped
+     * @throws IOException thrown if the logs of this server or the Writer fail
+     */
+    private boolean increment(LogSource source, Writer writer) throws IOException {
+        try {
+            return source.parser.increment();
+        }
+        catch (IOException ex) {
+            if (source.serverId.equals(zk.getZKId())) {
+                throw ex;
+            }
+            log.warn("Failed to read logs from Oozie server with ID [" + source.serverId + "]; log information may be incomplete",
+                    ex);
+            writer.write("\nUnable to read all the logs from Oozie Server " + source.serverId + " (log information may be "
+                    + "incomplete): " + ex.getMessage() + "\n\n");
+            return false;
+        }
+    }
+
+    /**
+     * The logs of one Oozie server while they are collated.
+     */
+    private static class LogSource {
+        private final String serverId;
+        private final TimestampedMessageParser parser;
+        private final int order;
+
+        private LogSource(String serverId, TimestampedMessageParser parser, int order) {
+            this.serverId = serverId;
+            this.parser = parser;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Orders the Oozie servers by the timestamp of their current message, and by their order in ZooKeeper for the same
+     * timestamp.
+     */
+    private static final Comparator<LogSource> LOG_SOURCE_COMPARATOR = new Comparator<LogSource>() {
+        @Override
+        public int compare(LogSource s1, LogSource s2) {
+            int cmp = s1.parser.getLastTimestamp().compareTo(s2.parser.getLastTimestamp());
+            if (cmp == 0) {
+                cmp = (s1.order < s2.order) ? -1 : ((s1.order == s2.order) ? 0 : 1);
+            }
+            return cmp;
+        }
+    };
+
     /**
      * Creates a connection over HTTP to another Oozie server and asks it for the logs related to the jobId.
      *
@@ -291,6 +448,9 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
         } catch (IllegalAccessException ex) {
             throw new IOException("Could not authenticate, " + ex.getMessage(), ex);
         }
+        // the connection is not open yet, a server that does not answer or stops sending data does not block the streaming
+        conn.setConnectTimeout(peerTimeout);
+        conn.setReadTimeout(peerTimeout);
         if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
             throw new IOException("Unexpected response code [" + conn.getResponseCode() + "], message [" + conn.getResponseMessage()
                     + "]");
@@ -54,6 +54,10 @@ public abstract class BaseJobsServlet extends JsonRestServlet {
                                                   String.class, false, Arrays.asList("GET")),
                 new JsonRestServlet.ParameterInfo(RestConstants.JOBS_BULK_PARAM,
                                                   String.class, false, Arrays.asList("GET")),
+                new JsonRestServlet.ParameterInfo(RestConstants.JOBS_CURSOR_PARAM,
+                                                  String.class, false, Arrays.asList("GET")),
+                new JsonRestServlet.ParameterInfo(RestConstants.JOBS_COUNT_PARAM,
+                                                  Boolean.class, false, Arrays.asList("GET")),
                 new JsonRestServlet.ParameterInfo(
                         RestConstants.JOBS_EXTERNAL_ID_PARAM, String.class,
                         false, Arrays.asList("GET"))));
@@ -115,6 +119,11 @@ public abstract class BaseJobsServlet extends JsonRestServlet {
             startCron();
             sendJsonResponse(response, HttpServletResponse.SC_OK, json);
         }
+        else if (request.getParameter(RestConstants.JOBS_CURSOR_PARAM) != null) {
+            stopCron();
+            streamJobs(request, response);
+            startCron();
+        }
         else {
             stopCron();
             JSONObject json = getJobs(request);
@@ -159,6 +168,19 @@ public abstract class BaseJobsServlet extends JsonRestServlet {
     abstract JSONObject getJobs(HttpServletRequest request)
     throws XServletException, IOException;
 
+    /**
+     * Stream a page of a list of jobs selected with a cursor.  It is not supported by default.
+     *
+     * @param request
+     * @param response
+     * @throws XServletException
+     * @throws IOException
+     */
+    void streamJobs(HttpServletRequest request, HttpServletResponse response)
+    throws XServletException, IOException {
+        throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0302, RestConstants.JOBS_CURSOR_PARAM);
+    }
+
     static void validateJobConfiguration(Configuration conf) throws XServletException {
         if (conf.get(OozieClient.USER_NAME) == null) {
             throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0401,
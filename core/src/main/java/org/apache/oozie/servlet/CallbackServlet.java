@@ -128,7 +128,8 @@ public class CallbackServlet extends JsonRestServlet {
         validateContentType(request, RestConstants.TEXT_CONTENT_TYPE);
         try {
             log.info(XLog.STD, "callback for action [{0}]", actionId);
-            String data = IOUtils.getReaderAsString(request.getReader(), maxDataLen);
+            String data = IOUtils.getReaderAsString(request.getReader(),
+                    callbackService.getMaxCallbackDataLength(maxDataLen));
             Properties props = PropertiesUtils.stringToProperties(data);
             DagEngine dagEngine = Services.get().get(DagEngineService.class).getSystemDagEngine();
             dagEngine.processCallback(actionId, callbackService.getExternalStatus(queryString), props);
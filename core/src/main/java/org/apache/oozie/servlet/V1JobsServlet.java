@@ -18,6 +18,7 @@
 package org.apache.oozie.servlet;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -42,6 +43,7 @@ import org.apache.oozie.ErrorCode;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.WorkflowsInfo;
 import org.apache.oozie.cli.OozieCLI;
+import org.apache.oozie.executor.jpa.WorkflowsJobStreamJPAExecutor;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.client.rest.BulkResponseImpl;
 import org.apache.oozie.client.rest.JsonTags;
@@ -53,6 +55,7 @@ import org.apache.oozie.service.Services;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.util.XmlUtils;
 import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
 
 public class V1JobsServlet extends BaseJobsServlet {
 
@@ -331,6 +334,61 @@ public class V1JobsServlet extends BaseJobsServlet {
         return json;
     }
 
+    /**
+     * v1 service implementation to stream a page of a list of workflows selected with a cursor, with filtering embedded
+     * in the request object.
+     * <p/>
+     * The page of workflows is read from the database and then written to the response, with the cursor of the next
+     * page, and the approximate number of workflows if requested.  Only workflows support cursors.
+     */
+    @Override
+    void streamJobs(HttpServletRequest request, HttpServletResponse response) throws XServletException, IOException {
+        String jobtype = request.getParameter(RestConstants.JOBTYPE_PARAM);
+        if (jobtype != null && !jobtype.contains("wf")) {
+            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0303,
+                    RestConstants.JOBTYPE_PARAM, jobtype);
+        }
+        String filter = request.getParameter(RestConstants.JOBS_FILTER_PARAM);
+        String cursor = request.getParameter(RestConstants.JOBS_CURSOR_PARAM).trim();
+        String lenStr = request.getParameter(RestConstants.LEN_PARAM);
+        final String timeZoneId = request.getParameter(RestConstants.TIME_ZONE_PARAM) == null
+                ? "GMT" : request.getParameter(RestConstants.TIME_ZONE_PARAM);
+        int len = (lenStr != null) ? Integer.parseInt(lenStr) : 50;
+        len = (len < 1) ? 50 : len;
+        boolean count = Boolean.parseBoolean(request.getParameter(RestConstants.JOBS_COUNT_PARAM));
+        DagEngine dagEngine = Services.get().get(DagEngineService.class).getDagEngine(getUser(request));
+        try {
+            // read before writing, an error can still be sent as an error response
+            long total = (count) ? dagEngine.getJobsCount(filter) : -1;
+            WorkflowsJobStreamJPAExecutor.Page page = dagEngine.getJobsPage(filter,
+                    (cursor.length() > 0) ? cursor : null, len);
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(JSTON_UTF8);
+            Writer writer = response.getWriter();
+            writer.write("{\"" + JsonTags.WORKFLOWS_JOBS + "\":[");
+            boolean first = true;
+            for (WorkflowJobBean job : page.getJobs()) {
+                if (!first) {
+                    writer.write(",");
+                }
+                first = false;
+                job.toJSONObject(timeZoneId).writeJSONString(writer);
+            }
+            String nextCursor = page.getNextCursor();
+            writer.write("],\"" + JsonTags.WORKFLOWS_LEN + "\":" + len);
+            if (nextCursor != null) {
+                writer.write(",\"" + JsonTags.WORKFLOWS_NEXT_CURSOR + "\":" + JSONValue.toJSONString(nextCursor));
+            }
+            if (count) {
+                writer.write(",\"" + JsonTags.WORKFLOWS_TOTAL + "\":" + total);
+            }
+            writer.write("}");
+        }
+        catch (DagEngineException ex) {
+            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ex);
+        }
+    }
+
     /**
      * v1 service implementation to get a list of workflows, with filtering or interested windows embedded in the
      * request object
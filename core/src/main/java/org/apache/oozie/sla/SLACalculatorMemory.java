@@ -24,7 +24,6 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -70,7 +69,7 @@ public class SLACalculatorMemory implements SLACalculator {
 
     private static final XLog LOG = XLog.getLog(SLACalculatorMemory.class);
     // TODO optimization priority based insertion/processing/bumping up-down
-    private static Map<String, SLACalcStatus> slaMap;
+    private static ConcurrentHashMap<String, SLACalcStatus> slaMap;
     private static Set<String> historySet;
     private static int capacity;
     private static JPAService jpaService;
@@ -288,87 +287,139 @@ public class SLACalculatorMemory implements SLACalculator {
     protected void updateJobSla(String jobId) throws JPAExecutorException, ServiceException {
         SLACalcStatus slaCalc = slaMap.get(jobId);
         synchronized (slaCalc) {
-            boolean change = false;
-            byte eventProc = slaCalc.getEventProcessed();
-            SLARegistrationBean reg = slaCalc.getSLARegistrationBean();
-            // calculation w.r.t current time and status
-            if ((eventProc & 1) == 0) { // first bit (start-processed) unset
-                if (reg.getExpectedStart() != null) {
-                    if (reg.getExpectedStart().getTime() + jobEventLatency < System.currentTimeMillis()) {
-                        confirmWithDB(slaCalc);
-                        eventProc = slaCalc.getEventProcessed();
-                        if (eventProc != 8 && (eventProc & 1 ) == 0) {
-                            //Some DB exception
-                            slaCalc.setEventStatus(EventStatus.START_MISS);
-                            eventHandler.queueEvent(new SLACalcStatus(slaCalc));
-                            eventProc++;
-                        }
-                        change = true;
-                    }
-                }
-                else {
-                    eventProc++; //disable further processing for optional start sla condition
-                    change = true;
+            SLASummaryBean slaSummaryBean = calculateJobSla(jobId, slaCalc);
+            if (slaSummaryBean != null) {
+                SLASummaryQueryExecutor.getInstance().executeUpdate(
+                        SLASummaryQuery.UPDATE_SLA_SUMMARY_FOR_STATUS_ACTUAL_TIMES, slaSummaryBean);
+                if (slaSummaryBean.getEventProcessed() == 7) {
+                    moveToHistory(jobId, slaCalc);
                 }
             }
-            if (((eventProc >> 1) & 1) == 0 && eventProc != 8) { // check if second bit (duration-processed) is unset
-                if (reg.getExpectedDuration() == -1) {
-                    eventProc += 2;
-                    change = true;
-                }
-                else if (slaCalc.getActualStart() != null) {
-                    if ((reg.getExpectedDuration() + jobEventLatency) < (System.currentTimeMillis() - slaCalc
-                            .getActualStart().getTime())) {
-                        slaCalc.setEventProcessed(eventProc);
-                        confirmWithDB(slaCalc);
-                        eventProc = slaCalc.getEventProcessed();
-                        if (eventProc != 8 && ((eventProc >> 1) & 1 ) == 0) {
-                            //Some DB exception
-                            slaCalc.setEventStatus(EventStatus.DURATION_MISS);
-                            eventHandler.queueEvent(new SLACalcStatus(slaCalc));
-                            eventProc += 2;
-                        }
-                        change = true;
+        }
+    }
+
+    /**
+     * Calculate the SLA of a registered job w.r.t. the current time and its status. The caller must hold the monitor
+     * of the job SLA status.
+     * <p/>
+     * A job with all its events processed is removed from the map, a job with all its SLA processed (event processed
+     * 7) must be moved to the history set by the caller once its summary has been stored.
+     *
+     * @param jobId job id
+     * @param slaCalc SLA status of the job
+     * @return the summary to store, <code>null</code> if the SLA did not change
+     * @throws JPAExecutorException thrown if the job status could not be confirmed with the DB
+     * @throws ServiceException thrown if the SLA event could not be queued
+     */
+    protected SLASummaryBean calculateJobSla(String jobId, SLACalcStatus slaCalc) throws JPAExecutorException,
+            ServiceException {
+        SLASummaryBean slaSummaryBean = null;
+        boolean change = false;
+        byte eventProc = slaCalc.getEventProcessed();
+        SLARegistrationBean reg = slaCalc.getSLARegistrationBean();
+        // calculation w.r.t current time and status
+        if ((eventProc & 1) == 0) { // first bit (start-processed) unset
+            if (reg.getExpectedStart() != null) {
+                if (reg.getExpectedStart().getTime() + jobEventLatency < System.currentTimeMillis()) {
+                    confirmWithDB(slaCalc);
+                    eventProc = slaCalc.getEventProcessed();
+                    if (eventProc != 8 && (eventProc & 1 ) == 0) {
+                        //Some DB exception
+                        slaCalc.setEventStatus(EventStatus.START_MISS);
+                        eventHandler.queueEvent(new SLACalcStatus(slaCalc));
+                        eventProc++;
                     }
+                    change = true;
                 }
             }
-            if (eventProc < 4) {
-                if (reg.getExpectedEnd().getTime() + jobEventLatency < System.currentTimeMillis()) {
+            else {
+                eventProc++; //disable further processing for optional start sla condition
+                change = true;
+            }
+        }
+        if (((eventProc >> 1) & 1) == 0 && eventProc != 8) { // check if second bit (duration-processed) is unset
+            if (reg.getExpectedDuration() == -1) {
+                eventProc += 2;
+                change = true;
+            }
+            else if (slaCalc.getActualStart() != null) {
+                if ((reg.getExpectedDuration() + jobEventLatency) < (System.currentTimeMillis() - slaCalc
+                        .getActualStart().getTime())) {
                     slaCalc.setEventProcessed(eventProc);
                     confirmWithDB(slaCalc);
                     eventProc = slaCalc.getEventProcessed();
+                    if (eventProc != 8 && ((eventProc >> 1) & 1 ) == 0) {
+                        //Some DB exception
+                        slaCalc.setEventStatus(EventStatus.DURATION_MISS);
+                        eventHandler.queueEvent(new SLACalcStatus(slaCalc));
+                        eventProc += 2;
+                    }
                     change = true;
                 }
             }
-            if (change) {
-                if (slaCalc.getEventProcessed() >= 8) { //no more processing, no transfer to history set
-                    eventProc = 8;
-                    slaCalc.setEventProcessed(8); // Should not be > 8. But to handle any corner cases.
-                    slaMap.remove(jobId);
-                }
-                else {
-                    slaCalc.setEventProcessed(eventProc);
-                }
-                SLASummaryBean slaSummaryBean = new SLASummaryBean();
-                slaSummaryBean.setId(slaCalc.getId());
-                slaSummaryBean.setEventProcessed(eventProc);
-                slaSummaryBean.setSLAStatus(slaCalc.getSLAStatus());
-                slaSummaryBean.setEventStatus(slaCalc.getEventStatus());
-                slaSummaryBean.setActualEnd(slaCalc.getActualEnd());
-                slaSummaryBean.setActualStart(slaCalc.getActualStart());
-                slaSummaryBean.setActualDuration(slaCalc.getActualDuration());
-                slaSummaryBean.setJobStatus(slaCalc.getJobStatus());
-                slaSummaryBean.setLastModifiedTime(new Date());
-                SLASummaryQueryExecutor.getInstance().executeUpdate(
-                        SLASummaryQuery.UPDATE_SLA_SUMMARY_FOR_STATUS_ACTUAL_TIMES, slaSummaryBean);
-                if (eventProc == 7) {
-                    historySet.add(jobId);
-                    slaMap.remove(jobId);
-                    LOG.trace("Removed Job [{0}] from map after End-processed", jobId);
-                }
-
+        }
+        if (eventProc < 4) {
+            if (reg.getExpectedEnd().getTime() + jobEventLatency < System.currentTimeMillis()) {
+                slaCalc.setEventProcessed(eventProc);
+                confirmWithDB(slaCalc);
+                eventProc = slaCalc.getEventProcessed();
+                change = true;
+            }
+        }
+        if (change) {
+            if (slaCalc.getEventProcessed() >= 8) { //no more processing, no transfer to history set
+                eventProc = 8;
+                slaCalc.setEventProcessed(8); // Should not be > 8. But to handle any corner cases.
+                slaMap.remove(jobId);
+            }
+            else {
+                slaCalc.setEventProcessed(eventProc);
             }
+            slaSummaryBean = new SLASummaryBean();
+            slaSummaryBean.setId(slaCalc.getId());
+            slaSummaryBean.setEventProcessed(eventProc);
+            slaSummaryBean.setSLAStatus(slaCalc.getSLAStatus());
+            slaSummaryBean.setEventStatus(slaCalc.getEventStatus());
+            slaSummaryBean.setActualEnd(slaCalc.getActualEnd());
+            slaSummaryBean.setActualStart(slaCalc.getActualStart());
+            slaSummaryBean.setActualDuration(slaCalc.getActualDuration());
+            slaSummaryBean.setJobStatus(slaCalc.getJobStatus());
+            slaSummaryBean.setLastModifiedTime(new Date());
         }
+        return slaSummaryBean;
+    }
+
+    /**
+     * Move a job with all its SLA processed from the map to the history set, unless it has been removed or registered
+     * again meanwhile.
+     *
+     * @param jobId job id
+     * @param slaCalc SLA status of the job whose summary has been stored
+     */
+    protected void moveToHistory(String jobId, SLACalcStatus slaCalc) {
+        if (slaMap.remove(jobId, slaCalc)) {
+            historySet.add(jobId);
+            LOG.trace("Removed Job [{0}] from map after End-processed", jobId);
+        }
+    }
+
+    /**
+     * Return the SLA status of a job being tracked in the map.
+     *
+     * @param jobId job id
+     * @return the SLA status, <code>null</code> if the job is not in the map
+     */
+    protected SLACalcStatus getSLACalcStatus(String jobId) {
+        return slaMap.get(jobId);
+    }
+
+    /**
+     * Return the time in milliseconds to account of latency of getting the job status event.
+     *
+     * @return the job event latency
+     */
+    protected long getJobEventLatency() {
+        return jobEventLatency;
     }
 
     /**
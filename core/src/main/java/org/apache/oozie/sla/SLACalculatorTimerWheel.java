@@ -0,0 +1,410 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.sla;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.client.event.JobEvent;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor.UpdateEntry;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.SLASummaryQueryExecutor;
+import org.apache.oozie.executor.jpa.SLASummaryQueryExecutor.SLASummaryQuery;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.ServiceException;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.sla.service.SLAService;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Implementation class for SLACalculator that indexes the jobs of the memory-based map by their next SLA deadline
+ * (expected start, duration or end) in a hierarchical timer wheel.
+ * <p/>
+ * The periodic run only calculates the SLA of the jobs whose deadline is due, instead of iterating through all the
+ * jobs in the map, and stores their summaries in batches. A job is scheduled again after its SLA is calculated, when
+ * it is registered and when its status changes, as its actual start time sets its duration deadline.
+ */
+public class SLACalculatorTimerWheel extends SLACalculatorMemory {
+
+    private static final XLog LOG = XLog.getLog(SLACalculatorTimerWheel.class);
+
+    public static final String INSTRUMENTATION_GROUP = "sla-calculator";
+    private static final String INSTR_TICK = "timer.wheel.tick";
+    private static final String INSTR_DUE_COUNTER = "timer.wheel.due";
+    private static final String INSTR_UPDATES_COUNTER = "timer.wheel.summary.updates";
+    private static final String INSTR_LAG_VARIABLE = "timer.wheel.deadline.lag.max";
+    private static final String INSTR_SIZE_VARIABLE = "timer.wheel.size";
+
+    private static final long TICK_MS = 1000;
+    private static final int LEVELS = 4;
+
+    // the map of jobs is static, so is its index
+    private static volatile TimerWheel<String> wheel;
+
+    // deadline each job is scheduled at, wheel timeouts with another deadline are stale
+    private static final ConcurrentHashMap<String, Long> deadlines = new ConcurrentHashMap<String, Long>();
+    // jobs whose summary calculated by the periodic run is not stored yet, true if a job status event changed them since
+    private static final ConcurrentHashMap<String, Boolean> inFlight = new ConcurrentHashMap<String, Boolean>();
+    private static volatile long maxDeadlineLag;
+    private int batchSize;
+    private Instrumentation instrumentation;
+
+    @Override
+    public void init(Configuration conf) throws ServiceException {
+        batchSize = conf.getInt(SLAService.CONF_SUMMARY_BATCH_SIZE, 500);
+        wheel = new TimerWheel<String>(TICK_MS, LEVELS, System.currentTimeMillis());
+        deadlines.clear();
+        inFlight.clear();
+        super.init(conf);
+        // jobs loaded on restart
+        Iterator<String> iterator = iterator();
+        while (iterator.hasNext()) {
+            schedule(iterator.next());
+        }
+        InstrumentationService instrService = Services.get().get(InstrumentationService.class);
+        if (instrService != null) {
+            instrumentation = instrService.get();
+            Map<String, ?> variables = instrumentation.getVariables().get(INSTRUMENTATION_GROUP);
+            if (variables == null || !variables.containsKey(INSTR_LAG_VARIABLE)) {
+                instrumentation.addVariable(INSTRUMENTATION_GROUP, INSTR_LAG_VARIABLE,
+                        new Instrumentation.Variable<Long>() {
+                            public Long getValue() {
+                                return maxDeadlineLag;
+                            }
+                        });
+                instrumentation.addVariable(INSTRUMENTATION_GROUP, INSTR_SIZE_VARIABLE,
+                        new Instrumentation.Variable<Long>() {
+                            public Long getValue() {
+                                return (long) wheel.size();
+                            }
+                        });
+            }
+        }
+    }
+
+    /**
+     * Return the next time at which the SLA of a job must be calculated. The caller must hold the monitor of the job
+     * SLA status.
+     * <p/>
+     * The SLA of a job is missed once the job event latency after a deadline has passed, the duration deadline is only
+     * known once the job has started.
+     *
+     * @param slaCalc SLA status of the job
+     * @param jobEventLatency time in milliseconds to account of latency of getting the job status event
+     * @return the time in milliseconds, <code>-1</code> if there is no deadline left to check
+     */
+    static long getNextDeadline(SLACalcStatus slaCalc, long jobEventLatency) {
+        byte eventProc = slaCalc.getEventProcessed();
+        if (eventProc >= 7) {
+            return -1;
+        }
+        SLARegistrationBean reg = slaCalc.getSLARegistrationBean();
+        long next = Long.MAX_VALUE;
+        if ((eventProc & 1) == 0) {
+            // no expected start is processed right away
+            next = (reg.getExpectedStart() == null) ? 0 : reg.getExpectedStart().getTime() + jobEventLatency;
+        }
+        if (((eventProc >> 1) & 1) == 0) {
+            if (reg.getExpectedDuration() == -1) {
+                next = 0;
+            }
+            else if (slaCalc.getActualStart() != null) {
+                next = Math.min(next, slaCalc.getActualStart().getTime() + reg.getExpectedDuration()
+                        + jobEventLatency);
+            }
+        }
+        if (eventProc < 4 && reg.getExpectedEnd() != null) {
+            next = Math.min(next, reg.getExpectedEnd().getTime() + jobEventLatency);
+        }
+        // the SLA is missed once the deadline is exceeded
+        return (next == Long.MAX_VALUE) ? -1 : next + 1;
+    }
+
+    /**
+     * Schedule the next SLA calculation of a job in the map.
+     *
+     * @param jobId job id
+     */
+    private void schedule(String jobId) {
+        SLACalcStatus slaCalc = getSLACalcStatus(jobId);
+        if (slaCalc == null) {
+            deadlines.remove(jobId);
+            return;
+        }
+        synchronized (slaCalc) {
+            long deadline = getNextDeadline(slaCalc, getJobEventLatency());
+            if (deadline < 0) {
+                deadlines.remove(jobId);
+            }
+            else {
+                Long previous = deadlines.put(jobId, deadline);
+                if (previous == null || previous != deadline) {
+                    wheel.add(jobId, deadline);
+                }
+            }
+        }
+    }
+
+    /**
+     * Periodically run by the SLAService worker threads to update SLA status of the jobs whose deadline is due
+     */
+    @Override
+    public void updateAllSlaStatus() {
+        Instrumentation.Cron cron = new Instrumentation.Cron();
+        cron.start();
+        long now = System.currentTimeMillis();
+        List<TimerWheel.Timeout<String>> due = wheel.advance(now);
+        LOG.info("Running periodic SLA check, [{0}] jobs due", due.size());
+        List<UpdateEntry> updateList = new ArrayList<UpdateEntry>();
+        List<SLACalcStatus> calculated = new ArrayList<SLACalcStatus>();
+        long maxLag = 0;
+        int processed = 0;
+        for (TimerWheel.Timeout<String> timeout : due) {
+            String jobId = timeout.getItem();
+            // the job has been rescheduled or removed since
+            if (!deadlines.remove(jobId, timeout.getDeadline())) {
+                continue;
+            }
+            SLACalcStatus slaCalc = getSLACalcStatus(jobId);
+            if (slaCalc == null) {
+                continue;
+            }
+            processed++;
+            maxLag = Math.max(maxLag, now - timeout.getDeadline());
+            try {
+                LOG.trace("Processing SLA for jobid={0}", jobId);
+                SLASummaryBean slaSummaryBean = null;
+                synchronized (slaCalc) {
+                    inFlight.put(jobId, Boolean.FALSE);
+                    try {
+                        slaSummaryBean = calculateJobSla(jobId, slaCalc);
+                    }
+                    finally {
+                        if (slaSummaryBean == null) {
+                            inFlight.remove(jobId);
+                        }
+                    }
+                }
+                if (slaSummaryBean != null) {
+                    updateList.add(newUpdateEntry(slaSummaryBean));
+                    calculated.add(slaCalc);
+                }
+            }
+            catch (Exception e) {
+                LOG.error("Exception in SLA processing for job [{0}]", jobId, e);
+            }
+            schedule(jobId);
+            if (updateList.size() >= batchSize) {
+                storeSummaries(updateList, calculated);
+            }
+        }
+        storeSummaries(updateList, calculated);
+        maxDeadlineLag = maxLag;
+        cron.stop();
+        if (instrumentation != null) {
+            instrumentation.addCron(INSTRUMENTATION_GROUP, INSTR_TICK, cron);
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_DUE_COUNTER, processed);
+        }
+    }
+
+    /**
+     * Store the summaries calculated by the periodic run, and move the jobs with all their SLA processed to the history
+     * set once their summary is stored.
+     * <p/>
+     * The monitors of the SLA status of the jobs are not held while the batch is stored, a job status event marks the
+     * job dirty instead. The summary of a dirty job is replaced by its current SLA status before the batch is stored,
+     * or stored again in another batch if the event is processed while the batch is stored, so the summary of the job
+     * status event is never overwritten by a stale one.
+     */
+    @SuppressWarnings("rawtypes")
+    private void storeSummaries(List<UpdateEntry> updateList, List<SLACalcStatus> calculated) {
+        while (!updateList.isEmpty()) {
+            for (int i = updateList.size() - 1; i >= 0; i--) {
+                SLACalcStatus slaCalc = calculated.get(i);
+                String jobId = slaCalc.getId();
+                synchronized (slaCalc) {
+                    SLASummaryBean slaSummaryBean = (SLASummaryBean) updateList.get(i).getBean();
+                    if (Boolean.TRUE.equals(inFlight.put(jobId, Boolean.FALSE))) {
+                        LOG.debug("SLA status of job [{0}] changed since its summary was calculated", jobId);
+                        slaSummaryBean = getCurrentSummary(slaCalc);
+                        updateList.set(i, newUpdateEntry(slaSummaryBean));
+                    }
+                    // the job has been removed or registered again, a job with all its events processed is removed
+                    // from the map by the calculation itself
+                    if (slaSummaryBean.getEventProcessed() != 8 && getSLACalcStatus(jobId) != slaCalc) {
+                        inFlight.remove(jobId);
+                        updateList.remove(i);
+                        calculated.remove(i);
+                    }
+                }
+            }
+            List<String> stored = storeBatch(updateList);
+            List<UpdateEntry> dirtyList = new ArrayList<UpdateEntry>();
+            List<SLACalcStatus> dirtyCalculated = new ArrayList<SLACalcStatus>();
+            for (int i = 0; i < updateList.size(); i++) {
+                SLACalcStatus slaCalc = calculated.get(i);
+                String jobId = slaCalc.getId();
+                synchronized (slaCalc) {
+                    if (Boolean.TRUE.equals(inFlight.get(jobId))) {
+                        LOG.debug("SLA status of job [{0}] changed while its summary was stored, storing it again",
+                                jobId);
+                        dirtyList.add(updateList.get(i));
+                        dirtyCalculated.add(slaCalc);
+                    }
+                    else {
+                        inFlight.remove(jobId);
+                        if (stored.contains(jobId)
+                                && ((SLASummaryBean) updateList.get(i).getBean()).getEventProcessed() == 7) {
+                            moveToHistory(jobId, slaCalc);
+                            deadlines.remove(jobId);
+                        }
+                    }
+                }
+            }
+            if (instrumentation != null) {
+                instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_UPDATES_COUNTER, stored.size());
+            }
+            updateList.clear();
+            calculated.clear();
+            updateList.addAll(dirtyList);
+            calculated.addAll(dirtyCalculated);
+        }
+    }
+
+    /**
+     * Store a batch of summaries, or one by one if the batch fails.
+     *
+     * @param updateList the summaries to store
+     * @return the ids of the jobs whose summary has been stored
+     */
+    @SuppressWarnings("rawtypes")
+    protected List<String> storeBatch(List<UpdateEntry> updateList) {
+        List<String> stored = new ArrayList<String>(updateList.size());
+        try {
+            BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(null, updateList, null);
+            for (UpdateEntry entry : updateList) {
+                stored.add(((SLASummaryBean) entry.getBean()).getId());
+            }
+        }
+        catch (JPAExecutorException ex) {
+            LOG.warn("Could not store [{0}] SLA summaries in a batch, storing them one by one, {1}",
+                    updateList.size(), ex.getMessage(), ex);
+            for (UpdateEntry entry : updateList) {
+                SLASummaryBean slaSummaryBean = (SLASummaryBean) entry.getBean();
+                try {
+                    SLASummaryQueryExecutor.getInstance().executeUpdate(
+                            SLASummaryQuery.UPDATE_SLA_SUMMARY_FOR_STATUS_ACTUAL_TIMES, slaSummaryBean);
+                    stored.add(slaSummaryBean.getId());
+                }
+                catch (JPAExecutorException ex1) {
+                    LOG.error("Exception in SLA processing for job [{0}]", slaSummaryBean.getId(), ex1);
+                }
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Return the summary of the current SLA status of a job. The caller must hold the monitor of the job SLA status.
+     *
+     * @param slaCalc SLA status of the job
+     * @return the summary to store
+     */
+    private SLASummaryBean getCurrentSummary(SLACalcStatus slaCalc) {
+        SLASummaryBean slaSummaryBean = new SLASummaryBean(slaCalc);
+        // a job status event removes the job from the map once all its SLA are processed
+        if (slaCalc.getEventProcessed() == 7 && getSLACalcStatus(slaCalc.getId()) != slaCalc) {
+            slaSummaryBean.setEventProcessed(8);
+        }
+        slaSummaryBean.setLastModifiedTime(new Date());
+        return slaSummaryBean;
+    }
+
+    private static UpdateEntry<SLASummaryQuery> newUpdateEntry(SLASummaryBean slaSummaryBean) {
+        return new UpdateEntry<SLASummaryQuery>(SLASummaryQuery.UPDATE_SLA_SUMMARY_FOR_STATUS_ACTUAL_TIMES,
+                slaSummaryBean);
+    }
+
+    @Override
+    public boolean addRegistration(String jobId, SLARegistrationBean reg) throws JPAExecutorException {
+        boolean added = super.addRegistration(jobId, reg);
+        if (added) {
+            schedule(jobId);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean updateRegistration(String jobId, SLARegistrationBean reg) throws JPAExecutorException {
+        boolean updated = super.updateRegistration(jobId, reg);
+        if (updated) {
+            schedule(jobId);
+        }
+        return updated;
+    }
+
+    @Override
+    public void removeRegistration(String jobId) {
+        super.removeRegistration(jobId);
+        deadlines.remove(jobId);
+    }
+
+    @Override
+    public boolean addJobStatus(String jobId, String jobStatus, JobEvent.EventStatus jobEventStatus, Date startTime,
+            Date endTime) throws JPAExecutorException, ServiceException {
+        boolean hasSla;
+        SLACalcStatus slaCalc = getSLACalcStatus(jobId);
+        if (slaCalc != null) {
+            // a summary of the job being stored by the periodic run is stale, it is stored again after the batch
+            synchronized (slaCalc) {
+                hasSla = super.addJobStatus(jobId, jobStatus, jobEventStatus, startTime, endTime);
+                inFlight.replace(jobId, Boolean.TRUE);
+            }
+        }
+        else {
+            hasSla = super.addJobStatus(jobId, jobStatus, jobEventStatus, startTime, endTime);
+        }
+        schedule(jobId);
+        return hasSla;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        wheel.clear();
+        deadlines.clear();
+        inFlight.clear();
+    }
+
+    /**
+     * Return the number of jobs scheduled in the timer wheel.
+     *
+     * @return the number of jobs scheduled
+     */
+    int getScheduledCount() {
+        return deadlines.size();
+    }
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.sla;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel of items ordered by their deadline.
+ * <p/>
+ * Time is divided in ticks, each level of the wheel has 64 slots, a slot of the first level spans one tick and a slot
+ * of a level spans all the slots of the previous level. Items are placed in the slot of the lowest level that covers
+ * their deadline, and moved to lower levels as time advances, so advancing the wheel only touches the items that are
+ * due and the slots whose span starts. Items whose deadline is beyond all the levels are kept in an overflow list which
+ * is placed again each time the highest level completes a turn.
+ * <p/>
+ * An item is never returned before its deadline, it is returned on the first {@link #advance(long)} after its deadline
+ * rounded up to the next tick.
+ * <p/>
+ * Items are not removed from the wheel, callers must ignore the timeouts that are stale when they are returned.
+ *
+ * @param <T> type of the items
+ */
+public class TimerWheel<T> {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * An item and its deadline.
+     *
+     * @param <T> type of the item
+     */
+    public static class Timeout<T> {
+        private final T item;
+        private final long deadline;
+        private final long deadlineTick;
+
+        private Timeout(T item, long deadline, long deadlineTick) {
+            this.item = item;
+            this.deadline = deadline;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    private final long tickMs;
+    private final int levels;
+    private final List<Timeout<T>>[][] slots;
+    private List<Timeout<T>> overflow = new ArrayList<Timeout<T>>();
+    private List<Timeout<T>> expired = new ArrayList<Timeout<T>>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * Create a timer wheel.
+     *
+     * @param tickMs duration of a tick in milliseconds
+     * @param levels number of levels, the wheel spans <code>64^levels</code> ticks
+     * @param now current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMs, int levels, long now) {
+        if (tickMs <= 0 || levels <= 0 || levels * WHEEL_BITS >= 63) {
+            throw new IllegalArgumentException("Invalid tick [" + tickMs + "] or levels [" + levels + "]");
+        }
+        this.tickMs = tickMs;
+        this.levels = levels;
+        slots = new List[levels][WHEEL_SIZE];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                slots[level][slot] = new ArrayList<Timeout<T>>();
+            }
+        }
+        currentTick = now / tickMs;
+    }
+
+    /**
+     * Add an item to the wheel.
+     *
+     * @param item item
+     * @param deadline deadline of the item in milliseconds, if it has passed the item is returned by the next advance
+     */
+    public synchronized void add(T item, long deadline) {
+        // rounded up, so that the item is never due before its deadline
+        long deadlineTick = deadline / tickMs + ((deadline % tickMs > 0) ? 1 : 0);
+        place(new Timeout<T>(item, deadline, deadlineTick));
+        size++;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            expired.add(timeout);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            if (delta < 1L << (WHEEL_BITS * (level + 1))) {
+                slots[level][(int) ((timeout.deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].add(timeout);
+                return;
+            }
+        }
+        overflow.add(timeout);
+    }
+
+    /**
+     * Advance the wheel to the given time.
+     *
+     * @param now current time in milliseconds
+     * @return the timeouts due, in no particular order
+     */
+    public synchronized List<Timeout<T>> advance(long now) {
+        long nowTick = now / tickMs;
+        List<Timeout<T>> due = new ArrayList<Timeout<T>>(expired);
+        expired.clear();
+        long span = 1L << (WHEEL_BITS * levels);
+        if (nowTick - currentTick >= span) {
+            // not advanced for longer than the wheel spans, it is cheaper to place all the items again
+            List<Timeout<T>> all = new ArrayList<Timeout<T>>(overflow);
+            overflow = new ArrayList<Timeout<T>>();
+            for (List<Timeout<T>>[] levelSlots : slots) {
+                for (List<Timeout<T>> slot : levelSlots) {
+                    all.addAll(slot);
+                    slot.clear();
+                }
+            }
+            currentTick = nowTick;
+            for (Timeout<T> timeout : all) {
+                place(timeout);
+            }
+        }
+        while (currentTick < nowTick) {
+            currentTick++;
+            if ((currentTick & (span - 1)) == 0) {
+                List<Timeout<T>> list = overflow;
+                overflow = new ArrayList<Timeout<T>>();
+                for (Timeout<T> timeout : list) {
+                    place(timeout);
+                }
+            }
+            // higher levels first, their items may move to the slots of lower levels starting at this tick
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(slots[level][(int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)]);
+                }
+            }
+            List<Timeout<T>> slot = slots[0][(int) (currentTick & WHEEL_MASK)];
+            due.addAll(slot);
+            slot.clear();
+        }
+        due.addAll(expired);
+        expired.clear();
+        size -= due.size();
+        return due;
+    }
+
+    private void cascade(List<Timeout<T>> slot) {
+        if (!slot.isEmpty()) {
+            List<Timeout<T>> list = new ArrayList<Timeout<T>>(slot);
+            slot.clear();
+            for (Timeout<T> timeout : list) {
+                place(timeout);
+            }
+        }
+    }
+
+    /**
+     * Return the number of items in the wheel.
+     *
+     * @return the number of items in the wheel
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Remove all the items from the wheel.
+     */
+    public synchronized void clear() {
+        for (List<Timeout<T>>[] levelSlots : slots) {
+            for (List<Timeout<T>> slot : levelSlots) {
+                slot.clear();
+            }
+        }
+        overflow.clear();
+        expired.clear();
+        size = 0;
+    }
+
+}
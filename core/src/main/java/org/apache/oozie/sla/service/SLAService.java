@@ -41,6 +41,7 @@ public class SLAService implements Service {
     public static final String CONF_ALERT_EVENTS = CONF_PREFIX + "alert.events";
     public static final String CONF_EVENTS_MODIFIED_AFTER = CONF_PREFIX + "events.modified.after";
     public static final String CONF_JOB_EVENT_LATENCY = CONF_PREFIX + "job.event.latency";
+    public static final String CONF_SUMMARY_BATCH_SIZE = CONF_PREFIX + "timer.wheel.batch.size";
 
     private static SLACalculator calcImpl;
     private static boolean slaEnabled = false;
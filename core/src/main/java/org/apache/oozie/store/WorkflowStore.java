@@ -34,6 +34,7 @@ import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.WorkflowsInfo;
 import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.client.WorkflowJob.Status;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor;
@@ -112,6 +113,10 @@ public class WorkflowStore extends Store {
         doOperation("insertWorkflow", new Callable<Void>() {
             public Void call() throws SQLException, StoreException, WorkflowException {
                 entityManager.persist(workflow);
+                for (JsonBean bean : workflow.getDefinitionBeans()) {
+                    entityManager.persist(bean);
+                }
+                workflow.clearDefinitionBeans();
                 return null;
             }
         });
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.oozie.service.Services;
+
+/**
+ * Size-bounded LRU cache of values derived from a content, keyed by the SHA-256 hash of the content.
+ * <p/>
+ * The maximum number of entries is read from the Oozie configuration on every insertion, <code>0</code> or no
+ * {@link Services} disable the cache.
+ */
+public class ContentHashCache<V> {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String sizeProperty;
+    private final int defaultSize;
+    private final Map<String, V> cache = new LinkedHashMap<String, V>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > getMaxSize();
+        }
+    };
+
+    /**
+     * Create a cache.
+     *
+     * @param sizeProperty configuration property with the maximum number of entries.
+     * @param defaultSize maximum number of entries if the property is not set.
+     */
+    public ContentHashCache(String sizeProperty, int defaultSize) {
+        this.sizeProperty = sizeProperty;
+        this.defaultSize = defaultSize;
+    }
+
+    /**
+     * Return the maximum number of entries.
+     *
+     * @return the maximum number of entries, <code>0</code> if the cache is disabled.
+     */
+    public int getMaxSize() {
+        Services services = Services.get();
+        return (services != null) ? services.getConf().getInt(sizeProperty, defaultSize) : 0;
+    }
+
+    /**
+     * Return the key of a content.
+     *
+     * @param content the content.
+     * @return the hex SHA-256 hash of the content.
+     */
+    public static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes("UTF-8"));
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(chars);
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("It should not happen, " + ex.getMessage(), ex);
+        }
+        catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException("It should not happen, " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Return a cached value.
+     *
+     * @param key key of the content, see {@link #hash(String)}.
+     * @return the cached value, <code>null</code> if not cached.
+     */
+    public synchronized V get(String key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Cache a value, evicting the least recently used value if the cache is full.
+     *
+     * @param key key of the content, see {@link #hash(String)}.
+     * @param value value to cache.
+     */
+    public synchronized void put(String key, V value) {
+        cache.put(key, value);
+    }
+
+    /**
+     * Return the number of cached values.
+     *
+     * @return the number of cached values.
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Remove all the cached values.
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+}
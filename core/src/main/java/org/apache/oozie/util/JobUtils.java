@@ -133,4 +133,29 @@ public class JobUtils {
 
         return map;
     }
+
+    /**
+     * Return the job type of an entity key, such as a lock resource or the entity key of a command: a workflow,
+     * coordinator or bundle job ID, optionally followed by <code>@</code> and an action name or number.
+     *
+     * @param entityKey entity key.
+     * @return the job type: <code>wf</code>, <code>coord</code>, <code>bundle</code> or <code>other</code>.
+     */
+    public static String getJobType(String entityKey) {
+        if (entityKey != null) {
+            int index = entityKey.indexOf('@');
+            String id = (index == -1) ? entityKey : entityKey.substring(0, index);
+            if (id.length() > 2 && id.charAt(id.length() - 2) == '-') {
+                switch (id.charAt(id.length() - 1)) {
+                    case 'W':
+                        return "wf";
+                    case 'C':
+                        return "coord";
+                    case 'B':
+                        return "bundle";
+                }
+            }
+        }
+        return "other";
+    }
 }
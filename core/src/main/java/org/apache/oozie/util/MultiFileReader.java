@@ -24,16 +24,21 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
 /**
  * Implementation of a {@link Reader} which can be used to read in multiple files sequentially.  That is, when the first file ends
  * it will silently move to the next file and so on.  If the file has a ".gz" extension, this Reader will properly handle it; all
  * other types of files will simply be read using a {@link FileReader}.
+ * <p/>
+ * Only the selected blocks of the files with an {@link XLogIndex} selection are read.
  */
 public class MultiFileReader extends Reader {
 
     private ArrayList<File> files;
+    private Map<File, XLogIndex.Selection> selections;
     private int index;
     private Reader reader;
     private boolean closed;
@@ -45,7 +50,20 @@ public class MultiFileReader extends Reader {
      * @throws IOException If there was a problem opening the first file
      */
     public MultiFileReader(ArrayList<File> files) throws IOException {
+        this(files, Collections.<File, XLogIndex.Selection>emptyMap());
+    }
+
+    /**
+     * Constructs the MultiFileReader with the given files, reading only the selected blocks of the indexed files.  The
+     * files will be read in the order given in the ArrayList.
+     *
+     * @param files The files to read
+     * @param selections The selected blocks of the indexed files
+     * @throws IOException If there was a problem opening the first file
+     */
+    public MultiFileReader(ArrayList<File> files, Map<File, XLogIndex.Selection> selections) throws IOException {
         this.files = files;
+        this.selections = selections;
         closed = false;
         index = 0;
         reader = null;
@@ -74,9 +92,18 @@ public class MultiFileReader extends Reader {
     }
 
     private void openNextReader() throws IOException {
+        // files without any selected block are skipped
+        while (index < files.size() && selections.containsKey(files.get(index))
+                && selections.get(files.get(index)).getBlocks().isEmpty()) {
+            index++;
+        }
         if (index < files.size()) {
+            // indexed files
+            if (selections.containsKey(files.get(index))) {
+                reader = selections.get(files.get(index)).openReader(files.get(index));
+            }
             // gzip files
-            if (files.get(index).getName().endsWith(".gz")) {
+            else if (files.get(index).getName().endsWith(".gz")) {
                 GZIPInputStream gzipInputStream = new GZIPInputStream(new FileInputStream(files.get(index)));
                 reader = new InputStreamReader(gzipInputStream);
             }
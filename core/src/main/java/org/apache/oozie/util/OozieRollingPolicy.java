@@ -18,6 +18,7 @@
 package org.apache.oozie.util;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
@@ -26,8 +27,12 @@ import java.util.regex.Matcher;
 import org.apache.log4j.Appender;
 import org.apache.log4j.rolling.RollingPolicyBase;
 import org.apache.log4j.rolling.RolloverDescription;
+import org.apache.log4j.rolling.RolloverDescriptionImpl;
 import org.apache.log4j.rolling.TimeBasedRollingPolicy;
 import org.apache.log4j.rolling.TriggeringPolicy;
+import org.apache.log4j.rolling.helper.Action;
+import org.apache.log4j.rolling.helper.ActionBase;
+import org.apache.log4j.rolling.helper.GZCompressAction;
 import org.apache.log4j.spi.LoggingEvent;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.XLogService;
@@ -35,6 +40,9 @@ import org.apache.oozie.service.XLogService;
 /**
  * Has the same behavior as the TimeBasedRollingPolicy.  Additionally, it will delete older logs (MaxHistory determines how many
  * older logs are retained).
+ * <p/>
+ * If Indexed is set, rolled logs get an {@link XLogIndex} so that the log of a job can be streamed without reading the whole
+ * files, and they are compressed as blocks if the FileNamePattern ends with ".gz".
  */
 public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringPolicy {
 
@@ -48,6 +56,8 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
     private Thread deleteThread;
     
     private int maxHistory = 720;       // (720 hours / 24 hours per day = 30 days) as default
+
+    private boolean indexed = false;
     
     public int getMaxHistory() {
         return maxHistory;
@@ -56,6 +66,14 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
     public void setMaxHistory(int maxHistory) {
         this.maxHistory = maxHistory;
     }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
     
     public OozieRollingPolicy() {
         deleteSem = new Semaphore(1);
@@ -77,7 +95,57 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
     
     @Override
     public RolloverDescription rollover(final String activeFile) throws SecurityException {
-        return tbrp.rollover(activeFile);
+        RolloverDescription description = tbrp.rollover(activeFile);
+        if (indexed && description != null) {
+            // the gzip compression is replaced by a compression as blocks
+            boolean compress = description.getAsynchronous() instanceof GZCompressAction;
+            description = new RolloverDescriptionImpl(description.getActiveFileName(), description.getAppend(),
+                    description.getSynchronous(), new IndexAction(new File(activeFile),
+                            compress ? null : description.getAsynchronous(), compress));
+        }
+        return description;
+    }
+
+    /**
+     * Action that indexes the rolled logs that do not have an index yet, compressing them as blocks if required.
+     */
+    static class IndexAction extends ActionBase {
+        private final File activeFile;
+        private final Action action;
+        private final boolean compress;
+
+        IndexAction(File activeFile, Action action, boolean compress) {
+            this.activeFile = activeFile;
+            this.action = action;
+            this.compress = compress;
+        }
+
+        @Override
+        public boolean execute() throws IOException {
+            if (action != null) {
+                action.execute();
+            }
+            File dir = activeFile.getAbsoluteFile().getParentFile();
+            String[] children = dir.list();
+            if (children != null) {
+                for (String child : children) {
+                    if (!child.startsWith(activeFile.getName()) || child.equals(activeFile.getName())
+                            || child.endsWith(".zip")) {
+                        continue;
+                    }
+                    File file = new File(dir, child);
+                    if (compress && !child.endsWith(".gz")) {
+                        XLogIndex.compress(file, new File(dir, child + ".gz"), XLogIndex.DEFAULT_BLOCK_SIZE);
+                        file.delete();
+                        XLogIndex.getIndexFile(file).delete();
+                    }
+                    else if (!compress && !child.endsWith(".gz") && !XLogIndex.getIndexFile(file).exists()) {
+                        XLogIndex.index(file, XLogIndex.DEFAULT_BLOCK_SIZE);
+                    }
+                }
+            }
+            return true;
+        }
     }
     
     @Override
@@ -134,7 +202,9 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
             Collections.sort(fileList);
             
             for (int i = maxHistory; i < fileList.size(); i++) {
-                new File(fileList.get(i).getFileName()).delete();
+                File file = new File(fileList.get(i).getFileName());
+                file.delete();
+                XLogIndex.getIndexFile(file).delete();
             }
         }
     }
@@ -346,18 +346,30 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
         if (queueElement.inQueue) {
             throw new IllegalStateException("queueElement already in a queue");
         }
-        if (!ignoreSize && currentSize != null && currentSize.get() >= maxSize) {
-            return false;
+        if (currentSize != null) {
+            // the size is reserved before inserting, with a compare-and-set, so concurrent offers cannot exceed it
+            if (ignoreSize) {
+                currentSize.incrementAndGet();
+            }
+            else {
+                int size;
+                do {
+                    size = currentSize.get();
+                    if (size >= maxSize) {
+                        return false;
+                    }
+                } while (!currentSize.compareAndSet(size, size + 1));
+            }
         }
         boolean accepted = queues[queueElement.getPriority()].offer(queueElement);
         debug("offer([{0}]), to P[{1}] delay[{2}ms] accepted[{3}]", queueElement.getElement().toString(),
               queueElement.getPriority(), queueElement.getDelay(TimeUnit.MILLISECONDS), accepted);
         if (accepted) {
-            if (currentSize != null) {
-                currentSize.incrementAndGet();
-            }
             queueElement.inQueue = true;
         }
+        else if (currentSize != null) {
+            currentSize.decrementAndGet();
+        }
         return accepted;
     }
 
@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * A {@link PollablePriorityDelayQueue} that parks consumers on a condition instead of sleep-polling.
+ * <p/>
+ * Producers insert directly into the per-priority sub-queues, each <code>DelayQueue</code> guarding itself with its
+ * own lock, so offers do not contend on the queue lock. The queue lock is only taken by consumers and, when there are
+ * parked consumers, by producers to signal them.
+ * <p/>
+ * Consumers follow a leader/follower scheme: at most one parked consumer (the leader) waits with a timeout set to the
+ * delay of the element that expires next, the rest wait until signaled. This wakes exactly one thread at the delay
+ * deadline instead of every consumer every 10ms.
+ * <p/>
+ * Elements that are expired but not {@link #eligibleToPoll(QueueElement)} do not cause consumers to spin, consumers
+ * wait until {@link #eligibilityChanged()} is invoked or, at most, {@link #ANTI_STARVATION_INTERVAL} milliseconds.
+ */
+public class SignalingPriorityDelayQueue<E> extends PollablePriorityDelayQueue<E> {
+
+    private final Condition available = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private Thread leader;
+
+    /**
+     * Create a <code>SignalingPriorityDelayQueue</code>.
+     *
+     * @param priorities number of priorities the queue will support.
+     * @param maxWait max wait time for elements before they are promoted to the next higher priority.
+     * @param unit time unit of the max wait time.
+     * @param maxSize maximum size of the queue, -1 means unbounded.
+     */
+    public SignalingPriorityDelayQueue(int priorities, long maxWait, TimeUnit unit, int maxSize) {
+        super(priorities, maxWait, unit, maxSize);
+    }
+
+    /**
+     * Insert the specified {@link QueueElement} element into the queue and wake up a parked consumer, if any.
+     *
+     * @param queueElement the {@link QueueElement} element to add.
+     * @param ignoreSize if the queue is bound to a maximum size and the maximum size is reached, this parameter (if set
+     * to <tt>true</tt>) allows to ignore the maximum size and add the element to the queue.
+     *
+     * @return <tt>true</tt> if the element has been inserted, <tt>false</tt> if the element was not inserted (the queue
+     *         has reached its maximum size).
+     */
+    @Override
+    boolean offer(QueueElement<E> queueElement, boolean ignoreSize) {
+        boolean accepted = super.offer(queueElement, ignoreSize);
+        if (accepted) {
+            signalWaiters(false);
+        }
+        return accepted;
+    }
+
+    /**
+     * Notify the queue that elements which were not eligible to poll may have become eligible.
+     * <p/>
+     * This is a no-op if there are no parked consumers.
+     */
+    public void eligibilityChanged() {
+        signalWaiters(true);
+    }
+
+    /**
+     * Wake up parked consumers.
+     * <p/>
+     * The waiters counter is incremented by consumers before their last poll attempt, so an element inserted
+     * concurrently is either seen by that poll or the producer sees the waiter and signals it.
+     *
+     * @param all if all parked consumers should be signaled, otherwise only one is.
+     */
+    private void signalWaiters(boolean all) {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                // the leader deadline may not be valid anymore, a signaled consumer will become the new leader
+                leader = null;
+                if (all) {
+                    available.signalAll();
+                }
+                else {
+                    available.signal();
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Return the delay, in milliseconds, of the element that expires next.
+     * <p/>
+     * It must be called holding the queue lock.
+     *
+     * @return the delay of the element that expires next, <tt>Long.MAX_VALUE</tt> if the queue is empty.
+     */
+    private long nextDelay() {
+        long delay = Long.MAX_VALUE;
+        for (DelayQueue<QueueElement<E>> queue : queues) {
+            QueueElement<E> e = queue.peek();
+            if (e != null) {
+                delay = Math.min(delay, e.getDelay(TimeUnit.MILLISECONDS));
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * Poll the queue, parking the calling thread until an element is available or the deadline is reached.
+     *
+     * @param deadline deadline in nanoseconds (<tt>System.nanoTime()</tt> based), <tt>Long.MAX_VALUE</tt> means no
+     * deadline.
+     * @return the head of this queue, or <tt>null</tt> if the deadline was reached before an element is available.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private QueueElement<E> awaitPoll(long deadline) throws InterruptedException {
+        QueueElement<E> e = poll();
+        if (e != null) {
+            return e;
+        }
+        lock.lockInterruptibly();
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                e = poll();
+                if (e != null) {
+                    return e;
+                }
+                long remaining = (deadline == Long.MAX_VALUE) ? Long.MAX_VALUE : deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                long delay = nextDelay();
+                if (delay <= 0) {
+                    // expired elements not eligible to poll, wait for an eligibility change
+                    delay = ANTI_STARVATION_INTERVAL;
+                }
+                if (delay == Long.MAX_VALUE || leader != null) {
+                    if (remaining == Long.MAX_VALUE) {
+                        available.await();
+                    }
+                    else {
+                        available.awaitNanos(remaining);
+                    }
+                }
+                else {
+                    Thread thisThread = Thread.currentThread();
+                    leader = thisThread;
+                    try {
+                        available.awaitNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(delay)));
+                    }
+                    finally {
+                        if (leader == thisThread) {
+                            leader = null;
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            waiters.decrementAndGet();
+            // hand over the leadership to a follower if there are more elements
+            if (leader == null && waiters.get() > 0 && nextDelay() != Long.MAX_VALUE) {
+                available.signal();
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieve and removes the head of this queue, waiting if necessary until an element becomes available.
+     *
+     * @return the head of this queue
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public QueueElement<E> take() throws InterruptedException {
+        return awaitPoll(Long.MAX_VALUE);
+    }
+
+    /**
+     * Retrieve and removes the head of this queue, waiting up to the specified wait time if necessary for an element
+     * to become available.
+     *
+     * @param timeout how long to wait before giving up, in units of <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the <tt>timeout</tt> parameter
+     * @return the head of this queue, or <tt>null</tt> if the specified waiting time elapses before an element is
+     *         available
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public QueueElement<E> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitPoll(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Insert the specified element into this queue.
+     * <p/>
+     * IMPORTANT: This implementation forces the addition of the element to the queue regardless of the queue current
+     * size.
+     *
+     * @param e the element to add
+     */
+    @Override
+    public void put(QueueElement<E> e) {
+        offer(e, true);
+    }
+
+}
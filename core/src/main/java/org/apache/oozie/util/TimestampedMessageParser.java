@@ -131,15 +131,17 @@ public class TimestampedMessageParser {
      * @throws IOException
      */
     protected String parseNextLine() throws IOException {
+        // a loop and not a recursion, a long run of lines of other jobs would overflow the stack
         String line = reader.readLine();
-        if (line != null) {
+        while (line != null) {
             ArrayList<String> logParts = filter.splitLogMessage(line);
             if (logParts != null) {
                 patternMatched = filter.matches(logParts);
             }
-            if (!patternMatched) {
-                line = parseNextLine();
+            if (patternMatched) {
+                break;
             }
+            line = reader.readLine();
         }
         return line;
     }
@@ -27,13 +27,23 @@ import org.w3c.dom.Text;
 import org.xml.sax.SAXException;
 import org.xml.sax.InputSource;
 
+import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
@@ -42,9 +52,30 @@ import java.util.regex.Pattern;
 /**
  * Extends Hadoop Configuration providing a new constructor which reads an XML configuration from an InputStream. <p/>
  * OConfiguration(InputStream is).
+ * <p/>
+ * The XML configuration is read with a streaming StAX parser, a DOM is built only for configurations with XIncludes.
  */
 public class XConfiguration extends Configuration {
 
+    private static final String XINCLUDE_NS = "http://www.w3.org/2001/XInclude";
+
+    /**
+     * Thrown by the streaming parser when the XML configuration has XIncludes, it does not process them.
+     */
+    private static class XIncludeException extends XMLStreamException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            return factory;
+        }
+    };
+
     /**
      * Create an empty configuration. <p/> Default values are not loaded.
      */
@@ -233,30 +264,180 @@ public class XConfiguration extends Configuration {
         return resolved;
     }
 
-    // Canibalized from Hadoop <code>Configuration.loadResource()</code>.
     private void parse(InputStream is) throws IOException {
-        try {
-            DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-            // support for includes in the xml file
-            docBuilderFactory.setNamespaceAware(true);
-            docBuilderFactory.setXIncludeAware(true);
-            // ignore all comments inside the xml file
-            docBuilderFactory.setIgnoringComments(true);
-            DocumentBuilder builder = docBuilderFactory.newDocumentBuilder();
-            Document doc = builder.parse(is);
-            parseDocument(doc);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IOUtils.copyStream(is, baos);
+        setAll(parseProperties(baos.toByteArray()));
+    }
+
+    private void parse(Reader reader) throws IOException {
+        StringWriter writer = new StringWriter();
+        IOUtils.copyCharStream(reader, writer);
+        setAll(parseProperties(writer.toString()));
+    }
 
+    private void setAll(List<String> properties) {
+        for (int i = 0; i < properties.size(); i += 2) {
+            set(properties.get(i), properties.get(i + 1));
         }
-        catch (SAXException e) {
+    }
+
+    /**
+     * Parse an XML configuration.
+     *
+     * @param xml the XML configuration.
+     * @return the property names and values, alternated, in the order of the XML configuration.
+     * @throws IOException thrown if the XML configuration could not be parsed.
+     */
+    static List<String> parseProperties(String xml) throws IOException {
+        List<String> properties = new ArrayList<String>();
+        try {
+            XMLStreamReader reader = INPUT_FACTORY.get().createXMLStreamReader(new StringReader(xml));
+            try {
+                parseDocument(reader, properties);
+                return properties;
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (XIncludeException e) {
+            properties.clear();
+        }
+        catch (XMLStreamException e) {
             throw new IOException(e);
         }
-        catch (ParserConfigurationException e) {
+        parseDocument(parseDom(new InputSource(new StringReader(xml))), properties);
+        return properties;
+    }
+
+    private static List<String> parseProperties(byte[] xml) throws IOException {
+        List<String> properties = new ArrayList<String>();
+        try {
+            XMLStreamReader reader = INPUT_FACTORY.get().createXMLStreamReader(new ByteArrayInputStream(xml));
+            try {
+                parseDocument(reader, properties);
+                return properties;
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (XIncludeException e) {
+            properties.clear();
+        }
+        catch (XMLStreamException e) {
             throw new IOException(e);
         }
+        parseDocument(parseDom(new InputSource(new ByteArrayInputStream(xml))), properties);
+        return properties;
+    }
+
+    /**
+     * Parse the properties of an XML configuration with a streaming parser.
+     *
+     * @param reader the streaming parser.
+     * @param properties list the property names and values are added to.
+     * @throws XMLStreamException thrown if the XML configuration could not be parsed, {@link XIncludeException} if
+     * it has XIncludes.
+     * @throws IOException thrown if the XML configuration is not a configuration.
+     */
+    private static void parseDocument(XMLStreamReader reader, List<String> properties)
+            throws XMLStreamException, IOException {
+        while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+        }
+        if (!reader.isStartElement() || !"configuration".equals(getTagName(reader))) {
+            throw new IOException("bad conf file: top-level element not <configuration>");
+        }
+        processNodes(reader, properties);
+    }
+
+    // Same as processNodes() for a DOM, the reader is at the start of a <configuration> element and it is left at its
+    // end.
+    private static void processNodes(XMLStreamReader reader, List<String> properties)
+            throws XMLStreamException, IOException {
+        int event;
+        while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String tagName = getTagName(reader);
+            if (tagName.equals("configuration")) {
+                processNodes(reader, properties);
+                continue;
+            }
+            if (!"property".equals(tagName)) {
+                throw new IOException("bad conf file: element not <property>");
+            }
+            String attr = null;
+            String value = null;
+            while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String field = getTagName(reader);
+                String text = getText(reader);
+                if ("name".equals(field) && text != null) {
+                    attr = text.trim();
+                }
+                if ("value".equals(field) && text != null) {
+                    value = text;
+                }
+            }
+            if (attr != null && value != null) {
+                properties.add(attr);
+                properties.add(value);
+            }
+        }
+    }
+
+    // The text of the element the reader is at the start of, null if it has no text. The reader is left at the end of
+    // the element.
+    private static String getText(XMLStreamReader reader) throws XMLStreamException {
+        String text = null;
+        int depth = 0;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    checkXInclude(reader);
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == 0) {
+                        return text;
+                    }
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (depth == 0) {
+                        text = (text == null) ? reader.getText() : text + reader.getText();
+                    }
+                    break;
+                default:
+            }
+        }
+    }
+
+    private static void checkXInclude(XMLStreamReader reader) throws XIncludeException {
+        if (XINCLUDE_NS.equals(reader.getNamespaceURI())) {
+            throw new XIncludeException();
+        }
+    }
+
+    // The qualified name of the element, as Element.getTagName() of a DOM. XIncludes are checked for here as the name
+    // of every element is read.
+    private static String getTagName(XMLStreamReader reader) throws XIncludeException {
+        checkXInclude(reader);
+        String prefix = reader.getPrefix();
+        String localName = reader.getLocalName();
+        return (prefix == null || prefix.equals(XMLConstants.DEFAULT_NS_PREFIX)) ? localName
+                : prefix + ":" + localName;
     }
 
     // Canibalized from Hadoop <code>Configuration.loadResource()</code>.
-    private void parse(Reader reader) throws IOException {
+    private static Document parseDom(InputSource source) throws IOException {
         try {
             DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
             // support for includes in the xml file
@@ -265,8 +446,7 @@ public class XConfiguration extends Configuration {
             // ignore all comments inside the xml file
             docBuilderFactory.setIgnoringComments(true);
             DocumentBuilder builder = docBuilderFactory.newDocumentBuilder();
-            Document doc = builder.parse(new InputSource(reader));
-            parseDocument(doc);
+            return builder.parse(source);
         }
         catch (SAXException e) {
             throw new IOException(e);
@@ -277,16 +457,16 @@ public class XConfiguration extends Configuration {
     }
 
     // Canibalized from Hadoop <code>Configuration.loadResource()</code>.
-    private void parseDocument(Document doc) throws IOException {
+    private static void parseDocument(Document doc, List<String> properties) throws IOException {
         Element root = doc.getDocumentElement();
         if (!"configuration".equals(root.getTagName())) {
             throw new IOException("bad conf file: top-level element not <configuration>");
         }
-        processNodes(root);
+        processNodes(root, properties);
     }
 
     // Canibalized from Hadoop <code>Configuration.loadResource()</code>.
-    private void processNodes(Element root) throws IOException {
+    private static void processNodes(Element root, List<String> properties) throws IOException {
         try {
             NodeList props = root.getChildNodes();
             for (int i = 0; i < props.getLength(); i++) {
@@ -296,7 +476,7 @@ public class XConfiguration extends Configuration {
                 }
                 Element prop = (Element) propNode;
                 if (prop.getTagName().equals("configuration")) {
-                    processNodes(prop);
+                    processNodes(prop, properties);
                     continue;
                 }
                 if (!"property".equals(prop.getTagName())) {
@@ -319,7 +499,8 @@ public class XConfiguration extends Configuration {
                     }
                 }
                 if (attr != null && value != null) {
-                    set(attr, value);
+                    properties.add(attr);
+                    properties.add(value);
                 }
             }
 
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Cache of parsed XML configurations, for the job configurations that are parsed again every time a command runs.
+ * <p/>
+ * The cache keeps the parsed properties of the most recently used XML configurations, keyed by the SHA-256 hash of
+ * their content, as immutable arrays. Every call returns a new {@link XConfiguration} with the cached properties, so
+ * callers can modify it. The property names and the short values are interned, the configurations of different jobs
+ * share them.
+ * <p/>
+ * The number of cached configurations is set by the {@link #CONF_CACHE_SIZE} property, <code>0</code> disables the
+ * cache.
+ */
+public class XConfigurationCache {
+
+    public static final String CONF_CACHE_SIZE = "oozie.configuration.cache.size";
+
+    static final int MAX_INTERNED_VALUE_LENGTH = 64;
+
+    private static final ContentHashCache<String[]> CACHE = new ContentHashCache<String[]>(CONF_CACHE_SIZE, 1000);
+
+    /**
+     * Return a configuration parsed from an XML configuration.
+     *
+     * @param xml the XML configuration.
+     * @return a new configuration with the properties of the XML configuration.
+     * @throws IOException thrown if the XML configuration could not be parsed.
+     */
+    public static XConfiguration get(String xml) throws IOException {
+        ParamChecker.notNull(xml, "xml");
+        String[] properties = null;
+        String key = null;
+        if (CACHE.getMaxSize() > 0) {
+            key = ContentHashCache.hash(xml);
+            properties = CACHE.get(key);
+        }
+        if (properties == null) {
+            properties = intern(XConfiguration.parseProperties(xml));
+            if (key != null) {
+                CACHE.put(key, properties);
+            }
+        }
+        XConfiguration conf = new XConfiguration();
+        for (int i = 0; i < properties.length; i += 2) {
+            conf.set(properties[i], properties[i + 1]);
+        }
+        return conf;
+    }
+
+    /**
+     * Return the number of cached configurations.
+     *
+     * @return the number of cached configurations.
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * Remove all the cached configurations.
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    private static String[] intern(List<String> properties) {
+        String[] interned = new String[properties.size()];
+        for (int i = 0; i < interned.length; i += 2) {
+            interned[i] = properties.get(i).intern();
+            String value = properties.get(i + 1);
+            interned[i + 1] = (value.length() <= MAX_INTERNED_VALUE_LENGTH) ? value.intern() : value;
+        }
+        return interned;
+    }
+
+}
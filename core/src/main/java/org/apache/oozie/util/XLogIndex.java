@@ -0,0 +1,597 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.oozie.service.DagXLogInfoService;
+
+/**
+ * Sidecar index of a rolled log file, it allows reading only the parts of the file with the log of a job.
+ * <p/>
+ * The log file is divided in blocks of about the same size, a block always starts with a log message, so multi-line
+ * messages (such as exception stack traces) are never split. For each block the index has its offset and length in the
+ * file and its first and last timestamps, and for each job id, the blocks that have log messages of the job.
+ * <p/>
+ * A compressed log file is written with each block as a separate gzip member, the file is still a valid gzip file, and
+ * a block can be decompressed on its own.
+ * <p/>
+ * The index of a log file is the hidden file <code>.&lt;log file name&gt;.idx</code> in the same directory, it is
+ * ignored if the log file length does not match the one it was built for.
+ */
+public class XLogIndex {
+    private static XLog LOG = XLog.getLog(XLogIndex.class);
+
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String MAGIC = "OOZIE-LOG-INDEX";
+    private static final int VERSION = 1;
+    private static final String ISO_8859_1 = "ISO-8859-1";
+
+    // log4j ISO8601 date format, its lexicographical order is the chronological order
+    private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm:ss,SSS";
+    private static final int TIMESTAMP_LENGTH = TIMESTAMP_FORMAT.length();
+    private static final byte[] JOB_TOKEN = (" " + DagXLogInfoService.JOB + "[").getBytes();
+    private static final Pattern LITERAL_PATTERN = Pattern.compile("[\\w\\-@]+");
+
+    /**
+     * A block of the log file.
+     */
+    public static class Block {
+        private final long offset;
+        private final int length;
+        private final String firstTimestamp;
+        private final String lastTimestamp;
+
+        private Block(long offset, int length, String firstTimestamp, String lastTimestamp) {
+            this.offset = offset;
+            this.length = length;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * Blocks of the log file selected to be read.
+     */
+    public class Selection {
+        private final List<Block> selected;
+
+        private Selection(List<Block> selected) {
+            this.selected = selected;
+        }
+
+        public List<Block> getBlocks() {
+            return selected;
+        }
+
+        /**
+         * Return a reader of the selected blocks of the log file.
+         *
+         * @param logFile log file.
+         * @return the reader.
+         * @throws IOException thrown if the log file could not be opened.
+         */
+        public Reader openReader(File logFile) throws IOException {
+            return new InputStreamReader(new BlocksInputStream(new RandomAccessFile(logFile, "r"), selected,
+                    compressed));
+        }
+    }
+
+    private final boolean compressed;
+    private final long dataLength;
+    private final List<Block> blocks;
+    private final Map<String, BitSet> jobBlocks;
+
+    private XLogIndex(boolean compressed, long dataLength, List<Block> blocks, Map<String, BitSet> jobBlocks) {
+        this.compressed = compressed;
+        this.dataLength = dataLength;
+        this.blocks = blocks;
+        this.jobBlocks = jobBlocks;
+    }
+
+    /**
+     * Return if the log file is compressed.
+     *
+     * @return if the log file is compressed.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Return the number of blocks of the log file.
+     *
+     * @return the number of blocks.
+     */
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Select the blocks that may have log messages of a job in a time window.
+     *
+     * @param jobId job id, <code>null</code> for any job.
+     * @param startTime start time of the window, <code>null</code> for no start.
+     * @param endTime end time of the window, <code>null</code> for no end.
+     * @return the selected blocks.
+     */
+    public Selection select(String jobId, Date startTime, Date endTime) {
+        BitSet selected = null;
+        if (jobId != null) {
+            selected = jobBlocks.get(jobId);
+            if (selected == null) {
+                return new Selection(Collections.<Block>emptyList());
+            }
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat(TIMESTAMP_FORMAT);
+        String start = (startTime == null) ? null : dateFormat.format(startTime);
+        String end = (endTime == null) ? null : dateFormat.format(endTime);
+        List<Block> list = new ArrayList<Block>();
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            if (selected != null && !selected.get(i)) {
+                continue;
+            }
+            if (start != null && block.lastTimestamp != null && block.lastTimestamp.compareTo(start) < 0) {
+                continue;
+            }
+            if (end != null && block.firstTimestamp != null && block.firstTimestamp.compareTo(end) > 0) {
+                continue;
+            }
+            list.add(block);
+        }
+        return new Selection(list);
+    }
+
+    /**
+     * Return the job id a log filter is for, if it is a literal job id.
+     *
+     * @param filter log filter.
+     * @return the job id, <code>null</code> if the filter is not for a single job.
+     */
+    public static String getJobId(XLogStreamer.Filter filter) {
+        String jobId = (filter == null) ? null : filter.getFilterParams().get(DagXLogInfoService.JOB);
+        return (jobId != null && LITERAL_PATTERN.matcher(jobId).matches()) ? jobId : null;
+    }
+
+    /**
+     * Return the index file of a log file.
+     *
+     * @param logFile log file.
+     * @return the index file.
+     */
+    public static File getIndexFile(File logFile) {
+        return new File(logFile.getParentFile(), "." + logFile.getName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Read the index of a log file.
+     *
+     * @param logFile log file.
+     * @return the index, <code>null</code> if the log file does not have a valid index.
+     */
+    public static XLogIndex read(File logFile) {
+        File indexFile = getIndexFile(logFile);
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                if (!MAGIC.equals(in.readUTF()) || in.readInt() != VERSION) {
+                    LOG.warn("Ignoring index [{0}] of an unknown version", indexFile);
+                    return null;
+                }
+                boolean compressed = in.readBoolean();
+                long dataLength = in.readLong();
+                if (dataLength != logFile.length()) {
+                    LOG.warn("Ignoring index [{0}], it is not for the current [{1}] file", indexFile, logFile);
+                    return null;
+                }
+                int blockCount = in.readInt();
+                List<Block> blocks = new ArrayList<Block>(blockCount);
+                for (int i = 0; i < blockCount; i++) {
+                    long offset = in.readLong();
+                    int length = in.readInt();
+                    String firstTimestamp = in.readUTF();
+                    String lastTimestamp = in.readUTF();
+                    blocks.add(new Block(offset, length, (firstTimestamp.length() == 0) ? null : firstTimestamp,
+                            (lastTimestamp.length() == 0) ? null : lastTimestamp));
+                }
+                int jobCount = in.readInt();
+                Map<String, BitSet> jobBlocks = new HashMap<String, BitSet>(jobCount * 2);
+                for (int i = 0; i < jobCount; i++) {
+                    String jobId = in.readUTF();
+                    int count = in.readInt();
+                    BitSet bitSet = new BitSet(blockCount);
+                    for (int j = 0; j < count; j++) {
+                        bitSet.set(in.readInt());
+                    }
+                    jobBlocks.put(jobId, bitSet);
+                }
+                return new XLogIndex(compressed, dataLength, blocks, jobBlocks);
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException ex) {
+            LOG.warn("Ignoring index [{0}], it could not be read, {1}", indexFile, ex.getMessage(), ex);
+            return null;
+        }
+    }
+
+    private void write(File indexFile) throws IOException {
+        File tmpFile = new File(indexFile.getPath() + TMP_SUFFIX);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            out.writeUTF(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(compressed);
+            out.writeLong(dataLength);
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                out.writeLong(block.offset);
+                out.writeInt(block.length);
+                out.writeUTF((block.firstTimestamp == null) ? "" : block.firstTimestamp);
+                out.writeUTF((block.lastTimestamp == null) ? "" : block.lastTimestamp);
+            }
+            out.writeInt(jobBlocks.size());
+            for (Map.Entry<String, BitSet> entry : jobBlocks.entrySet()) {
+                BitSet bitSet = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(bitSet.cardinality());
+                for (int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1)) {
+                    out.writeInt(i);
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+        rename(tmpFile, indexFile);
+    }
+
+    /**
+     * Build the index of a log file.
+     *
+     * @param logFile log file, it is not modified.
+     * @param blockSize approximate size of the blocks in bytes.
+     * @throws IOException thrown if the log file could not be read or the index could not be written.
+     */
+    public static void index(File logFile, int blockSize) throws IOException {
+        InputStream in = new FileInputStream(logFile);
+        XLogIndex index;
+        try {
+            index = scan(in, null, blockSize);
+        }
+        finally {
+            in.close();
+        }
+        index.write(getIndexFile(logFile));
+    }
+
+    /**
+     * Compress a log file as blocks and build its index.
+     * <p/>
+     * The log file is not deleted.
+     *
+     * @param logFile log file.
+     * @param gzFile compressed log file to write.
+     * @param blockSize approximate size of the uncompressed blocks in bytes.
+     * @throws IOException thrown if the log file could not be read or the compressed file or the index could not be
+     * written.
+     */
+    public static void compress(File logFile, File gzFile, int blockSize) throws IOException {
+        // written as hidden files, so they are not streamed nor deleted as logs while being written
+        File tmpFile = new File(gzFile.getParentFile(), "." + gzFile.getName() + TMP_SUFFIX);
+        InputStream in = new FileInputStream(logFile);
+        XLogIndex index;
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024);
+            try {
+                index = scan(in, out, blockSize);
+            }
+            finally {
+                out.close();
+            }
+        }
+        catch (IOException ex) {
+            tmpFile.delete();
+            throw ex;
+        }
+        finally {
+            in.close();
+        }
+        rename(tmpFile, gzFile);
+        index.write(getIndexFile(gzFile));
+    }
+
+    private static void rename(File from, File to) throws IOException {
+        if (!from.renameTo(to)) {
+            to.delete();
+            if (!from.renameTo(to)) {
+                throw new IOException("Could not rename [" + from + "] to [" + to + "]");
+            }
+        }
+    }
+
+    /**
+     * Split a log into blocks, writing them as gzip members if an output stream is given.
+     */
+    private static XLogIndex scan(InputStream in, OutputStream out, int blockSize) throws IOException {
+        List<Block> blocks = new ArrayList<Block>();
+        Map<String, BitSet> jobBlocks = new HashMap<String, BitSet>();
+        ByteArrayOutputStream blockBuffer = (out == null) ? null : new ByteArrayOutputStream(blockSize * 2);
+        ByteArrayOutputStream memberBuffer = (out == null) ? null : new ByteArrayOutputStream(blockSize);
+        byte[] buffer = new byte[64 * 1024];
+        int bufferPosition = 0;
+        int bufferLength = 0;
+        byte[] line = new byte[4096];
+        long offset = 0;
+        long blockOffset = 0;
+        int blockLength = 0;
+        String firstTimestamp = null;
+        String lastTimestamp = null;
+        while (true) {
+            // read a line, including its line terminator
+            int length = 0;
+            while (true) {
+                if (bufferPosition == bufferLength) {
+                    bufferPosition = 0;
+                    bufferLength = Math.max(in.read(buffer), 0);
+                    if (bufferLength == 0) {
+                        break;
+                    }
+                }
+                int i = bufferPosition;
+                while (i < bufferLength && buffer[i] != '\n') {
+                    i++;
+                }
+                int end = (i < bufferLength) ? i + 1 : bufferLength;
+                if (length + end - bufferPosition > line.length) {
+                    byte[] newLine = new byte[Math.max(line.length * 2, length + end - bufferPosition)];
+                    System.arraycopy(line, 0, newLine, 0, length);
+                    line = newLine;
+                }
+                System.arraycopy(buffer, bufferPosition, line, length, end - bufferPosition);
+                length += end - bufferPosition;
+                bufferPosition = end;
+                if (i < bufferLength) {
+                    break;
+                }
+            }
+            boolean timestamped = length > 0 && isTimestamped(line, length);
+            // a new block starts with a log message
+            if (length == 0 || (timestamped && blockLength >= blockSize)) {
+                if (blockLength > 0) {
+                    long fileOffset = blockOffset;
+                    int fileLength = blockLength;
+                    if (out != null) {
+                        memberBuffer.reset();
+                        GZIPOutputStream gzip = new GZIPOutputStream(memberBuffer);
+                        blockBuffer.writeTo(gzip);
+                        gzip.finish();
+                        blockBuffer.reset();
+                        fileOffset = offset;
+                        fileLength = memberBuffer.size();
+                        memberBuffer.writeTo(out);
+                        offset += fileLength;
+                    }
+                    blocks.add(new Block(fileOffset, fileLength, firstTimestamp, lastTimestamp));
+                    blockOffset += blockLength;
+                    blockLength = 0;
+                    firstTimestamp = null;
+                    lastTimestamp = null;
+                }
+                if (length == 0) {
+                    break;
+                }
+            }
+            if (timestamped) {
+                lastTimestamp = new String(line, 0, TIMESTAMP_LENGTH, ISO_8859_1);
+                if (firstTimestamp == null) {
+                    firstTimestamp = lastTimestamp;
+                }
+                addJobs(line, length, blocks.size(), jobBlocks);
+            }
+            if (blockBuffer != null) {
+                blockBuffer.write(line, 0, length);
+            }
+            blockLength += length;
+        }
+        return new XLogIndex(out != null, (out != null) ? offset : blockOffset, blocks, jobBlocks);
+    }
+
+    private static boolean isTimestamped(byte[] line, int length) {
+        if (length < TIMESTAMP_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            char c = TIMESTAMP_FORMAT.charAt(i);
+            if (Character.isLetter(c)) {
+                if (line[i] < '0' || line[i] > '9') {
+                    return false;
+                }
+            }
+            else if (line[i] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addJobs(byte[] line, int length, int block, Map<String, BitSet> jobBlocks) throws IOException {
+        int last = length - JOB_TOKEN.length;
+        for (int i = TIMESTAMP_LENGTH; i <= last; i++) {
+            int j = 0;
+            while (j < JOB_TOKEN.length && line[i + j] == JOB_TOKEN[j]) {
+                j++;
+            }
+            if (j == JOB_TOKEN.length) {
+                int start = i + j;
+                int end = start;
+                while (end < length && line[end] != ']' && line[end] != '\n') {
+                    end++;
+                }
+                if (end < length && line[end] == ']' && end > start) {
+                    String jobId = new String(line, start, end - start, ISO_8859_1);
+                    if (!jobId.equals("-")) {
+                        BitSet bitSet = jobBlocks.get(jobId);
+                        if (bitSet == null) {
+                            bitSet = new BitSet();
+                            jobBlocks.put(jobId, bitSet);
+                        }
+                        bitSet.set(block);
+                    }
+                }
+                i = end;
+            }
+        }
+    }
+
+    /**
+     * Input stream of the uncompressed content of some blocks of a log file.
+     */
+    private static class BlocksInputStream extends InputStream {
+        private final RandomAccessFile file;
+        private final List<Block> blocks;
+        private final boolean compressed;
+        private int next;
+        private InputStream current;
+
+        private BlocksInputStream(RandomAccessFile file, List<Block> blocks, boolean compressed) {
+            this.file = file;
+            this.blocks = blocks;
+            this.compressed = compressed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return (n == -1) ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                if (current == null) {
+                    if (next == blocks.size()) {
+                        return -1;
+                    }
+                    Block block = blocks.get(next++);
+                    long offset = block.offset;
+                    long length = block.length;
+                    if (!compressed) {
+                        // contiguous blocks of an uncompressed file are read as one
+                        while (next < blocks.size() && blocks.get(next).offset == offset + length) {
+                            length += blocks.get(next++).length;
+                        }
+                    }
+                    current = new RangeInputStream(file, offset, length);
+                    if (compressed) {
+                        current = new GZIPInputStream(current, 64 * 1024);
+                    }
+                }
+                int n = current.read(b, off, len);
+                if (n != -1) {
+                    return n;
+                }
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    /**
+     * Input stream of a range of a file.
+     */
+    private static class RangeInputStream extends InputStream {
+        private final RandomAccessFile file;
+        private long position;
+        private long remaining;
+
+        private RangeInputStream(RandomAccessFile file, long offset, long length) {
+            this.file = file;
+            this.position = offset;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return (n == -1) ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            file.seek(position);
+            int n = file.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                position += n;
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+
+}
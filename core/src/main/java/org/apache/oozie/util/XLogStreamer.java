@@ -239,9 +239,20 @@ public class XLogStreamer {
         }
         File dir = new File(logPath);
         ArrayList<File> files = getFileList(dir, startTimeMillis, endTimeMillis, logRotation, logFile);
+        // Only the blocks of the rolled log files with an index that may have the log of the job in the time window
+        // are read; blocks starting up to a log rotation after the end time are read, as files are
+        Map<File, XLogIndex.Selection> selections = new HashMap<File, XLogIndex.Selection>();
+        String jobId = XLogIndex.getJobId(logFilter);
+        for (File file : files) {
+            XLogIndex index = XLogIndex.read(file);
+            if (index != null) {
+                selections.put(file, index.select(jobId, (startTime == null) ? null : new Date(startTimeMillis),
+                        new Date(endTimeMillis + logRotation)));
+            }
+        }
         // The MultiFileReader is a Reader that treats the files as one source so we can easily go through them all with one
         // BufferedReader
-        return new BufferedReader(new MultiFileReader(files));
+        return new BufferedReader(new MultiFileReader(files, selections));
     }
 
     /**
@@ -26,12 +26,15 @@ import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
@@ -42,8 +45,10 @@ import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.service.InstrumentationService;
 import org.apache.oozie.service.SchemaService;
 import org.apache.oozie.service.SchemaService.SchemaName;
 import org.apache.oozie.service.Services;
@@ -53,17 +58,98 @@ import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.Namespace;
 import org.jdom.input.SAXBuilder;
+import org.jdom.input.SAXHandler;
 import org.jdom.output.Format;
 import org.jdom.output.XMLOutputter;
 import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
 
 /**
  * XML utility methods.
+ * <p/>
+ * Strings are parsed with a SAX builder per thread. {@link #parseCachedXml(String)} keeps the parsed elements of the
+ * last parsed XML strings, the number of cached elements is set by the {@link #CONF_ELEMENT_CACHE_SIZE} property,
+ * <code>0</code> disables the cache.
+ * <p/>
+ * Schema validators are kept per thread and schema, {@link #parseXml(Schema, String)} validates an XML string while
+ * it builds its JDOM element.
  */
 public class XmlUtils {
 
+    public static final String CONF_ELEMENT_CACHE_SIZE = "oozie.xml.element.cache.size";
+
+    public static final String INSTRUMENTATION_GROUP = "xmlutils";
+
+    private static final ThreadLocal<SAXBuilder> SAX_BUILDER = new ThreadLocal<SAXBuilder>() {
+        @Override
+        protected SAXBuilder initialValue() {
+            incrCounter("saxbuilder.created");
+            return createSAXBuilder();
+        }
+    };
+
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+    private static final ThreadLocal<XMLReader> XML_READER = new ThreadLocal<XMLReader>() {
+        @Override
+        protected XMLReader initialValue() {
+            try {
+                SAXParserFactory factory = SAXParserFactory.newInstance();
+                factory.setNamespaceAware(true);
+                XMLReader reader = factory.newSAXParser().getXMLReader();
+                reader.setEntityResolver(new NoExternalEntityEntityResolver());
+                reader.setErrorHandler(new FailOnErrorHandler());
+                return reader;
+            }
+            catch (ParserConfigurationException ex) {
+                throw new RuntimeException("It should not happen, " + ex.getMessage(), ex);
+            }
+            catch (SAXException ex) {
+                throw new RuntimeException("It should not happen, " + ex.getMessage(), ex);
+            }
+        }
+    };
+
+    private static final int VALIDATORS_PER_THREAD = 8;
+
+    /**
+     * Validators of the last used schemas, a validator references its schema so schemas that are not used anymore
+     * are discarded by size.
+     */
+    private static class SchemaMap<V> extends LinkedHashMap<Schema, V> {
+
+        public SchemaMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Schema, V> eldest) {
+            return size() > VALIDATORS_PER_THREAD;
+        }
+    }
+
+    private static final ThreadLocal<Map<Schema, Validator>> VALIDATORS = new ThreadLocal<Map<Schema, Validator>>() {
+        @Override
+        protected Map<Schema, Validator> initialValue() {
+            return new SchemaMap<Validator>();
+        }
+    };
+
+    private static final ThreadLocal<Map<Schema, ValidatorHandler>> VALIDATOR_HANDLERS =
+            new ThreadLocal<Map<Schema, ValidatorHandler>>() {
+        @Override
+        protected Map<Schema, ValidatorHandler> initialValue() {
+            return new SchemaMap<ValidatorHandler>();
+        }
+    };
+
+    private static final ContentHashCache<Element> ELEMENT_CACHE =
+            new ContentHashCache<Element>(CONF_ELEMENT_CACHE_SIZE, 1000);
+
     private static class NoExternalEntityEntityResolver implements EntityResolver {
 
         @Override
@@ -73,6 +159,24 @@ public class XmlUtils {
 
     }
 
+    private static class FailOnErrorHandler implements ErrorHandler {
+
+        @Override
+        public void warning(SAXParseException ex) throws SAXException {
+        }
+
+        @Override
+        public void error(SAXParseException ex) throws SAXException {
+            throw ex;
+        }
+
+        @Override
+        public void fatalError(SAXParseException ex) throws SAXException {
+            throw ex;
+        }
+
+    }
+
     private static SAXBuilder createSAXBuilder() {
         SAXBuilder saxBuilder = new SAXBuilder();
 
@@ -96,8 +200,7 @@ public class XmlUtils {
             return null;
         }
         try {
-            SAXBuilder saxBuilder = createSAXBuilder();
-            Document document = saxBuilder.build(new StringReader(xmlStr));
+            Document document = SAX_BUILDER.get().build(new StringReader(xmlStr));
             removeComments(document);
             return prettyPrint(document.getRootElement()).toString();
         }
@@ -134,8 +237,7 @@ public class XmlUtils {
     public static Element parseXml(String xmlStr) throws JDOMException {
         ParamChecker.notNull(xmlStr, "xmlStr");
         try {
-            SAXBuilder saxBuilder = createSAXBuilder();
-            Document document = saxBuilder.build(new StringReader(xmlStr));
+            Document document = SAX_BUILDER.get().build(new StringReader(xmlStr));
             return document.getRootElement();
         }
         catch (IOException ex) {
@@ -153,11 +255,92 @@ public class XmlUtils {
      */
     public static Element parseXml(InputStream is) throws JDOMException, IOException {
         ParamChecker.notNull(is, "is");
-        SAXBuilder saxBuilder = createSAXBuilder();
-        Document document = saxBuilder.build(is);
+        Document document = SAX_BUILDER.get().build(is);
         return document.getRootElement();
     }
 
+    /**
+     * Validate a string against a schema and return a JDOM Element for it.
+     * <p/>
+     * The string is parsed once, the schema validator and the JDOM builder both receive the events of the parser.
+     *
+     * @param schema schema to validate the XML string with.
+     * @param xmlStr XML string to validate and parse.
+     * @return JDOM element for the parsed XML string.
+     * @throws SAXException thrown if the XML string is not well formed or not valid.
+     * @throws IOException thrown if an IO error occurred.
+     */
+    public static Element parseXml(Schema schema, String xmlStr) throws SAXException, IOException {
+        ParamChecker.notNull(schema, "schema");
+        ParamChecker.notNull(xmlStr, "xmlStr");
+        Map<Schema, ValidatorHandler> validatorHandlers = VALIDATOR_HANDLERS.get();
+        ValidatorHandler validatorHandler = validatorHandlers.get(schema);
+        if (validatorHandler == null) {
+            incrCounter("validator.created");
+            validatorHandler = schema.newValidatorHandler();
+            validatorHandlers.put(schema, validatorHandler);
+        }
+        SAXHandler jdomHandler = new SAXHandler();
+        XMLReader reader = XML_READER.get();
+        validatorHandler.setContentHandler(jdomHandler);
+        reader.setContentHandler(validatorHandler);
+        // comments do not go through the validator
+        reader.setProperty(LEXICAL_HANDLER, jdomHandler);
+        try {
+            reader.parse(new InputSource(new StringReader(xmlStr)));
+        }
+        finally {
+            // the pooled handlers must not keep the document
+            validatorHandler.setContentHandler(null);
+            reader.setProperty(LEXICAL_HANDLER, null);
+        }
+        return jdomHandler.getDocument().getRootElement();
+    }
+
+    /**
+     * Parse a string assuming it is a valid XML document and return a cached JDOM Element for it.
+     * <p/>
+     * The element is shared by all the callers parsing the same string, it must not be modified; callers that modify
+     * it must work on a clone.
+     *
+     * @param xmlStr XML string to parse.
+     * @return read-only JDOM element for the parsed XML string.
+     * @throws JDOMException thrown if an error happend while XML parsing.
+     */
+    public static Element parseCachedXml(String xmlStr) throws JDOMException {
+        ParamChecker.notNull(xmlStr, "xmlStr");
+        if (ELEMENT_CACHE.getMaxSize() <= 0) {
+            return parseXml(xmlStr);
+        }
+        String key = ContentHashCache.hash(xmlStr);
+        Element element = ELEMENT_CACHE.get(key);
+        if (element != null) {
+            incrCounter("element.cache.hits");
+        }
+        else {
+            incrCounter("element.cache.misses");
+            element = parseXml(xmlStr);
+            ELEMENT_CACHE.put(key, element);
+        }
+        return element;
+    }
+
+    /**
+     * Remove all the cached elements.
+     */
+    public static void clearElementCache() {
+        ELEMENT_CACHE.clear();
+    }
+
+    private static void incrCounter(String name) {
+        Services services = Services.get();
+        InstrumentationService instrumentationService = (services != null)
+                ? services.get(InstrumentationService.class) : null;
+        if (instrumentationService != null) {
+            instrumentationService.get().incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+
     /**
      * //TODO move this to action registry method Return the value of an attribute from the root element of an XML
      * document.
@@ -278,8 +461,16 @@ public class XmlUtils {
      * @param xml to be validated
      */
     public static void validateXml(Schema schema, String xml) throws SAXException, IOException {
-
-        Validator validator = schema.newValidator();
+        Map<Schema, Validator> validators = VALIDATORS.get();
+        Validator validator = validators.get(schema);
+        if (validator == null) {
+            incrCounter("validator.created");
+            validator = schema.newValidator();
+            validators.put(schema, validator);
+        }
+        else {
+            validator.reset();
+        }
         validator.validate(new StreamSource(new ByteArrayInputStream(xml.getBytes())));
     }
 
@@ -18,6 +18,7 @@
 package org.apache.oozie.workflow.lite;
 
 import org.apache.oozie.workflow.WorkflowException;
+import org.apache.oozie.util.ContentHashCache;
 import org.apache.oozie.util.IOUtils;
 import org.apache.oozie.util.XmlUtils;
 import org.apache.oozie.util.ParamChecker;
@@ -33,12 +34,9 @@ import org.jdom.JDOMException;
 import org.jdom.Namespace;
 import org.xml.sax.SAXException;
 
-import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.Validator;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -48,9 +46,13 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Class to parse and validate workflow xml
+ * <p/>
+ * Parsed applications are cached by the hash of their definition, the number of cached applications is set by the
+ * {@link #CONF_APP_CACHE_SIZE} property, <code>0</code> disables the cache.
  */
 public class LiteWorkflowAppParser {
 
@@ -86,6 +88,10 @@ public class LiteWorkflowAppParser {
     private static final String KILL_MESSAGE_E = "message";
     public static final String VALIDATE_FORK_JOIN = "oozie.validate.ForkJoin";
     public static final String WF_VALIDATE_FORK_JOIN = "oozie.wf.validate.ForkJoin";
+    public static final String CONF_APP_CACHE_SIZE = "oozie.workflow.app.cache.size";
+
+    private static final ContentHashCache<CachedApp> APP_CACHE = new ContentHashCache<CachedApp>(CONF_APP_CACHE_SIZE,
+            100);
 
     private Schema schema;
     private Class<? extends ControlNodeHandler> controlNodeHandler;
@@ -97,23 +103,41 @@ public class LiteWorkflowAppParser {
     }
 
     /**
-     * We use this to store a node name and its top (eldest) decision parent node name for the forkjoin validation
+     * A parsed and validated application, with the root element holding only the parameters section to verify the
+     * parameters of the job configurations.
+     */
+    private static class CachedApp {
+        LiteWorkflowApp app;
+        Element parameters;
+
+        public CachedApp(LiteWorkflowApp app, Element parameters) {
+            this.app = app;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * The fork and join stacks after walking a node for the forkjoin validation
      */
-    class NodeAndTopDecisionParent {
-        String node;
-        String topDecisionParent;
+    private static class StackState {
+        List<String> forkNodes;
+        List<String> joinNodes;
 
-        public NodeAndTopDecisionParent(String node, String topDecisionParent) {
-            this.node = node;
-            this.topDecisionParent = topDecisionParent;
+        public StackState(Deque<String> forkNodes, Deque<String> joinNodes) {
+            this.forkNodes = new ArrayList<String>(forkNodes);
+            this.joinNodes = new ArrayList<String>(joinNodes);
         }
     }
 
     private List<String> forkList = new ArrayList<String>();
     private List<String> joinList = new ArrayList<String>();
     private StartNodeDef startNode;
-    private List<NodeAndTopDecisionParent> visitedOkNodes = new ArrayList<NodeAndTopDecisionParent>();
-    private List<String> visitedJoinNodes = new ArrayList<String>();
+    private Map<String, String> actionTypes = new HashMap<String, String>();
+    // node name -> top (eldest) decision parent node name, the value is null if there isn't one
+    private Map<String, String> visitedOkNodes = new HashMap<String, String>();
+    private Set<String> visitedJoinNodes = new HashSet<String>();
+    private Set<String> pathNodes = new HashSet<String>();
+    private Map<String, StackState> walkedNotOkNodes = new HashMap<String, StackState>();
 
     public LiteWorkflowAppParser(Schema schema,
                                  Class<? extends ControlNodeHandler> controlNodeHandler,
@@ -137,22 +161,33 @@ public class LiteWorkflowAppParser {
             StringWriter writer = new StringWriter();
             IOUtils.copyCharStream(reader, writer);
             String strDef = writer.toString();
-
-            if (schema != null) {
-                Validator validator = schema.newValidator();
-                validator.validate(new StreamSource(new StringReader(strDef)));
+            boolean validateForkJoin = jobConf.getBoolean(WF_VALIDATE_FORK_JOIN, true)
+                    && Services.get().getConf().getBoolean(VALIDATE_FORK_JOIN, true);
+
+            String key = null;
+            if (APP_CACHE.getMaxSize() > 0) {
+                key = getCacheKey(strDef, validateForkJoin);
+                CachedApp cached = APP_CACHE.get(key);
+                if (cached != null) {
+                    ParameterVerifier.verifyParameters(jobConf, cached.parameters);
+                    return cached.app;
+                }
             }
 
-            Element wfDefElement = XmlUtils.parseXml(strDef);
+            // the definition is validated while it is parsed
+            Element wfDefElement = (schema != null) ? XmlUtils.parseXml(schema, strDef) : XmlUtils.parseXml(strDef);
             ParameterVerifier.verifyParameters(jobConf, wfDefElement);
             LiteWorkflowApp app = parse(strDef, wfDefElement);
             Map<String, VisitStatus> traversed = new HashMap<String, VisitStatus>();
             traversed.put(app.getNode(StartNodeDef.START).getName(), VisitStatus.VISITING);
             validate(app, app.getNode(StartNodeDef.START), traversed);
             //Validate whether fork/join are in pair or not
-            if (jobConf.getBoolean(WF_VALIDATE_FORK_JOIN, true) && Services.get().getConf().getBoolean(VALIDATE_FORK_JOIN, true)) {
+            if (validateForkJoin) {
                 validateForkJoin(app);
             }
+            if (key != null) {
+                APP_CACHE.put(key, new CachedApp(app, getParametersRoot(wfDefElement)));
+            }
             return app;
         }
         catch (ParameterVerifierException ex) {
@@ -169,6 +204,43 @@ public class LiteWorkflowAppParser {
         }
     }
 
+    /**
+     * Return the key of a definition in the application cache.
+     * <p/>
+     * The parsed application also depends on the schema, the node handlers and the forkjoin validation.
+     *
+     * @param strDef workflow definition.
+     * @param validateForkJoin if the forkjoin validation is done.
+     * @return the cache key.
+     */
+    private String getCacheKey(String strDef, boolean validateForkJoin) {
+        return ContentHashCache.hash(strDef) + "," + System.identityHashCode(schema) + ","
+                + controlNodeHandler.getName() + "," + decisionHandlerClass.getName() + ","
+                + actionHandlerClass.getName() + "," + validateForkJoin;
+    }
+
+    /**
+     * Return a copy of a root element with only its parameters section.
+     *
+     * @param root root element of the definition.
+     * @return a root element with the same name and namespace and only the parameters section.
+     */
+    private Element getParametersRoot(Element root) {
+        Element parametersRoot = new Element(root.getName(), root.getNamespace());
+        Element parameters = root.getChild(PARAMETERS, root.getNamespace());
+        if (parameters != null) {
+            parametersRoot.addContent((Element) parameters.clone());
+        }
+        return parametersRoot;
+    }
+
+    /**
+     * Remove all the cached applications.
+     */
+    public static void clearCache() {
+        APP_CACHE.clear();
+    }
+
     /**
      * Validate whether fork/join are in pair or not
      * @param app LiteWorkflowApp
@@ -184,6 +256,8 @@ public class LiteWorkflowAppParser {
         if (!forkList.isEmpty()) {
             visitedOkNodes.clear();
             visitedJoinNodes.clear();
+            pathNodes.clear();
+            walkedNotOkNodes.clear();
             validateForkJoin(startNode, app, new LinkedList<String>(), new LinkedList<String>(), new LinkedList<String>(), true,
                     null);
         }
@@ -191,8 +265,11 @@ public class LiteWorkflowAppParser {
 
     /*
      * Recursively walk through the DAG and make sure that all fork paths are valid.
-     * This should be called from validateForkJoin(LiteWorkflowApp app).  It assumes that visitedOkNodes and visitedJoinNodes are
-     * both empty ArrayLists on the first call.
+     * This should be called from validateForkJoin(LiteWorkflowApp app).  It assumes that visitedOkNodes, visitedJoinNodes,
+     * pathNodes and walkedNotOkNodes are all empty on the first call.
+     * A walk with okTo false does not change the visited nodes, so its result only depends on the node, the fork and join
+     * stacks and the top decision parent; walking again the same node in the same state is skipped (it happens for the
+     * join of a fork and the nodes after it, once per fork path), which keeps wide forks linear.
      *
      * @param node the current node; use the startNode on the first call
      * @param app the WorkflowApp
@@ -206,19 +283,33 @@ public class LiteWorkflowAppParser {
      */
     private void validateForkJoin(NodeDef node, LiteWorkflowApp app, Deque<String> forkNodes, Deque<String> joinNodes,
             Deque<String> path, boolean okTo, String topDecisionParent) throws WorkflowException {
-        if (path.contains(node.getName())) {
+        if (pathNodes.contains(node.getName())) {
             // cycle
             throw new WorkflowException(ErrorCode.E0741, node.getName(), Arrays.toString(path.toArray()));
         }
+        String walkKey = null;
+        if (!okTo) {
+            walkKey = node.getName() + ";" + ((topDecisionParent != null) ? topDecisionParent : "") + ";" + forkNodes
+                    + ";" + joinNodes;
+            StackState walked = walkedNotOkNodes.get(walkKey);
+            if (walked != null) {
+                forkNodes.clear();
+                forkNodes.addAll(walked.forkNodes);
+                joinNodes.clear();
+                joinNodes.addAll(walked.joinNodes);
+                return;
+            }
+        }
         path.push(node.getName());
+        pathNodes.add(node.getName());
 
         // Make sure that we're not revisiting a node (that's not a Kill, Join, or End type) that's been visited before from an
         // "ok to" transition; if its from an "error to" transition, then its okay to visit it multiple times.  Also, because we
         // traverse through join nodes multiple times, we have to make sure not to throw an exception here when we're really just
         // re-walking the same execution path (this is why we need the visitedJoinNodes list used later)
         if (okTo && !(node instanceof KillNodeDef) && !(node instanceof JoinNodeDef) && !(node instanceof EndNodeDef)) {
-            NodeAndTopDecisionParent natdp = findInVisitedOkNodes(node.getName());
-            if (natdp != null) {
+            if (visitedOkNodes.containsKey(node.getName())) {
+                String visitedTopDecisionParent = visitedOkNodes.get(node.getName());
                 // However, if we've visited the node and it's under a decision node, we may be seeing it again and it's only
                 // illegal if that decision node is not the same as what we're seeing now (because during execution we only go
                 // down one path of the decision node, so while we're seeing the node multiple times here, during runtime it will
@@ -231,10 +322,10 @@ public class LiteWorkflowAppParser {
                     // actionY   --> {actionX}
                 // And, if we visit this node twice under the same decision node in an invalid way, the path cycle checking code
                 // will catch it, so we don't have to worry about that here.
-                if ((natdp.topDecisionParent == null && topDecisionParent == null)
-                     || (natdp.topDecisionParent == null && topDecisionParent != null)
-                     || (natdp.topDecisionParent != null && topDecisionParent == null)
-                     || !natdp.topDecisionParent.equals(topDecisionParent)) {
+                if ((visitedTopDecisionParent == null && topDecisionParent == null)
+                     || (visitedTopDecisionParent == null && topDecisionParent != null)
+                     || (visitedTopDecisionParent != null && topDecisionParent == null)
+                     || !visitedTopDecisionParent.equals(topDecisionParent)) {
                     // If we get here, then we've seen this node before from an "ok to" transition but they don't have the same
                     // decision node top parent, which means that this node will be executed twice, which is illegal
                     throw new WorkflowException(ErrorCode.E0743, node.getName());
@@ -242,7 +333,7 @@ public class LiteWorkflowAppParser {
             }
             else {
                 // If we haven't transitioned to this node before, add it and its top decision parent node
-                visitedOkNodes.add(new NodeAndTopDecisionParent(node.getName(), topDecisionParent));
+                visitedOkNodes.put(node.getName(), topDecisionParent);
             }
         }
 
@@ -277,16 +368,15 @@ public class LiteWorkflowAppParser {
             // Check that a fork doesn't go to the same node more than once
             if (!transitionsList.isEmpty() && transitionsList.size() != transitionsSet.size()) {
                 // Now we have to figure out which node is the problem and what type of node they are (join and kill are ok)
-                for (int i = 0; i < transitionsList.size(); i++) {
-                    String a = transitionsList.get(i);
+                Map<String, Integer> counts = new HashMap<String, Integer>();
+                for (String a : transitionsList) {
+                    Integer count = counts.get(a);
+                    counts.put(a, (count == null) ? 1 : count + 1);
+                }
+                for (String a : transitionsList) {
                     NodeDef aNode = app.getNode(a);
-                    if (!(aNode instanceof JoinNodeDef) && !(aNode instanceof KillNodeDef)) {
-                        for (int k = i+1; k < transitionsList.size(); k++) {
-                            String b = transitionsList.get(k);
-                            if (a.equals(b)) {
-                                throw new WorkflowException(ErrorCode.E0744, node.getName(), a);
-                            }
-                        }
+                    if (counts.get(a) > 1 && !(aNode instanceof JoinNodeDef) && !(aNode instanceof KillNodeDef)) {
+                        throw new WorkflowException(ErrorCode.E0744, node.getName(), a);
                     }
                 }
             }
@@ -344,24 +434,10 @@ public class LiteWorkflowAppParser {
             throw new WorkflowException(ErrorCode.E0740, node.getName());
         }
         path.pop();
-    }
-
-    /**
-     * Return a {@link NodeAndTopDecisionParent} whose {@link NodeAndTopDecisionParent#node} is equal to the passed in name, or null
-     * if it isn't in the {@link LiteWorkflowAppParser#visitedOkNodes} list.
-     *
-     * @param name The name to search for
-     * @return a NodeAndTopDecisionParent or null
-     */
-    private NodeAndTopDecisionParent findInVisitedOkNodes(String name) {
-        NodeAndTopDecisionParent natdp = null;
-        for (NodeAndTopDecisionParent v : visitedOkNodes) {
-            if (v.node.equals(name)) {
-                natdp = v;
-                break;
-            }
+        pathNodes.remove(node.getName());
+        if (walkKey != null) {
+            walkedNotOkNodes.put(walkKey, new StackState(forkNodes, joinNodes));
         }
-        return natdp;
     }
 
     /**
@@ -446,6 +522,7 @@ public class LiteWorkflowAppParser {
                                         String userRetryIntervalStr = eNode.getAttributeValue(USER_RETRY_INTERVAL_A);
 
                                         String actionConf = XmlUtils.prettyPrint(eActionConf).toString();
+                                        actionTypes.put(eNode.getAttributeValue(NAME_A), eActionConf.getName());
                                         def.addNode(new ActionNodeDef(eNode.getAttributeValue(NAME_A), actionConf, actionHandlerClass,
                                                                       transitions[0], transitions[1], credStr,
                                                                       userRetryMaxStr, userRetryIntervalStr));
@@ -499,15 +576,19 @@ public class LiteWorkflowAppParser {
             }
         }
         if (node instanceof ActionNodeDef) {
-            try {
-                Element action = XmlUtils.parseXml(node.getConf());
-                boolean supportedAction = Services.get().get(ActionService.class).getExecutor(action.getName()) != null;
-                if (!supportedAction) {
-                    throw new WorkflowException(ErrorCode.E0723, node.getName(), action.getName());
+            // the action type is recorded while parsing, the action configuration is not parsed again
+            String actionType = actionTypes.get(node.getName());
+            if (actionType == null) {
+                try {
+                    actionType = XmlUtils.parseXml(node.getConf()).getName();
+                }
+                catch (JDOMException ex) {
+                    throw new RuntimeException("It should never happen, " + ex.getMessage(), ex);
                 }
             }
-            catch (JDOMException ex) {
-                throw new RuntimeException("It should never happen, " + ex.getMessage(), ex);
+            boolean supportedAction = Services.get().get(ActionService.class).getExecutor(actionType) != null;
+            if (!supportedAction) {
+                throw new WorkflowException(ErrorCode.E0723, node.getName(), actionType);
             }
         }
 
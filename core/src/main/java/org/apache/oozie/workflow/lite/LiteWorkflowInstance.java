@@ -17,6 +17,7 @@
  */
 package org.apache.oozie.workflow.lite;
 
+import org.apache.oozie.service.WorkflowDefinitionService;
 import org.apache.oozie.service.XLogService;
 import org.apache.oozie.service.DagXLogInfoService;
 import org.apache.oozie.client.OozieClient;
@@ -32,7 +33,9 @@ import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.ErrorCode;
 
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
@@ -51,6 +54,13 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
     private static String ROOT = PATH_SEPARATOR;
     private static String TRANSITION_SEPARATOR = "#";
 
+    /**
+     * Marker of the format referencing the definition, the instance ID of the whole definition format starts with its
+     * length, which is never the maximum length of a serialized string.
+     */
+    private static final int DEFINITION_REFERENCE_MARKER = 0xFFFF;
+    private static final int DEFINITION_REFERENCE_VERSION = 1;
+
     private static class NodeInstance {
         String nodeName;
         boolean started = false;
@@ -150,6 +160,7 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
     private Map<String, NodeInstance> executionPaths = new HashMap<String, NodeInstance>();
     private Map<String, String> persistentVars = new HashMap<String, String>();
     private Map<String, Object> transientVars = new HashMap<String, Object>();
+    private String definitionId;
 
     protected LiteWorkflowInstance() {
         log = XLog.getLog(getClass());
@@ -556,19 +567,27 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         this.status = status;
     }
 
+    /**
+     * Write the instance.
+     * <p/>
+     * If the instance references a stored definition, see {@link #setDefinitionId(String)}, only the ID of the
+     * definition is written, otherwise the whole definition is written.
+     *
+     * @param dOut data output.
+     * @throws IOException thrown if the instance could not be written.
+     */
     @Override
     public void write(DataOutput dOut) throws IOException {
-        dOut.writeUTF(instanceId);
-
-        //Hadoop Configuration has to get its act right
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        conf.writeXml(baos);
-        baos.close();
-        byte[] array = baos.toByteArray();
-        dOut.writeInt(array.length);
-        dOut.write(array);
-
-        def.write(dOut);
+        if (definitionId != null) {
+            dOut.writeShort(DEFINITION_REFERENCE_MARKER);
+            dOut.writeInt(DEFINITION_REFERENCE_VERSION);
+            dOut.writeUTF(instanceId);
+            dOut.writeUTF(definitionId);
+        }
+        else {
+            dOut.writeUTF(instanceId);
+            writeDefinition(dOut);
+        }
         dOut.writeUTF(status.toString());
         dOut.writeInt(executionPaths.size());
         for (Map.Entry<String, NodeInstance> entry : executionPaths.entrySet()) {
@@ -583,19 +602,40 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         }
     }
 
-    @Override
-    public void readFields(DataInput dIn) throws IOException {
-        instanceId = dIn.readUTF();
-
+    private void writeDefinition(DataOutput dOut) throws IOException {
         //Hadoop Configuration has to get its act right
-        int len = dIn.readInt();
-        byte[] array = new byte[len];
-        dIn.readFully(array);
-        ByteArrayInputStream bais = new ByteArrayInputStream(array);
-        conf = new XConfiguration(bais);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        conf.writeXml(baos);
+        baos.close();
+        byte[] array = baos.toByteArray();
+        dOut.writeInt(array.length);
+        dOut.write(array);
 
-        def = new LiteWorkflowApp();
-        def.readFields(dIn);
+        def.write(dOut);
+    }
+
+    @Override
+    public void readFields(DataInput dIn) throws IOException {
+        int length = dIn.readUnsignedShort();
+        if (length == DEFINITION_REFERENCE_MARKER) {
+            int version = dIn.readInt();
+            if (version != DEFINITION_REFERENCE_VERSION) {
+                throw new IOException("Unsupported workflow instance format version [" + version + "]");
+            }
+            instanceId = dIn.readUTF();
+            definitionId = dIn.readUTF();
+            readDefinition(new DataInputStream(new ByteArrayInputStream(
+                    WorkflowDefinitionService.getDefinition(definitionId))));
+        }
+        else {
+            // the length of the instance ID has been read already
+            byte[] array = new byte[length + 2];
+            array[0] = (byte) (length >>> 8);
+            array[1] = (byte) length;
+            dIn.readFully(array, 2, length);
+            instanceId = DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(array)));
+            readDefinition(dIn);
+        }
         status = Status.valueOf(dIn.readUTF());
         int numExPaths = dIn.readInt();
         for (int x = 0; x < numExPaths; x++) {
@@ -615,6 +655,53 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         refreshLog();
     }
 
+    private void readDefinition(DataInput dIn) throws IOException {
+        //Hadoop Configuration has to get its act right
+        int len = dIn.readInt();
+        byte[] array = new byte[len];
+        dIn.readFully(array);
+        ByteArrayInputStream bais = new ByteArrayInputStream(array);
+        conf = new XConfiguration(bais);
+
+        def = new LiteWorkflowApp();
+        def.readFields(dIn);
+    }
+
+    /**
+     * Return the serialized definition of the instance, its configuration and application definition.
+     *
+     * @return the serialized definition.
+     * @throws IOException thrown if the definition could not be serialized.
+     */
+    public byte[] getDefinition() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dOut = new DataOutputStream(baos);
+        writeDefinition(dOut);
+        dOut.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Return the ID of the stored definition of the instance.
+     *
+     * @return the ID of the definition, <code>null</code> if the instance is written with its whole definition.
+     */
+    public String getDefinitionId() {
+        return definitionId;
+    }
+
+    /**
+     * Set the ID of the stored definition of the instance, the instance is then written with a reference to it
+     * instead of its whole definition.
+     * <p/>
+     * The definition must be stored with the workflow job, see {@link WorkflowDefinitionService#reference}.
+     *
+     * @param definitionId ID of the stored definition with the same content as {@link #getDefinition()}.
+     */
+    public void setDefinitionId(String definitionId) {
+        this.definitionId = definitionId;
+    }
+
     @Override
     public Configuration getConf() {
         return conf;
@@ -30,6 +30,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.hadoop.conf.Configuration;
@@ -50,6 +51,7 @@ import org.apache.oozie.action.ActionExecutorException;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.client.WorkflowAction;
 import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.CallbackService;
 import org.apache.oozie.service.HadoopAccessorService;
 import org.apache.oozie.service.LiteWorkflowStoreService;
 import org.apache.oozie.service.Services;
@@ -245,6 +247,15 @@ public class TestJavaActionExecutor extends ActionExecutorTestCase {
         assertTrue(conf.get("mapred.child.java.opts").contains("JAVA-OPTS"));
         assertEquals(Arrays.asList("A1", "A2"), Arrays.asList(LauncherMapper.getMainArguments(conf)));
 
+        // the key to sign the action data sent on the callback is only in the launcher job credentials
+        String key = Services.get().get(CallbackService.class).getActionDataKey(action.getId());
+        assertEquals(key, new String(((JobConf) conf).getCredentials().getSecretKey(
+                LauncherMapper.ACTION_DATA_CALLBACK_KEY_ALIAS), "UTF-8"));
+        for (Map.Entry<String, String> entry : conf) {
+            assertFalse(entry.getValue().contains(key));
+        }
+        assertTrue(conf.getInt(LauncherMapper.CONF_OOZIE_ACTION_DATA_CALLBACK_MAX_SIZE, 0) > 0);
+
         assertTrue(getFileSystem().exists(new Path(context.getActionDir(), LauncherMapper.ACTION_CONF_XML)));
 
         actionXml = XmlUtils.parseXml("<java>" + "<job-tracker>" + getJobTrackerUri() + "</job-tracker>" +
@@ -392,6 +403,57 @@ public class TestJavaActionExecutor extends ActionExecutorTestCase {
     }
 
 
+    public void testOutputOnCallback() throws Exception {
+        String actionXml = "<java>" +
+                "<job-tracker>" + getJobTrackerUri() + "</job-tracker>" +
+                "<name-node>" + getNameNodeUri() + "</name-node>" +
+                "<main-class>" + LauncherMainTester.class.getName() + "</main-class>" +
+                "<arg>out</arg>" +
+                "<capture-output/>" +
+                "</java>";
+        Context context = createContext(actionXml, null);
+        final RunningJob runningJob = submitAction(context);
+        String actionId = context.getAction().getId();
+        CallbackService callbackService = Services.get().get(CallbackService.class);
+
+        waitFor(60 * 1000, new Predicate() {
+            @Override
+            public boolean evaluate() throws Exception {
+                return runningJob.isComplete();
+            }
+        });
+        assertTrue(runningJob.isSuccessful());
+        Path actionDataFile = LauncherMapperHelper.getActionDataSequenceFilePath(context.getActionDir());
+        assertTrue(getFileSystem().exists(actionDataFile));
+
+        // action data sent by another launcher job of the action is not used, it is read from HDFS
+        Map<String, String> actionData = new HashMap<String, String>();
+        actionData.put(LauncherMapper.ACTION_DATA_OUTPUT_PROPS, "a=B\n");
+        assertTrue(callbackService.putActionData(actionId, LauncherMapper.createCallbackActionData(actionData,
+                "job_0", callbackService.getActionDataKey(actionId), callbackService.getActionDataMaxSize())));
+        ActionExecutor ae = new JavaActionExecutor();
+        ae.check(context, context.getAction());
+        assertEquals("SUCCEEDED", context.getAction().getExternalStatus());
+        Properties props = new Properties();
+        props.load(new StringReader(context.getAction().getData()));
+        assertEquals("A", props.get("a"));
+
+        // action data sent by the launcher job on the callback is used, HDFS is not read
+        getFileSystem().delete(actionDataFile, false);
+        assertTrue(callbackService.putActionData(actionId, LauncherMapper.createCallbackActionData(actionData,
+                runningJob.getID().toString(), callbackService.getActionDataKey(actionId),
+                callbackService.getActionDataMaxSize())));
+        ae.check(context, context.getAction());
+        assertEquals("SUCCEEDED", context.getAction().getExternalStatus());
+        props = new Properties();
+        props.load(new StringReader(context.getAction().getData()));
+        assertEquals("B", props.get("a"));
+        assertNull(callbackService.getActionData(actionId, runningJob.getID().toString()));
+
+        ae.end(context, context.getAction());
+        assertEquals(WorkflowAction.Status.OK, context.getAction().getStatus());
+    }
+
     public void testIdSwapSubmitOK() throws Exception {
         String actionXml = "<java>" +
                 "<job-tracker>" + getJobTrackerUri() + "</job-tracker>" +
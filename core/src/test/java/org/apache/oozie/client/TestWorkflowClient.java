@@ -310,6 +310,41 @@ public class TestWorkflowClient extends DagServletTestCase {
         });
     }
 
+    public void testJobsPages() throws Exception {
+        runTest(END_POINTS, SERVLET_CLASSES, IS_SECURITY_ENABLED, new Callable<Void>() {
+            public Void call() throws Exception {
+                String oozieUrl = getContextURL();
+                OozieClient wc = new OozieClient(oozieUrl);
+
+                OozieClient.JobsPageIterator pages = wc.getJobsInfoPages("name=x", null, 3, true);
+                assertTrue(pages.hasNext());
+                List<WorkflowJob> list = pages.next();
+                assertEquals(RestConstants.JOBS_CURSOR_PARAM, MockDagEngineService.did);
+                assertEquals(3, list.size());
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(MockDagEngineService.JOB_ID + i + MockDagEngineService.JOB_ID_END, list.get(i).getId());
+                }
+                assertEquals(MockDagEngineService.INIT_WF_COUNT, (long) pages.getTotal());
+                assertEquals("3", pages.getCursor());
+
+                assertTrue(pages.hasNext());
+                list = pages.next();
+                assertEquals(MockDagEngineService.INIT_WF_COUNT - 3, list.size());
+                assertEquals(MockDagEngineService.JOB_ID + 3 + MockDagEngineService.JOB_ID_END, list.get(0).getId());
+                assertFalse(pages.hasNext());
+                assertNull(pages.getCursor());
+
+                // resume from a cursor
+                pages = wc.getJobsInfoPages(null, "2", 10, false);
+                list = pages.next();
+                assertEquals(MockDagEngineService.INIT_WF_COUNT - 2, list.size());
+                assertNull(pages.getTotal());
+                assertFalse(pages.hasNext());
+                return null;
+            }
+        });
+    }
+
     public void testExternalId() throws Exception {
         runTest(END_POINTS, SERVLET_CLASSES, IS_SECURITY_ENABLED, new Callable<Void>() {
             public Void call() throws Exception {
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.command.coord;
+
+import java.io.StringReader;
+import java.util.Date;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.util.XmlUtils;
+import org.jdom.Element;
+
+/**
+ * Benchmark of the materialization of 10000 actions of a coordinator job with {@link CoordMaterializationTemplate}
+ * against {@link CoordCommandUtils#materializeOneInstance}, as {@link CoordMaterializeTransitionXCommand} does in a
+ * catch-up.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>mvn test -Dtest=CoordMaterializationBenchmark</code>
+ */
+public class CoordMaterializationBenchmark extends XDataTestCase {
+    private static final int ACTIONS = 10000;
+
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        services.getConf().setBoolean(CoordMaterializationTemplate.CONF_ENABLED, true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testMaterialization() throws Exception {
+        String dir = getFsTestCaseDir().toString();
+        String jobXml = "<coordinator-app xmlns='uri:oozie:coordinator:0.2' xmlns:sla='uri:oozie:sla:0.1'"
+                + " name='NAME' frequency='60' start='2009-01-01T00:00Z' end='2011-01-01T00:00Z' timezone='UTC'"
+                + " freq_timeunit='MINUTE' end_of_duration='NONE'>"
+                + "<controls><timeout>10</timeout><concurrency>2</concurrency><execution>LIFO</execution></controls>"
+                + "<input-events><data-in name='A' dataset='a'>"
+                + "<dataset name='a' frequency='60' initial-instance='2008-01-01T00:00Z' timezone='UTC'"
+                + " freq_timeunit='MINUTE' end_of_duration='NONE'>"
+                + "<uri-template>" + dir + "/a/${YEAR}/${MONTH}/${DAY}/${HOUR}</uri-template></dataset>"
+                + "<start-instance>${coord:current(-23)}</start-instance>"
+                + "<end-instance>${coord:current(0)}</end-instance>"
+                + "</data-in></input-events>"
+                + "<output-events><data-out name='B' dataset='b'>"
+                + "<dataset name='b' frequency='60' initial-instance='2008-01-01T00:00Z' timezone='UTC'"
+                + " freq_timeunit='MINUTE' end_of_duration='NONE'>"
+                + "<uri-template>" + dir + "/b/${YEAR}/${MONTH}/${DAY}/${HOUR}</uri-template></dataset>"
+                + "<instance>${coord:current(0)}</instance>"
+                + "</data-out></output-events>"
+                + "<action><workflow><app-path>hdfs:///tmp/workflows/</app-path>"
+                + "<configuration><property><name>inputA</name><value>${coord:dataIn('A')}</value></property>"
+                + "<property><name>outputB</name><value>${coord:dataOut('B')}</value></property>"
+                + "</configuration></workflow>"
+                + "<sla:info><sla:app-name>test-app</sla:app-name>"
+                + "<sla:nominal-time>${coord:nominalTime()}</sla:nominal-time>"
+                + "<sla:should-start>5</sla:should-start><sla:should-end>120</sla:should-end>"
+                + "<sla:alert-contact>abc@example.com</sla:alert-contact></sla:info>"
+                + "</action></coordinator-app>";
+        Configuration conf = new XConfiguration();
+        conf.set(OozieClient.USER_NAME, getTestUser());
+        for (int i = 0; i < 50; i++) {
+            conf.set("property." + i, "value." + i);
+        }
+        final CoordinatorJobBean coordJob = new CoordinatorJobBean();
+        coordJob.setId("0000000-" + new Date().getTime() + "-oozie-test-C");
+        coordJob.setJobXml(XmlUtils.prettyPrint(XmlUtils.parseXml(jobXml)).toString());
+        coordJob.setConf(XmlUtils.prettyPrint(conf).toString());
+        final Date start = DateUtils.parseDateOozieTZ("2009-01-01T00:00Z");
+
+        for (int run = 0; run < 3; run++) {
+            long begin = System.nanoTime();
+            Element eJob = XmlUtils.parseXml(coordJob.getJobXml());
+            Configuration jobConf = new XConfiguration(new StringReader(coordJob.getConf()));
+            long bytes = 0;
+            for (int i = 1; i <= ACTIONS; i++) {
+                String actionXml = CoordCommandUtils.materializeOneInstance(coordJob.getId(), false,
+                        (Element) eJob.clone(), new Date(start.getTime() + (i - 1) * 3600 * 1000L), new Date(), i,
+                        jobConf, new CoordinatorActionBean());
+                // the SLA element is parsed back from the action XML
+                XmlUtils.parseXml(actionXml);
+                bytes += actionXml.length();
+            }
+            report("materializeOneInstance", System.nanoTime() - begin, bytes);
+
+            CoordMaterializationTemplate.invalidate(coordJob.getId());
+            begin = System.nanoTime();
+            CoordMaterializationTemplate template = CoordMaterializationTemplate.get(coordJob);
+            assertNotNull(template);
+            bytes = 0;
+            for (int i = 1; i <= ACTIONS; i++) {
+                bytes += template.materialize(new Date(start.getTime() + (i - 1) * 3600 * 1000L), new Date(), i,
+                        new CoordinatorActionBean()).getActionXml().length();
+            }
+            report("template", System.nanoTime() - begin, bytes);
+        }
+    }
+
+    private static void report(String name, long nanos, long bytes) {
+        System.out.println(String.format("%-24s actions=%d wall=%dms throughput=%.1factions/ms bytes=%d", name,
+                                         ACTIONS, nanos / 1000000, ACTIONS / (nanos / 1e6), bytes));
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.command.coord;
+
+import java.io.StringReader;
+import java.util.Date;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.util.XmlUtils;
+import org.jdom.Element;
+
+public class TestCoordMaterializationTemplate extends XDataTestCase {
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        services.getConf().setBoolean(CoordMaterializationTemplate.CONF_ENABLED, true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testMaterialize() throws Exception {
+        CoordinatorJobBean coordJob = createJob(true);
+        CoordMaterializationTemplate template = CoordMaterializationTemplate.get(coordJob);
+        assertNotNull(template);
+
+        Configuration conf = new XConfiguration(new StringReader(coordJob.getConf()));
+        Date start = DateUtils.parseDateOozieTZ("2009-02-01T01:00Z");
+        for (int i = 1; i <= 10; i++) {
+            Date nominalTime = new Date(start.getTime() + (i - 1) * 24 * 3600 * 1000L);
+            Date actualTime = new Date();
+            CoordinatorActionBean expected = new CoordinatorActionBean();
+            String expectedXml = CoordCommandUtils.materializeOneInstance(coordJob.getId(), false,
+                    XmlUtils.parseXml(coordJob.getJobXml()), nominalTime, actualTime, i, conf, expected);
+            CoordinatorActionBean actual = new CoordinatorActionBean();
+            CoordMaterializationTemplate.MaterializedAction materialized = template.materialize(nominalTime,
+                    actualTime, i, actual);
+
+            assertEquals(expectedXml, materialized.getActionXml());
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getSlaXml(), actual.getSlaXml());
+            assertEquals(expected.getMissingDependencies(), actual.getMissingDependencies());
+            assertEquals(expected.getPushMissingDependencies(), actual.getPushMissingDependencies());
+            assertEquals(expected.getCreatedConf(), actual.getCreatedConf());
+            assertEquals(expected.getNominalTime(), actual.getNominalTime());
+            assertEquals(DateUtils.formatDateOozieTZ(nominalTime),
+                    materialized.getSla().getChildText("nominal-time", materialized.getSla().getNamespace()));
+        }
+        // the first action has no instance of the dataset starting with the job
+        assertFalse(CoordMaterializationTemplate.get(coordJob).materialize(start, new Date(), 1,
+                new CoordinatorActionBean()).getActionXml().contains("/b/2009/01/31"));
+    }
+
+    public void testMaterializeWithoutSla() throws Exception {
+        CoordinatorJobBean coordJob = createJob(false);
+        CoordMaterializationTemplate template = CoordMaterializationTemplate.get(coordJob);
+        assertNotNull(template);
+        CoordinatorActionBean actionBean = new CoordinatorActionBean();
+        Date nominalTime = DateUtils.parseDateOozieTZ("2009-02-03T01:00Z");
+        CoordMaterializationTemplate.MaterializedAction materialized = template.materialize(nominalTime, new Date(),
+                3, actionBean);
+        assertNull(materialized.getSla());
+        assertNull(actionBean.getSlaXml());
+        Element eAction = XmlUtils.parseXml(materialized.getActionXml());
+        assertEquals("3", eAction.getAttributeValue("instance-number"));
+        assertNull(eAction.getAttributeValue("start"));
+    }
+
+    public void testCache() throws Exception {
+        CoordinatorJobBean coordJob = createJob(true);
+        CoordMaterializationTemplate template = CoordMaterializationTemplate.get(coordJob);
+        assertSame(template, CoordMaterializationTemplate.get(coordJob));
+
+        CoordMaterializationTemplate.invalidate(coordJob.getId());
+        CoordMaterializationTemplate compiled = CoordMaterializationTemplate.get(coordJob);
+        assertNotSame(template, compiled);
+
+        // a job whose XML changes is compiled again
+        coordJob.setJobXml(coordJob.getJobXml().replace("<timeout>10</timeout>", "<timeout>20</timeout>"));
+        assertNotSame(compiled, CoordMaterializationTemplate.get(coordJob));
+
+        services.getConf().setBoolean(CoordMaterializationTemplate.CONF_ENABLED, false);
+        assertNull(CoordMaterializationTemplate.get(coordJob));
+    }
+
+    private CoordinatorJobBean createJob(boolean sla) throws Exception {
+        String dir = getFsTestCaseDir().toString();
+        String jobXml = "<coordinator-app xmlns='uri:oozie:coordinator:0.2' xmlns:sla='uri:oozie:sla:0.1'"
+                + " name='NAME' frequency='1' start='2009-02-01T01:00Z' end='2009-02-20T01:00Z' timezone='UTC'"
+                + " freq_timeunit='DAY' end_of_duration='NONE'>"
+                + "<controls><timeout>10</timeout><concurrency>2</concurrency><execution>LIFO</execution></controls>"
+                + "<input-events>"
+                + "<data-in name='A' dataset='a'>"
+                + "<dataset name='a' frequency='1' initial-instance='2009-01-01T01:00Z' timezone='UTC'"
+                + " freq_timeunit='DAY' end_of_duration='NONE'>"
+                + "<uri-template>" + dir + "/a/${YEAR}/${MONTH}/${DAY}</uri-template></dataset>"
+                + "<start-instance>${coord:current(-3)}</start-instance>"
+                + "<end-instance>${coord:current(0)}</end-instance>"
+                + "</data-in>"
+                + "<data-in name='B' dataset='b'>"
+                + "<dataset name='b' frequency='1' initial-instance='2009-02-01T01:00Z' timezone='UTC'"
+                + " freq_timeunit='DAY' end_of_duration='NONE'>"
+                + "<uri-template>" + dir + "/b/${YEAR}/${MONTH}/${DAY}</uri-template>"
+                + "<done-flag>_DONE</done-flag></dataset>"
+                + "<instance>${coord:current(-1)}</instance>"
+                + "<instance>${coord:latest(0)}</instance>"
+                + "</data-in>"
+                + "</input-events>"
+                + "<output-events>"
+                + "<data-out name='C' dataset='c'>"
+                + "<dataset name='c' frequency='1' initial-instance='2009-01-01T01:00Z' timezone='UTC'"
+                + " freq_timeunit='DAY' end_of_duration='NONE'>"
+                + "<uri-template>" + dir + "/c/${YEAR}/${MONTH}/${DAY}</uri-template></dataset>"
+                + "<instance>${coord:current(0)}</instance>"
+                + "</data-out>"
+                + "</output-events>"
+                + "<action><workflow><app-path>hdfs:///tmp/workflows/</app-path>"
+                + "<configuration><property><name>inputA</name><value>${coord:dataIn('A')}</value></property>"
+                + "<property><name>output</name><value>${coord:dataOut('C')} &amp; more</value></property>"
+                + "</configuration></workflow>"
+                + (sla ? "<sla:info><sla:app-name>test-app</sla:app-name>"
+                        + "<sla:nominal-time>${coord:nominalTime()}</sla:nominal-time>"
+                        + "<sla:should-start>5</sla:should-start><sla:should-end>120</sla:should-end>"
+                        + "<sla:notification-msg>Notifying User for ${coord:nominalTime()}\n   nominal time "
+                        + "</sla:notification-msg><sla:alert-contact>abc@example.com</sla:alert-contact>"
+                        + "<sla:dev-contact>abc@example.com</sla:dev-contact>"
+                        + "<sla:qa-contact>abc@example.com</sla:qa-contact>"
+                        + "<sla:se-contact>abc@example.com</sla:se-contact></sla:info>" : "")
+                + "</action></coordinator-app>";
+
+        Configuration conf = new XConfiguration();
+        conf.set(OozieClient.USER_NAME, getTestUser());
+        conf.set("prop", "value <escaped>");
+
+        CoordinatorJobBean coordJob = new CoordinatorJobBean();
+        coordJob.setId("0000000-" + new Date().getTime() + "-oozie-test-C");
+        coordJob.setJobXml(XmlUtils.prettyPrint(XmlUtils.parseXml(jobXml)).toString());
+        coordJob.setConf(XmlUtils.prettyPrint(conf).toString());
+        return coordJob;
+    }
+
+}
@@ -29,13 +29,19 @@ import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.local.LocalOozie;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.command.CommandException;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionGetJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor;
+import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor.WorkflowJobQuery;
+import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowDefinitionService;
 import org.apache.oozie.service.WorkflowStoreService;
 import org.apache.oozie.store.WorkflowStore;
 import org.apache.oozie.test.XDataTestCase;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.service.XLogService;
 import org.apache.oozie.util.IOUtils;
+import org.apache.oozie.workflow.lite.LiteWorkflowInstance;
 
 public class TestSubmitXCommand extends XDataTestCase {
     @Override
@@ -69,6 +75,27 @@ public class TestSubmitXCommand extends XDataTestCase {
       assertEquals("var-app-name-foo", wfb.getAppName());
   }
 
+    public void testSubmitReferencesDefinition() throws Exception {
+        LocalOozie.stop();
+        setSystemProperty(Services.CONF_SERVICE_EXT_CLASSES, WorkflowDefinitionService.class.getName());
+        LocalOozie.start();
+        Configuration conf = new XConfiguration();
+        String workflowUri = getTestCaseFileUri("workflow.xml");
+        String appXml = "<workflow-app xmlns='uri:oozie:workflow:0.1' name='map-reduce-wf'> " + "<start to='end' /> "
+                + "<end name='end' /> " + "</workflow-app>";
+        writeToFile(appXml, workflowUri);
+        conf.set(OozieClient.APP_PATH, workflowUri);
+        conf.set(OozieClient.USER_NAME, getTestUser());
+        String jobId = new SubmitXCommand(conf).call();
+
+        // the definition is inserted with the job and the instance references it
+        WorkflowJobBean wfb = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, jobId);
+        String definitionId = ((LiteWorkflowInstance) wfb.getWorkflowInstance()).getDefinitionId();
+        assertNotNull(definitionId);
+        assertNotNull(Services.get().get(JPAService.class).execute(
+                new WorkflowDefinitionGetJPAExecutor(definitionId)));
+    }
+
     public void testSubmitReservedVars() throws Exception {
         Configuration conf = new XConfiguration();
         String workflowUri = getTestCaseFileUri("workflow.xml");
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Benchmark of the built-in compression codecs on Oozie documents.
+ * <p/>
+ * It compresses and decompresses the XML files of a directory, by default the test resources, with each codec and
+ * reports the compression ratio and the throughput.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.compression.CompressionCodecBenchmark [directory] [iterations]</code>
+ */
+public class CompressionCodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File((args.length > 0) ? args[0] : "core/src/test/resources");
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        List<byte[]> documents = new ArrayList<byte[]>();
+        long totalLength = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && file.getName().endsWith(".xml")) {
+                    InputStream is = new FileInputStream(file);
+                    try {
+                        byte[] document = IOUtils.toByteArray(is);
+                        documents.add(document);
+                        totalLength += document.length;
+                    }
+                    finally {
+                        is.close();
+                    }
+                }
+            }
+        }
+        if (documents.isEmpty()) {
+            System.err.println("No XML documents found in " + dir.getAbsolutePath());
+            System.exit(1);
+        }
+        System.out.println("Documents: " + documents.size() + ", bytes: " + totalLength);
+        CompressionCodec[] codecs = {new GzipCompressionCodec(), new Lz4CompressionCodec(),
+                new DictionaryCompressionCodec()};
+        for (CompressionCodec codec : codecs) {
+            // warm up
+            run(codec, documents, Math.max(1, iterations / 10));
+        }
+        for (CompressionCodec codec : codecs) {
+            run(codec, documents, iterations);
+        }
+    }
+
+    private static void run(CompressionCodec codec, List<byte[]> documents, int iterations) throws IOException {
+        byte[] header = new byte[0];
+        List<byte[]> compressed = new ArrayList<byte[]>(documents.size());
+        long rawLength = 0;
+        long compressedLength = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            compressed.clear();
+            for (byte[] document : documents) {
+                compressed.add(codec.compressBytes(header, document));
+            }
+        }
+        long compressTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] data : compressed) {
+                codec.decompressToBytes(new DataInputStream(new ByteArrayInputStream(data)));
+            }
+        }
+        long decompressTime = System.nanoTime() - start;
+        for (int i = 0; i < documents.size(); i++) {
+            rawLength += documents.get(i).length;
+            compressedLength += compressed.get(i).length;
+        }
+        double megabytes = (double) rawLength * iterations / (1024 * 1024);
+        System.out.println(String.format("%-30s ratio %.3f, compress %8.1f MB/s, decompress %8.1f MB/s",
+                codec.getClass().getSimpleName(), (double) compressedLength / rawLength,
+                megabytes / (compressTime / 1e9), megabytes / (decompressTime / 1e9)));
+    }
+
+}
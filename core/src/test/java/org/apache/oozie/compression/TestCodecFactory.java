@@ -23,6 +23,9 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.BinaryBlob;
@@ -104,4 +107,71 @@ public class TestCodecFactory extends XTestCase {
             // expected
         }
     }
+
+    @Test
+    public void testCodecsRoundTrip() throws Exception {
+        Random random = new Random(1);
+        byte[] xml = IOUtils.toByteArray(Thread.currentThread().getContextClassLoader().getResourceAsStream(
+                "wf-ext-schema-valid.xml"));
+        byte[] randomBytes = new byte[70000];
+        random.nextBytes(randomBytes);
+        byte[] repeated = new byte[70000];
+        Arrays.fill(repeated, (byte) 'x');
+        byte[][] inputs = {new byte[0], "a".getBytes(CodecFactory.UTF_8_ENCODING),
+                "dummmmyyyydummmmyyyy".getBytes(CodecFactory.UTF_8_ENCODING), xml, randomBytes, repeated};
+        for (CompressionCodec codec : new CompressionCodec[]{new GzipCompressionCodec(), new Lz4CompressionCodec(),
+                new DictionaryCompressionCodec()}) {
+            for (byte[] input : inputs) {
+                byte[] compressed = codec.compressBytes(CodecFactory.getHeaderBytes(), input);
+                DataInputStream dais = new DataInputStream(new ByteArrayInputStream(compressed));
+                CodecFactory.getDeCompressionCodec(dais);
+                assertTrue(codec.getClass().getName(), Arrays.equals(input, codec.decompressToBytes(dais)));
+                dais.close();
+            }
+            String str = new String(xml, CodecFactory.UTF_8_ENCODING);
+            byte[] compressed = codec.compressString(CodecFactory.getHeaderBytes(), str);
+            DataInputStream dais = new DataInputStream(new ByteArrayInputStream(compressed));
+            CodecFactory.getDeCompressionCodec(dais);
+            assertEquals(str, codec.decompressToString(dais));
+            dais.close();
+        }
+    }
+
+    @Test
+    public void testDictionaryCodecCompressesSmallDocuments() throws Exception {
+        byte[] xml = IOUtils.toByteArray(Thread.currentThread().getContextClassLoader().getResourceAsStream(
+                "wf-ext-schema-valid.xml"));
+        byte[] header = CodecFactory.getHeaderBytes();
+        int gzLength = new GzipCompressionCodec().compressBytes(header, xml).length;
+        int dictLength = new DictionaryCompressionCodec().compressBytes(header, xml).length;
+        assertTrue(dictLength < gzLength);
+    }
+
+    @Test
+    public void testCorruptedData() throws Exception {
+        byte[] compressed = new Lz4CompressionCodec().compressBytes(new byte[0], new byte[1000]);
+        // uncompressed length of 999 instead of 1000
+        compressed[3] = (byte) 0xE7;
+        try {
+            new Lz4CompressionCodec().decompressToBytes(new DataInputStream(new ByteArrayInputStream(compressed)));
+            fail();
+        }
+        catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBuiltInCodecsAlwaysRegistered() throws Exception {
+        byte[] blob = new BinaryBlob("dummmmyyyy".getBytes(CodecFactory.UTF_8_ENCODING), true).getRawBlob();
+        Configuration conf = services.getConf();
+        for (String codec : new String[]{Lz4CompressionCodec.CODEC_NAME, DictionaryCompressionCodec.CODEC_NAME,
+                "NONE"}) {
+            conf.set(CodecFactory.COMPRESSION_OUTPUT_CODEC, codec);
+            CodecFactory.initialize(conf);
+            // data compressed with gz can be read with any output compression codec
+            assertEquals("dummmmyyyy", new String(new BinaryBlob(blob, false).getBytes(),
+                    CodecFactory.UTF_8_ENCODING));
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.coord;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Benchmark of {@link DatasetInstanceCalculator} against the iterative computation of dataset instances it replaced.
+ * <p/>
+ * It computes the <code>current(0)</code> instance of a dataset with an initial instance two years before the effective
+ * time, as every <code>coord:current</code>, <code>coord:latest</code> and <code>coord:offset</code> evaluation does.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.coord.DatasetInstanceCalculatorBenchmark [iterations]</code>
+ */
+public class DatasetInstanceCalculatorBenchmark {
+
+    private interface Calculator {
+        Calendar getCurrentInstance(Calendar initialInstance, TimeUnit unit, int frequency, Date effectiveTime,
+                int[] instanceCount);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        Calculator iterative = new Calculator() {
+            public Calendar getCurrentInstance(Calendar initialInstance, TimeUnit unit, int frequency,
+                    Date effectiveTime, int[] instanceCount) {
+                return TestDatasetInstanceCalculator.getIterativeCurrentInstance(initialInstance, unit, frequency,
+                        effectiveTime, instanceCount);
+            }
+        };
+        Calculator calculator = new Calculator() {
+            public Calendar getCurrentInstance(Calendar initialInstance, TimeUnit unit, int frequency,
+                    Date effectiveTime, int[] instanceCount) {
+                return DatasetInstanceCalculator.getCurrentInstance(initialInstance, unit, frequency, effectiveTime,
+                        instanceCount);
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            run("iterative", iterative, TimeUnit.MINUTE, 5, iterations);
+            run("calculator", calculator, TimeUnit.MINUTE, 5, iterations * 1000);
+            run("iterative", iterative, TimeUnit.DAY, 1, iterations * 100);
+            run("calculator", calculator, TimeUnit.DAY, 1, iterations * 1000);
+            run("iterative", iterative, TimeUnit.MONTH, 1, iterations * 1000);
+            run("calculator", calculator, TimeUnit.MONTH, 1, iterations * 1000);
+        }
+    }
+
+    private static void run(String name, Calculator calculator, TimeUnit unit, int frequency, int iterations) {
+        Calendar initialInstance = Calendar.getInstance();
+        initialInstance.setTimeZone(TimeZone.getTimeZone("America/Los_Angeles"));
+        initialInstance.set(2012, Calendar.JANUARY, 1, 0, 0, 0);
+        initialInstance.set(Calendar.MILLISECOND, 0);
+        long effectiveTime = initialInstance.getTimeInMillis() + 2 * 365 * 24 * 3600 * 1000L;
+        int[] instanceCount = new int[1];
+        long checksum = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            // a different effective time every iteration
+            Date date = new Date(effectiveTime + (i % 1000) * 60 * 1000L);
+            checksum += calculator.getCurrentInstance(initialInstance, unit, frequency, date, instanceCount)
+                    .getTimeInMillis();
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.println(String.format("%-10s %2d %-6s iterations=%-7d %10.2fus/op (checksum %d)", name, frequency,
+                                         unit, iterations, elapsed / 1000.0 / iterations, checksum));
+    }
+
+}
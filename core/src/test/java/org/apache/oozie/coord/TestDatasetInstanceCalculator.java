@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.coord;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks {@link DatasetInstanceCalculator} against the iterative computation of dataset instances it replaced.
+ */
+public class TestDatasetInstanceCalculator extends TestCase {
+
+    private static final String[] TIME_ZONES = {"UTC", "America/Los_Angeles", "Europe/London", "Asia/Kolkata",
+            "Australia/Lord_Howe", "America/Sao_Paulo"};
+
+    /**
+     * The iterative computation, it adds the frequency to the initial instance until it is after the effective time.
+     */
+    static Calendar getIterativeCurrentInstance(Calendar initialInstance, TimeUnit unit, int frequency,
+            Date effectiveTime, int[] instanceCount) {
+        Calendar current = (Calendar) initialInstance.clone();
+        Calendar calEffectiveTime = Calendar.getInstance();
+        calEffectiveTime.setTime(effectiveTime);
+        calEffectiveTime.setTimeZone(initialInstance.getTimeZone());
+        instanceCount[0] = 0;
+        if (current.compareTo(calEffectiveTime) > 0) {
+            return null;
+        }
+        Calendar origCurrent = (Calendar) current.clone();
+        while (current.compareTo(calEffectiveTime) <= 0) {
+            current = (Calendar) origCurrent.clone();
+            instanceCount[0]++;
+            current.add(unit.getCalendarUnit(), instanceCount[0] * frequency);
+        }
+        instanceCount[0]--;
+
+        current = (Calendar) origCurrent.clone();
+        current.add(unit.getCalendarUnit(), instanceCount[0] * frequency);
+        return current;
+    }
+
+    private static Calendar getCalendar(String date, String tz) throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm");
+        format.setTimeZone(TimeZone.getTimeZone(tz));
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(format.parse(date));
+        cal.setTimeZone(TimeZone.getTimeZone(tz));
+        return cal;
+    }
+
+    private void assertEquivalent(Calendar initialInstance, TimeUnit unit, int frequency, Date effectiveTime) {
+        int[] expectedCount = new int[1];
+        int[] count = new int[1];
+        Calendar expected = getIterativeCurrentInstance(initialInstance, unit, frequency, effectiveTime,
+                expectedCount);
+        Calendar actual = DatasetInstanceCalculator.getCurrentInstance(initialInstance, unit, frequency,
+                effectiveTime, count);
+        String message = initialInstance.getTimeZone().getID() + " " + initialInstance.getTime() + " " + frequency
+                + " " + unit + " " + effectiveTime;
+        if (expected == null) {
+            assertNull(message, actual);
+        }
+        else {
+            assertNotNull(message, actual);
+            assertEquals(message, expected.getTimeInMillis(), actual.getTimeInMillis());
+            assertEquals(message, expected.getTimeZone(), actual.getTimeZone());
+        }
+        assertEquals(message, expectedCount[0], count[0]);
+    }
+
+    public void testBeforeInitialInstance() throws Exception {
+        Calendar initialInstance = getCalendar("2014-01-01T00:00", "UTC");
+        int[] count = {-1};
+        assertNull(DatasetInstanceCalculator.getCurrentInstance(initialInstance, TimeUnit.MINUTE, 5,
+                new Date(initialInstance.getTimeInMillis() - 1), count));
+        assertEquals(0, count[0]);
+        Calendar instance = DatasetInstanceCalculator.getCurrentInstance(initialInstance, TimeUnit.MINUTE, 5,
+                initialInstance.getTime(), count);
+        assertEquals(initialInstance.getTimeInMillis(), instance.getTimeInMillis());
+        assertEquals(0, count[0]);
+        assertNotNull(DatasetInstanceCalculator.getCurrentInstance(initialInstance, TimeUnit.DAY, 1,
+                initialInstance.getTime(), null));
+    }
+
+    public void testFixedFrequencies() throws Exception {
+        Calendar initialInstance = getCalendar("2014-01-01T00:00", "America/Los_Angeles");
+        Date effectiveTime = getCalendar("2014-03-09T10:03", "America/Los_Angeles").getTime();
+        int[] count = new int[1];
+        Calendar instance = DatasetInstanceCalculator.getCurrentInstance(initialInstance, TimeUnit.MINUTE, 5,
+                effectiveTime, count);
+        assertEquals(getCalendar("2014-03-09T10:00", "America/Los_Angeles").getTimeInMillis(),
+                instance.getTimeInMillis());
+        // 67 days and 9 hours, one of them skipped by the daylight saving time change
+        assertEquals((67 * 24 + 9) * 12, count[0]);
+        assertEquivalent(initialInstance, TimeUnit.MINUTE, 5, effectiveTime);
+        assertEquivalent(initialInstance, TimeUnit.HOUR, 1, effectiveTime);
+        assertEquivalent(initialInstance, TimeUnit.HOUR, 6, effectiveTime);
+    }
+
+    public void testMonthEnds() throws Exception {
+        Calendar initialInstance = getCalendar("2012-01-31T12:00", "UTC");
+        for (String date : new String[]{"2012-02-29T11:59", "2012-02-29T12:00", "2012-03-31T11:59",
+                "2013-02-28T12:00", "2014-12-31T12:00"}) {
+            Date effectiveTime = getCalendar(date, "UTC").getTime();
+            assertEquivalent(initialInstance, TimeUnit.MONTH, 1, effectiveTime);
+            assertEquivalent(initialInstance, TimeUnit.END_OF_MONTH, 1, effectiveTime);
+            assertEquivalent(initialInstance, TimeUnit.MONTH, 5, effectiveTime);
+        }
+    }
+
+    public void testDaylightSavingTimeBoundaries() throws Exception {
+        String[] transitions = {"2014-03-09T02:00", "2014-11-02T01:00", "2014-03-30T01:00", "2014-10-26T01:00",
+                "2014-10-05T02:00", "2014-04-06T02:00", "2014-10-19T00:00", "2014-02-16T00:00"};
+        TimeUnit[] units = {TimeUnit.MINUTE, TimeUnit.HOUR, TimeUnit.DAY, TimeUnit.DAY, TimeUnit.END_OF_DAY,
+                TimeUnit.MONTH};
+        int[] frequencies = {90, 7, 1, 7, 1, 1};
+        for (String tz : TIME_ZONES) {
+            for (String initial : new String[]{"2014-01-01T00:00", "2013-11-03T01:30", "2014-03-09T02:30"}) {
+                Calendar initialInstance = getCalendar(initial, tz);
+                for (String transition : transitions) {
+                    long transitionTime = getCalendar(transition, tz).getTimeInMillis();
+                    for (int offset = -150; offset <= 150; offset += 15) {
+                        Date effectiveTime = new Date(transitionTime + offset * 60 * 1000L);
+                        for (int i = 0; i < units.length; i++) {
+                            assertEquivalent(initialInstance, units[i], frequencies[i], effectiveTime);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public void testRandomTimes() throws Exception {
+        Random random = new Random(20140101);
+        TimeUnit[] units = {TimeUnit.MINUTE, TimeUnit.HOUR, TimeUnit.DAY, TimeUnit.END_OF_DAY, TimeUnit.MONTH,
+                TimeUnit.END_OF_MONTH, TimeUnit.YEAR};
+        int[] frequencies = {60, 1, 1, 2, 1, 3, 1};
+        for (int i = 0; i < 2000; i++) {
+            String tz = TIME_ZONES[random.nextInt(TIME_ZONES.length)];
+            int u = random.nextInt(units.length);
+            Calendar initialInstance = getCalendar("2012-01-31T00:00", tz);
+            initialInstance.add(Calendar.MINUTE, random.nextInt(60 * 24 * 60));
+            Date effectiveTime = new Date(initialInstance.getTimeInMillis()
+                    + (long) (random.nextDouble() * 3 * 365 * 24 * 3600 * 1000L) - 24 * 3600 * 1000L);
+            assertEquivalent(initialInstance, units[u], frequencies[u], effectiveTime);
+        }
+    }
+
+}
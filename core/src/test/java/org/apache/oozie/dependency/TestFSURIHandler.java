@@ -18,6 +18,7 @@
 package org.apache.oozie.dependency;
 
 import java.net.URI;
+import java.util.Set;
 
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapred.JobConf;
@@ -61,4 +62,30 @@ public class TestFSURIHandler extends XFsTestCase {
 
     }
 
+    @Test
+    public void testList() throws Exception {
+        Path path1 = new Path(getFsTestCaseDir() + "/2012/12/02");
+        Path path2 = new Path(getFsTestCaseDir() + "/2012/12/03");
+        getFileSystem().mkdirs(path1);
+        getFileSystem().create(path2).close();
+        ListableURIHandler handler = (ListableURIHandler) uriService.getURIHandler(path1.toUri());
+        String parentURI = handler.getParentURI(path1.toUri());
+        assertEquals(path1.getParent().toString(), parentURI);
+        assertEquals("02", handler.getName(path1.toUri()));
+
+        URIHandler.Context context = handler.getContext(path1.toUri(), conf, getTestUser());
+        try {
+            Set<String> names = handler.list(parentURI, context);
+            assertEquals(2, names.size());
+            assertTrue(names.contains("02"));
+            assertTrue(names.contains("03"));
+            // a missing directory and a file do not have children
+            assertTrue(handler.list(getFsTestCaseDir() + "/2012/11", context).isEmpty());
+            assertTrue(handler.list(path2.toString(), context).isEmpty());
+        }
+        finally {
+            context.destroy();
+        }
+    }
+
 }
@@ -18,6 +18,7 @@
 package org.apache.oozie.dependency;
 
 import java.net.URI;
+import java.util.Set;
 
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.oozie.service.Services;
@@ -95,4 +96,34 @@ public class TestHCatURIHandler extends XHCatTestCase {
         dropTestTable();
     }
 
+    @Test
+    public void testList() throws Exception {
+        createTestTable();
+
+        addPartition(db, table, "year=2012;month=12;dt=02;country=us");
+        addPartition(db, table, "year=2012;month=12;dt=03;country=us");
+
+        URI hcatURI = getHCatURI(db, table, "year=2012;month=12;dt=03");
+        ListableURIHandler handler = (ListableURIHandler) uriService.getURIHandler(hcatURI);
+        String parentURI = handler.getParentURI(hcatURI);
+        assertTrue(parentURI, parentURI.endsWith("/" + db + "/" + table + "/month=12;year=2012"));
+        assertEquals("dt=03", handler.getName(hcatURI));
+        assertNull(handler.getParentURI(getHCatURI(db, table, "dt=03")));
+
+        URIHandler.Context context = handler.getContext(hcatURI, conf, getTestUser());
+        try {
+            Set<String> names = handler.list(parentURI, context);
+            assertTrue(names.contains("dt=02"));
+            assertTrue(names.contains("dt=03"));
+            assertFalse(names.contains("dt=04"));
+            assertTrue(handler.list(handler.getParentURI(getHCatURI(db, table, "year=2013;dt=02")), context)
+                    .isEmpty());
+        }
+        finally {
+            context.destroy();
+        }
+
+        dropTestTable();
+    }
+
 }
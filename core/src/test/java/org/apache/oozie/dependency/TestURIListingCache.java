@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.dependency;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.URIHandlerService;
+import org.apache.oozie.test.XFsTestCase;
+import org.apache.oozie.util.Instrumentation;
+
+public class TestURIListingCache extends XFsTestCase {
+
+    private Services services;
+    private URIHandlerService uriService;
+    private JobConf conf;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        uriService = services.get(URIHandlerService.class);
+        conf = createJobConf();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testExists() throws Exception {
+        Path dir = new Path(getFsTestCaseDir(), "2012/12");
+        getFileSystem().mkdirs(new Path(dir, "02"));
+        getFileSystem().create(new Path(dir, "02/_SUCCESS")).close();
+        getFileSystem().mkdirs(new Path(dir, "03"));
+
+        URI uri = new Path(dir, "01").toUri();
+        URIHandler handler = uriService.getURIHandler(uri);
+        URIHandler.Context context = handler.getContext(uri, conf, getTestUser());
+        URIListingCache listingCache = new URIListingCache();
+        try {
+            // without done flag
+            for (int day = 1; day <= 5; day++) {
+                URI instance = new Path(dir, "0" + day).toUri();
+                assertEquals("day " + day, day == 2 || day == 3,
+                        listingCache.exists(handler, context, instance, instance));
+            }
+            // with done flag, it is only checked for the instances in the listing
+            for (int day = 1; day <= 5; day++) {
+                URI instance = new Path(dir, "0" + day).toUri();
+                URI doneFlag = new URI(handler.getURIWithDoneFlag(instance.toString(), "_SUCCESS"));
+                assertEquals("day " + day, day == 2, listingCache.exists(handler, context, instance, doneFlag));
+            }
+        }
+        finally {
+            context.destroy();
+        }
+
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        assertEquals(10L, getCounter(instr, URIListingCache.INSTR_CHECKS_COUNTER));
+        assertEquals(1L, getCounter(instr, URIListingCache.INSTR_LISTINGS_COUNTER));
+        assertEquals(2L, getCounter(instr, URIListingCache.INSTR_EXISTS_COUNTER));
+        assertEquals(7L, getCounter(instr, URIListingCache.INSTR_CALLS_SAVED_COUNTER));
+    }
+
+    public void testNonListableHandler() throws Exception {
+        Path dir = new Path(getFsTestCaseDir(), "2012/12");
+        getFileSystem().mkdirs(new Path(dir, "02"));
+        getFileSystem().create(new Path(dir, "02/_SUCCESS")).close();
+        getFileSystem().mkdirs(new Path(dir, "03"));
+
+        URI uri = new Path(dir, "01").toUri();
+        final URIHandler fsHandler = uriService.getURIHandler(uri);
+        // a handler written for earlier versions, it only implements URIHandler
+        URIHandler handler = (URIHandler) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { URIHandler.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        try {
+                            return method.invoke(fsHandler, args);
+                        }
+                        catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    }
+                });
+        URIHandler.Context context = handler.getContext(uri, conf, getTestUser());
+        URIListingCache listingCache = new URIListingCache();
+        try {
+            for (int day = 1; day <= 5; day++) {
+                URI instance = new Path(dir, "0" + day).toUri();
+                URI doneFlag = new URI(handler.getURIWithDoneFlag(instance.toString(), "_SUCCESS"));
+                assertEquals("day " + day, day == 2, listingCache.exists(handler, context, instance, doneFlag));
+            }
+            List<URI> uris = new ArrayList<URI>();
+            uris.add(new Path(dir, "02").toUri());
+            uris.add(new Path(dir, "04").toUri());
+            assertEquals(Collections.singleton(uris.get(0)), URIListingCache.exists(handler, uris, context));
+        }
+        finally {
+            context.destroy();
+        }
+
+        // the instances are checked one by one, with their done flag
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        assertEquals(7L, getCounter(instr, URIListingCache.INSTR_CHECKS_COUNTER));
+        assertEquals(0L, getCounter(instr, URIListingCache.INSTR_LISTINGS_COUNTER));
+        assertEquals(7L, getCounter(instr, URIListingCache.INSTR_EXISTS_COUNTER));
+        assertEquals(0L, getCounter(instr, URIListingCache.INSTR_CALLS_SAVED_COUNTER));
+    }
+
+    private long getCounter(Instrumentation instr, String name) {
+        return instr.getCounters().get(URIListingCache.INSTRUMENTATION_GROUP).get(name).getValue();
+    }
+
+}
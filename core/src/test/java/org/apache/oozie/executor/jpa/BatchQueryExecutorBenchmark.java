@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.rest.JsonBean;
+import org.apache.oozie.executor.jpa.TestBatchQueryExecutor.CountingDataSource;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+/**
+ * Benchmark of the inserts of {@link BatchQueryExecutor} against the embedded Derby database of the test suite, with
+ * and without JDBC batching ({@link JPAService#CONF_BATCH_LIMIT}).
+ * <p/>
+ * It reports the statement executions, each of them a database round-trip, and the elapsed time of each insert.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.executor.jpa.BatchQueryExecutorBenchmark [beans] [batchLimit]</code>
+ */
+public class BatchQueryExecutorBenchmark extends XDataTestCase {
+    private static int beans = 2000;
+    private static int batchLimit = 50;
+
+    public static void main(String[] args) throws Exception {
+        beans = (args.length > 0) ? Integer.parseInt(args[0]) : beans;
+        batchLimit = (args.length > 1) ? Integer.parseInt(args[1]) : batchLimit;
+        junit.textui.TestRunner.run(BatchQueryExecutorBenchmark.class);
+    }
+
+    public void testInserts() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            run("round-" + i + "-unbatched", 0);
+            run("round-" + i + "-batched", batchLimit);
+        }
+    }
+
+    private void run(String name, int limit) throws Exception {
+        Services services = new Services();
+        services.getConf().set(JPAService.CONF_CONN_DATA_SOURCE, CountingDataSource.class.getName());
+        services.getConf().setInt(JPAService.CONF_BATCH_LIMIT, limit);
+        services.init();
+        try {
+            Collection<JsonBean> insertList = new ArrayList<JsonBean>();
+            for (int i = 0; i < beans; i++) {
+                insertList.add(createWorkflowAction(name, Integer.toString(i), WorkflowAction.Status.PREP));
+            }
+            CountingDataSource.EXECUTIONS.set(0);
+            long start = System.nanoTime();
+            BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(insertList, null, null);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%-20s batch limit %4d: %6d beans, %6d statement executions, %8.1f ms",
+                    name, limit, beans, CountingDataSource.EXECUTIONS.get(), elapsed / 1e6));
+        }
+        finally {
+            services.destroy();
+            BatchQueryExecutor.destroy();
+        }
+    }
+}
@@ -17,9 +17,19 @@
  */
 package org.apache.oozie.executor.jpa;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.dbcp.BasicDataSource;
 
 import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.CoordinatorJobBean;
@@ -156,4 +166,90 @@ public class TestBatchQueryExecutor extends XDataTestCase {
         }
 
     }
+
+    public void testCoalesceUpdates() throws Exception {
+        WorkflowJobBean wfJob = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        WorkflowJobBean wfJob2 = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        List<UpdateEntry> updateList = new ArrayList<UpdateEntry>();
+        updateList.add(new UpdateEntry<WorkflowJobQuery>(WorkflowJobQuery.UPDATE_WORKFLOW_STATUS_MODTIME, wfJob));
+        updateList.add(new UpdateEntry<WorkflowJobQuery>(WorkflowJobQuery.UPDATE_WORKFLOW_MODTIME, wfJob));
+        updateList.add(new UpdateEntry<WorkflowJobQuery>(WorkflowJobQuery.UPDATE_WORKFLOW_STATUS_MODTIME, wfJob2));
+        wfJob.setStatus(WorkflowJob.Status.RUNNING);
+        updateList.add(new UpdateEntry<WorkflowJobQuery>(WorkflowJobQuery.UPDATE_WORKFLOW_STATUS_MODTIME, wfJob));
+
+        List<UpdateEntry> coalescedList = BatchQueryExecutor.coalesce(updateList);
+        assertEquals(3, coalescedList.size());
+        assertSame(updateList.get(1), coalescedList.get(0));
+        assertSame(updateList.get(2), coalescedList.get(1));
+        assertSame(updateList.get(3), coalescedList.get(2));
+
+        BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(null, updateList, null);
+        wfJob = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, wfJob.getId());
+        assertEquals("RUNNING", wfJob.getStatusStr());
+    }
+
+    public void testInsertRoundTrips() throws Exception {
+        services.destroy();
+        int unbatched = countInsertRoundTrips(0, 200);
+        int batched = countInsertRoundTrips(50, 200);
+        assertTrue(batched < unbatched);
+        services = new Services();
+        services.init();
+    }
+
+    private int countInsertRoundTrips(int batchLimit, int beans) throws Exception {
+        services = new Services();
+        services.getConf().set(JPAService.CONF_CONN_DATA_SOURCE, CountingDataSource.class.getName());
+        services.getConf().setInt(JPAService.CONF_BATCH_LIMIT, batchLimit);
+        services.init();
+        try {
+            Collection<JsonBean> insertList = new ArrayList<JsonBean>();
+            for (int i = 0; i < beans; i++) {
+                insertList.add(createWorkflowAction("batch-" + batchLimit, Integer.toString(i),
+                        WorkflowAction.Status.PREP));
+            }
+            CountingDataSource.EXECUTIONS.set(0);
+            BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(insertList, null, null);
+            return CountingDataSource.EXECUTIONS.get();
+        }
+        finally {
+            services.destroy();
+            BatchQueryExecutor.destroy();
+        }
+    }
+
+    /**
+     * Data source counting the statement executions, each of them is a database round-trip.
+     * <p/>
+     * It is also used by {@link BatchQueryExecutorBenchmark}.
+     */
+    public static class CountingDataSource extends BasicDataSource {
+        static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return (Connection) wrap(super.getConnection(), Connection.class);
+        }
+
+        private static Object wrap(final Object target, Class<?> type) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (method.getName().startsWith("execute")) {
+                        EXECUTIONS.incrementAndGet();
+                    }
+                    try {
+                        Object ret = method.invoke(target, args);
+                        if (ret instanceof Statement) {
+                            ret = wrap(ret, method.getReturnType());
+                        }
+                        return ret;
+                    }
+                    catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestCoordJobsActiveActionsCountJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testActiveActionsCount() throws Exception {
+        CoordinatorJobBean job1 = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+        addRecordToCoordActionTable(job1.getId(), 1, CoordinatorAction.Status.WAITING, "coord-action-get.xml", 0);
+        addRecordToCoordActionTable(job1.getId(), 2, CoordinatorAction.Status.RUNNING, "coord-action-get.xml", 0);
+        addRecordToCoordActionTable(job1.getId(), 3, CoordinatorAction.Status.WAITING, "coord-action-get.xml", 0);
+        CoordinatorJobBean job2 = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+        addRecordToCoordActionTable(job2.getId(), 1, CoordinatorAction.Status.WAITING, "coord-action-get.xml", 0);
+        CoordinatorJobBean job3 = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+
+        List<String> jobIds = new ArrayList<String>();
+        jobIds.add(job1.getId());
+        jobIds.add(job2.getId());
+        jobIds.add(job3.getId());
+        JPAService jpaService = Services.get().get(JPAService.class);
+        Map<String, Integer> counts = jpaService.execute(new CoordJobsActiveActionsCountJPAExecutor(jobIds));
+        assertEquals(3, counts.size());
+        assertEquals(2, (int) counts.get(job1.getId()));
+        assertEquals(1, (int) counts.get(job2.getId()));
+        assertEquals(0, (int) counts.get(job3.getId()));
+    }
+
+    public void testActiveActionsCountInChunks() throws Exception {
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+        addRecordToCoordActionTable(job.getId(), 1, CoordinatorAction.Status.WAITING, "coord-action-get.xml", 0);
+        List<String> jobIds = new ArrayList<String>();
+        for (int i = 0; i < CoordJobsActiveActionsCountJPAExecutor.CHUNK_SIZE + 10; i++) {
+            jobIds.add("job-" + i);
+        }
+        jobIds.add(job.getId());
+        Map<String, Integer> counts = Services.get().get(JPAService.class).execute(
+                new CoordJobsActiveActionsCountJPAExecutor(jobIds));
+        assertEquals(jobIds.size(), counts.size());
+        assertEquals(1, (int) counts.get(job.getId()));
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+public class TestWorkflowsJobStreamJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testWalkPages() throws Exception {
+        Set<String> ids = new HashSet<String>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP).getId());
+        }
+        JPAService jpaService = Services.get().get(JPAService.class);
+        Map<String, List<String>> filter = new HashMap<String, List<String>>();
+        List<WorkflowJobBean> jobs = new ArrayList<WorkflowJobBean>();
+
+        // pages of 2 jobs, jobs created in the same millisecond are ordered by id
+        WorkflowsJobStreamJPAExecutor.Page page = jpaService.execute(new WorkflowsJobStreamJPAExecutor(filter, null,
+                2));
+        jobs.addAll(page.getJobs());
+        assertEquals(2, jobs.size());
+        assertEquals(WorkflowsJobStreamJPAExecutor.getCursor(jobs.get(1)), page.getNextCursor());
+        page = jpaService.execute(new WorkflowsJobStreamJPAExecutor(filter, page.getNextCursor(), 2));
+        jobs.addAll(page.getJobs());
+        assertEquals(4, jobs.size());
+        assertNotNull(page.getNextCursor());
+        page = jpaService.execute(new WorkflowsJobStreamJPAExecutor(filter, page.getNextCursor(), 2));
+        jobs.addAll(page.getJobs());
+        assertEquals(5, jobs.size());
+        assertNull(page.getNextCursor());
+
+        Set<String> streamedIds = new HashSet<String>();
+        for (int i = 0; i < jobs.size(); i++) {
+            streamedIds.add(jobs.get(i).getId());
+            if (i > 0) {
+                long previous = jobs.get(i - 1).getCreatedTime().getTime();
+                long current = jobs.get(i).getCreatedTime().getTime();
+                assertTrue(previous > current
+                        || (previous == current && jobs.get(i - 1).getId().compareTo(jobs.get(i).getId()) > 0));
+            }
+        }
+        assertEquals(ids, streamedIds);
+
+        // a full last page has no next page
+        page = jpaService.execute(new WorkflowsJobStreamJPAExecutor(filter, null, 5));
+        assertNull(page.getNextCursor());
+        assertEquals(5, page.getJobs().size());
+    }
+
+    public void testFilterAndCount() throws Exception {
+        WorkflowJobBean running = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        addRecordToWfJobTable(WorkflowJob.Status.SUCCEEDED, WorkflowInstance.Status.SUCCEEDED);
+        JPAService jpaService = Services.get().get(JPAService.class);
+        Map<String, List<String>> filter = new HashMap<String, List<String>>();
+        assertEquals(3L, (long) jpaService.execute(new WorkflowsJobCountJPAExecutor(filter)));
+
+        filter.put(OozieClient.FILTER_STATUS, Arrays.asList("RUNNING", "SUCCEEDED"));
+        assertEquals(2L, (long) jpaService.execute(new WorkflowsJobCountJPAExecutor(filter)));
+        filter.put(OozieClient.FILTER_ID, Arrays.asList(running.getId()));
+        assertEquals(1L, (long) jpaService.execute(new WorkflowsJobCountJPAExecutor(filter)));
+
+        WorkflowsJobStreamJPAExecutor.Page page = jpaService.execute(new WorkflowsJobStreamJPAExecutor(filter, null,
+                10));
+        assertNull(page.getNextCursor());
+        List<WorkflowJobBean> jobs = page.getJobs();
+        assertEquals(1, jobs.size());
+        assertEquals(running.getId(), jobs.get(0).getId());
+        assertEquals(WorkflowJob.Status.RUNNING, jobs.get(0).getStatus());
+    }
+
+    public void testInvalidCursor() throws Exception {
+        JPAService jpaService = Services.get().get(JPAService.class);
+        try {
+            jpaService.execute(new WorkflowsJobStreamJPAExecutor(new HashMap<String, List<String>>(), "foo", 10));
+            fail();
+        }
+        catch (JPAExecutorException ex) {
+            assertEquals(ErrorCode.E0302, ex.getErrorCode());
+        }
+    }
+}
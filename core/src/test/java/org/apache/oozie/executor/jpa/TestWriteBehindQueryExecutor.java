@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Date;
+
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor.WorkflowJobQuery;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+public class TestWriteBehindQueryExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.getConf().setBoolean(JPAService.CONF_WRITE_BEHIND_ENABLED, true);
+        // flushes are triggered by the tests
+        services.getConf().setLong(JPAService.CONF_WRITE_BEHIND_WINDOW, 600000);
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testWriteBehind() throws Exception {
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        Date modTime = new Date(System.currentTimeMillis() + 3600 * 1000);
+        job.setLastModifiedTime(modTime);
+        WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW_MODTIME, job);
+        job.setLastModifiedTime(new Date(modTime.getTime() + 1000));
+        WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW_MODTIME, job);
+
+        // the updates are coalesced and not executed yet
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        assertEquals(1L, (long) instr.getCounters().get("jpa").get("writebehind.coalesced").getValue());
+        WorkflowJobBean dbJob = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, job.getId());
+        assertFalse((modTime.getTime() + 1000) / 1000 == dbJob.getLastModifiedTime().getTime() / 1000);
+
+        services.get(JPAService.class).getWriteBehindQueryExecutor().flush();
+        dbJob = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, job.getId());
+        assertEquals((modTime.getTime() + 1000) / 1000, dbJob.getLastModifiedTime().getTime() / 1000);
+        assertEquals(1L, (long) instr.getCounters().get("jpa").get("writebehind.flushed").getValue());
+    }
+
+    public void testUpdatesOfARowAreNotReordered() throws Exception {
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        job.setLastModifiedTime(new Date(System.currentTimeMillis() + 3600 * 1000));
+        WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW_MODTIME, job);
+
+        // an update that is not write-behind flushes the pending update of the job before being executed
+        Date modTime = new Date();
+        job.setLastModifiedTime(modTime);
+        job.setStatus(WorkflowJob.Status.RUNNING);
+        WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW_STATUS_MODTIME, job);
+        assertEquals(0, services.get(JPAService.class).getWriteBehindQueryExecutor().size());
+
+        WorkflowJobBean dbJob = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, job.getId());
+        assertEquals(WorkflowJob.Status.RUNNING, dbJob.getStatus());
+        assertEquals(modTime.getTime() / 1000, dbJob.getLastModifiedTime().getTime() / 1000);
+    }
+
+    public void testFlushOnDestroy() throws Exception {
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        Date modTime = new Date(System.currentTimeMillis() + 3600 * 1000);
+        job.setLastModifiedTime(modTime);
+        WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW_MODTIME, job);
+        assertEquals(1, services.get(JPAService.class).getWriteBehindQueryExecutor().size());
+
+        services.destroy();
+        services = new Services();
+        services.init();
+        WorkflowJobQueryExecutor.destroy();
+        WorkflowJobBean dbJob = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, job.getId());
+        assertEquals(modTime.getTime() / 1000, dbJob.getLastModifiedTime().getTime() / 1000);
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.lock;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Throughput benchmark of {@link MemoryLocks} against the previous implementation, which guarded the lock map with a
+ * global monitor.
+ * <p/>
+ * Each thread acquires and releases write locks on its own set of resources, as commands of different jobs do, so any
+ * contention comes from the lock manager itself.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.lock.MemoryLocksBenchmark [threads] [iterations]</code>
+ */
+public class MemoryLocksBenchmark {
+
+    private interface Locker {
+        void lockAndRelease(String resource) throws InterruptedException;
+    }
+
+    /**
+     * The previous {@link MemoryLocks} implementation, reduced to the write lock path.
+     */
+    private static class MonitorLocks implements Locker {
+        private final HashMap<String, ReentrantReadWriteLock> locks = new HashMap<String, ReentrantReadWriteLock>();
+
+        public void lockAndRelease(String resource) throws InterruptedException {
+            ReentrantReadWriteLock lockEntry;
+            synchronized (locks) {
+                lockEntry = locks.get(resource);
+                if (lockEntry == null) {
+                    lockEntry = new ReentrantReadWriteLock(true);
+                    locks.put(resource, lockEntry);
+                }
+            }
+            Lock lock = lockEntry.writeLock();
+            lock.lock();
+            synchronized (locks) {
+                if (!locks.containsKey(resource)) {
+                    locks.put(resource, lockEntry);
+                }
+            }
+            if (lockEntry.getQueueLength() == 0) {
+                synchronized (locks) {
+                    locks.remove(resource);
+                }
+            }
+            lock.unlock();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = (args.length > 0) ? Integer.parseInt(args[0]) : 32;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 200000;
+        for (int i = 0; i < 3; i++) {
+            run("synchronized HashMap", new MonitorLocks(), threads, iterations);
+            final MemoryLocks memoryLocks = new MemoryLocks();
+            run("MemoryLocks", new Locker() {
+                public void lockAndRelease(String resource) throws InterruptedException {
+                    memoryLocks.getWriteLock(resource, -1).release();
+                }
+            }, threads, iterations);
+        }
+    }
+
+    private static void run(String name, final Locker locker, int threads, final int iterations) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final String prefix = "job-" + i + "-";
+            workers[i] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            locker.lockAndRelease(prefix + (j % 16));
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long wall = System.nanoTime() - begin;
+        System.out.println(String.format("%-22s threads=%d ops=%d wall=%dms throughput=%.0fops/ms", name, threads,
+                                         (long) threads * iterations, wall / 1000000,
+                                         (double) threads * iterations / (wall / 1e6)));
+    }
+
+}
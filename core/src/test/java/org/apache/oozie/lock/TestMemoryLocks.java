@@ -17,6 +17,8 @@
  */
 package org.apache.oozie.lock;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.oozie.test.XTestCase;
 import org.apache.oozie.util.XLog;
 
@@ -218,4 +220,57 @@ public class TestMemoryLocks extends XTestCase {
         assertEquals("a:1-L a:1-U a:2-L a:2-U", sb.toString().trim());
     }
 
+    public void testLocksRemovedWhenReleased() throws Exception {
+        MemoryLocks.MemoryLockToken token1 = locks.getReadLock("a", -1);
+        MemoryLocks.MemoryLockToken token2 = locks.getReadLock("a", -1);
+        assertEquals(1, locks.size());
+        assertNull(locks.getWriteLock("a", 0));
+        assertNull(locks.getWriteLock("a", 10));
+        assertEquals(1, locks.size());
+        token1.release();
+        assertEquals(1, locks.size());
+        token2.release();
+        assertEquals(0, locks.size());
+
+        MemoryLocks.MemoryLockToken token = locks.getWriteLock("b", 0);
+        assertNotNull(token);
+        token.release();
+        assertEquals(0, locks.size());
+    }
+
+    public void testConcurrentLocking() throws Exception {
+        final int threads = 16;
+        final int iterations = 2000;
+        final int[] counters = new int[4];
+        final AtomicInteger errors = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < iterations; j++) {
+                            int resource = j % counters.length;
+                            MemoryLocks.MemoryLockToken token = locks.getWriteLock("r" + resource, -1);
+                            // not atomic, it is only correct if the write lock is exclusive
+                            counters[resource]++;
+                            token.release();
+                        }
+                    }
+                    catch (Exception ex) {
+                        errors.incrementAndGet();
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, errors.get());
+        for (int counter : counters) {
+            assertEquals(threads * iterations / counters.length, counter);
+        }
+        assertEquals(0, locks.size());
+    }
+
 }
@@ -27,18 +27,34 @@ import javax.servlet.http.HttpServletResponse;
 /**
  * Used by {@link TestZKXLogStreamingService#testStreamingWithMultipleOozieServers() } to stream logs from another Oozie "server".
  * Due to the way the servlet gets loaded, it has to be its own class instead of an inner class.
+ * <p/>
+ * The {@link #LOGS_PARAM} and {@link #DELAY_PARAM} init parameters give each "server" its own logs and a delay in milliseconds
+ * before answering, otherwise it returns {@link #logs}.
  */
 public class DummyLogStreamingServlet extends HttpServlet {
 
+    public static final String LOGS_PARAM = "logs";
+    public static final String DELAY_PARAM = "delay";
+
     public static String lastQueryString = null;
     public static String logs = null;
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         lastQueryString = request.getQueryString();
+        String delay = getInitParameter(DELAY_PARAM);
+        if (delay != null) {
+            try {
+                Thread.sleep(Long.parseLong(delay));
+            }
+            catch (InterruptedException ex) {
+                throw new ServletException(ex);
+            }
+        }
         response.setStatus(HttpServletResponse.SC_OK);
         Writer writer = response.getWriter();
-        writer.append(logs);
+        String serverLogs = getInitParameter(LOGS_PARAM);
+        writer.append((serverLogs != null) ? serverLogs : logs);
         writer.close();
     }
 }
@@ -21,18 +21,30 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Date;
+import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.examples.SleepJob;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RunningJob;
 import org.apache.oozie.client.CoordinatorAction;
 import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.WorkflowAction;
 import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.executor.jpa.CoordActionGetJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowActionInsertJPAExecutor;
 import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor;
 import org.apache.oozie.executor.jpa.WorkflowActionsGetForJobJPAExecutor;
 import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor.WorkflowActionQuery;
+import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor;
+import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor.WorkflowJobQuery;
 import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.CoordinatorEngine;
 import org.apache.oozie.CoordinatorJobBean;
@@ -46,6 +58,7 @@ import org.apache.oozie.service.ActionService;
 import org.apache.oozie.test.XDataTestCase;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.IOUtils;
+import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.workflow.WorkflowInstance;
 
@@ -250,4 +263,97 @@ public class TestActionCheckerService extends XDataTestCase {
     }
 
 
+    /**
+     * Tests the batched status check: only the actions whose Hadoop job is not running anymore, and the actions that
+     * do not run a Hadoop job, are checked. The jobs of a JobTracker are listed once for all the users.
+     *
+     * @throws Exception
+     */
+    public void testActionCheckerServiceBatchStatusCheck() throws Exception {
+        Services.get().getConf().setBoolean(ActionCheckerService.CONF_BATCH_STATUS_CHECK, true);
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        Date lastCheckTime = new Date(System.currentTimeMillis() - 3600 * 1000);
+        final WorkflowActionBean running = addRunningAction(job.getId(), "1", "map-reduce", "job_201401010000_0001",
+                lastCheckTime);
+        WorkflowActionBean completed = addRunningAction(job.getId(), "2", "map-reduce", "job_201401010000_0002",
+                lastCheckTime);
+        WorkflowActionBean other = addRunningAction(job.getId(), "3", "test", null, lastCheckTime);
+        WorkflowJobBean otherUserJob = addRecordToWfJobTable(WorkflowJob.Status.RUNNING,
+                WorkflowInstance.Status.RUNNING);
+        otherUserJob.setUser(getTestUser2());
+        WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW, otherUserJob);
+        final WorkflowActionBean otherUserRunning = addRunningAction(otherUserJob.getId(), "1", "map-reduce",
+                "job_201401010000_0003", lastCheckTime);
+
+        final List<XCallable<Void>> callables = new ArrayList<XCallable<Void>>();
+        final List<String> polls = new ArrayList<String>();
+        ActionCheckRunnable actionCheckRunnable = new ActionCheckRunnable(0) {
+            @Override
+            Set<String> getRunningJobIds(String trackerUri, String user) throws Exception {
+                polls.add(trackerUri);
+                return new HashSet<String>(Arrays.asList(running.getExternalId(),
+                        otherUserRunning.getExternalId()));
+            }
+
+            @Override
+            void queueCallable(XCallable<Void> callable) {
+                callables.add(callable);
+            }
+        };
+        actionCheckRunnable.run();
+
+        // a single poll for the Hadoop actions of both users
+        assertEquals(1, polls.size());
+        assertEquals(getJobTrackerUri(), polls.get(0));
+        assertEquals(2, callables.size());
+
+        WorkflowActionBean action = WorkflowActionQueryExecutor.getInstance().get(WorkflowActionQuery.GET_ACTION,
+                running.getId());
+        assertTrue(action.getLastCheckTime().after(lastCheckTime));
+        action = WorkflowActionQueryExecutor.getInstance().get(WorkflowActionQuery.GET_ACTION,
+                otherUserRunning.getId());
+        assertTrue(action.getLastCheckTime().after(lastCheckTime));
+        action = WorkflowActionQueryExecutor.getInstance().get(WorkflowActionQuery.GET_ACTION, completed.getId());
+        assertEquals(lastCheckTime.getTime() / 1000, action.getLastCheckTime().getTime() / 1000);
+        action = WorkflowActionQueryExecutor.getInstance().get(WorkflowActionQuery.GET_ACTION, other.getId());
+        assertEquals(lastCheckTime.getTime() / 1000, action.getLastCheckTime().getTime() / 1000);
+    }
+
+    /**
+     * Tests listing the running jobs on the test cluster.
+     *
+     * @throws Exception
+     */
+    public void testGetRunningJobIds() throws Exception {
+        JobConf jobConf = Services.get().get(HadoopAccessorService.class)
+                .createJobConf(new URI(getNameNodeUri()).getAuthority());
+        SleepJob sleepjob = new SleepJob();
+        sleepjob.setConf(jobConf);
+        jobConf = sleepjob.setupJobConf(1, 1, 60000, 1, 60000, 1);
+        final RunningJob runningJob = createJobClient().submitJob(jobConf);
+        String jobId = runningJob.getID().toString();
+
+        ActionCheckRunnable actionCheckRunnable = new ActionCheckRunnable(0);
+        assertTrue(actionCheckRunnable.getRunningJobIds(getJobTrackerUri(), getTestUser()).contains(jobId));
+
+        runningJob.killJob();
+        waitFor(60 * 1000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return runningJob.isComplete();
+            }
+        });
+        assertFalse(actionCheckRunnable.getRunningJobIds(getJobTrackerUri(), getTestUser()).contains(jobId));
+    }
+
+    private WorkflowActionBean addRunningAction(String wfId, String actionName, String type, String externalId,
+            Date lastCheckTime) throws Exception {
+        WorkflowActionBean action = createWorkflowAction(wfId, actionName, WorkflowAction.Status.RUNNING, true);
+        action.setType(type);
+        action.setExternalId(externalId);
+        action.setTrackerUri(getJobTrackerUri());
+        action.setLastCheckTime(lastCheckTime);
+        Services.get().get(JPAService.class).execute(new WorkflowActionInsertJPAExecutor(action));
+        return action;
+    }
+
 }
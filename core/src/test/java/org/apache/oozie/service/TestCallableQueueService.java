@@ -20,8 +20,10 @@ package org.apache.oozie.service;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -509,6 +511,62 @@ public class TestCallableQueueService extends XTestCase {
         assertTrue(secondBatch >= 2);
     }
 
+    public void testConcurrentQueuing() throws Exception {
+        Services.get().destroy();
+        setSystemProperty(CallableQueueService.CONF_QUEUE_SIZE, "100000");
+        setSystemProperty(CallableQueueService.CONF_CALLABLE_CONCURRENCY, "100");
+        new Services().init();
+        final CallableQueueService queueservice = Services.get().get(CallableQueueService.class);
+
+        // 64 threads hammer the queue, every key is queued by 2 threads so half of the queuing are duplicates
+        final int threads = 64;
+        final int perThread = 500;
+        final List<MyCallable> callables = Collections.synchronizedList(new ArrayList<MyCallable>());
+        final AtomicInteger queued = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final int keyGroup = i / 2;
+            new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < perThread; j++) {
+                            MyCallable callable = new MyCallable("concurrent_" + keyGroup + "_" + j,
+                                    "type" + (j % 10), j % 3, 0);
+                            callables.add(callable);
+                            if (queueservice.queue(callable)) {
+                                queued.incrementAndGet();
+                            }
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        done.await();
+        assertEquals(threads * perThread, queued.get());
+
+        waitFor(30000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return queueservice.queueSize() == 0 && queueservice.getUniqueDump().isEmpty();
+            }
+        });
+        int executed = 0;
+        for (MyCallable c : callables) {
+            if (c.executed != 0) {
+                executed++;
+            }
+        }
+        // every key is executed at least once
+        assertTrue(executed >= threads / 2 * perThread);
+    }
+
     public void testQueueUniquenessWithSameKey() throws Exception {
         EXEC_ORDER = new AtomicLong();
         final MyCallable callable1 = new MyCallable("QueueUniquenessWithSameKey", "QueueUniquenessWithSameKey", 0, 100);
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import java.util.Properties;
+
+import org.apache.oozie.client.OozieClient.SYSTEM_MODE;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+
+public class TestCallbackInboxService extends XTestCase {
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // callbacks are not queued in safe mode
+        setSystemProperty(Services.CONF_SYSTEM_MODE, SYSTEM_MODE.SAFEMODE.toString());
+        setSystemProperty(Services.CONF_SERVICE_EXT_CLASSES, CallbackInboxService.class.getName());
+        services = new Services();
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    private void restart() throws Exception {
+        services.destroy();
+        services = new Services();
+        services.init();
+    }
+
+    private long getCounter(String name) {
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        return instr.getCounters().get(CallbackInboxService.INSTRUMENTATION_GROUP).get(name).getValue();
+    }
+
+    public void testCoalesce() throws Exception {
+        CallbackInboxService inbox = services.get(CallbackInboxService.class);
+        Properties actionData = new Properties();
+        actionData.setProperty("a", "A");
+        assertTrue(inbox.accept("1-W@a", "RUNNING", actionData));
+        assertTrue(inbox.accept("1-W@a", "SUCCEEDED", null));
+        assertTrue(inbox.accept("1-W@b", "SUCCEEDED", null));
+        assertEquals(2, inbox.size());
+        assertEquals(3L, getCounter("accepted"));
+        assertEquals(1L, getCounter("coalesced"));
+    }
+
+    public void testTerminalStatusIsKept() throws Exception {
+        CallbackInboxService inbox = services.get(CallbackInboxService.class);
+        assertTrue(inbox.accept("1-W@a", "RUNNING", null));
+        assertTrue(inbox.accept("1-W@a", "SUCCEEDED", null));
+        // a non-terminal status delivered out of order does not replace the terminal one
+        assertTrue(inbox.accept("1-W@a", "RUNNING", null));
+        assertEquals("SUCCEEDED", inbox.getExternalStatus("1-W@a"));
+        assertTrue(inbox.accept("1-W@a", "FAILED", null));
+        assertEquals("FAILED", inbox.getExternalStatus("1-W@a"));
+        assertTrue(inbox.accept("1-W@a", "RUNNING", null));
+
+        restart();
+        assertEquals("FAILED", services.get(CallbackInboxService.class).getExternalStatus("1-W@a"));
+    }
+
+    public void testCapacity() throws Exception {
+        services.destroy();
+        setSystemProperty(CallbackInboxService.CONF_CAPACITY, "2");
+        services = new Services();
+        services.init();
+        CallbackInboxService inbox = services.get(CallbackInboxService.class);
+        assertTrue(inbox.accept("1-W@a", "SUCCEEDED", null));
+        assertTrue(inbox.accept("1-W@b", "SUCCEEDED", null));
+        assertFalse(inbox.accept("1-W@c", "SUCCEEDED", null));
+        // callbacks of actions in the inbox are still accepted
+        assertTrue(inbox.accept("1-W@a", "FAILED", null));
+        assertEquals(2, inbox.size());
+        assertEquals(1L, getCounter("rejected"));
+    }
+
+    public void testRecovery() throws Exception {
+        CallbackInboxService inbox = services.get(CallbackInboxService.class);
+        Properties actionData = new Properties();
+        actionData.setProperty("a", "A");
+        assertTrue(inbox.accept("1-W@a", "SUCCEEDED", actionData));
+        assertTrue(inbox.accept("1-W@b", "SUCCEEDED", null));
+
+        restart();
+        inbox = services.get(CallbackInboxService.class);
+        assertEquals(2, inbox.size());
+
+        // drained callbacks are not recovered
+        services.setSystemMode(SYSTEM_MODE.NORMAL);
+        final CallbackInboxService drainingInbox = inbox;
+        waitFor(10 * 1000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return drainingInbox.size() == 0;
+            }
+        });
+        assertEquals(0, inbox.size());
+        assertEquals(2L, getCounter("drained"));
+        restart();
+        assertEquals(0, services.get(CallbackInboxService.class).size());
+    }
+
+    public void testJournalRewrite() throws Exception {
+        services.destroy();
+        setSystemProperty(CallbackInboxService.CONF_JOURNAL_SIZE, "4096");
+        services = new Services();
+        services.init();
+        CallbackInboxService inbox = services.get(CallbackInboxService.class);
+        // the coalesced callbacks do not fill the journal, it is rewritten
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(inbox.accept("1-W@" + (i % 10), "SUCCEEDED", null));
+        }
+        assertEquals(10, inbox.size());
+        restart();
+        assertEquals(10, services.get(CallbackInboxService.class).size());
+    }
+
+    public void testBurst() throws Exception {
+        CallbackInboxService inbox = services.get(CallbackInboxService.class);
+        int callbacks = 50000;
+        for (int i = 0; i < callbacks; i++) {
+            assertTrue(inbox.accept("0000000-000000000000000-oozie-W@" + (i % 10000), "SUCCEEDED", null));
+        }
+        assertEquals(10000, inbox.size());
+        assertEquals(40000L, getCounter("coalesced"));
+
+        restart();
+        assertEquals(10000, services.get(CallbackInboxService.class).size());
+    }
+
+}
@@ -17,6 +17,11 @@
  */
 package org.apache.oozie.service;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.oozie.action.hadoop.LauncherMapper;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.CallbackService;
 import org.apache.oozie.test.XTestCase;
@@ -52,4 +57,71 @@ public class TestCallbackService extends XTestCase {
         assertEquals("OK", cs.getExternalStatus(callback));
     }
 
+    private Map<String, String> createActionData() {
+        Map<String, String> actionData = new HashMap<String, String>();
+        actionData.put("output.properties", "a=A\nb=B\n");
+        actionData.put("externalChildIDs", "job_1,job_2");
+        return actionData;
+    }
+
+    public void testActionData() throws Exception {
+        CallbackService cs = Services.get().get(CallbackService.class);
+        Map<String, String> actionData = createActionData();
+        Properties callbackData = LauncherMapper.createCallbackActionData(actionData, "job_0",
+                cs.getActionDataKey("a"), cs.getActionDataMaxSize());
+        assertNotNull(callbackData);
+        assertTrue(cs.putActionData("a", callbackData));
+        assertEquals(actionData, cs.getActionData("a", "job_0"));
+
+        // action data of another launcher job of the action is not used
+        assertNull(cs.getActionData("a", "job_00"));
+        assertNull(cs.getActionData("b", "job_0"));
+
+        cs.removeActionData("a");
+        assertNull(cs.getActionData("a", "job_0"));
+
+        // callbacks without action data
+        assertFalse(cs.putActionData("a", new Properties()));
+        assertNull(cs.getActionData("a", "job_0"));
+    }
+
+    public void testActionDataSignature() throws Exception {
+        CallbackService cs = Services.get().get(CallbackService.class);
+        assertFalse(cs.getActionDataKey("a").equals(cs.getActionDataKey("b")));
+
+        // action data signed for another action
+        Properties callbackData = LauncherMapper.createCallbackActionData(createActionData(), "job_0",
+                cs.getActionDataKey("b"), cs.getActionDataMaxSize());
+        assertFalse(cs.putActionData("a", callbackData));
+        assertNull(cs.getActionData("a", "job_0"));
+
+        // tampered action data
+        Properties other = LauncherMapper.createCallbackActionData(new HashMap<String, String>(), "job_0",
+                cs.getActionDataKey("a"), cs.getActionDataMaxSize());
+        callbackData = LauncherMapper.createCallbackActionData(createActionData(), "job_0",
+                cs.getActionDataKey("a"), cs.getActionDataMaxSize());
+        callbackData.setProperty(LauncherMapper.ACTION_DATA_CALLBACK_PAYLOAD,
+                other.getProperty(LauncherMapper.ACTION_DATA_CALLBACK_PAYLOAD));
+        assertFalse(cs.putActionData("a", callbackData));
+        assertNull(cs.getActionData("a", "job_0"));
+    }
+
+    public void testActionDataMaxSize() throws Exception {
+        CallbackService cs = Services.get().get(CallbackService.class);
+        Map<String, String> actionData = createActionData();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cs.getActionDataMaxSize(); i++) {
+            sb.append('x');
+        }
+        actionData.put("stats.properties", sb.toString());
+        assertNull(LauncherMapper.createCallbackActionData(actionData, "job_0", cs.getActionDataKey("a"),
+                cs.getActionDataMaxSize()));
+
+        // the server does not accept action data larger than its limit
+        Properties callbackData = LauncherMapper.createCallbackActionData(actionData, "job_0",
+                cs.getActionDataKey("a"), 2 * cs.getActionDataMaxSize());
+        assertFalse(cs.putActionData("a", callbackData));
+        assertNull(cs.getActionData("a", "job_0"));
+    }
+
 }
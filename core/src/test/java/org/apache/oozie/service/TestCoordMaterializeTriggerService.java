@@ -134,6 +134,67 @@ public class TestCoordMaterializeTriggerService extends XDataTestCase {
         assertEquals(CoordinatorJob.Status.PREP, job3.getStatus());
     }
 
+    public void testCoordMaterializeTriggerServiceWithPool() throws Exception {
+        Services.get().destroy();
+        setSystemProperty(CoordMaterializeTriggerService.CONF_MATERIALIZATION_THREADS, "2");
+        services = new Services();
+        services.init();
+
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 3600 * 5 * 1000);
+        final CoordinatorJobBean job1 = addRecordToCoordJobTable(CoordinatorJob.Status.PREP, start, end, false, false,
+                0);
+        final CoordinatorJobBean job2 = addRecordToCoordJobTable(CoordinatorJob.Status.PREP, start, end, false, false,
+                0);
+
+        Runnable runnable = new CoordMaterializeTriggerRunnable(3600, 300);
+        runnable.run();
+
+        final JPAService jpaService = Services.get().get(JPAService.class);
+        waitFor(10 * 1000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return jpaService.execute(new CoordJobGetJPAExecutor(job1.getId())).getStatus()
+                        == CoordinatorJob.Status.RUNNING
+                        && jpaService.execute(new CoordJobGetJPAExecutor(job2.getId())).getStatus()
+                        == CoordinatorJob.Status.RUNNING;
+            }
+        });
+        assertEquals(CoordinatorJob.Status.RUNNING,
+                jpaService.execute(new CoordJobGetJPAExecutor(job1.getId())).getStatus());
+        assertEquals(CoordinatorJob.Status.RUNNING,
+                jpaService.execute(new CoordJobGetJPAExecutor(job2.getId())).getStatus());
+    }
+
+    public void testCoordMaterializeTriggerServiceBackpressure() throws Exception {
+        Services.get().destroy();
+        setSystemProperty(CoordMaterializeTriggerService.CONF_MAX_CALLABLE_QUEUE_SIZE, "1");
+        setSystemProperty(CallableQueueService.CONF_THREADS, "1");
+        services = new Services();
+        services.init();
+
+        // the single thread runs the first callable, the second one stays in the queue
+        CallableQueueService callableQueue = Services.get().get(CallableQueueService.class);
+        callableQueue.queue(new TestCallableQueueService.MyCallable(0, 3000));
+        callableQueue.queue(new TestCallableQueueService.MyCallable(0, 3000));
+        sleep(500);
+        assertEquals(1, callableQueue.queueSize());
+
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 3600 * 5 * 1000);
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.PREP, start, end, false, false, 0);
+        Date lastModifiedTime = job.getLastModifiedTime();
+
+        Runnable runnable = new CoordMaterializeTriggerRunnable(3600, 300);
+        runnable.run();
+        sleep(1000);
+
+        // the job is deferred to the next lookup, and is not updated so it is picked up first
+        JPAService jpaService = Services.get().get(JPAService.class);
+        job = jpaService.execute(new CoordJobGetJPAExecutor(job.getId()));
+        assertEquals(CoordinatorJob.Status.PREP, job.getStatus());
+        assertEquals(lastModifiedTime.getTime() / 1000, job.getLastModifiedTime().getTime() / 1000);
+    }
+
     @Override
     protected CoordinatorJobBean createCoordJob(CoordinatorJob.Status status, Date start, Date end, boolean pending, boolean doneMatd, int lastActionNum) throws Exception {
         Path appPath = new Path(getFsTestCaseDir(), "coord");
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.service.TestCallableQueueService.MyCallable;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.JobUtils;
+import org.apache.oozie.util.XLog;
+
+public class TestFairShareCallableSchedulingPolicy extends XTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        new Services().init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XLog.Info.get().clear();
+        Services.get().destroy();
+        super.tearDown();
+    }
+
+    private String getTenant(FairShareCallableSchedulingPolicy policy, String user, String jobId) {
+        XLog.Info.get().clear();
+        if (user != null) {
+            XLog.Info.get().setParameter(XLogService.USER, user);
+        }
+        return policy.getTenant(new MyCallable(jobId, "type", 0, 0) {
+            @Override
+            public String getEntityKey() {
+                return getKey();
+            }
+        });
+    }
+
+    public void testTenant() throws Exception {
+        assertEquals("system", FairShareCallableSchedulingPolicy.getUser(null));
+        assertEquals("alice", FairShareCallableSchedulingPolicy.getUser("alice"));
+        assertEquals("bob", FairShareCallableSchedulingPolicy.getUser("alice doAs bob"));
+
+        assertEquals("wf", JobUtils.getJobType("0000000-000000000000000-oozie-oozi-W"));
+        assertEquals("wf", JobUtils.getJobType("0000000-000000000000000-oozie-oozi-W@a"));
+        assertEquals("coord", JobUtils.getJobType("0000000-000000000000000-oozie-oozi-C@1"));
+        assertEquals("bundle", JobUtils.getJobType("0000000-000000000000000-oozie-oozi-B"));
+        assertEquals("other", JobUtils.getJobType("foo"));
+        assertEquals("other", JobUtils.getJobType(null));
+
+        FairShareCallableSchedulingPolicy policy = new FairShareCallableSchedulingPolicy();
+        policy.init(new Configuration(false), 10);
+        assertEquals("alice#coord", getTenant(policy, "alice", "0000000-000000000000000-oozie-oozi-C@1"));
+        assertEquals("system#wf", getTenant(policy, null, "0000000-000000000000000-oozie-oozi-W"));
+    }
+
+    public void testUserMaxInFlight() throws Exception {
+        Configuration conf = new Configuration(false);
+        conf.setInt(FairShareCallableSchedulingPolicy.CONF_MAX_INFLIGHT, 2);
+        conf.setInt(FairShareCallableSchedulingPolicy.CONF_USER_MAX_INFLIGHT + "bob", 1);
+        FairShareCallableSchedulingPolicy policy = new FairShareCallableSchedulingPolicy();
+        policy.init(conf, 10);
+
+        String aliceWf = getTenant(policy, "alice", "0000000-000000000000000-oozie-oozi-W");
+        String aliceCoord = getTenant(policy, "alice", "0000000-000000000000000-oozie-oozi-C");
+        String bobWf = getTenant(policy, "bob", "0000000-000000000000000-oozie-oozi-W");
+
+        // the cap is per user, across job types
+        assertTrue(policy.begin(aliceWf));
+        assertTrue(policy.begin(aliceCoord));
+        assertFalse(policy.isEligible(aliceWf));
+        assertFalse(policy.begin(aliceWf));
+        policy.end(aliceWf);
+        assertFalse(policy.isEligible(aliceWf));
+        policy.end(aliceCoord);
+        assertTrue(policy.isEligible(aliceWf));
+
+        assertTrue(policy.begin(bobWf));
+        assertFalse(policy.isEligible(bobWf));
+        policy.end(bobWf);
+        assertTrue(policy.isEligible(bobWf));
+    }
+
+    public void testFairShare() throws Exception {
+        Configuration conf = new Configuration(false);
+        conf.setFloat(FairShareCallableSchedulingPolicy.CONF_USER_WEIGHT + "bob", 3);
+        FairShareCallableSchedulingPolicy policy = new FairShareCallableSchedulingPolicy();
+        policy.init(conf, 8);
+
+        String alice = getTenant(policy, "alice", "0000000-000000000000000-oozie-oozi-W");
+        String bob = getTenant(policy, "bob", "0000000-000000000000000-oozie-oozi-W");
+
+        // alice alone can use all the threads
+        for (int i = 0; i < 6; i++) {
+            policy.queued(alice, 0);
+        }
+        for (int i = 0; i < 6; i++) {
+            assertTrue(policy.isEligible(alice));
+            policy.dequeued(alice, 0);
+            assertTrue(policy.begin(alice));
+        }
+
+        // bob is waiting below his share (6 of 8 threads), alice is above hers (2 of 8 threads)
+        policy.queued(alice, 0);
+        policy.queued(bob, 0);
+        assertFalse(policy.isEligible(alice));
+        assertTrue(policy.isEligible(bob));
+        for (int i = 0; i < 4; i++) {
+            policy.end(alice);
+        }
+        // alice is at her share, bob still waiting below his
+        assertFalse(policy.isEligible(alice));
+        policy.end(alice);
+        assertTrue(policy.isEligible(alice));
+        policy.end(alice);
+
+        // once bob is not waiting anymore alice can use idle threads again
+        policy.dequeued(bob, 0);
+        assertTrue(policy.begin(bob));
+        assertTrue(policy.begin(alice));
+        assertTrue(policy.begin(alice));
+        assertTrue(policy.isEligible(alice));
+    }
+
+    public void testDelayedCallables() throws Exception {
+        FairShareCallableSchedulingPolicy policy = new FairShareCallableSchedulingPolicy();
+        policy.init(new Configuration(false), 2);
+
+        String alice = getTenant(policy, "alice", "0000000-000000000000000-oozie-oozi-W");
+        String bob = getTenant(policy, "bob", "0000000-000000000000000-oozie-oozi-W");
+        assertTrue(policy.begin(alice));
+        assertTrue(policy.begin(alice));
+        policy.queued(alice, 0);
+
+        // a delayed callable of bob does not take a share of the threads until it is due
+        policy.queued(bob, System.currentTimeMillis() + 60 * 1000);
+        assertTrue(policy.isEligible(alice));
+        long due = System.currentTimeMillis() + 200;
+        policy.queued(bob, due);
+        Thread.sleep(300);
+        assertFalse(policy.isEligible(alice));
+        assertTrue(policy.isEligible(bob));
+        policy.dequeued(bob, due);
+        assertTrue(policy.isEligible(alice));
+    }
+
+    public void testCallableQueue() throws Exception {
+        Services.get().destroy();
+        setSystemProperty(CallableQueueService.CONF_THREADS, "2");
+        setSystemProperty(CallableQueueService.CONF_SCHEDULING_POLICY,
+                FairShareCallableSchedulingPolicy.class.getName());
+        new Services().init();
+        CallableQueueService queueService = Services.get().get(CallableQueueService.class);
+
+        // a delayed callable of bob does not keep alice from using both threads
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        MyCallable delayed = newCallable("0000000-000000000000000-oozie-oozi-W", 100, null, null);
+        queue(queueService, "bob", delayed, 60 * 1000);
+        List<MyCallable> alice = new ArrayList<MyCallable>();
+        for (int i = 1; i <= 4; i++) {
+            alice.add(newCallable("000000" + i + "-000000000000000-oozie-oozi-W", 200, running, maxRunning));
+            queue(queueService, "alice", alice.get(alice.size() - 1), 0);
+        }
+        waitForExecution(alice);
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, delayed.executed);
+
+        // bob gets his share of the threads while alice has callables queued
+        alice.clear();
+        for (int i = 1; i <= 8; i++) {
+            alice.add(newCallable("000001" + i + "-000000000000000-oozie-oozi-W", 100, null, null));
+            queue(queueService, "alice", alice.get(alice.size() - 1), 0);
+        }
+        List<MyCallable> bob = new ArrayList<MyCallable>();
+        for (int i = 1; i <= 2; i++) {
+            bob.add(newCallable("000002" + i + "-000000000000000-oozie-oozi-W", 100, null, null));
+            queue(queueService, "bob", bob.get(bob.size() - 1), 0);
+        }
+        waitForExecution(alice);
+        waitForExecution(bob);
+        long lastAlice = 0;
+        for (MyCallable callable : alice) {
+            lastAlice = Math.max(lastAlice, callable.executed);
+        }
+        for (MyCallable callable : bob) {
+            assertTrue(callable.executed < lastAlice);
+        }
+    }
+
+    private MyCallable newCallable(String jobId, int wait, final AtomicInteger running,
+            final AtomicInteger maxRunning) {
+        return new MyCallable(jobId, "type", 0, wait) {
+            @Override
+            public String getEntityKey() {
+                return getKey();
+            }
+
+            @Override
+            public Void call() throws Exception {
+                if (running == null) {
+                    return super.call();
+                }
+                int count = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), count));
+                }
+                try {
+                    return super.call();
+                }
+                finally {
+                    running.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    private void queue(CallableQueueService queueService, String user, MyCallable callable, long delay) {
+        XLog.Info.get().clear();
+        XLog.Info.get().setParameter(XLogService.USER, user);
+        try {
+            assertTrue(queueService.queue(callable, delay));
+        }
+        finally {
+            XLog.Info.get().clear();
+        }
+    }
+
+    private void waitForExecution(final List<MyCallable> callables) {
+        waitFor(10 * 1000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                for (MyCallable callable : callables) {
+                    if (callable.executed == 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        });
+        for (MyCallable callable : callables) {
+            assertTrue(callable.executed != 0);
+        }
+    }
+
+    public void testInstrumentation() throws Exception {
+        FairShareCallableSchedulingPolicy policy = new FairShareCallableSchedulingPolicy();
+        policy.init(new Configuration(false), 10);
+        Instrumentation instr = new Instrumentation();
+        policy.instrument(instr);
+        String alice = getTenant(policy, "alice", "0000000-000000000000000-oozie-oozi-W");
+        policy.queued(alice, 0);
+        policy.queued(alice, 0);
+        Map<String, Instrumentation.Element<Instrumentation.Variable>> variables =
+                instr.getVariables().get("callablequeue.fairshare");
+        Instrumentation.Element<?> depth = variables.get(alice + "#queue.depth");
+        Instrumentation.Element<?> inFlight = variables.get(alice + "#inflight");
+        assertEquals(2L, depth.getValue());
+        assertEquals(0L, inFlight.getValue());
+    }
+
+}
@@ -17,7 +17,9 @@
  */
 package org.apache.oozie.service;
 
+import org.apache.oozie.lock.LockToken;
 import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
 
 public class TestMemoryLocksService extends XTestCase {
 
@@ -37,4 +39,26 @@ public class TestMemoryLocksService extends XTestCase {
         assertNotNull(Services.get().get(MemoryLocksService.class));
     }
 
+    public void testWaitInstrumentation() throws Exception {
+        assertEquals("1", MemoryLocksService.getWaitBucket(0));
+        assertEquals("10", MemoryLocksService.getWaitBucket(1));
+        assertEquals("1000", MemoryLocksService.getWaitBucket(999));
+        assertEquals("inf", MemoryLocksService.getWaitBucket(10000));
+
+        MemoryLocksService service = Services.get().get(MemoryLocksService.class);
+        LockToken token = service.getWriteLock("0000000-000000000000000-oozie-oozi-W", -1);
+        assertNotNull(token);
+        assertNull(service.getWriteLock("0000000-000000000000000-oozie-oozi-W", 0));
+        token.release();
+        for (int i = 2; i < MemoryLocksService.WAIT_SAMPLE_RATE; i++) {
+            service.getWriteLock("0000000-000000000000000-oozie-oozi-W", -1).release();
+        }
+
+        // one request out of WAIT_SAMPLE_RATE is timed, all the timeouts are counted
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        assertNotNull(instr.getTimers().get("locks").get("wait.wf"));
+        assertEquals(1L, (long) instr.getCounters().get("locks").get("timeout.wf").getValue());
+        assertEquals(1L, instr.getTimers().get("locks").get("wait.wf").getValue().getTicks());
+    }
+
 }
@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.oozie.dependency.URIListingCache;
+import org.apache.oozie.test.XFsTestCase;
+import org.apache.oozie.util.Instrumentation;
+
+public class TestURIExistenceCacheService extends XFsTestCase {
+
+    private Services services;
+    private JobConf conf;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.getConf().set(Services.CONF_SERVICE_EXT_CLASSES, URIExistenceCacheService.class.getName());
+        services.getConf().setInt(URIExistenceCacheService.CONF_NEGATIVE_TTL, 2);
+        services.init();
+        conf = createJobConf();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testExists() throws Exception {
+        URIExistenceCacheService cacheService = services.get(URIExistenceCacheService.class);
+        Path dir = new Path(getFsTestCaseDir(), "2012/12");
+        getFileSystem().mkdirs(new Path(dir, "01"));
+        getFileSystem().mkdirs(new Path(dir, "02"));
+        List<URI> uris = new ArrayList<URI>();
+        for (int day = 1; day <= 3; day++) {
+            uris.add(new Path(dir, "0" + day).toUri());
+        }
+
+        Set<URI> existing = cacheService.exists(uris, conf, getTestUser());
+        assertEquals(2, existing.size());
+        assertTrue(existing.contains(uris.get(0)));
+        assertTrue(existing.contains(uris.get(1)));
+
+        // URIs found are not checked again, URIs not found are not checked again until the TTL expires
+        getFileSystem().delete(new Path(dir, "01"), true);
+        getFileSystem().mkdirs(new Path(dir, "03"));
+        existing = cacheService.exists(uris, conf, getTestUser());
+        assertEquals(2, existing.size());
+        assertFalse(existing.contains(uris.get(2)));
+
+        Thread.sleep(2500);
+        assertTrue(cacheService.exists(uris.get(0), conf, getTestUser()));
+        assertTrue(cacheService.exists(uris.get(2), conf, getTestUser()));
+
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        assertEquals(4L, getCounter(instr, URIExistenceCacheService.INSTR_HITS_COUNTER));
+        assertEquals(4L, getCounter(instr, URIExistenceCacheService.INSTR_MISSES_COUNTER));
+        assertEquals(4L, getCounter(instr, URIExistenceCacheService.INSTR_CALLS_SAVED_COUNTER));
+    }
+
+    public void testCachedPerUser() throws Exception {
+        URIExistenceCacheService cacheService = services.get(URIExistenceCacheService.class);
+        Path dir = new Path(getFsTestCaseDir(), "2012/12");
+        getFileSystem().mkdirs(new Path(dir, "01"));
+        URI uri = new Path(dir, "01").toUri();
+
+        assertTrue(cacheService.exists(uri, conf, getTestUser()));
+        assertTrue(cacheService.exists(uri, conf, getTestUser()));
+        // a URI found by a user is checked again for another user
+        assertTrue(cacheService.exists(uri, conf, getTestUser2()));
+
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        assertEquals(1L, getCounter(instr, URIExistenceCacheService.INSTR_HITS_COUNTER));
+        assertEquals(2L, getCounter(instr, URIExistenceCacheService.INSTR_MISSES_COUNTER));
+    }
+
+    public void testFirstMissing() throws Exception {
+        URIExistenceCacheService cacheService = services.get(URIExistenceCacheService.class);
+        List<URI> uris = new ArrayList<URI>();
+        for (int month = 1; month <= 3; month++) {
+            Path dir = new Path(getFsTestCaseDir(), "2012/0" + month);
+            getFileSystem().mkdirs(new Path(dir, "01"));
+            uris.add(new Path(dir, "01").toUri());
+            uris.add(new Path(dir, "02").toUri());
+        }
+        assertEquals(1, cacheService.getFirstMissing(uris, conf, getTestUser()));
+
+        // the URIs after the first missing one are not checked
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        assertEquals(6L, getCounter(instr, URIExistenceCacheService.INSTR_MISSES_COUNTER));
+        assertEquals(1L, getCounter(instr, URIListingCache.INSTR_LISTINGS_COUNTER));
+        assertEquals(2L, getCounter(instr, URIListingCache.INSTR_CHECKS_COUNTER));
+
+        // the URIs not checked are checked on the next call
+        getFileSystem().mkdirs(new Path(getFsTestCaseDir(), "2012/01/02"));
+        Thread.sleep(2500);
+        assertEquals(3, cacheService.getFirstMissing(uris, conf, getTestUser()));
+        Set<URI> existing = cacheService.exists(uris, conf, getTestUser());
+        assertEquals(4, existing.size());
+        assertTrue(existing.contains(uris.get(4)));
+        assertFalse(existing.contains(uris.get(5)));
+    }
+
+    public void testCoalescedChecks() throws Exception {
+        final URIExistenceCacheService cacheService = services.get(URIExistenceCacheService.class);
+        Path dir = new Path(getFsTestCaseDir(), "2012/12");
+        getFileSystem().mkdirs(new Path(dir, "01"));
+        final URI uri = new Path(dir, "01").toUri();
+        final boolean[] results = new boolean[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        results[index] = cacheService.exists(uri, conf, getTestUser());
+                    }
+                    catch (Exception ex) {
+                        results[index] = false;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (boolean result : results) {
+            assertTrue(result);
+        }
+
+        // the URI is checked once, the other threads either wait for the check or find it in the cache
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        assertEquals(1L, getCounter(instr, URIExistenceCacheService.INSTR_MISSES_COUNTER));
+        assertEquals(results.length - 1, getCounter(instr, URIExistenceCacheService.INSTR_CALLS_SAVED_COUNTER));
+    }
+
+    private long getCounter(Instrumentation instr, String name) {
+        return instr.getCounters().get(URIExistenceCacheService.INSTRUMENTATION_GROUP).get(name).getValue();
+    }
+
+}
@@ -0,0 +1,273 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.service;
+
+import java.util.Collections;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowDefinitionBean;
+import org.apache.oozie.WorkflowDefinitionRefBean;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.rest.JsonBean;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionGetJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionsDeleteJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor;
+import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor.WorkflowJobQuery;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.workflow.WorkflowApp;
+import org.apache.oozie.workflow.WorkflowInstance;
+import org.apache.oozie.workflow.lite.EndNodeDef;
+import org.apache.oozie.workflow.lite.LiteWorkflowApp;
+import org.apache.oozie.workflow.lite.LiteWorkflowInstance;
+import org.apache.oozie.workflow.lite.StartNodeDef;
+
+public class TestWorkflowDefinitionService extends XDataTestCase {
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.getConf().set(Services.CONF_SERVICE_EXT_CLASSES, WorkflowDefinitionService.class.getName());
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testDefinitionReference() throws Exception {
+        WorkflowJobBean job = createWorkflowJob("token1");
+        insert(job);
+        // the definition has been inserted with the job
+        assertTrue(job.getDefinitionBeans().isEmpty());
+        String definitionId = getDefinitionId(job);
+        assertNotNull(definitionId);
+        WorkflowDefinitionBean definition = services.get(JPAService.class).execute(
+                new WorkflowDefinitionGetJPAExecutor(definitionId));
+        // the instance only contains the reference to its definition and its execution state
+        assertTrue(job.getWfInstanceBlob().getBytes().length < definition.getDefinition().length);
+
+        WorkflowJobBean dbJob = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, job.getId());
+        WorkflowInstance instance = dbJob.getWorkflowInstance();
+        assertEquals(definitionId, ((LiteWorkflowInstance) instance).getDefinitionId());
+        assertEquals(WorkflowInstance.Status.PREP, instance.getStatus());
+        assertEquals("testApp", instance.getApp().getName());
+        assertEquals("token1", instance.getConf().get(OozieClient.LOG_TOKEN));
+
+        // the instance keeps referencing its definition when it is written again
+        dbJob.setWorkflowInstance(instance);
+        assertEquals(definitionId, getDefinitionId(dbJob));
+        assertTrue(dbJob.getDefinitionBeans().isEmpty());
+    }
+
+    public void testSharedDefinition() throws Exception {
+        WorkflowJobBean job1 = createWorkflowJob("token1");
+        insert(job1);
+        WorkflowJobBean job2 = createWorkflowJob("token1");
+        insert(job2);
+        assertEquals(getDefinitionId(job1), getDefinitionId(job2));
+        assertEquals(1L, (long) services.get(InstrumentationService.class).get().getCounters().get("wfdefinitions")
+                .get("found").getValue());
+    }
+
+    public void testDefinitionInsertedWithJob() throws Exception {
+        WorkflowJobBean job = createWorkflowJob("token1");
+        // the new definition and the reference of the job
+        assertEquals(2, job.getDefinitionBeans().size());
+        insert(job);
+        assertTrue(job.getDefinitionBeans().isEmpty());
+        assertNotNull(getDefinition(getDefinitionId(job)));
+
+        // a job that cannot be inserted does not leave its definition behind
+        WorkflowJobBean duplicate = createWorkflowJob("token2");
+        duplicate.setId(job.getId());
+        String definitionId = getReferencedDefinitionId(duplicate);
+        assertFalse(definitionId.equals(getDefinitionId(job)));
+        try {
+            insert(duplicate);
+            fail();
+        }
+        catch (JPAExecutorException ex) {
+            // expected
+        }
+        assertNull(getDefinition(definitionId));
+    }
+
+    public void testRerunReplacesReference() throws Exception {
+        WorkflowJobBean job = createWorkflowJob("token1");
+        insert(job);
+        String definitionId = getDefinitionId(job);
+
+        WorkflowInstance instance = services.get(WorkflowStoreService.class).getWorkflowLibWithNoDB().createInstance(
+                createApp(), createConf("token2"), job.getId());
+        job.setDefinitionBeans(WorkflowDefinitionService.referenceDefinition(instance, job.getId()));
+        job.setWorkflowInstance(instance);
+        String rerunDefinitionId = getReferencedDefinitionId(job);
+        assertFalse(rerunDefinitionId.equals(definitionId));
+        WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW_RERUN, job);
+        assertTrue(job.getDefinitionBeans().isEmpty());
+
+        // only the definition of the rerun is referenced
+        assertEquals(1, (int) services.get(JPAService.class).execute(new WorkflowDefinitionsDeleteJPAExecutor(-1)));
+        assertNull(getDefinition(definitionId));
+        assertNotNull(getDefinition(rerunDefinitionId));
+    }
+
+    public void testUpdateWithDefinition() throws Exception {
+        // a job that does not exist is not updated and its definition is not inserted
+        WorkflowJobBean missing = createWorkflowJob("token1");
+        String missingDefinitionId = getReferencedDefinitionId(missing);
+        assertEquals(0, WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW,
+                missing));
+        assertEquals(2, missing.getDefinitionBeans().size());
+        assertNull(getDefinition(missingDefinitionId));
+
+        // an update that does not write the instance does not insert the definition
+        WorkflowJobBean existing = createWorkflowJob("token2");
+        insert(existing);
+        WorkflowJobBean job = createWorkflow(createApp(), createConf("token3"), WorkflowJob.Status.PREP,
+                WorkflowInstance.Status.PREP);
+        job.setId(existing.getId());
+        referenceDefinition(job);
+        String definitionId = getReferencedDefinitionId(job);
+        assertEquals(1, WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW_MODTIME,
+                job));
+        assertEquals(2, job.getDefinitionBeans().size());
+        assertNull(getDefinition(definitionId));
+
+        assertEquals(1, WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW, job));
+        assertTrue(job.getDefinitionBeans().isEmpty());
+        assertNotNull(getDefinition(definitionId));
+    }
+
+    public void testWholeDefinitionFormatIsKept() throws Exception {
+        // writing an instance that does not reference a definition does not look up definitions
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        assertNull(getDefinitionId(job));
+        assertTrue(job.getDefinitionBeans().isEmpty());
+        assertNull(services.get(InstrumentationService.class).get().getCounters().get("wfdefinitions"));
+
+        WorkflowJobBean dbJob = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, job.getId());
+        WorkflowInstance instance = dbJob.getWorkflowInstance();
+        assertEquals("testApp", instance.getApp().getName());
+        assertNull(((LiteWorkflowInstance) instance).getDefinitionId());
+        dbJob.setWorkflowInstance(instance);
+        assertNull(getDefinitionId(dbJob));
+        assertTrue(dbJob.getDefinitionBeans().isEmpty());
+    }
+
+    public void testReadWithServiceDisabled() throws Exception {
+        WorkflowJobBean job = createWorkflowJob("token1");
+        insert(job);
+        String definitionId = getDefinitionId(job);
+        assertNotNull(definitionId);
+
+        services.destroy();
+        services = new Services();
+        services.init();
+        WorkflowJobBean dbJob = WorkflowJobQueryExecutor.getInstance().get(WorkflowJobQuery.GET_WORKFLOW, job.getId());
+        WorkflowInstance instance = dbJob.getWorkflowInstance();
+        assertEquals("testApp", instance.getApp().getName());
+        assertEquals(definitionId, ((LiteWorkflowInstance) instance).getDefinitionId());
+    }
+
+    public void testPurgeUnreferencedDefinitions() throws Exception {
+        WorkflowJobBean job = createWorkflowJob("token1");
+        insert(job);
+        WorkflowJobBean purgedJob = createWorkflowJob("token2");
+        String purgedDefinitionId = getReferencedDefinitionId(purgedJob);
+        insert(purgedJob);
+        BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(null, null,
+                Collections.<JsonBean>singletonList(purgedJob));
+
+        // definitions used recently are not deleted
+        JPAService jpaService = services.get(JPAService.class);
+        assertEquals(0, (int) jpaService.execute(new WorkflowDefinitionsDeleteJPAExecutor(1)));
+        assertEquals(1, (int) jpaService.execute(new WorkflowDefinitionsDeleteJPAExecutor(-1)));
+        assertNull(getDefinition(purgedDefinitionId));
+        assertNotNull(getDefinition(getDefinitionId(job)));
+    }
+
+    private WorkflowApp createApp() {
+        return new LiteWorkflowApp("testApp", "<workflow-app/>", new StartNodeDef(
+                LiteWorkflowStoreService.LiteControlNodeHandler.class, "end")).addNode(new EndNodeDef("end",
+                LiteWorkflowStoreService.LiteControlNodeHandler.class));
+    }
+
+    private Configuration createConf(String logToken) {
+        Configuration conf = new Configuration();
+        conf.set(OozieClient.APP_PATH, new Path(getAppPath(), "workflow.xml").toString());
+        conf.set(OozieClient.LOG_TOKEN, logToken);
+        conf.set(OozieClient.USER_NAME, getTestUser());
+        return conf;
+    }
+
+    // creates a workflow job whose instance references its definition, as the submit commands do
+    private WorkflowJobBean createWorkflowJob(String logToken) throws Exception {
+        WorkflowJobBean job = createWorkflow(createApp(), createConf(logToken), WorkflowJob.Status.PREP,
+                WorkflowInstance.Status.PREP);
+        referenceDefinition(job);
+        return job;
+    }
+
+    private void referenceDefinition(WorkflowJobBean job) throws Exception {
+        WorkflowInstance instance = job.getWorkflowInstance();
+        job.setDefinitionBeans(WorkflowDefinitionService.referenceDefinition(instance, job.getId()));
+        job.setWorkflowInstance(instance);
+    }
+
+    private void insert(WorkflowJobBean job) throws JPAExecutorException {
+        BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(Collections.<JsonBean>singletonList(job),
+                null, null);
+    }
+
+    private String getDefinitionId(WorkflowJobBean job) {
+        return ((LiteWorkflowInstance) job.getWorkflowInstance()).getDefinitionId();
+    }
+
+    private String getReferencedDefinitionId(WorkflowJobBean job) {
+        for (JsonBean bean : job.getDefinitionBeans()) {
+            if (bean instanceof WorkflowDefinitionRefBean) {
+                return ((WorkflowDefinitionRefBean) bean).getDefinitionId();
+            }
+        }
+        return null;
+    }
+
+    private WorkflowDefinitionBean getDefinition(String id) throws JPAExecutorException {
+        try {
+            return services.get(JPAService.class).execute(new WorkflowDefinitionGetJPAExecutor(id));
+        }
+        catch (JPAExecutorException ex) {
+            if (ex.getErrorCode() == ErrorCode.E0604) {
+                return null;
+            }
+            throw ex;
+        }
+    }
+
+}
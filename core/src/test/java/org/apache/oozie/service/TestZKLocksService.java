@@ -17,6 +17,10 @@
  */
 package org.apache.oozie.service;
 
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
 import org.apache.oozie.lock.LockToken;
 import org.apache.oozie.util.*;
 import org.apache.oozie.test.ZKXTestCase;
@@ -415,4 +419,90 @@ public class TestZKLocksService extends ZKXTestCase {
         sleep(1000);
         assertEquals("a:1-L a:1-U a:2-L a:2-U", sb.toString().trim());
     }
+
+    public void testLeaseOozies() throws Exception {
+        String jobId = "0000000-000000000000000-oozie-oozi-W";
+        Services.get().getConf().setBoolean(ZKLocksService.CONF_LEASE_ENABLED, true);
+        ZKLocksService zkls1 = new ZKLocksService();
+        ZKLocksService zkls2 = new ZKLocksService();
+        try {
+            zkls1.init(Services.get());
+            zkls2.init(Services.get());
+            Instrumentation instr = new Instrumentation();
+            zkls1.instrument(instr);
+
+            // the first lock acquires the lease, the following ones are resolved in memory
+            LockToken token = zkls1.getWriteLock(jobId, -1);
+            assertTrue(token instanceof ZKLocksService.LeasedLockToken);
+            assertNull(zkls1.getWriteLock(jobId, 0));
+            token.release();
+            token = zkls1.getReadLock(jobId, -1);
+            assertTrue(token instanceof ZKLocksService.LeasedLockToken);
+            token.release();
+            assertEquals(1L, (long) instr.getCounters().get("locks").get("zk.leases.acquired").getValue());
+            assertEquals(2L, (long) instr.getCounters().get("locks").get("zk.locks.avoided").getValue());
+
+            // another Oozie cannot get the lease, it falls back to the zookeeper lock and revokes the lease
+            token = zkls2.getWriteLock(jobId, 10000);
+            assertTrue(token instanceof ZKLocksService.ZKLockToken);
+            assertNull(zkls1.getWriteLock(jobId, 0));
+            token.release();
+
+            token = zkls1.getWriteLock(jobId, -1);
+            assertTrue(token instanceof ZKLocksService.LeasedLockToken);
+            token.release();
+            assertEquals(2L, (long) instr.getCounters().get("locks").get("zk.leases.acquired").getValue());
+            assertEquals(1L, (long) instr.getCounters().get("locks").get("zk.leases.released").getValue());
+
+            // non job resources are not leased
+            token = zkls1.getWriteLock("a", -1);
+            assertTrue(token instanceof ZKLocksService.ZKLockToken);
+            token.release();
+        }
+        finally {
+            zkls1.destroy();
+            zkls2.destroy();
+        }
+    }
+
+    public void testLeaseTimeout() throws Exception {
+        String jobId = "0000000-000000000000000-oozie-oozi-W";
+        Services.get().getConf().setBoolean(ZKLocksService.CONF_LEASE_ENABLED, true);
+        ZKLocksService zkls = new ZKLocksService();
+        final CountDownLatch busy = new CountDownLatch(1);
+        try {
+            zkls.init(Services.get());
+            // keep the lease thread busy
+            Field field = ZKLocksService.class.getDeclaredField("leaseExecutor");
+            field.setAccessible(true);
+            ((ExecutorService) field.get(zkls)).execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        busy.await();
+                    }
+                    catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            // a lock request does not wait for the lease longer than the lock wait time, it falls back to the
+            // zookeeper lock
+            long start = System.currentTimeMillis();
+            LockToken token = zkls.getWriteLock(jobId, 200);
+            assertTrue(token instanceof ZKLocksService.ZKLockToken);
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            token.release();
+
+            busy.countDown();
+            token = zkls.getWriteLock(jobId, -1);
+            assertTrue(token instanceof ZKLocksService.LeasedLockToken);
+            token.release();
+        }
+        finally {
+            busy.countDown();
+            zkls.destroy();
+        }
+    }
 }
@@ -23,6 +23,7 @@ import java.io.FileWriter;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.commons.logging.LogFactory;
@@ -338,4 +339,90 @@ public class TestZKXLogStreamingService extends ZKXTestCase {
             container.stop();
         }
     }
+
+    public void testStreamingWithSeveralOozieServers() throws Exception {
+        XLogStreamer.Filter.reset();
+        XLogStreamer.Filter.defineParameter("USER");
+        XLogStreamer.Filter.defineParameter("GROUP");
+        XLogStreamer.Filter.defineParameter("TOKEN");
+        XLogStreamer.Filter.defineParameter("APP");
+        XLogStreamer.Filter.defineParameter("JOB");
+        XLogStreamer.Filter.defineParameter("ACTION");
+        XLogStreamer.Filter xf = new XLogStreamer.Filter();
+        xf.setParameter("JOB", "0000003-130610102426873-oozie-rkan-W");
+        xf.setLogLevel("WARN|INFO");
+        File log4jFile = new File(getTestCaseConfDir(), "test-log4j.properties");
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        InputStream is = cl.getResourceAsStream("test-no-dash-log4j.properties");
+        Properties log4jProps = new Properties();
+        log4jProps.load(is);
+        // prevent conflicts with other tests by changing the log file location
+        log4jProps.setProperty("log4j.appender.oozie.File", getTestCaseDir() + "/oozie.log");
+        log4jProps.store(new FileOutputStream(log4jFile), "");
+        setSystemProperty(XLogService.LOG4J_FILE, log4jFile.getName());
+        assertFalse(doStreamDisabledCheck());
+        Services.get().getConf().setInt(ZKXLogStreamingService.CONF_PEER_TIMEOUT, 1);
+        File logFile = new File(Services.get().get(XLogService.class).getOozieLogPath(),
+                                Services.get().get(XLogService.class).getOozieLogName());
+        logFile.getParentFile().mkdirs();
+        FileWriter logWriter = new FileWriter(logFile);
+        // local logs
+        logWriter.append(makeLogMessage("10:00:01,000", "_L2_")).append(makeLogMessage("10:00:03,000", "_L5_"));
+        logWriter.close();
+
+        // each of the other "Oozie servers" is a servlet container with its own logs, the last one answers after the timeout
+        String[] logs = {makeLogMessage("10:00:00,000", "_L1_") + makeLogMessage("10:00:03,000", "_L6_"),
+                         makeLogMessage("10:00:02,000", "_L3_") + makeLogMessage("10:00:04,000", "_L7_"),
+                         makeLogMessage("10:00:00,500", "_SLOW_")};
+        EmbeddedServletContainer[] containers = new EmbeddedServletContainer[logs.length];
+        DummyZKOozie[] dummyOozies = new DummyZKOozie[logs.length];
+        try {
+            for (int i = 0; i < logs.length; i++) {
+                Map<String, String> initParams = new HashMap<String, String>();
+                initParams.put(DummyLogStreamingServlet.LOGS_PARAM, logs[i]);
+                if (i == logs.length - 1) {
+                    initParams.put(DummyLogStreamingServlet.DELAY_PARAM, "10000");
+                }
+                containers[i] = new EmbeddedServletContainer("oozie");
+                containers[i].addServletEndpoint("/other-oozie-server/*", DummyLogStreamingServlet.class, initParams);
+                containers[i].start();
+                dummyOozies[i] = new DummyZKOozie("987" + i, containers[i].getServletURL("/other-oozie-server/*"));
+            }
+
+            long start = System.currentTimeMillis();
+            String out = doStreamLog(xf);
+            // it doesn't wait for the slow server
+            assertTrue(System.currentTimeMillis() - start < 8000);
+            String[] outArr = out.split("\n");
+            assertEquals(9, outArr.length);
+            assertTrue(outArr[0].startsWith("Unable"));
+            assertEquals("9872", outArr[1].trim());
+            assertEquals("", outArr[2]);
+            assertFalse(out.contains("_SLOW_"));
+            assertTrue(outArr[3].contains("_L1_"));
+            assertTrue(outArr[4].contains("_L2_"));
+            assertTrue(outArr[5].contains("_L3_"));
+            // messages with the same timestamp from different servers are all kept
+            assertTrue(outArr[6].contains("_L5_") || outArr[6].contains("_L6_"));
+            assertTrue(outArr[7].contains("_L5_") || outArr[7].contains("_L6_"));
+            assertFalse(outArr[6].equals(outArr[7]));
+            assertTrue(outArr[8].contains("_L7_"));
+        }
+        finally {
+            for (int i = 0; i < logs.length; i++) {
+                if (dummyOozies[i] != null) {
+                    dummyOozies[i].teardown();
+                }
+                if (containers[i] != null) {
+                    containers[i].stop();
+                }
+            }
+        }
+    }
+
+    private static String makeLogMessage(String time, String marker) {
+        return "2013-06-10 " + time + " WARN ActionStartXCommand:542 SERVER[foo] USER[rkanter] GROUP[-] TOKEN[] APP[hive-wf] "
+                + "JOB[0000003-130610102426873-oozie-rkan-W] ACTION[0000003-130610102426873-oozie-rkan-W@:start:] " + marker
+                + "\n";
+    }
 }
@@ -35,6 +35,7 @@ import org.apache.oozie.WorkflowsInfo;
 import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.client.rest.JMSConnectionInfoBean;
 import org.apache.oozie.client.rest.RestConstants;
+import org.apache.oozie.executor.jpa.WorkflowsJobStreamJPAExecutor;
 import org.apache.oozie.service.DagEngineService;
 import org.apache.oozie.util.XmlUtils;
 import org.json.simple.JSONValue;
@@ -200,6 +201,27 @@ public class MockDagEngineService extends DagEngineService {
             return new WorkflowsInfo((List) workflows, start, len, workflows.size());
         }
 
+        @Override
+        public WorkflowsJobStreamJPAExecutor.Page getJobsPage(String filter, String cursor, int len)
+                throws DagEngineException {
+            parseFilter(filter);
+            did = RestConstants.JOBS_CURSOR_PARAM;
+            // the cursor is the index of the next workflow
+            int start = (cursor != null) ? Integer.parseInt(cursor) : 0;
+            int end = Math.min(start + len, workflows.size());
+            List<WorkflowJobBean> jobs = new ArrayList<WorkflowJobBean>();
+            for (int i = start; i < end; i++) {
+                jobs.add((WorkflowJobBean) workflows.get(i));
+            }
+            return new WorkflowsJobStreamJPAExecutor.Page(jobs, (end < workflows.size()) ? Integer.toString(end) : null);
+        }
+
+        @Override
+        public long getJobsCount(String filter) throws DagEngineException {
+            parseFilter(filter);
+            return workflows.size();
+        }
+
         @Override
         public String getJobIdForExternalId(String externalId) throws DagEngineException {
             did = RestConstants.JOBS_EXTERNAL_ID_PARAM;
@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.sla;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.AppType;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.event.JobEvent.EventStatus;
+import org.apache.oozie.client.event.SLAEvent;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor.UpdateEntry;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.sla.SLASummaryGetJPAExecutor;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.ServiceException;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+public class TestSLACalculatorTimerWheel extends XDataTestCase {
+
+    private JPAService jpaService;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Services services = new Services();
+        Configuration conf = services.getConf();
+        conf.set(Services.CONF_SERVICE_EXT_CLASSES, "org.apache.oozie.service.EventHandlerService,"
+                + "org.apache.oozie.sla.service.SLAService");
+        services.init();
+        jpaService = Services.get().get(JPAService.class);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Services.get().destroy();
+        super.tearDown();
+    }
+
+    public void testOnlyDueJobsAreProcessed() throws Exception {
+        SLACalculatorTimerWheel slaCalc = new SLACalculatorTimerWheel();
+        slaCalc.init(new Configuration(false));
+        WorkflowJobBean job1 = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        SLARegistrationBean slaRegBean1 = _createSLARegistration(job1.getId());
+        slaRegBean1.setExpectedStart(new Date(System.currentTimeMillis() - 3600 * 1000)); // 1 hour back
+        slaRegBean1.setExpectedEnd(new Date(System.currentTimeMillis() + 3600 * 1000)); // 1 hour ahead
+        slaCalc.addRegistration(job1.getId(), slaRegBean1);
+        WorkflowJobBean job2 = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        SLARegistrationBean slaRegBean2 = _createSLARegistration(job2.getId());
+        slaRegBean2.setExpectedStart(new Date(System.currentTimeMillis() + 3600 * 1000)); // 1 hour ahead
+        slaRegBean2.setExpectedDuration(3600 * 1000);
+        slaRegBean2.setExpectedEnd(new Date(System.currentTimeMillis() + 2 * 3600 * 1000)); // 2 hours ahead
+        slaCalc.addRegistration(job2.getId(), slaRegBean2);
+        assertEquals(2, slaCalc.getScheduledCount());
+
+        slaCalc.updateAllSlaStatus();
+        SLASummaryBean slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(job1.getId()));
+        // start processed, and duration processed as expected duration is not set (011)
+        assertEquals(3, slaSummary.getEventProcessed());
+        slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(job2.getId()));
+        assertEquals(0, slaSummary.getEventProcessed());
+
+        // job1 is scheduled again for its expected end
+        assertEquals(2, slaCalc.getScheduledCount());
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        assertEquals(1L, (long) instr.getCounters().get(SLACalculatorTimerWheel.INSTRUMENTATION_GROUP)
+                .get("timer.wheel.due").getValue());
+        assertEquals(1L, (long) instr.getCounters().get(SLACalculatorTimerWheel.INSTRUMENTATION_GROUP)
+                .get("timer.wheel.summary.updates").getValue());
+
+        // nothing is due until the expected end
+        slaCalc.updateAllSlaStatus();
+        assertEquals(1L, (long) instr.getCounters().get(SLACalculatorTimerWheel.INSTRUMENTATION_GROUP)
+                .get("timer.wheel.due").getValue());
+    }
+
+    public void testDurationDeadlineOnStart() throws Exception {
+        SLACalculatorTimerWheel slaCalc = new SLACalculatorTimerWheel();
+        slaCalc.init(new Configuration(false));
+        WorkflowJobBean job1 = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        SLARegistrationBean slaRegBean = _createSLARegistration(job1.getId());
+        slaRegBean.setExpectedStart(new Date(System.currentTimeMillis() + 3600 * 1000)); // 1 hour ahead
+        slaRegBean.setExpectedDuration(3600 * 1000);
+        slaRegBean.setExpectedEnd(new Date(System.currentTimeMillis() + 2 * 3600 * 1000)); // 2 hours ahead
+        String jobId = slaRegBean.getId();
+        slaCalc.addRegistration(jobId, slaRegBean);
+        slaCalc.updateAllSlaStatus();
+        SLASummaryBean slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(jobId));
+        assertEquals(0, slaSummary.getEventProcessed());
+
+        // started 2 hours back, so the expected duration has passed
+        slaCalc.addJobStatus(jobId, WorkflowJob.Status.RUNNING.toString(), EventStatus.STARTED,
+                new Date(System.currentTimeMillis() - 2 * 3600 * 1000), null);
+        slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(jobId));
+        assertEquals(1, slaSummary.getEventProcessed());
+        slaCalc.updateAllSlaStatus();
+        slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(jobId));
+        assertEquals(2, slaSummary.getEventProcessed() & 2);
+        assertEquals(1, slaCalc.size());
+    }
+
+    public void testJobEndDuringPeriodicRun() throws Exception {
+        final Date actualStart = new Date(System.currentTimeMillis() - 1800 * 1000);
+        SLACalculatorTimerWheel slaCalc = new SLACalculatorTimerWheel() {
+            @Override
+            protected SLASummaryBean calculateJobSla(String jobId, SLACalcStatus slaCalc)
+                    throws JPAExecutorException, ServiceException {
+                SLASummaryBean slaSummaryBean = super.calculateJobSla(jobId, slaCalc);
+                // the job ends before the summary calculated by the periodic run is stored
+                addJobStatus(jobId, WorkflowJob.Status.SUCCEEDED.toString(), EventStatus.SUCCESS, actualStart,
+                        new Date());
+                return slaSummaryBean;
+            }
+        };
+        slaCalc.init(new Configuration(false));
+        WorkflowJobBean job1 = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        SLARegistrationBean slaRegBean = _createSLARegistration(job1.getId());
+        slaRegBean.setExpectedStart(new Date(System.currentTimeMillis() - 3600 * 1000)); // 1 hour back
+        slaRegBean.setExpectedEnd(new Date(System.currentTimeMillis() + 3600 * 1000)); // 1 hour ahead
+        String jobId = slaRegBean.getId();
+        slaCalc.addRegistration(jobId, slaRegBean);
+        slaCalc.updateAllSlaStatus();
+
+        // the stale summary of the periodic run does not overwrite the summary of the job end
+        SLASummaryBean slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(jobId));
+        assertEquals(8, slaSummary.getEventProcessed());
+        assertEquals(WorkflowJob.Status.SUCCEEDED.toString(), slaSummary.getJobStatus());
+        assertNotNull(slaSummary.getActualEnd());
+        assertEquals(0, slaCalc.size());
+    }
+
+    public void testJobEndWhileSummariesAreStored() throws Exception {
+        final Date actualStart = new Date(System.currentTimeMillis() - 1800 * 1000);
+        final AtomicBoolean ended = new AtomicBoolean();
+        final SLACalculatorTimerWheel slaCalc = new SLACalculatorTimerWheel() {
+            @Override
+            @SuppressWarnings("rawtypes")
+            protected List<String> storeBatch(List<UpdateEntry> updateList) {
+                if (!ended.get()) {
+                    // the job ends from another thread while the batch is stored, without waiting for it
+                    final String jobId = ((SLASummaryBean) updateList.get(0).getBean()).getId();
+                    Thread thread = new Thread() {
+                        public void run() {
+                            try {
+                                addJobStatus(jobId, WorkflowJob.Status.SUCCEEDED.toString(), EventStatus.SUCCESS,
+                                        actualStart, new Date());
+                                ended.set(true);
+                            }
+                            catch (Exception ex) {
+                                throw new RuntimeException(ex);
+                            }
+                        }
+                    };
+                    thread.start();
+                    try {
+                        thread.join(10000);
+                    }
+                    catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    assertTrue(ended.get());
+                }
+                return super.storeBatch(updateList);
+            }
+        };
+        slaCalc.init(new Configuration(false));
+        WorkflowJobBean job1 = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        SLARegistrationBean slaRegBean = _createSLARegistration(job1.getId());
+        slaRegBean.setExpectedStart(new Date(System.currentTimeMillis() - 3600 * 1000)); // 1 hour back
+        slaRegBean.setExpectedEnd(new Date(System.currentTimeMillis() + 3600 * 1000)); // 1 hour ahead
+        String jobId = slaRegBean.getId();
+        slaCalc.addRegistration(jobId, slaRegBean);
+        slaCalc.updateAllSlaStatus();
+
+        // the stale summary stored by the batch is stored again from the SLA status of the job end
+        SLASummaryBean slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(jobId));
+        assertEquals(8, slaSummary.getEventProcessed());
+        assertEquals(WorkflowJob.Status.SUCCEEDED.toString(), slaSummary.getJobStatus());
+        assertNotNull(slaSummary.getActualEnd());
+        assertEquals(0, slaCalc.size());
+    }
+
+    public void testEndProcessedJobMovedToHistory() throws Exception {
+        SLACalculatorTimerWheel slaCalc = new SLACalculatorTimerWheel();
+        slaCalc.init(new Configuration(false));
+        WorkflowJobBean job1 = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        SLARegistrationBean slaRegBean = _createSLARegistration(job1.getId());
+        slaRegBean.setExpectedStart(new Date(System.currentTimeMillis() - 3600 * 1000)); // 1 hour back
+        slaRegBean.setExpectedEnd(new Date(System.currentTimeMillis() - 3600 * 1000)); // 1 hour back
+        String jobId = slaRegBean.getId();
+        slaCalc.addRegistration(jobId, slaRegBean);
+        slaCalc.updateAllSlaStatus();
+        SLASummaryBean slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(jobId));
+        // all sla's processed (111)
+        assertEquals(7, slaSummary.getEventProcessed());
+        assertEquals(SLAEvent.SLAStatus.MISS, slaSummary.getSLAStatus());
+        assertEquals(0, slaCalc.size());
+        assertEquals(0, slaCalc.getScheduledCount());
+        assertNotNull(slaCalc.get(jobId));
+
+        slaCalc.addJobStatus(jobId, WorkflowJob.Status.SUCCEEDED.toString(), EventStatus.SUCCESS, new Date(
+                System.currentTimeMillis() - 3600 * 1000), new Date());
+        slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(jobId));
+        assertEquals(8, slaSummary.getEventProcessed());
+    }
+
+    public void testRemoveRegistration() throws Exception {
+        SLACalculatorTimerWheel slaCalc = new SLACalculatorTimerWheel();
+        slaCalc.init(new Configuration(false));
+        WorkflowJobBean job1 = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        SLARegistrationBean slaRegBean = _createSLARegistration(job1.getId());
+        slaRegBean.setExpectedStart(new Date(System.currentTimeMillis() - 3600 * 1000)); // 1 hour back
+        slaRegBean.setExpectedEnd(new Date(System.currentTimeMillis() + 3600 * 1000)); // 1 hour ahead
+        String jobId = slaRegBean.getId();
+        slaCalc.addRegistration(jobId, slaRegBean);
+        slaCalc.removeRegistration(jobId);
+        assertEquals(0, slaCalc.getScheduledCount());
+        slaCalc.updateAllSlaStatus();
+        SLASummaryBean slaSummary = jpaService.execute(new SLASummaryGetJPAExecutor(jobId));
+        assertEquals(0, slaSummary.getEventProcessed());
+    }
+
+    private SLARegistrationBean _createSLARegistration(String jobId) {
+        SLARegistrationBean bean = new SLARegistrationBean();
+        bean.setId(jobId);
+        bean.setAppType(AppType.WORKFLOW_JOB);
+        return bean;
+    }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.sla;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestTimerWheel extends TestCase {
+
+    private static List<String> items(List<TimerWheel.Timeout<String>> timeouts) {
+        List<String> items = new ArrayList<String>();
+        for (TimerWheel.Timeout<String> timeout : timeouts) {
+            items.add(timeout.getItem());
+        }
+        return items;
+    }
+
+    public void testDueItems() {
+        TimerWheel<String> wheel = new TimerWheel<String>(1000, 2, 0);
+        wheel.add("a", 1500);
+        wheel.add("b", 5000);
+        wheel.add("c", 200 * 1000);
+        assertEquals(3, wheel.size());
+
+        // not due before its deadline rounded up to the next tick
+        assertTrue(wheel.advance(1999).isEmpty());
+        assertEquals(Arrays.asList("a"), items(wheel.advance(2000)));
+        assertTrue(wheel.advance(4999).isEmpty());
+        assertEquals(Arrays.asList("b"), items(wheel.advance(100 * 1000)));
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(199 * 1000).isEmpty());
+        List<TimerWheel.Timeout<String>> due = wheel.advance(201 * 1000);
+        assertEquals(Arrays.asList("c"), items(due));
+        assertEquals(200 * 1000, due.get(0).getDeadline());
+        assertEquals(0, wheel.size());
+    }
+
+    public void testPassedDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<String>(1000, 2, 10 * 1000);
+        wheel.add("a", 0);
+        assertEquals(Arrays.asList("a"), items(wheel.advance(10 * 1000)));
+    }
+
+    public void testBeyondWheelSpan() {
+        // 2 levels span 4096 ticks
+        TimerWheel<String> wheel = new TimerWheel<String>(1, 2, 0);
+        wheel.add("a", 10000);
+        wheel.add("b", 20000);
+        for (long now = 0; now < 10000; now += 100) {
+            assertTrue(wheel.advance(now).isEmpty());
+        }
+        assertEquals(Arrays.asList("a"), items(wheel.advance(10000)));
+        // not advanced for longer than the span
+        assertTrue(wheel.advance(19999).isEmpty());
+        assertEquals(Arrays.asList("b"), items(wheel.advance(30000)));
+    }
+
+    public void testClear() {
+        TimerWheel<String> wheel = new TimerWheel<String>(1000, 2, 0);
+        wheel.add("a", 1000);
+        wheel.add("b", 0);
+        wheel.clear();
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advance(10 * 1000).isEmpty());
+    }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.oozie.service.CallableQueueService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.TestCallableQueueService.MyCallable;
+import org.apache.oozie.test.XTestCase;
+
+/**
+ * Enqueue throughput benchmark of {@link CallableQueueService} from many threads, against the same service with the
+ * enqueue serialized on a global monitor as the previous implementation did.
+ * <p/>
+ * Each thread queues callables with their own keys and a few types, as the command threads, the RecoveryService and
+ * the ActionCheckerService do, so any contention comes from the service itself.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.util.CallableQueueServiceBenchmark [threads] [callables per thread]</code>
+ */
+public class CallableQueueServiceBenchmark extends XTestCase {
+    private static int threads = 64;
+    private static int perThread = 5000;
+
+    public static void main(String[] args) throws Exception {
+        threads = (args.length > 0) ? Integer.parseInt(args[0]) : threads;
+        perThread = (args.length > 1) ? Integer.parseInt(args[1]) : perThread;
+        junit.textui.TestRunner.run(CallableQueueServiceBenchmark.class);
+    }
+
+    public void testEnqueue() throws Exception {
+        setSystemProperty(CallableQueueService.CONF_QUEUE_SIZE, Integer.toString(threads * perThread));
+        setSystemProperty(CallableQueueService.CONF_CALLABLE_CONCURRENCY, "100");
+        for (int i = 0; i < 3; i++) {
+            run("global monitor", new Object());
+            run("CallableQueueService", null);
+        }
+    }
+
+    private void run(String name, final Object monitor) throws Exception {
+        Services services = new Services();
+        services.init();
+        try {
+            final CallableQueueService queueservice = services.get(CallableQueueService.class);
+            final AtomicInteger queued = new AtomicInteger();
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                final int thread = i;
+                new Thread() {
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int j = 0; j < perThread; j++) {
+                                MyCallable callable = new MyCallable("benchmark_" + thread + "_" + j,
+                                        "type" + (j % 10), j % 3, 0);
+                                boolean ok;
+                                if (monitor != null) {
+                                    synchronized (monitor) {
+                                        ok = queueservice.queue(callable);
+                                    }
+                                }
+                                else {
+                                    ok = queueservice.queue(callable);
+                                }
+                                if (ok) {
+                                    queued.incrementAndGet();
+                                }
+                            }
+                        }
+                        catch (InterruptedException ex) {
+                        }
+                        finally {
+                            done.countDown();
+                        }
+                    }
+                }.start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            long wall = System.nanoTime() - begin;
+            System.out.println(String.format("%-22s threads=%d queued=%d wall=%dms throughput=%.0f/s", name, threads,
+                                             queued.get(), wall / 1000000, queued.get() / (wall / 1e9)));
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+}
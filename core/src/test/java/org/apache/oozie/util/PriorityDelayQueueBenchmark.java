@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
+
+/**
+ * Handoff benchmark of {@link PriorityDelayQueue} against {@link SignalingPriorityDelayQueue}.
+ * <p/>
+ * A producer trickles elements into the queue while a pool of consumer threads takes them, the benchmark reports the
+ * mean handoff latency (time from offer to take) and the CPU time consumed by the consumers.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.util.PriorityDelayQueueBenchmark [consumers] [elements]</code>
+ */
+public class PriorityDelayQueueBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int consumers = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int elements = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+        for (int i = 0; i < 2; i++) {
+            run("PriorityDelayQueue", new PriorityDelayQueue<Long>(3, 30000, TimeUnit.MILLISECONDS, -1),
+                consumers, elements);
+            run("SignalingPriorityDelayQueue",
+                new SignalingPriorityDelayQueue<Long>(3, 30000, TimeUnit.MILLISECONDS, -1), consumers, elements);
+        }
+    }
+
+    private static void run(String name, final PriorityDelayQueue<Long> queue, int consumers, int elements)
+            throws Exception {
+        final CountDownLatch latch = new CountDownLatch(elements);
+        final AtomicLong latency = new AtomicLong();
+        Thread[] threads = new Thread[consumers];
+        for (int i = 0; i < consumers; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        while (true) {
+                            long offered = queue.take().getElement();
+                            latency.addAndGet(System.nanoTime() - offered);
+                            latch.countDown();
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                    }
+                }
+            };
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        long cpuStart = cpuTime();
+        long start = System.nanoTime();
+        for (int i = 0; i < elements; i++) {
+            queue.offer(new QueueElement<Long>(System.nanoTime()));
+            // trickle the elements so consumers go idle between them, as in an idle server
+            Thread.sleep(1);
+        }
+        latch.await();
+        long wall = System.nanoTime() - start;
+        long cpu = cpuTime() - cpuStart;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        System.out.println(String.format("%-28s consumers=%d elements=%d mean-handoff=%.3fms wall=%dms cpu=%dms",
+                                         name, consumers, elements, latency.get() / 1e6 / elements, wall / 1000000,
+                                         cpu / 1000000));
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long id : bean.getAllThreadIds()) {
+            long time = bean.getThreadCpuTime(id);
+            if (time > 0) {
+                total += time;
+            }
+        }
+        return total;
+    }
+
+}
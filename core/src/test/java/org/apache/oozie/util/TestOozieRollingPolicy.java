@@ -18,6 +18,7 @@
 package org.apache.oozie.util;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import org.apache.commons.logging.LogFactory;
@@ -130,6 +131,37 @@ public class TestOozieRollingPolicy extends XTestCase {
                    f7.exists() && f8.exists());
     }
     
+    public void testIndexAction() throws Exception {
+        String oozieLogPath = getTestCaseDir();
+        File active = new File(oozieLogPath, "oozie.log");
+        File rolled1 = new File(oozieLogPath, "oozie.log-2014-01-01-10");
+        File rolled2 = new File(oozieLogPath, "oozie.log-2014-01-01-11");
+        for (File file : new File[]{active, rolled1, rolled2}) {
+            FileWriter writer = new FileWriter(file);
+            writer.write("2014-01-01 10:00:00,000  INFO _L1_:323 - USER[oozie] GROUP[-] TOKEN[-] APP[-] JOB[job-1] "
+                    + "ACTION[-] message\n");
+            writer.close();
+        }
+
+        // rolled logs are indexed, the active log is not
+        new OozieRollingPolicy.IndexAction(active, null, false).execute();
+        assertTrue(rolled1.exists() && XLogIndex.getIndexFile(rolled1).exists());
+        assertTrue(rolled2.exists() && XLogIndex.getIndexFile(rolled2).exists());
+        assertFalse(XLogIndex.getIndexFile(active).exists());
+
+        // rolled logs are compressed as blocks, and indexed
+        new OozieRollingPolicy.IndexAction(active, null, true).execute();
+        assertFalse(rolled1.exists());
+        File gz1 = new File(oozieLogPath, rolled1.getName() + ".gz");
+        assertTrue(gz1.exists());
+        XLogIndex index = XLogIndex.read(gz1);
+        assertNotNull(index);
+        assertTrue(index.isCompressed());
+        assertEquals(1, index.select("job-1", null, null).getBlocks().size());
+        assertTrue(active.exists());
+        assertFalse(new File(oozieLogPath, "oozie.log.gz").exists());
+    }
+
     private String formatDateForFilename(Calendar cal) {
         int year = cal.get(Calendar.YEAR);
         int month = cal.get(Calendar.MONTH) + 1;
@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
+
+public class TestSignalingPriorityDelayQueue extends TestCase {
+
+    public void testTakeWakesUpOnOffer() throws Exception {
+        final SignalingPriorityDelayQueue<Integer> q =
+                new SignalingPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+        final List<Integer> taken = new ArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    taken.add(q.take().getElement());
+                    latch.countDown();
+                }
+                catch (InterruptedException ex) {
+                }
+            }
+        };
+        t.start();
+        Thread.sleep(100);
+        q.offer(new QueueElement<Integer>(1));
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(1, taken.size());
+        assertEquals(1, (int) taken.get(0));
+        assertEquals(0, q.size());
+    }
+
+    public void testTakeWakesUpAtDelay() throws Exception {
+        SignalingPriorityDelayQueue<Integer> q =
+                new SignalingPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+        long start = System.currentTimeMillis();
+        q.offer(new QueueElement<Integer>(1, 0, 200, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(2, 1, 100, TimeUnit.MILLISECONDS));
+        assertEquals(2, (int) q.take().getElement());
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals(1, (int) q.take().getElement());
+        assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+    public void testPollTimeout() throws Exception {
+        SignalingPriorityDelayQueue<Integer> q =
+                new SignalingPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+        long start = System.currentTimeMillis();
+        assertNull(q.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 100);
+
+        q.offer(new QueueElement<Integer>(1, 0, 50, TimeUnit.MILLISECONDS));
+        assertEquals(1, (int) q.poll(1000, TimeUnit.MILLISECONDS).getElement());
+
+        q.offer(new QueueElement<Integer>(2, 0, 500, TimeUnit.MILLISECONDS));
+        assertNull(q.poll(50, TimeUnit.MILLISECONDS));
+        assertEquals(1, q.size());
+    }
+
+    public void testEligibilityChanged() throws Exception {
+        final AtomicBoolean eligible = new AtomicBoolean(false);
+        final SignalingPriorityDelayQueue<Integer> q =
+                new SignalingPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1) {
+                    @Override
+                    protected boolean eligibleToPoll(QueueElement<?> element) {
+                        return element != null && eligible.get();
+                    }
+                };
+        q.offer(new QueueElement<Integer>(1));
+        assertNull(q.poll());
+        final CountDownLatch latch = new CountDownLatch(1);
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    q.take();
+                    latch.countDown();
+                }
+                catch (InterruptedException ex) {
+                }
+            }
+        };
+        t.start();
+        assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+        eligible.set(true);
+        q.eligibilityChanged();
+        assertTrue(latch.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(0, q.size());
+    }
+
+    public void testConcurrency() throws Exception {
+        final int priorities = 3;
+        final int consumers = 10;
+        final int elements = 2000;
+        final SignalingPriorityDelayQueue<Integer> q =
+                new SignalingPriorityDelayQueue<Integer>(priorities, 100, TimeUnit.MILLISECONDS, -1);
+        final AtomicInteger consumed = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(elements);
+        for (int i = 0; i < consumers; i++) {
+            Thread t = new Thread() {
+                public void run() {
+                    try {
+                        while (true) {
+                            q.take();
+                            consumed.incrementAndGet();
+                            latch.countDown();
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                    }
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+        for (int i = 0; i < elements; i++) {
+            q.offer(new QueueElement<Integer>(i, i % priorities, i % 20, TimeUnit.MILLISECONDS));
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(elements, consumed.get());
+        assertEquals(0, q.size());
+    }
+
+}
@@ -18,6 +18,7 @@
 package org.apache.oozie.util;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -198,4 +199,35 @@ public class TestXConfiguration extends XTestCase {
         assertEquals("foo", conf.get("un"));
 
     }
+
+    public void testParsing() throws Exception {
+        String xml = "<?xml version='1.0'?>\n<!-- comment -->\n<configuration>\n" +
+                "<property><name> a </name><value>x&amp;y</value><description>d</description></property>\n" +
+                "<property><name>b</name><value></value></property>\n" +
+                "<property><name>c</name><value> </value></property>\n" +
+                "<configuration><property><name>d</name><value>nested</value></property></configuration>\n" +
+                "<property><name>e</name><value><![CDATA[<e>]]></value></property>\n" +
+                "<property><name>f</name></property>\n" +
+                "</configuration>";
+        XConfiguration conf = new XConfiguration(new StringReader(xml));
+        assertEquals("x&y", conf.getRaw("a"));
+        assertNull(conf.getRaw("b"));
+        assertEquals(" ", conf.getRaw("c"));
+        assertEquals("nested", conf.getRaw("d"));
+        assertEquals("<e>", conf.getRaw("e"));
+        assertNull(conf.getRaw("f"));
+        assertEquals(5, conf.size());
+
+        conf = new XConfiguration(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        assertEquals(5, conf.size());
+        assertEquals("x&y", conf.getRaw("a"));
+
+        try {
+            new XConfiguration(new StringReader("<configuration><foo/></configuration>"));
+            fail();
+        }
+        catch (IOException ex) {
+            // expected
+        }
+    }
 }
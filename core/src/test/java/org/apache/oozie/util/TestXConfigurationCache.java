@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XTestCase;
+
+public class TestXConfigurationCache extends XTestCase {
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.getConf().setInt(XConfigurationCache.CONF_CACHE_SIZE, 2);
+        services.init();
+        XConfigurationCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XConfigurationCache.clear();
+        services.destroy();
+        super.tearDown();
+    }
+
+    private static String createXml(String user) {
+        XConfiguration conf = new XConfiguration();
+        conf.set("user.name", user);
+        conf.set("oozie.wf.application.path", "hdfs://localhost:8020/user/" + user + "/app");
+        return conf.toXmlString(false);
+    }
+
+    public void testGet() throws Exception {
+        String xml = createXml("joe");
+        XConfiguration conf1 = XConfigurationCache.get(xml);
+        assertEquals(1, XConfigurationCache.size());
+        XConfiguration conf2 = XConfigurationCache.get(new String(xml));
+        assertEquals(1, XConfigurationCache.size());
+        assertEquals("joe", conf2.get("user.name"));
+        assertEquals("hdfs://localhost:8020/user/joe/app", conf2.get("oozie.wf.application.path"));
+
+        // the configurations share the interned values, not the configuration itself
+        assertSame(conf1.getRaw("user.name"), conf2.getRaw("user.name"));
+        assertSame("joe", conf2.getRaw("user.name"));
+        conf1.set("user.name", "bob");
+        assertEquals("joe", conf2.get("user.name"));
+        assertEquals("joe", XConfigurationCache.get(xml).get("user.name"));
+    }
+
+    public void testEviction() throws Exception {
+        XConfigurationCache.get(createXml("a"));
+        XConfigurationCache.get(createXml("b"));
+        XConfigurationCache.get(createXml("c"));
+        assertEquals(2, XConfigurationCache.size());
+        assertEquals("a", XConfigurationCache.get(createXml("a")).get("user.name"));
+    }
+
+    public void testDisabled() throws Exception {
+        services.getConf().setInt(XConfigurationCache.CONF_CACHE_SIZE, 0);
+        assertEquals("a", XConfigurationCache.get(createXml("a")).get("user.name"));
+        assertEquals(0, XConfigurationCache.size());
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.oozie.test.XTestCase;
+
+public class TestXLogIndex extends XTestCase {
+
+    private static final String JOB_ID = "0000007-140101000000000-oozie-oozi-W";
+
+    private final static SimpleDateFormat filenameDateFormatter = new SimpleDateFormat("yyyy-MM-dd-HH");
+    private final static SimpleDateFormat timestampFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        XLogStreamer.Filter.reset();
+        XLogStreamer.Filter.defineParameter("USER");
+        XLogStreamer.Filter.defineParameter("GROUP");
+        XLogStreamer.Filter.defineParameter("TOKEN");
+        XLogStreamer.Filter.defineParameter("APP");
+        XLogStreamer.Filter.defineParameter("JOB");
+        XLogStreamer.Filter.defineParameter("ACTION");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XLogStreamer.Filter.reset();
+        super.tearDown();
+    }
+
+    /**
+     * Write a log of 20 jobs, with a stack trace every 10 messages, starting at the given time.
+     */
+    private File writeLog(String name, long startTime, int messages) throws IOException {
+        File file = new File(getTestCaseDir(), name);
+        FileWriter writer = new FileWriter(file);
+        for (int i = 0; i < messages; i++) {
+            String jobId = "00000" + String.format("%02d", i % 20) + "-140101000000000-oozie-oozi-W";
+            writer.write(timestampFormatter.format(new Date(startTime + i * 100)) + "  INFO _L" + i + "_:323 - "
+                    + "USER[oozie] GROUP[-] TOKEN[-] APP[app] JOB[" + jobId + "] ACTION[-] message " + i + "\n");
+            if (i % 10 == 7) {
+                writer.write("java.lang.Exception: _S" + i + "_\n\tat Foo.bar(Foo.java:1)\n");
+            }
+        }
+        writer.close();
+        return file;
+    }
+
+    private String streamLog(XLogStreamer.Filter filter, Date startTime, Date endTime) throws IOException {
+        StringWriter writer = new StringWriter();
+        new XLogStreamer(filter, getTestCaseDir(), "oozie.log", 3600).streamLog(writer, startTime, endTime);
+        return writer.toString();
+    }
+
+    public void testSelectJobBlocks() throws Exception {
+        long startTime = System.currentTimeMillis() - 3600 * 1000;
+        File log = writeLog("oozie.log-" + filenameDateFormatter.format(new Date(startTime)), startTime, 2000);
+        File gz = new File(log.getPath() + ".gz");
+        XLogIndex.compress(log, gz, 4096);
+        XLogIndex.index(log, 4096);
+
+        for (File file : new File[]{log, gz}) {
+            XLogIndex index = XLogIndex.read(file);
+            assertNotNull(index);
+            assertEquals(file == gz, index.isCompressed());
+            int jobBlocks = index.select(JOB_ID, null, null).getBlocks().size();
+            assertTrue(jobBlocks > 0);
+            assertTrue(jobBlocks < index.getBlockCount());
+            assertEquals(index.getBlockCount(), index.select(null, null, null).getBlocks().size());
+            // the first 10 seconds of the log
+            int windowBlocks = index.select(null, new Date(startTime - 1000), new Date(startTime + 10 * 1000))
+                    .getBlocks().size();
+            assertTrue(windowBlocks > 0);
+            assertTrue(windowBlocks < index.getBlockCount());
+            assertEquals(0, index.select("0000099-140101000000000-oozie-oozi-W", null, null).getBlocks().size());
+        }
+    }
+
+    public void testStreamIndexedLog() throws Exception {
+        long startTime = System.currentTimeMillis() - 3600 * 1000;
+        File log = writeLog("oozie.log-" + filenameDateFormatter.format(new Date(startTime)), startTime, 2000);
+        XLogStreamer.Filter filter = new XLogStreamer.Filter();
+        filter.setParameter("JOB", JOB_ID);
+        filter.setLogLevel("INFO");
+        Date endTime = new Date();
+        String expected = streamLog(filter, new Date(startTime), endTime);
+        // 100 messages with a 2 lines stack trace each
+        assertEquals(300, expected.split("\n").length);
+
+        XLogIndex.index(log, 4096);
+        assertEquals(expected, streamLog(filter, new Date(startTime), endTime));
+
+        File gz = new File(log.getPath() + ".gz");
+        XLogIndex.compress(log, gz, 4096);
+        log.delete();
+        assertEquals(expected, streamLog(filter, new Date(startTime), endTime));
+
+        // the index is ignored if it does not match the file
+        writeLog(log.getName(), startTime, 10).renameTo(gz);
+        assertNull(XLogIndex.read(gz));
+    }
+
+    public void testJobId() {
+        XLogStreamer.Filter filter = new XLogStreamer.Filter();
+        assertNull(XLogIndex.getJobId(filter));
+        filter.setParameter("JOB", JOB_ID);
+        assertEquals(JOB_ID, XLogIndex.getJobId(filter));
+        filter.setParameter("JOB", "0000007-.*-W");
+        assertNull(XLogIndex.getJobId(filter));
+    }
+
+}
@@ -17,8 +17,16 @@
  */
 package org.apache.oozie.util;
 
+import java.io.ByteArrayInputStream;
+
+import javax.xml.validation.Schema;
+
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.Services;
 import org.apache.oozie.test.XTestCase;
 import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.xml.sax.SAXException;
 
 public class TestXmlUtils extends XTestCase {
 
@@ -36,4 +44,92 @@ public class TestXmlUtils extends XTestCase {
         String result = XmlUtils.removeComments(xmlStr);
         System.out.println("Result After Comments removal :\n" + result);
     }
+
+    public void testParserReuse() throws Exception {
+        try {
+            XmlUtils.parseXml("<foo>");
+            fail();
+        }
+        catch (JDOMException ex) {
+            // expected
+        }
+        // the builder of the thread is reused after an error and still does not resolve external entities
+        assertEquals("bar", XmlUtils.parseXml("<foo>bar</foo>").getText());
+        assertEquals(0, XmlUtils.parseXml(EXTERNAL_ENTITY_XML).getText().length());
+    }
+
+    private static final String SCHEMA = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" "
+            + "xmlns=\"uri:test\" targetNamespace=\"uri:test\" elementFormDefault=\"qualified\">"
+            + "<xs:element name=\"foo\"><xs:complexType><xs:sequence>"
+            + "<xs:element name=\"bar\" type=\"xs:int\" maxOccurs=\"unbounded\"/>"
+            + "</xs:sequence></xs:complexType></xs:element>"
+            + "</xs:schema>";
+
+    public void testParseXmlWithSchema() throws Exception {
+        Schema schema = XmlUtils.createSchema(new ByteArrayInputStream(SCHEMA.getBytes("UTF-8")));
+        String[] invalid = {"<foo xmlns=\"uri:test\"><bar>x</bar></foo>", "<foo xmlns=\"uri:test\"><bar>1</bar>",
+            "<foo xmlns=\"uri:test\"><baz/></foo>"};
+        for (String xml : invalid) {
+            try {
+                XmlUtils.parseXml(schema, xml);
+                fail();
+            }
+            catch (SAXException ex) {
+                // expected
+            }
+            // the validator of the thread is reused after an error
+            Element e = XmlUtils.parseXml(schema, "<foo xmlns=\"uri:test\"><bar>1</bar><!-- c --><bar>2</bar></foo>");
+            assertEquals("foo", e.getName());
+            assertEquals("uri:test", e.getNamespaceURI());
+            assertEquals(2, e.getChildren("bar", e.getNamespace()).size());
+            assertEquals("2", ((Element) e.getChildren().get(1)).getText());
+            assertEquals(3, e.getContent().size());
+        }
+        XmlUtils.validateXml(schema, "<foo xmlns=\"uri:test\"><bar>1</bar></foo>");
+        try {
+            XmlUtils.validateXml(schema, invalid[0]);
+            fail();
+        }
+        catch (SAXException ex) {
+            // expected
+        }
+        XmlUtils.validateXml(schema, "<foo xmlns=\"uri:test\"><bar>1</bar></foo>");
+    }
+
+    public void testParseCachedXml() throws Exception {
+        Services services = new Services();
+        services.getConf().setInt(XmlUtils.CONF_ELEMENT_CACHE_SIZE, 2);
+        services.init();
+        try {
+            XmlUtils.clearElementCache();
+            Instrumentation instr = services.get(InstrumentationService.class).get();
+            Element e1 = XmlUtils.parseCachedXml("<foo a=\"1\"><bar/></foo>");
+            Element e2 = XmlUtils.parseCachedXml(new String("<foo a=\"1\"><bar/></foo>"));
+            assertSame(e1, e2);
+            assertEquals("1", e2.getAttributeValue("a"));
+            assertEquals(1L, (long) instr.getCounters().get(XmlUtils.INSTRUMENTATION_GROUP)
+                    .get("element.cache.hits").getValue());
+            assertEquals(1L, (long) instr.getCounters().get(XmlUtils.INSTRUMENTATION_GROUP)
+                    .get("element.cache.misses").getValue());
+
+            // a clone modified by the caller does not change the cached element
+            Element clone = (Element) e1.clone();
+            clone.setAttribute("a", "2");
+            assertEquals("1", XmlUtils.parseCachedXml("<foo a=\"1\"><bar/></foo>").getAttributeValue("a"));
+
+            // the least recently used element is evicted
+            XmlUtils.parseCachedXml("<foo a=\"2\"/>");
+            XmlUtils.parseCachedXml("<foo a=\"3\"/>");
+            assertNotSame(e1, XmlUtils.parseCachedXml("<foo a=\"1\"><bar/></foo>"));
+
+            services.getConf().setInt(XmlUtils.CONF_ELEMENT_CACHE_SIZE, 0);
+            Element e3 = XmlUtils.parseCachedXml("<foo a=\"3\"/>");
+            assertNotSame(e3, XmlUtils.parseCachedXml("<foo a=\"3\"/>"));
+        }
+        finally {
+            XmlUtils.clearElementCache();
+            services.destroy();
+        }
+    }
+
 }
@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XTestCase;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * Benchmark of parsing 200 property job configurations with a DOM, as {@link XConfiguration} did before, against the
+ * {@link XConfiguration} streaming parser and the {@link XConfigurationCache}.
+ * <p/>
+ * It reports the parsing time of a configuration parsed again and again, as commands do with the configuration of a
+ * job, and the heap retained by the configurations of several actions of a few jobs.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>mvn test -Dtest=XConfigurationBenchmark</code>
+ */
+public class XConfigurationBenchmark extends XTestCase {
+    private static final int PROPERTIES = 200;
+    private static final int PARSES = 20000;
+    private static final int JOBS = 20;
+    private static final int RETAINED = 2000;
+
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        XConfigurationCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XConfigurationCache.clear();
+        services.destroy();
+        super.tearDown();
+    }
+
+    private interface Parser {
+        Configuration parse(String xml) throws Exception;
+    }
+
+    public void testParsing() throws Exception {
+        List<String> xmls = new ArrayList<String>();
+        for (int i = 0; i < JOBS; i++) {
+            xmls.add(createJobConf(i));
+        }
+        System.out.println("Job configuration chars: " + xmls.get(0).length());
+        Parser[] parsers = {new Parser() {
+            @Override
+            public Configuration parse(String xml) throws Exception {
+                return parseDom(xml);
+            }
+
+            @Override
+            public String toString() {
+                return "DOM";
+            }
+        }, new Parser() {
+            @Override
+            public Configuration parse(String xml) throws Exception {
+                return new XConfiguration(new StringReader(xml));
+            }
+
+            @Override
+            public String toString() {
+                return "StAX";
+            }
+        }, new Parser() {
+            @Override
+            public Configuration parse(String xml) throws Exception {
+                return XConfigurationCache.get(xml);
+            }
+
+            @Override
+            public String toString() {
+                return "cache";
+            }
+        }};
+        for (int run = 0; run < 3; run++) {
+            for (Parser parser : parsers) {
+                XConfigurationCache.clear();
+                long begin = System.nanoTime();
+                for (int i = 0; i < PARSES; i++) {
+                    assertEquals(PROPERTIES, parser.parse(xmls.get(i % JOBS)).size());
+                }
+                long nanos = System.nanoTime() - begin;
+
+                List<Configuration> confs = new ArrayList<Configuration>();
+                long before = usedMemory();
+                for (int i = 0; i < RETAINED; i++) {
+                    // every action of a job has its own copy of the job configuration
+                    confs.add(parser.parse(xmls.get(i % JOBS)));
+                }
+                long retained = usedMemory() - before;
+                System.out.println(String.format("%-6s parses=%d wall=%dms %.1fus/parse, %d confs retain %.1fMB",
+                                                 parser, PARSES, nanos / 1000000, nanos / 1e3 / PARSES,
+                                                 confs.size(), retained / (1024.0 * 1024)));
+            }
+        }
+    }
+
+    // a job configuration as submitted by users, Hadoop and Oozie properties with some values shared by all jobs
+    private static String createJobConf(int job) {
+        XConfiguration conf = new XConfiguration();
+        String user = "user" + (job % 5);
+        conf.set("user.name", user);
+        conf.set("group.name", "users");
+        conf.set("oozie.wf.application.path", "hdfs://namenode:8020/user/" + user + "/apps/job-" + job);
+        conf.set("oozie.use.system.libpath", "true");
+        conf.set("jobTracker", "jobtracker:8021");
+        conf.set("nameNode", "hdfs://namenode:8020");
+        conf.set("queueName", "default");
+        for (int i = conf.size(); i < PROPERTIES; i++) {
+            switch (i % 4) {
+                case 0:
+                    conf.set("mapred.job.property." + i, "true");
+                    break;
+                case 1:
+                    conf.set("mapred.job.property." + i, Integer.toString(i * 1024));
+                    break;
+                case 2:
+                    conf.set("job.input.dir." + i, "hdfs://namenode:8020/user/" + user + "/data/job-" + job
+                            + "/input/" + i + "/${YEAR}/${MONTH}/${DAY}/${HOUR}");
+                    break;
+                default:
+                    conf.set("job.java.opts." + i, "-Xmx1024m -Djava.net.preferIPv4Stack=true -Dproperty=" + i);
+            }
+        }
+        return XmlUtils.prettyPrint(conf).toString();
+    }
+
+    // the previous XConfiguration parsing, a DocumentBuilderFactory and a DOM for every configuration
+    private static Configuration parseDom(String xml) throws Exception {
+        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
+        docBuilderFactory.setNamespaceAware(true);
+        docBuilderFactory.setXIncludeAware(true);
+        docBuilderFactory.setIgnoringComments(true);
+        Element root = docBuilderFactory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)))
+                .getDocumentElement();
+        Configuration conf = new XConfiguration();
+        NodeList props = root.getChildNodes();
+        for (int i = 0; i < props.getLength(); i++) {
+            Node propNode = props.item(i);
+            if (!(propNode instanceof Element)) {
+                continue;
+            }
+            NodeList fields = propNode.getChildNodes();
+            String attr = null;
+            String value = null;
+            for (int j = 0; j < fields.getLength(); j++) {
+                Node field = fields.item(j);
+                if ("name".equals(field.getNodeName()) && field.hasChildNodes()) {
+                    attr = field.getFirstChild().getNodeValue().trim();
+                }
+                if ("value".equals(field.getNodeName()) && field.hasChildNodes()) {
+                    value = field.getFirstChild().getNodeValue();
+                }
+            }
+            if (attr != null && value != null) {
+                conf.set(attr, value);
+            }
+        }
+        return conf;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
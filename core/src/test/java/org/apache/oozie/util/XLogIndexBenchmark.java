@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oozie.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Benchmark of streaming the log of a job from a synthetic set of rolled logs, compressed as a single gzip stream
+ * against compressed as blocks with an {@link XLogIndex}.
+ * <p/>
+ * Each rolled log spans one hour and has the messages of many jobs, the streamed job logs a message every few seconds.
+ * <p/>
+ * It is not run as part of the test suite, run it with:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.util.XLogIndexBenchmark [dir] [total MB] [files] [jobs]</code>
+ */
+public class XLogIndexBenchmark {
+
+    private static final String JOB_PREFIX = "-140101000000000-oozie-oozi-W";
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File((args.length > 0) ? args[0] : System.getProperty("java.io.tmpdir"), "xlog-benchmark");
+        long totalMB = (args.length > 1) ? Long.parseLong(args[1]) : 4096;
+        int files = (args.length > 2) ? Integer.parseInt(args[2]) : 8;
+        int jobs = (args.length > 3) ? Integer.parseInt(args[3]) : 10000;
+        File gzDir = new File(dir, "gz");
+        File indexedDir = new File(dir, "indexed");
+        gzDir.mkdirs();
+        indexedDir.mkdirs();
+
+        long endTime = System.currentTimeMillis() / 3600000 * 3600000;
+        long startTime = endTime - files * 3600000L;
+        SimpleDateFormat filenameDateFormatter = new SimpleDateFormat("yyyy-MM-dd-HH");
+        for (int i = 0; i < files; i++) {
+            long hour = startTime + i * 3600000L;
+            String name = "oozie.log-" + filenameDateFormatter.format(new Date(hour));
+            File log = new File(dir, name);
+            long begin = System.nanoTime();
+            generate(log, hour, totalMB * 1024 * 1024 / files, jobs, i);
+            long generated = System.nanoTime();
+            gzip(log, new File(gzDir, name + ".gz"));
+            long gzipped = System.nanoTime();
+            XLogIndex.compress(log, new File(indexedDir, name + ".gz"), XLogIndex.DEFAULT_BLOCK_SIZE);
+            long indexed = System.nanoTime();
+            log.delete();
+            System.out.println(String.format("%s %dMB generate=%dms gzip=%dms gzip+index=%dms", name,
+                                             totalMB / files, (generated - begin) / 1000000,
+                                             (gzipped - generated) / 1000000, (indexed - gzipped) / 1000000));
+        }
+
+        XLogStreamer.Filter.reset();
+        XLogStreamer.Filter.defineParameter("USER");
+        XLogStreamer.Filter.defineParameter("GROUP");
+        XLogStreamer.Filter.defineParameter("TOKEN");
+        XLogStreamer.Filter.defineParameter("APP");
+        XLogStreamer.Filter.defineParameter("JOB");
+        XLogStreamer.Filter.defineParameter("ACTION");
+        for (int i = 0; i < 3; i++) {
+            run("gzip", gzDir, startTime, endTime);
+            run("indexed gzip", indexedDir, startTime, endTime);
+        }
+    }
+
+    private static void run(String name, File dir, long startTime, long endTime) throws IOException {
+        XLogStreamer.Filter filter = new XLogStreamer.Filter();
+        filter.setParameter("JOB", String.format("%07d", 42) + JOB_PREFIX);
+        CountingWriter writer = new CountingWriter();
+        long begin = System.nanoTime();
+        new XLogStreamer(filter, dir.getPath(), "oozie.log", 3600).streamLog(writer, new Date(startTime),
+                new Date(endTime));
+        long wall = System.nanoTime() - begin;
+        System.out.println(String.format("%-14s streamed=%dchars wall=%dms", name, writer.count, wall / 1000000));
+    }
+
+    private static void generate(File log, long hour, long size, int jobs, int seed) throws IOException {
+        SimpleDateFormat timestampFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+        Random random = new Random(seed);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(log)), 1024 * 1024);
+        long written = 0;
+        long line = 0;
+        // about 200 bytes per message
+        long messages = size / 200;
+        while (written < size) {
+            long time = hour + line * 3600000L / messages;
+            // the streamed job logs about one message in 20000
+            int job = (random.nextInt(20000) == 0) ? 42 : random.nextInt(jobs);
+            String message = timestampFormatter.format(new Date(time)) + "  INFO CallableQueueService:539 - "
+                    + "SERVER[localhost] USER[oozie] GROUP[-] TOKEN[-] APP[app-" + (job % 100) + "] JOB["
+                    + String.format("%07d", job) + JOB_PREFIX + "] ACTION[-] Queuing callable, message " + line
+                    + "\n";
+            writer.write(message);
+            written += message.length();
+            if (random.nextInt(100) == 0) {
+                String trace = "java.io.IOException: synthetic\n\tat org.apache.oozie.Foo.bar(Foo.java:42)\n";
+                writer.write(trace);
+                written += trace.length();
+            }
+            line++;
+        }
+        writer.close();
+    }
+
+    private static void gzip(File log, File gz) throws IOException {
+        InputStream in = new FileInputStream(log);
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(gz), 64 * 1024);
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        out.close();
+    }
+
+    private static class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
@@ -18,10 +18,13 @@
 package org.apache.oozie.workflow.lite;
 
 
+import java.io.StringReader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -1102,6 +1105,110 @@ public class TestLiteWorkflowAppParser extends XTestCase {
     }
 
     // Invoke private validateForkJoin method using Reflection API
+    /*
+     f->(p0,...,p499)
+     (p0,...,p499)->j
+     j->a0->...->a49
+    */
+    public void testWideForkJoin() throws Exception {
+        LiteWorkflowAppParser parser = new LiteWorkflowAppParser(null,
+                LiteWorkflowStoreService.LiteControlNodeHandler.class,
+                LiteWorkflowStoreService.LiteDecisionHandler.class,
+                LiteWorkflowStoreService.LiteActionHandler.class);
+
+        List<String> paths = new ArrayList<String>();
+        LiteWorkflowApp def = new LiteWorkflowApp("wf", "<worklfow-app/>",
+            new StartNodeDef(LiteWorkflowStoreService.LiteControlNodeHandler.class, "f"));
+        for (int i = 0; i < 500; i++) {
+            paths.add("p" + i);
+            def.addNode(new ActionNodeDef("p" + i, dummyConf, TestActionNodeHandler.class, "j", "k"));
+        }
+        def.addNode(new ForkNodeDef("f", LiteWorkflowStoreService.LiteControlNodeHandler.class, paths));
+        def.addNode(new JoinNodeDef("j", LiteWorkflowStoreService.LiteControlNodeHandler.class, "a0"));
+        for (int i = 0; i < 50; i++) {
+            def.addNode(new ActionNodeDef("a" + i, dummyConf, TestActionNodeHandler.class, (i < 49) ? "a" + (i + 1)
+                    : "end", "k"));
+        }
+        def.addNode(new KillNodeDef("k", "kill", LiteWorkflowStoreService.LiteControlNodeHandler.class));
+        def.addNode(new EndNodeDef("end", LiteWorkflowStoreService.LiteControlNodeHandler.class));
+
+        // the nodes after the join are walked once, not once per fork path
+        invokeForkJoin(parser, def);
+
+        // a path to the end node is still found after the join was walked from other paths
+        def = new LiteWorkflowApp("wf", "<worklfow-app/>",
+            new StartNodeDef(LiteWorkflowStoreService.LiteControlNodeHandler.class, "f"));
+        for (int i = 0; i < 500; i++) {
+            def.addNode(new ActionNodeDef("p" + i, dummyConf, TestActionNodeHandler.class, "j",
+                    (i < 499) ? "k" : "end"));
+        }
+        def.addNode(new ForkNodeDef("f", LiteWorkflowStoreService.LiteControlNodeHandler.class, paths));
+        def.addNode(new JoinNodeDef("j", LiteWorkflowStoreService.LiteControlNodeHandler.class, "end"));
+        def.addNode(new KillNodeDef("k", "kill", LiteWorkflowStoreService.LiteControlNodeHandler.class));
+        def.addNode(new EndNodeDef("end", LiteWorkflowStoreService.LiteControlNodeHandler.class));
+        try {
+            invokeForkJoin(parser, def);
+            fail("Expected to catch an exception but did not encounter any");
+        }
+        catch (Exception ex) {
+            WorkflowException we = (WorkflowException) ex.getCause();
+            assertEquals(ErrorCode.E0737, we.getErrorCode());
+        }
+    }
+
+    private static final String PARAMETERS_WF = "<workflow-app xmlns=\"uri:oozie:workflow:0.4\" name=\"wf\">"
+            + "<parameters>"
+            + "<property><name>queue</name><value>default</value></property>"
+            + "<property><name>input</name></property>"
+            + "</parameters>"
+            + "<start to=\"a\"/>"
+            + "<action name=\"a\"><fs><mkdir path=\"/tmp/a\"/></fs><ok to=\"end\"/><error to=\"kill\"/></action>"
+            + "<kill name=\"kill\"><message>failed</message></kill>"
+            + "<end name=\"end\"/>"
+            + "</workflow-app>";
+
+    public void testAppCache() throws Exception {
+        javax.xml.validation.Schema schema = Services.get().get(SchemaService.class).getSchema(SchemaService.SchemaName.WORKFLOW);
+        LiteWorkflowAppParser parser = new LiteWorkflowAppParser(schema,
+                LiteWorkflowStoreService.LiteControlNodeHandler.class,
+                LiteWorkflowStoreService.LiteDecisionHandler.class,
+                LiteWorkflowStoreService.LiteActionHandler.class);
+
+        Configuration conf = new Configuration(false);
+        conf.set("input", "/tmp/in");
+        LiteWorkflowApp app = parser.validateAndParse(new StringReader(PARAMETERS_WF), conf);
+        assertEquals("default", conf.get("queue"));
+        assertNotNull(app.getNode("a"));
+
+        // the cached application is returned, the parameters are still verified
+        conf = new Configuration(false);
+        conf.set("input", "/tmp/in");
+        assertSame(app, parser.validateAndParse(new StringReader(PARAMETERS_WF), conf));
+        assertEquals("default", conf.get("queue"));
+        try {
+            parser.validateAndParse(new StringReader(PARAMETERS_WF), new Configuration(false));
+            fail();
+        }
+        catch (WorkflowException ex) {
+            assertEquals(ErrorCode.E0738, ex.getErrorCode());
+        }
+
+        // invalid definitions are not cached
+        String invalidWf = PARAMETERS_WF.replace("<start to=\"a\"/>", "");
+        for (int i = 0; i < 2; i++) {
+            try {
+                parser.validateAndParse(new StringReader(invalidWf), conf);
+                fail();
+            }
+            catch (WorkflowException ex) {
+                assertEquals(ErrorCode.E0701, ex.getErrorCode());
+            }
+        }
+
+        Services.get().getConf().setInt(LiteWorkflowAppParser.CONF_APP_CACHE_SIZE, 0);
+        assertNotSame(app, parser.validateAndParse(new StringReader(PARAMETERS_WF), conf));
+    }
+
     private void invokeForkJoin(LiteWorkflowAppParser parser, LiteWorkflowApp def) throws Exception {
         Class<? extends LiteWorkflowAppParser> c = parser.getClass();
         Class<?> d = Class.forName("org.apache.oozie.workflow.lite.LiteWorkflowAppParser$VisitStatus");
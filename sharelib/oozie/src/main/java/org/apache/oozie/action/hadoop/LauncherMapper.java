@@ -18,6 +18,7 @@
 package org.apache.oozie.action.hadoop;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
@@ -26,8 +27,12 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.GeneralSecurityException;
 import java.security.Permission;
 import java.text.MessageFormat;
 import java.util.HashMap;
@@ -37,6 +42,11 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.bind.DatatypeConverter;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -77,6 +87,14 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
     static final String ACTION_DATA_NEW_ID = "newId";
     static final String ACTION_DATA_ERROR_PROPS = "error.properties";
 
+    static final Text ACTION_DATA_CALLBACK_KEY_ALIAS = new Text(ACTION_PREFIX + "data.callback.key");
+    static final String CONF_OOZIE_ACTION_DATA_CALLBACK_MAX_SIZE = ACTION_PREFIX + "data.callback.max.size";
+    public static final String ACTION_DATA_CALLBACK_PAYLOAD = ACTION_PREFIX + "data.payload";
+    public static final String ACTION_DATA_CALLBACK_SIGNATURE = ACTION_PREFIX + "data.signature";
+    public static final String ACTION_DATA_CALLBACK_JOB_ID = "oozie.launcher.job.id";
+    public static final String ACTION_DATA_CALLBACK_STATUS = "RUNNING";
+    private static final int ACTION_DATA_CALLBACK_TIMEOUT = 10000;
+
     private void setRecoveryId(Configuration launcherConf, Path actionDir, String recoveryId) throws LauncherException {
         try {
             String jobId = launcherConf.get("mapred.job.id");
@@ -304,6 +322,7 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
         }
         finally {
             uploadActionDataToHDFS();
+            sendActionDataOnCallback();
         }
     }
 
@@ -409,6 +428,109 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
         }
     }
 
+    /**
+     * Send the action data to the Oozie server on the callback URL, so it does not have to read the action data
+     * sequence file when the launcher completes.
+     * <p/>
+     * It is only sent when the Oozie server gives the signing key in the launcher job credentials, which unlike the
+     * job configuration are not readable by other users, and the action data is not larger than the size it accepts.
+     * Any failure is ignored, the Oozie server reads the action data sequence file instead.
+     */
+    private void sendActionDataOnCallback() {
+        byte[] secretKey = getJobConf().getCredentials().getSecretKey(ACTION_DATA_CALLBACK_KEY_ALIAS);
+        String callbackUrl = getJobConf().getJobEndNotificationURI();
+        if (secretKey == null || callbackUrl == null || actionData.isEmpty()) {
+            return;
+        }
+        try {
+            String key = new String(secretKey, "UTF-8");
+            String jobId = getJobConf().get("mapred.job.id");
+            Properties callbackData = createCallbackActionData(actionData, jobId, key,
+                    getJobConf().getInt(CONF_OOZIE_ACTION_DATA_CALLBACK_MAX_SIZE, 0));
+            if (callbackData == null) {
+                System.out.println("Oozie Launcher, action data is too large to be sent on the callback");
+                return;
+            }
+            callbackUrl = callbackUrl.replace("$jobId", jobId).replace("$jobStatus", ACTION_DATA_CALLBACK_STATUS);
+            System.out.println("Oozie Launcher, sending action data on the callback: " + callbackUrl);
+            HttpURLConnection conn = (HttpURLConnection) new URL(callbackUrl).openConnection();
+            try {
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.setConnectTimeout(ACTION_DATA_CALLBACK_TIMEOUT);
+                conn.setReadTimeout(ACTION_DATA_CALLBACK_TIMEOUT);
+                conn.setRequestProperty("content-type", "text/plain");
+                Writer writer = new OutputStreamWriter(conn.getOutputStream(), "UTF-8");
+                callbackData.store(writer, null);
+                writer.close();
+                if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    System.out.println("Oozie Launcher, callback with action data failed, HTTP status ["
+                            + conn.getResponseCode() + "]");
+                }
+            }
+            finally {
+                conn.disconnect();
+            }
+        }
+        catch (Exception ex) {
+            System.out.println("Oozie Launcher, could not send action data on the callback: " + ex);
+        }
+    }
+
+    /**
+     * Create the callback data carrying the action data.
+     * <p/>
+     * The action data and the launcher job ID are written as properties, compressed with gzip and encoded in Base64.
+     * The compressed data is signed with HMAC-SHA256 using the key given by the Oozie server for the action.
+     *
+     * @param actionData the action data.
+     * @param jobId the launcher job ID.
+     * @param key the signing key of the action.
+     * @param maxSize maximum size in bytes of the uncompressed action data.
+     * @return the callback data, <code>null</code> if the action data is larger than <code>maxSize</code>.
+     * @throws IOException thrown if the callback data could not be created.
+     */
+    public static Properties createCallbackActionData(Map<String, String> actionData, String jobId, String key,
+            int maxSize) throws IOException {
+        Properties props = new Properties();
+        props.putAll(actionData);
+        props.setProperty(ACTION_DATA_CALLBACK_JOB_ID, jobId);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        props.store(data, null);
+        if (data.size() > maxSize) {
+            return null;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.size() / 2 + 64);
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        data.writeTo(gzip);
+        gzip.close();
+        byte[] payload = compressed.toByteArray();
+
+        Properties callbackData = new Properties();
+        callbackData.setProperty(ACTION_DATA_CALLBACK_PAYLOAD, DatatypeConverter.printBase64Binary(payload));
+        callbackData.setProperty(ACTION_DATA_CALLBACK_SIGNATURE, signActionData(key, payload));
+        return callbackData;
+    }
+
+    /**
+     * Sign the action data with HMAC-SHA256.
+     *
+     * @param key the signing key of the action.
+     * @param payload the compressed action data.
+     * @return the signature in hexadecimal.
+     * @throws IOException thrown if the action data could not be signed.
+     */
+    public static String signActionData(String key, byte[] payload) throws IOException {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key.getBytes("UTF-8"), "HmacSHA256"));
+            return DatatypeConverter.printHexBinary(mac.doFinal(payload)).toLowerCase();
+        }
+        catch (GeneralSecurityException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
     private void setupMainConfiguration() throws IOException {
         Path pathNew = new Path(new Path(actionDir, ACTION_CONF_XML),
                 new Path(new File(ACTION_CONF_XML).getAbsolutePath()));
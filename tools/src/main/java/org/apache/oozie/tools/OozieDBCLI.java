@@ -173,6 +173,7 @@ public class OozieDBCLI {
         validateDBSchema(false);
         verifyOozieSysTable(false);
         createUpgradeDB(sqlFile, run, true);
+        createIndexes(sqlFile, run);
         createOozieSysTable(sqlFile, run);
         setSQLMediumTextFlag(sqlFile, run);
         System.out.println();
@@ -197,7 +198,9 @@ public class OozieDBCLI {
                 upgradeDBTo40(sqlFile, run, true);
             }
             else if (ver.equals(DB_VERSION)) { // if db.version equals to 2, it's already upgraded
-                throw new Exception("Oozie DB has already been upgraded");
+                if (!upgradeOptionalSchema(sqlFile, run)) {
+                    throw new Exception("Oozie DB has already been upgraded");
+                }
             }
         }
 
@@ -219,12 +222,112 @@ public class OozieDBCLI {
         }
         postUpgradeTasks(sqlFile, run, false);
         ddlTweaks(sqlFile, run);
+        createIndexes(sqlFile, run);
         if (!fromVerOne || verifySQLMediumText()) {
             doSQLMediumTextTweaks(sqlFile, run);
             setSQLMediumTextFlag(sqlFile, run);
         }
     }
 
+    // tables that are only used by optional services, the schema of the other tables does not depend on them
+    private final static String[] OPTIONAL_TABLES = {"WF_DEFINITIONS", "WF_DEFINITION_REFS"};
+
+    /**
+     * Add the optional tables and the multi column indexes that were introduced without a change of the DB version to
+     * a DB that does not have them yet.
+     *
+     * @return <code>true</code> if they were added, <code>false</code> if the DB has them already.
+     */
+    private boolean upgradeOptionalSchema(String sqlFile, boolean run) throws Exception {
+        boolean upToDate = true;
+        Connection conn = createConnection();
+        try {
+            for (String table : OPTIONAL_TABLES) {
+                upToDate &= tableExists(conn, table);
+            }
+            for (String[] index : MULTI_COLUMN_INDEXES) {
+                upToDate &= indexExists(conn, index[0], index[1]);
+            }
+        }
+        finally {
+            conn.close();
+        }
+        if (!upToDate) {
+            createUpgradeDB(sqlFile, run, false);
+            createIndexes(sqlFile, run);
+        }
+        return !upToDate;
+    }
+
+    // indexes spanning several columns, the JPA annotations only declare single column indexes; table, index and
+    // columns of each index
+    private final static String[][] MULTI_COLUMN_INDEXES = {
+        // the cursor paginated workflow jobs listing orders and seeks by created time and id
+        {"WF_JOBS", "I_WF_JOBS_CREATED_TIME_ID", "created_time, id"}};
+
+    private void createIndexes(String sqlFile, boolean run) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileWriter(sqlFile, true));
+        writer.println();
+        Connection conn = (run) ? createConnection() : null;
+        try {
+            for (String[] index : MULTI_COLUMN_INDEXES) {
+                System.out.println("Create index '" + index[1] + "' on table '" + index[0] + "'");
+                String query = "CREATE INDEX " + index[1] + " ON " + index[0] + " (" + index[2] + ")";
+                if (run && indexExists(conn, index[0], index[1])) {
+                    continue;
+                }
+                writer.println(query + ";");
+                if (run) {
+                    conn.setAutoCommit(true);
+                    Statement st = conn.createStatement();
+                    st.executeUpdate(query);
+                    st.close();
+                }
+            }
+            System.out.println("DONE");
+            writer.close();
+        }
+        finally {
+            if (run) {
+                conn.close();
+            }
+        }
+    }
+
+    private boolean tableExists(Connection conn, String table) throws Exception {
+        // databases store unquoted identifiers either in upper or in lower case
+        for (String name : new String[]{table.toUpperCase(), table.toLowerCase()}) {
+            ResultSet rs = conn.getMetaData().getTables(null, null, name, null);
+            try {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+            finally {
+                rs.close();
+            }
+        }
+        return false;
+    }
+
+    private boolean indexExists(Connection conn, String table, String index) throws Exception {
+        // databases store unquoted identifiers either in upper or in lower case
+        for (String name : new String[]{table.toUpperCase(), table.toLowerCase()}) {
+            ResultSet rs = conn.getMetaData().getIndexInfo(null, null, name, false, true);
+            try {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+            finally {
+                rs.close();
+            }
+        }
+        return false;
+    }
+
     private final static String UPDATE_DB_VERSION =
             "update OOZIE_SYS set data='" + DB_VERSION + "' where name='db.version'";
     private final static String UPDATE_OOZIE_VERSION =
@@ -857,6 +960,8 @@ public class OozieDBCLI {
             args.add(sqlFile);
         }
         args.add("org.apache.oozie.WorkflowJobBean");
+        args.add("org.apache.oozie.WorkflowDefinitionBean");
+        args.add("org.apache.oozie.WorkflowDefinitionRefBean");
         args.add("org.apache.oozie.WorkflowActionBean");
         args.add("org.apache.oozie.CoordinatorJobBean");
         args.add("org.apache.oozie.CoordinatorActionBean");
@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.PrintStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.Statement;
 
 /**
@@ -86,6 +87,7 @@ public class TestOozieDBCLI extends XTestCase {
         int result = execOozieDBCLICommands(argsCreate);
         assertEquals(0, result);
         assertTrue(createSql.exists());
+        assertTrue(indexExists("WF_JOBS", "I_WF_JOBS_CREATED_TIME_ID"));
 
         ByteArrayOutputStream data = new ByteArrayOutputStream();
         PrintStream oldOut = System.out;
@@ -122,10 +124,47 @@ public class TestOozieDBCLI extends XTestCase {
         assertEquals(0, execOozieDBCLICommands(argsUpgrade));
 
         assertTrue(upgrade.exists());
+        assertTrue(indexExists("WF_JOBS", "I_WF_JOBS_CREATED_TIME_ID"));
         File postUpgrade = new File(getTestCaseConfDir() + File.separator + "postUpdate.sql");
         String[] argsPostUpgrade = { "postupgrade", "-sqlfile", postUpgrade.getAbsolutePath(), "-run" };
         assertEquals(0, execOozieDBCLICommands(argsPostUpgrade));
         assertTrue(postUpgrade.exists());
+
+        // the optional tables and the indexes are added to a DB of the current version that does not have them
+        execSQL("DROP TABLE WF_DEFINITION_REFS");
+        execSQL("DROP INDEX I_WF_JOBS_CREATED_TIME_ID");
+        assertEquals(0, execOozieDBCLICommands(argsUpgrade));
+        assertTrue(tableExists("WF_DEFINITION_REFS"));
+        assertTrue(indexExists("WF_JOBS", "I_WF_JOBS_CREATED_TIME_ID"));
+        // a DB that has them is already upgraded
+        assertEquals(1, execOozieDBCLICommands(argsUpgrade));
+    }
+
+    private boolean tableExists(String table) throws Exception {
+        Connection conn = DriverManager.getConnection(url, "sa", "");
+        try {
+            ResultSet rs = conn.getMetaData().getTables(null, null, table, null);
+            return rs.next();
+        }
+        finally {
+            conn.close();
+        }
+    }
+
+    private boolean indexExists(String table, String index) throws Exception {
+        Connection conn = DriverManager.getConnection(url, "sa", "");
+        try {
+            ResultSet rs = conn.getMetaData().getIndexInfo(null, null, table, false, true);
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally {
+            conn.close();
+        }
     }
 
     private int execOozieDBCLICommands(String[] args) {